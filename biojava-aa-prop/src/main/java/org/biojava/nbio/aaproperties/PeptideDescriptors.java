@@ -0,0 +1,581 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.aaproperties;
+
+import org.biojava.nbio.aaproperties.profeat.IProfeatProperties.ATTRIBUTE;
+import org.biojava.nbio.aaproperties.profeat.IProfeatProperties.DISTRIBUTION;
+import org.biojava.nbio.aaproperties.profeat.IProfeatProperties.GROUPING;
+import org.biojava.nbio.aaproperties.profeat.IProfeatProperties.TRANSITION;
+import org.biojava.nbio.aaproperties.profeat.convertor.Convert2Charge;
+import org.biojava.nbio.aaproperties.profeat.convertor.Convert2Hydrophobicity;
+import org.biojava.nbio.aaproperties.profeat.convertor.Convert2NormalizedVanDerWaalsVolume;
+import org.biojava.nbio.aaproperties.profeat.convertor.Convert2Polarity;
+import org.biojava.nbio.aaproperties.profeat.convertor.Convert2Polarizability;
+import org.biojava.nbio.aaproperties.profeat.convertor.Convert2SecondaryStructure;
+import org.biojava.nbio.aaproperties.profeat.convertor.Convert2SolventAccessibility;
+import org.biojava.nbio.aaproperties.profeat.convertor.Convertor;
+import org.biojava.nbio.core.sequence.compound.AminoAcidCompound;
+import org.biojava.nbio.core.sequence.compound.AminoAcidCompoundSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * The {@link PeptideProperties} and PROFEAT descriptors of a protein sequence,
+ * derived from residue and dipeptide counts gathered in a single pass over
+ * the sequence. This avoids building a {@link org.biojava.nbio.core.sequence.ProteinSequence}
+ * and counting the residues again for each property, and is meant for
+ * profiling whole proteomes with {@link #process(BufferedReader, Writer, String, int)}.
+ * <p>
+ * The sequence is read in upper case, characters other than the 20 standard
+ * amino acids count in the length only, like the '-' that
+ * {@link Utils#checkSequence(String)} replaces them with.
+ *
+ * @since 5.3.1
+ * @see PeptideProperties
+ * @see org.biojava.nbio.aaproperties.profeat.ProfeatProperties
+ */
+public class PeptideDescriptors {
+
+	private final static Logger logger = LoggerFactory.getLogger(PeptideDescriptors.class);
+
+	/** the index of non letters, letters are indexed by <code>residue - 'A'</code> */
+	private static final int OTHER = 26;
+	private static final int CODES = 27;
+	private static final double WATER_WEIGHT = 1.0079 + 17.0073;
+
+	private static final String STANDARD = "ARNDCEQGHILKMFPSTWYV";
+	private static final boolean[] standard = new boolean[CODES];
+	private static final double[] weight = new double[CODES];
+	private static final double[] hydropathy = new double[CODES];
+	private static final double[] instability = new double[CODES * CODES];
+	/** the PROFEAT group (0 for unknown, 1 to 3) of each residue, by attribute */
+	private static final int[][] groups = new int[ATTRIBUTE.values().length][CODES];
+
+	static {
+		for (char c : STANDARD.toCharArray()) {
+			int i = c - 'A';
+			standard[i] = true;
+			AminoAcidCompound compound = compound(c);
+			weight[i] = Constraints.aa2MolecularWeight.get(compound);
+			hydropathy[i] = Constraints.aa2Hydrophathicity.get(compound);
+		}
+		for (Map.Entry<String, Double> entry : Constraints.diAA2Instability.entrySet()) {
+			String dipeptide = entry.getKey();
+			instability[code(dipeptide.charAt(0)) * CODES + code(dipeptide.charAt(1))] = entry.getValue();
+		}
+		for (ATTRIBUTE attribute : ATTRIBUTE.values()) {
+			Convertor convertor = getConvertor(attribute);
+			for (int i = 0; i < OTHER; i++) {
+				groups[attribute.ordinal()][i] = convertor.convert((char) ('A' + i)) - Convertor.unknownGroup;
+			}
+		}
+	}
+
+	private final int length;
+	private final int[] counts = new int[CODES];
+	private final int[] pairs = new int[CODES * CODES];
+	/** the first and last residues, and the ones ExPASy uses for the isoelectric point */
+	private final int first, last, nTerminal, cTerminal;
+	/** the positions of the PROFEAT distributions, by attribute, group and distribution */
+	private final int[] positions = new int[ATTRIBUTE.values().length * 3 * DISTRIBUTION.values().length];
+
+	private PeptideDescriptors(CharSequence sequence) {
+		length = sequence.length();
+		int previous = -1;
+		for (int i = 0; i < length; i++) {
+			int code = code(sequence.charAt(i));
+			counts[code]++;
+			if (previous >= 0) {
+				pairs[previous * CODES + code]++;
+			}
+			previous = code;
+		}
+		first = length > 0 ? code(sequence.charAt(0)) : OTHER;
+		last = length > 0 ? code(sequence.charAt(length - 1)) : OTHER;
+
+		// the first standard residue within 25 residues of each end
+		int n = -1;
+		for (int i = 0; i < Math.min(25, length) && n < 0; i++) {
+			int code = code(sequence.charAt(i));
+			n = standard[code] ? code : -1;
+		}
+		int c = -1;
+		for (int i = 1; i < Math.min(25, length + 1) && c < 0; i++) {
+			int code = code(sequence.charAt(length - i));
+			c = standard[code] ? code : -1;
+		}
+		nTerminal = n;
+		cTerminal = c;
+
+		// the residues of each group where the distributions end
+		int ndist = DISTRIBUTION.values().length;
+		int[] targets = new int[positions.length];
+		for (ATTRIBUTE attribute : ATTRIBUTE.values()) {
+			for (GROUPING group : GROUPING.values()) {
+				int total = getGroupCount(attribute, group);
+				int offset = (attribute.ordinal() * 3 + group.ordinal()) * ndist;
+				targets[offset + DISTRIBUTION.FIRST.ordinal()] = 1;
+				targets[offset + DISTRIBUTION.FIRST25.ordinal()] = total * 25 / 100;
+				targets[offset + DISTRIBUTION.FIRST50.ordinal()] = total * 50 / 100;
+				targets[offset + DISTRIBUTION.FIRST75.ordinal()] = total * 75 / 100;
+				targets[offset + DISTRIBUTION.ALL.ordinal()] = total;
+			}
+		}
+		int[] seen = new int[groups.length * 3];
+		for (int i = 0; i < length; i++) {
+			int code = code(sequence.charAt(i));
+			for (int a = 0; a < groups.length; a++) {
+				int g = groups[a][code];
+				if (g == 0) {
+					continue;
+				}
+				int count = ++seen[a * 3 + g - 1];
+				int offset = (a * 3 + g - 1) * ndist;
+				for (int d = 0; d < ndist; d++) {
+					if (targets[offset + d] == count) {
+						positions[offset + d] = i + 1;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Counts the residues and dipeptides of a sequence.
+	 *
+	 * @param sequence a protein sequence
+	 * @return the descriptors of the sequence
+	 */
+	public static PeptideDescriptors compute(CharSequence sequence) {
+		return new PeptideDescriptors(sequence);
+	}
+
+	private static int code(char c) {
+		if (c >= 'a' && c <= 'z') {
+			c -= 'a' - 'A';
+		}
+		return c >= 'A' && c <= 'Z' ? c - 'A' : OTHER;
+	}
+
+	private static AminoAcidCompound compound(char c) {
+		return new AminoAcidCompoundSet().getCompoundForString(String.valueOf(c));
+	}
+
+	private static Convertor getConvertor(ATTRIBUTE attribute) {
+		switch (attribute) {
+		case HYDROPHOBICITY: return new Convert2Hydrophobicity();
+		case VOLUME: return new Convert2NormalizedVanDerWaalsVolume();
+		case POLARITY: return new Convert2Polarity();
+		case POLARIZABILITY: return new Convert2Polarizability();
+		case CHARGE: return new Convert2Charge();
+		case SECONDARYSTRUCTURE: return new Convert2SecondaryStructure();
+		case SOLVENTACCESSIBILITY: return new Convert2SolventAccessibility();
+		default: throw new IllegalArgumentException("Unknown attribute: " + attribute);
+		}
+	}
+
+	/**
+	 * @return the length of the sequence, including non standard residues
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * @return the number of standard residues
+	 */
+	public int getValidLength() {
+		int valid = 0;
+		for (int i = 0; i < OTHER; i++) {
+			if (standard[i]) {
+				valid += counts[i];
+			}
+		}
+		return valid;
+	}
+
+	/**
+	 * @param aminoAcidCode
+	 * @return the number of residues aminoAcidCode
+	 */
+	public int getCount(char aminoAcidCode) {
+		return counts[code(aminoAcidCode)];
+	}
+
+	/**
+	 * @param first
+	 * @param second
+	 * @return the number of times second follows first
+	 */
+	public int getDipeptideCount(char first, char second) {
+		return pairs[code(first) * CODES + code(second)];
+	}
+
+	/**
+	 * @see PeptideProperties#getMolecularWeight(String)
+	 */
+	public double getMolecularWeight() {
+		double value = 0.0;
+		for (int i = 0; i < OTHER; i++) {
+			value += counts[i] * weight[i];
+		}
+		return value == 0 ? value : value + WATER_WEIGHT;
+	}
+
+	/**
+	 * @see PeptideProperties#getExtinctionCoefficient(String, boolean)
+	 */
+	public double getExtinctionCoefficient(boolean assumeCysReduced) {
+		double eProt = counts['Y' - 'A'] * Constraints.aa2ExtinctionCoefficient.get(Constraints.Y)
+				+ counts['W' - 'A'] * Constraints.aa2ExtinctionCoefficient.get(Constraints.W);
+		if (!assumeCysReduced) {
+			// two cysteines per cystine
+			eProt += counts['C' - 'A'] / 2 * Constraints.aa2ExtinctionCoefficient.get(Constraints.C);
+		}
+		return eProt;
+	}
+
+	/**
+	 * @see PeptideProperties#getAbsorbance(String, boolean)
+	 */
+	public double getAbsorbance(boolean assumeCysReduced) {
+		double mw = getMolecularWeight();
+		if (mw == 0.0) {
+			logger.warn("Molecular weight is 0.0, can't divide by 0: setting absorbance to 0.0");
+			return 0.0;
+		}
+		return getExtinctionCoefficient(assumeCysReduced) / mw;
+	}
+
+	/**
+	 * @see PeptideProperties#getInstabilityIndex(String)
+	 */
+	public double getInstabilityIndex() {
+		double sum = 0.0;
+		for (int i = 0; i < pairs.length; i++) {
+			if (pairs[i] > 0) {
+				sum += pairs[i] * instability[i];
+			}
+		}
+		int denominator = getValidLength();
+		if (denominator == 0) {
+			logger.warn("Valid length of sequence is 0, can't divide by 0 to calculate instability index: setting instability index value to 0.0");
+			return 0.0;
+		}
+		return sum * 10.0 / denominator;
+	}
+
+	/**
+	 * @see PeptideProperties#getApliphaticIndex(String)
+	 */
+	public double getApliphaticIndex() {
+		final double a = 2.9;
+		final double b = 3.9;
+		return (getComposition('A') + (a * getComposition('V')) + (b * (getComposition('I') + getComposition('L')))) * 100;
+	}
+
+	/**
+	 * @see PeptideProperties#getAvgHydropathy(String)
+	 */
+	public double getAvgHydropathy() {
+		double total = 0.0;
+		for (int i = 0; i < OTHER; i++) {
+			total += counts[i] * hydropathy[i];
+		}
+		int validLength = getValidLength();
+		if (validLength == 0) {
+			logger.warn("Valid length of sequence is 0, can't divide by 0 to calculate average hydropathy: setting average hydropathy to 0");
+			return 0.0;
+		}
+		return total / validLength;
+	}
+
+	/**
+	 * @return the number of each standard residue, indexed by <code>residue - 'A'</code>
+	 */
+	private int[] getStandardCounts() {
+		int[] comp = new int[OTHER];
+		for (int i = 0; i < OTHER; i++) {
+			comp[i] = standard[i] ? counts[i] : 0;
+		}
+		return comp;
+	}
+
+	private char terminal(int code) {
+		return standard[code] ? (char) ('A' + code) : '-';
+	}
+
+	/**
+	 * @see PeptideProperties#getIsoelectricPoint(String, boolean)
+	 */
+	public double getIsoelectricPoint(boolean useExpasyValues) {
+		if (useExpasyValues) {
+			return PeptidePropertiesImpl.getIsoelectricPointExpasy(getStandardCounts(), nTerminal, cTerminal);
+		} else {
+			return PeptidePropertiesImpl.getIsoelectricPointInnovagen(getStandardCounts(), terminal(first), terminal(last));
+		}
+	}
+
+	/**
+	 * @see PeptideProperties#getIsoelectricPoint(String)
+	 */
+	public double getIsoelectricPoint() {
+		return getIsoelectricPoint(true);
+	}
+
+	/**
+	 * @see PeptideProperties#getNetCharge(String, boolean, double)
+	 */
+	public double getNetCharge(boolean useExpasyValues, double pHPoint) {
+		if (useExpasyValues) {
+			return PeptidePropertiesImpl.getNetChargeExpasy(getStandardCounts(),
+					standard[first] ? first : -1, standard[last] ? last : -1, pHPoint);
+		} else {
+			return PeptidePropertiesImpl.getNetChargeInnovagen(getStandardCounts(), pHPoint, terminal(first), terminal(last));
+		}
+	}
+
+	/**
+	 * @see PeptideProperties#getNetCharge(String)
+	 */
+	public double getNetCharge() {
+		return getNetCharge(true, 7.0);
+	}
+
+	/**
+	 * @see PeptideProperties#getEnrichment(String, char)
+	 */
+	public double getEnrichment(char aminoAcidCode) {
+		return (double) counts[code(aminoAcidCode)] / length;
+	}
+
+	/**
+	 * @param aminoAcidCode one of the 20 standard amino acids
+	 * @return the fraction of the standard residues that are aminoAcidCode
+	 * @see PeptideProperties#getAAComposition(String)
+	 */
+	public double getComposition(char aminoAcidCode) {
+		int code = code(aminoAcidCode);
+		int validLength = getValidLength();
+		return standard[code] && validLength > 0 ? (double) counts[code] / validLength : 0.0;
+	}
+
+	private int getGroupCount(ATTRIBUTE attribute, GROUPING group) {
+		int[] g = groups[attribute.ordinal()];
+		int total = 0;
+		for (int i = 0; i < CODES; i++) {
+			if (g[i] == group.ordinal() + 1) {
+				total += counts[i];
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * @see org.biojava.nbio.aaproperties.profeat.ProfeatProperties#getComposition(String, ATTRIBUTE, GROUPING)
+	 */
+	public double getComposition(ATTRIBUTE attribute, GROUPING group) {
+		return (getGroupCount(attribute, group) + 0.0) / length;
+	}
+
+	/**
+	 * @see org.biojava.nbio.aaproperties.profeat.ProfeatProperties#getTransition(String, ATTRIBUTE, TRANSITION)
+	 */
+	public double getTransition(ATTRIBUTE attribute, TRANSITION transition) {
+		int t1;
+		int t2;
+		switch (transition) {
+		case BETWEEN_11: t1 = 1; t2 = 1; break;
+		case BETWEEN_22: t1 = 2; t2 = 2; break;
+		case BETWEEN_33: t1 = 3; t2 = 3; break;
+		case BETWEEN_12: t1 = 1; t2 = 2; break;
+		case BETWEEN_13: t1 = 1; t2 = 3; break;
+		case BETWEEN_23: t1 = 2; t2 = 3; break;
+		default: throw new IllegalArgumentException("Unhandled Case: " + transition);
+		}
+		int[] g = groups[attribute.ordinal()];
+		int total = 0;
+		for (int i = 0; i < CODES; i++) {
+			for (int j = 0; j < CODES; j++) {
+				if ((g[i] == t1 && g[j] == t2) || (g[i] == t2 && g[j] == t1)) {
+					total += pairs[i * CODES + j];
+				}
+			}
+		}
+		return total / (length - 1.0);
+	}
+
+	/**
+	 * @see org.biojava.nbio.aaproperties.profeat.ProfeatProperties#getDistributionPosition(String, ATTRIBUTE, GROUPING, DISTRIBUTION)
+	 */
+	public double getDistributionPosition(ATTRIBUTE attribute, GROUPING group, DISTRIBUTION distribution) {
+		int offset = (attribute.ordinal() * 3 + group.ordinal()) * DISTRIBUTION.values().length;
+		return (positions[offset + distribution.ordinal()] + 0.0) / length;
+	}
+
+	/**
+	 * @return the names of the descriptors of {@link #getDescriptors()}
+	 */
+	public static List<String> getDescriptorNames() {
+		List<String> names = new ArrayList<>();
+		names.add("MolecularWeight");
+		names.add("ExtinctionCoefficient");
+		names.add("ExtinctionCoefficientCysReduced");
+		names.add("Absorbance");
+		names.add("AbsorbanceCysReduced");
+		names.add("InstabilityIndex");
+		names.add("ApliphaticIndex");
+		names.add("AverageHydropathy");
+		names.add("IsoelectricPoint");
+		names.add("NetCharge");
+		for (char c : STANDARD.toCharArray()) {
+			names.add("Composition_" + c);
+		}
+		for (ATTRIBUTE attribute : ATTRIBUTE.values()) {
+			for (GROUPING group : GROUPING.values()) {
+				names.add(attribute + "_" + group);
+			}
+			for (TRANSITION transition : TRANSITION.values()) {
+				names.add(attribute + "_" + transition);
+			}
+			for (GROUPING group : GROUPING.values()) {
+				for (DISTRIBUTION distribution : DISTRIBUTION.values()) {
+					names.add(attribute + "_" + group + "_" + distribution);
+				}
+			}
+		}
+		return names;
+	}
+
+	/**
+	 * @return all the descriptors, in the order of {@link #getDescriptorNames()}
+	 */
+	public double[] getDescriptors() {
+		double[] values = new double[10 + STANDARD.length()
+				+ ATTRIBUTE.values().length * (GROUPING.values().length * (1 + DISTRIBUTION.values().length) + TRANSITION.values().length)];
+		int i = 0;
+		values[i++] = getMolecularWeight();
+		values[i++] = getExtinctionCoefficient(false);
+		values[i++] = getExtinctionCoefficient(true);
+		values[i++] = getAbsorbance(false);
+		values[i++] = getAbsorbance(true);
+		values[i++] = getInstabilityIndex();
+		values[i++] = getApliphaticIndex();
+		values[i++] = getAvgHydropathy();
+		values[i++] = getIsoelectricPoint();
+		values[i++] = getNetCharge();
+		for (char c : STANDARD.toCharArray()) {
+			values[i++] = getComposition(c);
+		}
+		for (ATTRIBUTE attribute : ATTRIBUTE.values()) {
+			for (GROUPING group : GROUPING.values()) {
+				values[i++] = getComposition(attribute, group);
+			}
+			for (TRANSITION transition : TRANSITION.values()) {
+				values[i++] = getTransition(attribute, transition);
+			}
+			for (GROUPING group : GROUPING.values()) {
+				for (DISTRIBUTION distribution : DISTRIBUTION.values()) {
+					values[i++] = getDistributionPosition(attribute, group, distribution);
+				}
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * Computes the descriptors of all the sequences of a FASTA file and
+	 * writes them as a table with a header line, one line per sequence with
+	 * its accession (the header up to the first space) followed by the
+	 * descriptors of {@link #getDescriptorNames()}. The sequences are read
+	 * in batches that are computed in parallel, and written in input order.
+	 *
+	 * @param fasta the FASTA file
+	 * @param output where to write the table
+	 * @param delimiter the column delimiter, e.g. "," or "\t"
+	 * @param decimalPlace the number of decimals written, negative for all
+	 * @return the number of sequences
+	 * @throws IOException
+	 */
+	public static int process(BufferedReader fasta, Writer output, String delimiter, int decimalPlace) throws IOException {
+		final int batchSize = 4096;
+
+		StringBuilder line = new StringBuilder("Accession");
+		for (String name : getDescriptorNames()) {
+			line.append(delimiter).append(name);
+		}
+		output.write(line.append(System.lineSeparator()).toString());
+
+		List<String> accessions = new ArrayList<>(batchSize);
+		List<String> sequences = new ArrayList<>(batchSize);
+		StringBuilder sequence = null;
+		int total = 0;
+		String s;
+		while (true) {
+			s = fasta.readLine();
+			if (s == null || s.startsWith(">")) {
+				if (sequence != null) {
+					sequences.add(sequence.toString());
+				}
+				if (s == null || sequences.size() == batchSize) {
+					total += writeBatch(accessions, sequences, output, delimiter, decimalPlace);
+					accessions.clear();
+					sequences.clear();
+				}
+				if (s == null) {
+					break;
+				}
+				String header = s.substring(1).trim();
+				int space = header.indexOf(' ');
+				accessions.add(space < 0 ? header : header.substring(0, space));
+				sequence = new StringBuilder();
+			} else if (sequence != null) {
+				sequence.append(s.trim());
+			}
+		}
+		output.flush();
+		logger.debug("Computed the descriptors of {} sequences", total);
+		return total;
+	}
+
+	private static int writeBatch(List<String> accessions, List<String> sequences, Writer output, String delimiter, int decimalPlace) throws IOException {
+		String[] lines = new String[sequences.size()];
+		IntStream.range(0, lines.length).parallel().forEach(i -> {
+			StringBuilder line = new StringBuilder(accessions.get(i));
+			for (double value : compute(sequences.get(i)).getDescriptors()) {
+				line.append(delimiter).append(Utils.roundToDecimals(value, decimalPlace));
+			}
+			lines[i] = line.append(System.lineSeparator()).toString();
+		});
+		for (String line : lines) {
+			output.write(line);
+		}
+		return lines.length;
+	}
+}
@@ -287,18 +287,26 @@ public class PeptidePropertiesImpl implements IPeptideProperties{
 	}
 
 	private double getIsoelectricPointInnovagen(ProteinSequence sequence){
-		double currentPH = 7.0;
-		double changeSize = 7.0;
 		String sequenceString = sequence.toString();
 		char nTerminalChar = sequenceString.charAt(0);
 		char cTerminalChar = sequenceString.charAt(sequenceString.length() - 1);
+		return getIsoelectricPointInnovagen(this.getChargedAACount(sequence), nTerminalChar, cTerminalChar);
+	}
+
+	/**
+	 * @param comp the number of each upper case residue, indexed by <code>residue - 'A'</code>
+	 */
+	static double getIsoelectricPointInnovagen(int[] comp, char nTerminalChar, char cTerminalChar){
+		double currentPH = 7.0;
+		double changeSize = 7.0;
 
-		Map<AminoAcidCompound, Integer> chargedAA2Count = this.getChargedAACount(sequence);
+		Double nTerminalPka = getTerminalPka(Constraints.aa2NTerminalPka, nTerminalChar);
+		Double cTerminalPka = getTerminalPka(Constraints.aa2CTerminalPka, cTerminalChar);
 		double margin;
 		final double difference = 0.0001;
 
 		while(true){
-			margin = this.getNetChargeInnovagen(chargedAA2Count, currentPH, nTerminalChar, cTerminalChar);
+			margin = getNetChargeInnovagen(comp, currentPH, nTerminalPka, cTerminalPka);
 			//Within allowed difference
 			if(margin <= difference && margin >= -difference) break;
 			changeSize /= 2.0;
@@ -322,7 +330,7 @@ public class PeptidePropertiesImpl implements IPeptideProperties{
 	//
 	// Ct Nt Sm Sc Sn
 	//
-	private final double[][] cPk = {
+	private static final double[][] cPk = {
 			{3.55, 7.59, 0.0},  // A
 			{3.55, 7.50, 0.0},  // B
 			{3.55, 7.50, 9.00}, // C
@@ -357,7 +365,7 @@ public class PeptidePropertiesImpl implements IPeptideProperties{
 	private static final double MAXLOOP = 2000.0; /* maximum number of iterations */
 	private static final double EPSI = 0.0001; /* desired precision */
 
-	private double exp10(double pka){
+	private static double exp10(double pka){
 		return Math.pow(10, pka);
 	}
 
@@ -385,7 +393,15 @@ public class PeptidePropertiesImpl implements IPeptideProperties{
 		while((cTermResidue < 0 || cTermResidue >= 26) && index < 25){
 			cTermResidue = sequence.charAt(sequence.length() - index++) - 'A';
 		}
+		return getIsoelectricPointExpasy(comp, nTermResidue, cTermResidue);
+	}
 
+	/**
+	 * @param comp the number of each upper case residue, indexed by <code>residue - 'A'</code>
+	 * @param nTermResidue the index of the N-terminal residue, -1 if none
+	 * @param cTermResidue the index of the C-terminal residue, -1 if none
+	 */
+	static double getIsoelectricPointExpasy(int[] comp, int nTermResidue, int cTermResidue){
 		double phMin = PH_MIN;
 		double phMax = PH_MAX;
 
@@ -444,7 +460,7 @@ public class PeptidePropertiesImpl implements IPeptideProperties{
 		return getNetChargeExpasy(comp, nTermResidue, cTermResidue, pHPoint);
 	}
 
-	private double getNetChargeExpasy(int[] comp, int nTermResidue, int cTermResidue, double ph){
+	static double getNetChargeExpasy(int[] comp, int nTermResidue, int cTermResidue, double ph){
 		double cter = 0.0;
 		if(cTermResidue >= 0 && cTermResidue < 26) cter = exp10(-cPk[cTermResidue][0]) / (exp10(-cPk[cTermResidue][0]) + exp10(-ph));
 		double nter = 0.0;
@@ -464,83 +480,70 @@ public class PeptidePropertiesImpl implements IPeptideProperties{
 	}
 
 	private double getNetChargeInnovagen(ProteinSequence sequence, double pHPoint) {
-		Map<AminoAcidCompound, Integer> chargedAA2Count = this.getChargedAACount(sequence);
 		String sequenceString = sequence.getSequenceAsString();
-		return getNetChargeInnovagen(chargedAA2Count, pHPoint, sequenceString.charAt(0), sequenceString.charAt(sequenceString.length() - 1));
+		return getNetChargeInnovagen(this.getChargedAACount(sequence), pHPoint, sequenceString.charAt(0), sequenceString.charAt(sequenceString.length() - 1));
 	}
 
-	private double getNetChargeInnovagen(Map<AminoAcidCompound, Integer> chargedAA2Count, double ph, char nTerminalChar, char cTerminalChar){
-		//Constraints.aa2PKa is aleady reinitialized in getChargedAACount hence no need to do it again
+	/**
+	 * @param comp the number of each upper case residue, indexed by <code>residue - 'A'</code>
+	 */
+	static double getNetChargeInnovagen(int[] comp, double ph, char nTerminalChar, char cTerminalChar){
+		return getNetChargeInnovagen(comp, ph, getTerminalPka(Constraints.aa2NTerminalPka, nTerminalChar),
+				getTerminalPka(Constraints.aa2CTerminalPka, cTerminalChar));
+	}
 
-		//Lys => K, Arg => R, His => H
-		//Asp => D, Glu => E, Cys => C, Tyr => Y
+	private static Double getTerminalPka(Map<AminoAcidCompound, Double> terminalPka, char terminalChar){
 		AminoAcidCompoundSet aaSet = new AminoAcidCompoundSet();
+		return terminalPka.get(aaSet.getCompoundForString(String.valueOf(terminalChar)));
+	}
 
+	private static double getNetChargeInnovagen(int[] comp, double ph, Double nTerminalPka, Double cTerminalPka){
+		//Lys => K, Arg => R, His => H
+		//Asp => D, Glu => E, Cys => C, Tyr => Y
 		double nTerminalCharge = 0.0;
-		AminoAcidCompound nTermCompound = aaSet.getCompoundForString(String.valueOf(nTerminalChar));
-		if(Constraints.aa2NTerminalPka.containsKey(nTermCompound)){
-			nTerminalCharge = this.getPosCharge(Constraints.aa2NTerminalPka.get(nTermCompound), ph);
+		if(nTerminalPka != null){
+			nTerminalCharge = getPosCharge(nTerminalPka, ph);
 		}
 
 		double cTerminalCharge = 0.0;
-		AminoAcidCompound cTermCompound = aaSet.getCompoundForString(String.valueOf(cTerminalChar));
-		if(Constraints.aa2CTerminalPka.containsKey(cTermCompound)){
-			cTerminalCharge = this.getNegCharge(Constraints.aa2CTerminalPka.get(cTermCompound), ph);
+		if(cTerminalPka != null){
+			cTerminalCharge = getNegCharge(cTerminalPka, ph);
 		}
 
-		double kCharge = chargedAA2Count.get(aaSet.getCompoundForString("K")) * this.getPosCharge(Constraints.aa2PKa.get(aaSet.getCompoundForString("K")), ph);
-		double rCharge = chargedAA2Count.get(aaSet.getCompoundForString("R")) * this.getPosCharge(Constraints.aa2PKa.get(aaSet.getCompoundForString("R")), ph);
-		double hCharge = chargedAA2Count.get(aaSet.getCompoundForString("H")) * this.getPosCharge(Constraints.aa2PKa.get(aaSet.getCompoundForString("H")), ph);
-		double dCharge = chargedAA2Count.get(aaSet.getCompoundForString("D")) * this.getNegCharge(Constraints.aa2PKa.get(aaSet.getCompoundForString("D")), ph);
-		double eCharge = chargedAA2Count.get(aaSet.getCompoundForString("E")) * this.getNegCharge(Constraints.aa2PKa.get(aaSet.getCompoundForString("E")), ph);
-		double cCharge = chargedAA2Count.get(aaSet.getCompoundForString("C")) * this.getNegCharge(Constraints.aa2PKa.get(aaSet.getCompoundForString("C")), ph);
-		double yCharge = chargedAA2Count.get(aaSet.getCompoundForString("Y")) * this.getNegCharge(Constraints.aa2PKa.get(aaSet.getCompoundForString("Y")), ph);
+		double kCharge = comp['K' - 'A'] * getPosCharge(Constraints.aa2PKa.get(Constraints.K), ph);
+		double rCharge = comp['R' - 'A'] * getPosCharge(Constraints.aa2PKa.get(Constraints.R), ph);
+		double hCharge = comp['H' - 'A'] * getPosCharge(Constraints.aa2PKa.get(Constraints.H), ph);
+		double dCharge = comp['D' - 'A'] * getNegCharge(Constraints.aa2PKa.get(Constraints.D), ph);
+		double eCharge = comp['E' - 'A'] * getNegCharge(Constraints.aa2PKa.get(Constraints.E), ph);
+		double cCharge = comp['C' - 'A'] * getNegCharge(Constraints.aa2PKa.get(Constraints.C), ph);
+		double yCharge = comp['Y' - 'A'] * getNegCharge(Constraints.aa2PKa.get(Constraints.Y), ph);
 //		if((kCharge + rCharge + hCharge) == 0.0 && (dCharge + eCharge + cCharge + yCharge) == 0.0){
 //			return 0.0;
 //		}
 		return (nTerminalCharge + kCharge + rCharge + hCharge) - (dCharge + eCharge + cCharge + yCharge + cTerminalCharge);
 	}
 
-	private double getPosCharge(double pka, double ph){
+	private static double getPosCharge(double pka, double ph){
 		return Math.pow(10, pka) / (Math.pow(10, pka) + Math.pow(10, ph));
 	}
 
-	private double getNegCharge(double pka, double ph){
+	private static double getNegCharge(double pka, double ph){
 		return Math.pow(10, ph) / (Math.pow(10, pka) + Math.pow(10, ph));
 	}
 
-	private Map<AminoAcidCompound, Integer> getChargedAACount(ProteinSequence sequence){
+	/**
+	 * @return the number of each upper case residue, indexed by <code>residue - 'A'</code>
+	 */
+	private int[] getChargedAACount(ProteinSequence sequence){
 		//Lys => K, Arg => R, His => H
 		//Asp => D, Glu => E, Cys => C, Tyr => Y
-		int numK = 0;
-		int numR = 0;
-		int numH = 0;
-		int numD = 0;
-		int numE = 0;
-		int numC = 0;
-		int numY = 0;
+		int[] comp = new int[26];
 		char[] seq = this.getSequence(sequence.getSequenceAsString(), true);
 		for(char aa:seq){
-			switch(aa){
-			case 'K': numK++; break;
-			case 'R': numR++; break;
-			case 'H': numH++; break;
-			case 'D': numD++; break;
-			case 'E': numE++; break;
-			case 'C': numC++; break;
-			case 'Y': numY++; break;
-			}
+			int index = aa - 'A';
+			if(index >= 0 && index < 26) comp[index]++;
 		}
-		AminoAcidCompoundSet aaSet = new AminoAcidCompoundSet();
-		Map<AminoAcidCompound, Integer> chargedAA2Count = new HashMap<>();
-		chargedAA2Count.put(aaSet.getCompoundForString("K"), numK);
-		chargedAA2Count.put(aaSet.getCompoundForString("R"), numR);
-		chargedAA2Count.put(aaSet.getCompoundForString("H"), numH);
-		chargedAA2Count.put(aaSet.getCompoundForString("D"), numD);
-		chargedAA2Count.put(aaSet.getCompoundForString("E"), numE);
-		chargedAA2Count.put(aaSet.getCompoundForString("C"), numC);
-		chargedAA2Count.put(aaSet.getCompoundForString("Y"), numY);
-		return chargedAA2Count;
+		return comp;
 	}
 
 	@Override
@@ -0,0 +1,107 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.aaproperties;
+
+import org.biojava.nbio.aaproperties.profeat.IProfeatProperties.ATTRIBUTE;
+import org.biojava.nbio.aaproperties.profeat.IProfeatProperties.DISTRIBUTION;
+import org.biojava.nbio.aaproperties.profeat.IProfeatProperties.GROUPING;
+import org.biojava.nbio.aaproperties.profeat.IProfeatProperties.TRANSITION;
+import org.biojava.nbio.aaproperties.profeat.ProfeatProperties;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+public class PeptideDescriptorsTest {
+
+	private static final double delta = 0.00001;
+
+	private final String[] sequences = {
+			"MTADGPCRELLCQLRAAVRHRWWC1",
+			"1MKTAYIAKQRQISFVKSHFSRQLEERLGLIEVQAPILSRVGDGTQDNLSGAEKAVQVKVKALPDAQFEVVHSLAKWKRQTLGQHDFSAGEGLYTHMKALRPDEDRLSPLHSVYVDQWDWERVMGDGERQFSTLKSTVEAIWAGIKATEAAVSEEFGLAPFLPDQIHFVHSQELLSRYPDLDAKGRERAIAKDLGAVFLVGIGGKLSDGHRHDVRAPDYDDWUAXGEPAWLPK2",
+			"C",
+			"3176412372301230183--2310"
+	};
+
+	@Test
+	public void testPeptideProperties() {
+		for (String sequence : sequences) {
+			PeptideDescriptors d = PeptideDescriptors.compute(sequence);
+			assertEquals(PeptideProperties.getMolecularWeight(sequence), d.getMolecularWeight(), delta);
+			assertEquals(PeptideProperties.getExtinctionCoefficient(sequence, true), d.getExtinctionCoefficient(true), delta);
+			assertEquals(PeptideProperties.getExtinctionCoefficient(sequence, false), d.getExtinctionCoefficient(false), delta);
+			assertEquals(PeptideProperties.getAbsorbance(sequence, false), d.getAbsorbance(false), delta);
+			assertEquals(PeptideProperties.getInstabilityIndex(sequence), d.getInstabilityIndex(), delta);
+			assertEquals(PeptideProperties.getApliphaticIndex(sequence), d.getApliphaticIndex(), delta);
+			assertEquals(PeptideProperties.getAvgHydropathy(sequence), d.getAvgHydropathy(), delta);
+			assertEquals(PeptideProperties.getEnrichment(sequence, 'A'), d.getEnrichment('A'), delta);
+			assertEquals(PeptideProperties.getAACompositionChar(sequence).get('W'), d.getComposition('W'), delta);
+			if (d.getValidLength() > 0) {
+				assertEquals(PeptideProperties.getIsoelectricPoint(sequence, true), d.getIsoelectricPoint(true), delta);
+				assertEquals(PeptideProperties.getIsoelectricPoint(sequence, false), d.getIsoelectricPoint(false), delta);
+				assertEquals(PeptideProperties.getNetCharge(sequence, true, 7.0), d.getNetCharge(true, 7.0), delta);
+				assertEquals(PeptideProperties.getNetCharge(sequence, false, 5.0), d.getNetCharge(false, 5.0), delta);
+			}
+		}
+	}
+
+	@Test
+	public void testProfeat() throws Exception {
+		// PROFEAT needs a valid protein sequence
+		String sequence = sequences[1].substring(1, sequences[1].length() - 1);
+		PeptideDescriptors d = PeptideDescriptors.compute(sequence);
+		for (ATTRIBUTE attribute : ATTRIBUTE.values()) {
+			for (GROUPING group : GROUPING.values()) {
+				assertEquals(ProfeatProperties.getComposition(sequence, attribute, group),
+						d.getComposition(attribute, group), delta);
+				for (DISTRIBUTION distribution : DISTRIBUTION.values())
+					assertEquals(attribute + " " + group + " " + distribution,
+							ProfeatProperties.getDistributionPosition(sequence, attribute, group, distribution),
+							d.getDistributionPosition(attribute, group, distribution), delta);
+			}
+			for (TRANSITION transition : TRANSITION.values())
+				assertEquals(ProfeatProperties.getTransition(sequence, attribute, transition),
+						d.getTransition(attribute, transition), delta);
+		}
+	}
+
+	@Test
+	public void testProcess() throws Exception {
+		String fasta = ">seq1 first\nMTADGPCREL\nLCQLRAAVRHRWWC\n>seq2\nMKTAYIAKQRQISFVK\n";
+		StringWriter output = new StringWriter();
+		int count = PeptideDescriptors.process(new BufferedReader(new StringReader(fasta)), output, "\t", -1);
+		assertEquals(2, count);
+
+		String[] lines = output.toString().split("\\R");
+		assertEquals(3, lines.length);
+		String[] header = lines[0].split("\t");
+		assertEquals(PeptideDescriptors.getDescriptorNames().size() + 1, header.length);
+
+		String[] first = lines[1].split("\t");
+		assertEquals("seq1", first[0]);
+		assertEquals(header.length, first.length);
+		assertEquals(PeptideProperties.getMolecularWeight("MTADGPCRELLCQLRAAVRHRWWC"), Double.parseDouble(first[1]), delta);
+		assertEquals("seq2", lines[2].split("\t")[0]);
+	}
+}
@@ -22,6 +22,7 @@ package org.biojava.nbio.alignment;
 
 import org.biojava.nbio.alignment.template.AbstractScorer;
 import org.biojava.nbio.alignment.template.PairwiseSequenceScorer;
+import org.biojava.nbio.core.alignment.matrices.OrdinalSubstitutionMatrix;
 import org.biojava.nbio.core.alignment.template.SequencePair;
 import org.biojava.nbio.core.alignment.template.SubstitutionMatrix;
 import org.biojava.nbio.core.sequence.template.Compound;
@@ -49,10 +50,11 @@ implements PairwiseSequenceScorer<S, C> {
 		this.query = pair.getQuery().getOriginalSequence();
 		this.target = pair.getTarget().getOriginalSequence();
 		this.matrix = matrix;
+		OrdinalSubstitutionMatrix<C> ordinals = matrix.getOrdinalMatrix();
 		for (int i = 1; i <= pair.getLength(); i++) {
 			C query = pair.getCompoundAt(1, i);
 			C target = pair.getCompoundAt(2, i);
-			score += matrix.getValue(query, target);
+			score += ordinals.getValue(query, target);
 		}
 	}
 
@@ -23,6 +23,9 @@
 
 package org.biojava.nbio.alignment.template;
 
+import org.biojava.nbio.alignment.routines.AlignerHelper.Subproblem;
+import org.biojava.nbio.core.alignment.matrices.OrdinalSubstitutionMatrix;
+import org.biojava.nbio.core.alignment.matrices.QueryProfile;
 import org.biojava.nbio.core.alignment.template.SequencePair;
 import org.biojava.nbio.core.alignment.template.SubstitutionMatrix;
 import org.biojava.nbio.core.sequence.template.Compound;
@@ -48,6 +51,10 @@ public abstract class AbstractPairwiseSequenceAligner<S extends Sequence<C>, C e
 	// additional output field
 	protected SequencePair<S, C> pair;
 
+	// cached fields
+	private QueryProfile<C> queryProfile;
+	private int[] targetOrdinals;
+
 	/**
 	 * Before running a pairwise global sequence alignment, data must be sent in via calls to
 	 * {@link #setQuery(Sequence)}, {@link #setTarget(Sequence)}, {@link #setGapPenalty(GapPenalty)}, and
@@ -153,7 +160,28 @@ public abstract class AbstractPairwiseSequenceAligner<S extends Sequence<C>, C e
 
 	@Override
 	protected int getSubstitutionScore(int queryColumn, int targetColumn) {
-		return getSubstitutionMatrix().getValue(query.getCompoundAt(queryColumn), target.getCompoundAt(targetColumn));
+		if (targetOrdinals == null) {
+			return getSubstitutionMatrix().getValue(query.getCompoundAt(queryColumn), target.getCompoundAt(targetColumn));
+		}
+		int t = targetOrdinals[targetColumn - 1];
+		return (t < 0) ? queryProfile.getScore(queryColumn - 1, target.getCompoundAt(targetColumn)) :
+				queryProfile.getScore(queryColumn - 1, t);
+	}
+
+	@Override
+	protected int[] getSubstitutionScoreVector(int queryColumn, Subproblem subproblem) {
+		if (targetOrdinals == null) {
+			return super.getSubstitutionScoreVector(queryColumn, subproblem);
+		}
+		int[] subs = new int[subproblem.getTargetEndIndex() + 1];
+		if (queryColumn > 0) {
+			int q = queryColumn - 1;
+			for (int y = Math.max(1, subproblem.getTargetStartIndex()); y <= subproblem.getTargetEndIndex(); y++) {
+				int t = targetOrdinals[y - 1];
+				subs[y] = (t < 0) ? queryProfile.getScore(q, target.getCompoundAt(y)) : queryProfile.getScore(q, t);
+			}
+		}
+		return subs;
 	}
 
 	@Override
@@ -166,14 +194,22 @@ public abstract class AbstractPairwiseSequenceAligner<S extends Sequence<C>, C e
 	protected void reset() {
 		super.reset();
 		pair = null;
+		targetOrdinals = null;
 		if (query != null && target != null && getGapPenalty() != null && getSubstitutionMatrix() != null &&
 				query.getCompoundSet().equals(target.getCompoundSet())) {
+			// the profile is kept while the query and the matrix stay the same, so aligning one query to many
+			// targets with this aligner computes it once
+			OrdinalSubstitutionMatrix<C> ordinals = getSubstitutionMatrix().getOrdinalMatrix();
+			if (queryProfile == null || queryProfile.getQuery() != query || queryProfile.getMatrix() != ordinals) {
+				queryProfile = new QueryProfile<>(ordinals, query);
+			}
+			targetOrdinals = ordinals.getOrdinals(target.getAsList());
 			int maxq = 0, maxt = 0;
 			for (C c : query) {
-				maxq += getSubstitutionMatrix().getValue(c, c);
+				maxq += ordinals.getValue(c, c);
 			}
 			for (C c : target) {
-				maxt += getSubstitutionMatrix().getValue(c, c);
+				maxt += ordinals.getValue(c, c);
 			}
 			max = Math.max(maxq, maxt);
 			score = min = isLocal() ? 0 : (2 * getGapPenalty().getOpenPenalty() + (query.getLength() +
@@ -24,6 +24,7 @@
 package org.biojava.nbio.alignment.template;
 
 import org.biojava.nbio.alignment.template.GapPenalty.Type;
+import org.biojava.nbio.core.alignment.matrices.OrdinalSubstitutionMatrix;
 import org.biojava.nbio.core.alignment.template.Profile;
 import org.biojava.nbio.core.alignment.template.ProfilePair;
 import org.biojava.nbio.core.alignment.template.SubstitutionMatrix;
@@ -58,6 +59,7 @@ public abstract class AbstractProfileProfileAligner<S extends Sequence<C>, C ext
 
 	// cached fields
 	private List<C> cslist;
+	private short[][] subs;
 	private float[][] qfrac, tfrac;
 
 	// additional output field
@@ -237,6 +239,13 @@ public abstract class AbstractProfileProfileAligner<S extends Sequence<C>, C ext
 				query.getCompoundSet().equals(target.getCompoundSet())) {
 			int maxq = 0, maxt = 0;
 			cslist = new ArrayList(query.getCompoundSet().getAllCompounds());
+			OrdinalSubstitutionMatrix<C> ordinals = getSubstitutionMatrix().getOrdinalMatrix();
+			subs = new short[cslist.size()][cslist.size()];
+			for (int q = 0; q < subs.length; q++) {
+				for (int t = 0; t < subs.length; t++) {
+					subs[q][t] = ordinals.getValue(cslist.get(q), cslist.get(t));
+				}
+			}
 			qfrac = new float[query.getLength()][];
 			for (int i = 0; i < qfrac.length; i++) {
 				qfrac[i] = query.getCompoundWeightsAt(i + 1, cslist);
@@ -256,15 +265,14 @@ public abstract class AbstractProfileProfileAligner<S extends Sequence<C>, C ext
 	// helper method that scores alignment of two column vectors
 	private int getSubstitutionScore(float[] qv, float[] tv) {
 		double score = 0.0;
-		SubstitutionMatrix<C> s = getSubstitutionMatrix();
 		for (int q = 0; q < qv.length; q++) {
 			float qvq = qv[q];
 			if (qvq > 0.0) {
-				C cq = cslist.get(q);
+				short[] sq = subs[q];
 				for (int t = 0; t < tv.length; t++) {
 					float tvt = tv[t];
 					if (tvt > 0.0)
-						score += qvq * tvt * s.getValue(cq, cslist.get(t));
+						score += qvq * tvt * sq[t];
 				}
 			}
 		}
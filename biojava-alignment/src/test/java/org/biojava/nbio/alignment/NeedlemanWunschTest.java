@@ -38,6 +38,12 @@ import org.biojava.nbio.core.sequence.compound.NucleotideCompound;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import static org.junit.Assert.*;
 
 public class NeedlemanWunschTest {
@@ -344,4 +350,38 @@ public class NeedlemanWunschTest {
 		assertTrue("Similarity must be positive, this must be an integer overflow bug!", aligner.getSimilarity()>0);
 	}
 
+	@Test
+	public void testSharedMatrix() throws Exception {
+		String[] targets = { "RDG", "ARNDCQ", "WYV", "GHILKMFPST", "ND" };
+		double[] expected = new double[targets.length];
+		for (int i = 0; i < targets.length; i++) {
+			expected[i] = new NeedlemanWunsch<>(query, new ProteinSequence(targets[i]), gaps, blosum62).getScore();
+		}
+
+		// one aligner per thread, each aligning its own query to all the targets with the shared matrix
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<double[]>> futures = new ArrayList<>();
+			for (int n = 0; n < 8; n++) {
+				futures.add(executor.submit(() -> {
+					NeedlemanWunsch<ProteinSequence, AminoAcidCompound> aligner = new NeedlemanWunsch<>();
+					aligner.setQuery(new ProteinSequence(query.getSequenceAsString()));
+					aligner.setGapPenalty(gaps);
+					aligner.setSubstitutionMatrix(blosum62);
+					double[] scores = new double[targets.length];
+					for (int i = 0; i < targets.length; i++) {
+						aligner.setTarget(new ProteinSequence(targets[i]));
+						scores[i] = aligner.getScore();
+					}
+					return scores;
+				}));
+			}
+			for (Future<double[]> future : futures) {
+				assertArrayEquals(expected, future.get(), 0.0);
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
 }
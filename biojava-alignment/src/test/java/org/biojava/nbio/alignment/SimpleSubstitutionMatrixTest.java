@@ -23,10 +23,13 @@
 
 package org.biojava.nbio.alignment;
 
+import org.biojava.nbio.core.alignment.matrices.OrdinalSubstitutionMatrix;
+import org.biojava.nbio.core.alignment.matrices.QueryProfile;
 import org.biojava.nbio.core.alignment.matrices.SimpleSubstitutionMatrix;
 import org.biojava.nbio.core.alignment.template.SubstitutionMatrix;
 import org.biojava.nbio.core.exceptions.CompoundNotFoundException;
 import org.biojava.nbio.core.sequence.DNASequence;
+import org.biojava.nbio.core.sequence.ProteinSequence;
 import org.biojava.nbio.core.sequence.compound.AminoAcidCompound;
 import org.biojava.nbio.core.sequence.compound.AminoAcidCompoundSet;
 import org.biojava.nbio.core.sequence.compound.DNACompoundSet;
@@ -37,6 +40,7 @@ import java.io.File;
 import java.io.FileNotFoundException;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 public class SimpleSubstitutionMatrixTest {
 
@@ -129,4 +133,33 @@ public class SimpleSubstitutionMatrixTest {
 		assertEquals(dnaTest.getValue(dnacs.getCompoundForString("g"), dnacs.getCompoundForString("A")), 0);
 	}
 
+	@Test
+	public void testOrdinalMatrix() throws CompoundNotFoundException {
+		SubstitutionMatrix<AminoAcidCompound> matrix = SimpleSubstitutionMatrix.getBlosum62();
+		SubstitutionMatrix<AminoAcidCompound> copy = new SimpleSubstitutionMatrix<>(matrix.getCompoundSet(),
+				matrix.toString(), matrix.getName());
+		OrdinalSubstitutionMatrix<AminoAcidCompound> ordinals = matrix.getOrdinalMatrix();
+		assertSame(ordinals, matrix.getOrdinalMatrix());
+		// the default implementation indexes the matrix through getValue
+		OrdinalSubstitutionMatrix<AminoAcidCompound> indexed = new OrdinalSubstitutionMatrix<>(copy);
+		for (AminoAcidCompound from : matrix.getCompoundSet().getAllCompounds()) {
+			for (AminoAcidCompound to : matrix.getCompoundSet().getAllCompounds()) {
+				assertEquals(copy.getValue(from, to), matrix.getValue(from, to));
+				assertEquals(copy.getValue(from, to), indexed.getValue(indexed.getOrdinal(from), indexed.getOrdinal(to)));
+			}
+		}
+
+		ProteinSequence query = new ProteinSequence("ARNDcqEGHXU*");
+		ProteinSequence target = new ProteinSequence("WYVbzO");
+		QueryProfile<AminoAcidCompound> profile = new QueryProfile<>(ordinals, query);
+		assertEquals(query.getLength(), profile.getLength());
+		for (int q = 1; q <= query.getLength(); q++) {
+			for (int t = 1; t <= target.getLength(); t++) {
+				AminoAcidCompound cq = query.getCompoundAt(q), ct = target.getCompoundAt(t);
+				assertEquals(copy.getValue(cq, ct), profile.getScore(q - 1, ct));
+				assertEquals(copy.getValue(cq, ct), profile.getScore(q - 1, ordinals.getOrdinal(ct)));
+			}
+		}
+	}
+
 }
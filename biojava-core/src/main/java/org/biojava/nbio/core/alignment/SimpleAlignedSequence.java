@@ -303,11 +303,13 @@ public class SimpleAlignedSequence<S extends Sequence<C>, C extends Compound> im
 		}
 
 		Sequence<C> other = (Sequence<C>)o;
-		if ( original.getAsList().size() != other.getAsList().size())
+		List<C> compounds = original.getAsList();
+		List<C> otherCompounds = other.getAsList();
+		if ( compounds.size() != otherCompounds.size())
 			return false;
 
-		for ( int i = 0 ; i< original.getAsList().size() ; i++){
-			if ( ! original.getAsList().get(i).equalsIgnoreCase(other.getAsList().get(i)))
+		for ( int i = 0 ; i< compounds.size() ; i++){
+			if ( ! compounds.get(i).equalsIgnoreCase(otherCompounds.get(i)))
 				return false;
 		}
 		return true;
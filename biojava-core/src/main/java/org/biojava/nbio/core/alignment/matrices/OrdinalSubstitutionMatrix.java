@@ -0,0 +1,178 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.core.alignment.matrices;
+
+import org.biojava.nbio.core.alignment.template.SubstitutionMatrix;
+import org.biojava.nbio.core.sequence.template.Compound;
+import org.biojava.nbio.core.sequence.template.Sequence;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * A {@link SubstitutionMatrix} indexed by compound ordinals: each
+ * {@link Compound} of the {@link org.biojava.nbio.core.sequence.template.CompoundSet CompoundSet}
+ * of the matrix is assigned an ordinal, and the values for all pairs of
+ * compounds are stored in a <code>short[][]</code> table. Sequences can be
+ * converted to ordinals once and then scored without any compound lookup.
+ * <p>
+ * The values are the ones returned by {@link SubstitutionMatrix#getValue}.
+ * Compounds that are not in the compound set have the ordinal -1 and are
+ * scored by the matrix itself.
+ *
+ * @param <C> each element of the matrix corresponds to a pair of {@link Compound}s of type C
+ * @see SubstitutionMatrix#getOrdinalMatrix()
+ * @see QueryProfile
+ * @since 5.3.1
+ */
+public class OrdinalSubstitutionMatrix<C extends Compound> {
+
+	private final SubstitutionMatrix<C> matrix;
+	private final ToIntBiFunction<C, C> values;
+	private final List<C> compounds;
+	private final Map<C, Integer> ordinals;
+	private final short[][] scores;
+
+	/**
+	 * Indexes a substitution matrix.
+	 *
+	 * @param matrix the matrix
+	 */
+	public OrdinalSubstitutionMatrix(SubstitutionMatrix<C> matrix) {
+		this(matrix, matrix::getValue);
+	}
+
+	/**
+	 * Indexes a substitution matrix with the given values, for matrices whose
+	 * {@link SubstitutionMatrix#getValue} uses this index.
+	 */
+	OrdinalSubstitutionMatrix(SubstitutionMatrix<C> matrix, ToIntBiFunction<C, C> values) {
+		this.matrix = matrix;
+		this.values = values;
+		compounds = new ArrayList<>();
+		ordinals = new HashMap<>();
+		for (C c : matrix.getCompoundSet().getAllCompounds()) {
+			if (ordinals.putIfAbsent(c, compounds.size()) == null) {
+				compounds.add(c);
+			}
+		}
+		int n = compounds.size();
+		scores = new short[n][n];
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++) {
+				scores[i][j] = (short) values.applyAsInt(compounds.get(i), compounds.get(j));
+			}
+		}
+	}
+
+	/**
+	 * Returns the indexed matrix.
+	 *
+	 * @return the indexed matrix
+	 */
+	public SubstitutionMatrix<C> getSubstitutionMatrix() {
+		return matrix;
+	}
+
+	/**
+	 * Returns the number of ordinals.
+	 *
+	 * @return the number of compounds in the compound set
+	 */
+	public int size() {
+		return compounds.size();
+	}
+
+	/**
+	 * Returns the compound of an ordinal.
+	 *
+	 * @param ordinal the ordinal
+	 * @return the compound
+	 */
+	public C getCompound(int ordinal) {
+		return compounds.get(ordinal);
+	}
+
+	/**
+	 * Returns the ordinal of a compound.
+	 *
+	 * @param compound the compound
+	 * @return the ordinal, or -1 if the compound is not in the compound set
+	 */
+	public int getOrdinal(C compound) {
+		Integer ordinal = ordinals.get(compound);
+		return ordinal == null ? -1 : ordinal;
+	}
+
+	/**
+	 * Returns the ordinals of a list of compounds.
+	 *
+	 * @param compounds the compounds, e.g. {@link Sequence#getAsList()}
+	 * @return the ordinals, -1 for compounds that are not in the compound set
+	 */
+	public int[] getOrdinals(List<C> compounds) {
+		int[] ret = new int[compounds.size()];
+		for (int i = 0; i < ret.length; i++) {
+			ret[i] = getOrdinal(compounds.get(i));
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns the value for conversion between the compounds of two ordinals.
+	 *
+	 * @param from the ordinal of the original compound
+	 * @param to the ordinal of the replacement compound
+	 * @return the value in the matrix
+	 */
+	public short getValue(int from, int to) {
+		return scores[from][to];
+	}
+
+	/**
+	 * Returns the value for conversion from first {@link Compound} to the second.
+	 *
+	 * @param from original {@link Compound}
+	 * @param to replacement {@link Compound}
+	 * @return value in matrix for conversion from first {@link Compound} to the second
+	 */
+	public short getValue(C from, C to) {
+		int row = getOrdinal(from), col = getOrdinal(to);
+		if (row < 0 || col < 0) {
+			return (short) values.applyAsInt(from, to);
+		}
+		return scores[row][col];
+	}
+
+	/**
+	 * Returns the row of values of the compound of an ordinal. The array is
+	 * shared and must not be modified.
+	 *
+	 * @param from the ordinal of the original compound
+	 * @return the values by ordinal of the replacement compound
+	 */
+	public short[] getRow(int from) {
+		return scores[from];
+	}
+}
@@ -0,0 +1,133 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.core.alignment.matrices;
+
+import org.biojava.nbio.core.sequence.template.Compound;
+import org.biojava.nbio.core.sequence.template.Sequence;
+
+import java.util.List;
+
+/**
+ * The substitution scores of a query sequence against every compound of an
+ * {@link OrdinalSubstitutionMatrix}: one row per compound ordinal, holding the
+ * score of each query position. A profile is computed once per query and
+ * can be reused for all the targets it is aligned to.
+ *
+ * @param <C> each element of the query is a {@link Compound} of type C
+ * @since 5.3.1
+ */
+public class QueryProfile<C extends Compound> {
+
+	private final OrdinalSubstitutionMatrix<C> matrix;
+	private final Sequence<C> query;
+	private final List<C> compounds;
+	private final short[][] profile;
+
+	/**
+	 * Computes the profile of a query.
+	 *
+	 * @param matrix the substitution matrix
+	 * @param query the query sequence
+	 */
+	public QueryProfile(OrdinalSubstitutionMatrix<C> matrix, Sequence<C> query) {
+		this.matrix = matrix;
+		this.query = query;
+		compounds = query.getAsList();
+		int[] ordinals = matrix.getOrdinals(compounds);
+		profile = new short[matrix.size()][ordinals.length];
+		for (int i = 0; i < ordinals.length; i++) {
+			if (ordinals[i] >= 0) {
+				short[] row = matrix.getRow(ordinals[i]);
+				for (int t = 0; t < profile.length; t++) {
+					profile[t][i] = row[t];
+				}
+			} else {
+				for (int t = 0; t < profile.length; t++) {
+					profile[t][i] = matrix.getValue(compounds.get(i), matrix.getCompound(t));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the substitution matrix.
+	 *
+	 * @return the substitution matrix
+	 */
+	public OrdinalSubstitutionMatrix<C> getMatrix() {
+		return matrix;
+	}
+
+	/**
+	 * Returns the query sequence.
+	 *
+	 * @return the query sequence
+	 */
+	public Sequence<C> getQuery() {
+		return query;
+	}
+
+	/**
+	 * Returns the length of the query.
+	 *
+	 * @return the length of the query
+	 */
+	public int getLength() {
+		return compounds.size();
+	}
+
+	/**
+	 * Returns the scores of all query positions against the compound of an
+	 * ordinal. The array is shared and must not be modified.
+	 *
+	 * @param ordinal the ordinal of the target compound
+	 * @return the scores by query position, starting at 0
+	 */
+	public short[] getScores(int ordinal) {
+		return profile[ordinal];
+	}
+
+	/**
+	 * Returns the score of a query position against the compound of an ordinal.
+	 *
+	 * @param position the query position, starting at 0
+	 * @param ordinal the ordinal of the target compound
+	 * @return the score
+	 */
+	public short getScore(int position, int ordinal) {
+		return profile[ordinal][position];
+	}
+
+	/**
+	 * Returns the score of a query position against a compound.
+	 *
+	 * @param position the query position, starting at 0
+	 * @param target the target compound
+	 * @return the score
+	 */
+	public short getScore(int position, C target) {
+		int ordinal = matrix.getOrdinal(target);
+		if (ordinal < 0) {
+			return matrix.getValue(compounds.get(position), target);
+		}
+		return profile[ordinal][position];
+	}
+}
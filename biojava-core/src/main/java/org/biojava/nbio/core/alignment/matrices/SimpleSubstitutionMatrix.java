@@ -56,6 +56,7 @@ public class SimpleSubstitutionMatrix<C extends Compound> implements Substitutio
 	private short max, min;
 	private final List<C> rows;
 	private final List<C> cols;
+	private transient volatile OrdinalSubstitutionMatrix<C> ordinalMatrix;
 
 	public static SubstitutionMatrix<AminoAcidCompound> getBlosum62() {
         return new SimpleSubstitutionMatrix<>(AminoAcidCompoundSet.aminoAcidCompoundSet, new InputStreamReader(
@@ -243,6 +244,28 @@ public class SimpleSubstitutionMatrix<C extends Compound> implements Substitutio
 	}
 	@Override
 	public short getValue(C from, C to) {
+		return getOrdinalMatrix().getValue(from, to);
+	}
+
+	/**
+	 * Returns this matrix indexed by compound ordinals. The index is built on first use and kept, since the values of
+	 * this matrix do not change.
+	 *
+	 * @return this matrix indexed by compound ordinals
+	 * @since 5.3.1
+	 */
+	@Override
+	public OrdinalSubstitutionMatrix<C> getOrdinalMatrix() {
+		OrdinalSubstitutionMatrix<C> ordinals = ordinalMatrix;
+		if (ordinals == null) {
+			ordinals = new OrdinalSubstitutionMatrix<>(this, this::getValueByIndex);
+			ordinalMatrix = ordinals;
+		}
+		return ordinals;
+	}
+
+	// looks up the compounds in the rows and columns of the matrix
+	private short getValueByIndex(C from, C to) {
 		int row = getIndexOfCompound(rows, from), col = getIndexOfCompound(cols, to);
 		if (row == -1 || col == -1) {
 			row = getIndexOfCompound(cols, from);
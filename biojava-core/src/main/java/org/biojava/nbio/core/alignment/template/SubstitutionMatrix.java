@@ -23,6 +23,7 @@
 
 package org.biojava.nbio.core.alignment.template;
 
+import org.biojava.nbio.core.alignment.matrices.OrdinalSubstitutionMatrix;
 import org.biojava.nbio.core.sequence.template.Compound;
 import org.biojava.nbio.core.sequence.template.CompoundSet;
 
@@ -125,4 +126,17 @@ public interface SubstitutionMatrix<C extends Compound> {
 
 	Map<C, Short> getColumn(C column);
 
+	/**
+	 * Returns this matrix indexed by compound ordinals, for scoring many compounds without looking them up in the
+	 * matrix.  The default implementation indexes the matrix on each call, which calls {@link #getValue} for every
+	 * pair of compounds of the compound set; callers should keep the result rather than call this method per lookup.
+	 * Immutable matrices may keep the index.
+	 *
+	 * @return this matrix indexed by compound ordinals
+	 * @since 5.3.1
+	 */
+	default OrdinalSubstitutionMatrix<C> getOrdinalMatrix() {
+		return new OrdinalSubstitutionMatrix<>(this);
+	}
+
 }
@@ -66,6 +66,22 @@ public class SequenceOptimizationHints {
 		sequenceCollection = aSequenceColection;
 	}
 
+	/**
+	 * @return the storage of sequences created from strings
+	 * @since 5.3.1
+	 */
+	public static SequenceStorage getSequenceStorage() {
+		return sequenceStorage;
+	}
+
+	/**
+	 * @param aSequenceStorage the storage of sequences created from strings
+	 * @since 5.3.1
+	 */
+	public static void setSequenceStorage(SequenceStorage aSequenceStorage) {
+		sequenceStorage = aSequenceStorage;
+	}
+
 	public enum SequenceUsage {
 
 		FULL_SEQUENCE_DATA, SUB_SEQUENCE_DATA, MINIMAL_SEQUENCE_DATA
@@ -76,8 +92,21 @@ public class SequenceOptimizationHints {
 		ALL_SEQUENCES, VARIABLE_SEQUENCES, MINIMINAL_SEQUENCES
     }
 
+	/**
+	 * How the compounds of a sequence are stored: {@link #COMPOUND_LIST} keeps a list of compound objects
+	 * ({@link org.biojava.nbio.core.sequence.storage.ArrayListSequenceReader}), {@link #COMPOUND_ORDINALS} packs
+	 * their ordinals in as few bits as the sequence allows
+	 * ({@link org.biojava.nbio.core.sequence.storage.OrdinalSequenceReader}).
+	 * @since 5.3.1
+	 */
+	public enum SequenceStorage {
+
+		COMPOUND_LIST, COMPOUND_ORDINALS
+	}
+
 	static private SequenceUsage sequenceUsage = SequenceUsage.FULL_SEQUENCE_DATA;
 	static private SequenceCollection sequenceCollection = SequenceCollection.ALL_SEQUENCES;
+	static private SequenceStorage sequenceStorage = SequenceStorage.COMPOUND_ORDINALS;
 
 
 
@@ -0,0 +1,468 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.core.sequence.storage;
+
+import org.biojava.nbio.core.exceptions.CompoundNotFoundException;
+import org.biojava.nbio.core.sequence.AccessionID;
+import org.biojava.nbio.core.sequence.Strand;
+import org.biojava.nbio.core.sequence.template.*;
+import org.biojava.nbio.core.util.Equals;
+import org.biojava.nbio.core.util.Hashcoder;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Stores a Sequence as ordinals of its compounds, packed into an array of
+ * longs. Each sequence keeps the table of the compounds of its
+ * {@link CompoundSet} it actually contains, and the ordinals are packed with
+ * the fewest bits this table allows: 2 bits for ACGT, 4 bits for DNA with
+ * ambiguity codes or soft-masking, 8 bits for proteins. This is the default
+ * storage of sequences created from strings, see
+ * {@link org.biojava.nbio.core.sequence.SequenceOptimizationHints#getSequenceStorage()}.
+ * <p>
+ * {@link #getCompoundAt(int)}, {@link #iterator()},
+ * {@link #getSubSequence(Integer, Integer)} and {@link #getAsList()} decode
+ * the compounds in place.
+ *
+ * @param <C>
+ * @since 5.3.1
+ */
+public class OrdinalSequenceReader<C extends Compound> implements SequenceReader<C> {
+
+	private static final long[] EMPTY = new long[0];
+
+	private CompoundSet<C> compoundSet;
+
+	// the compounds of the sequence, by ordinal
+	private List<C> compounds = new ArrayList<>();
+	private long[] words = EMPTY;
+	private int length;
+
+	// log2 of the bits per compound
+	private int bitShift;
+	private int indexMask;
+	private int wordShift;
+	private int ordinalMask;
+
+	private volatile Integer hashcode = null;
+
+	/**
+	 *
+	 */
+	public OrdinalSequenceReader() {
+		setBits(0);
+	}
+
+	/**
+	 *
+	 * @param compounds
+	 * @param compoundSet
+	 */
+	public OrdinalSequenceReader(List<C> compounds, CompoundSet<C> compoundSet) {
+		setCompoundSet(compoundSet);
+		setContents(compounds);
+	}
+
+	/**
+	 *
+	 * @param sequence
+	 * @param compoundSet
+	 * @throws CompoundNotFoundException
+	 */
+	public OrdinalSequenceReader(String sequence, CompoundSet<C> compoundSet) throws CompoundNotFoundException {
+		setCompoundSet(compoundSet);
+		setContents(sequence);
+	}
+
+	/**
+	 *
+	 * @param compoundSet
+	 */
+	@Override
+	public void setCompoundSet(CompoundSet<C> compoundSet) {
+		this.compoundSet = compoundSet;
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	@Override
+	public CompoundSet<C> getCompoundSet() {
+		return compoundSet;
+	}
+
+	/**
+	 *
+	 * @param sequence
+	 */
+	@Override
+	public void setContents(String sequence) throws CompoundNotFoundException {
+		if (compoundSet.getMaxSingleCompoundStringLength() > 1) {
+			setContents(parse(sequence));
+			return;
+		}
+
+		// resolve the distinct characters first, so that the ordinals can be packed without an intermediate array
+		List<C> table = new ArrayList<>();
+		Map<C, Integer> ordinals = new HashMap<>();
+		int[] charOrdinals = new int[128];
+		Arrays.fill(charOrdinals, -1);
+		int n = sequence.length();
+		for (int i = 0; i < n; i++) {
+			char c = sequence.charAt(i);
+			if (c >= charOrdinals.length) {
+				int size = charOrdinals.length;
+				charOrdinals = Arrays.copyOf(charOrdinals, Math.max(c + 1, 2 * size));
+				Arrays.fill(charOrdinals, size, charOrdinals.length, -1);
+			}
+			if (charOrdinals[c] < 0) {
+				String compoundStr = String.valueOf(c);
+				C compound = compoundSet.getCompoundForString(compoundStr);
+				if (compound == null) {
+					throw new CompoundNotFoundException("Cannot find compound for: " + compoundStr);
+				}
+				charOrdinals[c] = getOrdinal(compound, table, ordinals);
+			}
+		}
+
+		init(table, n);
+		for (int i = 0; i < n; i++) {
+			setOrdinal(i, charOrdinals[sequence.charAt(i)]);
+		}
+	}
+
+	/**
+	 *
+	 * @param list
+	 */
+	public void setContents(List<C> list) {
+		List<C> table = new ArrayList<>();
+		Map<C, Integer> ordinals = new HashMap<>();
+		for (C compound : list) {
+			getOrdinal(compound, table, ordinals);
+		}
+		init(table, list.size());
+		int i = 0;
+		for (C compound : list) {
+			setOrdinal(i++, ordinals.get(compound));
+		}
+	}
+
+	/**
+	 * Returns the number of bits used to store each compound.
+	 *
+	 * @return 1, 2, 4, 8 or 16
+	 */
+	public int getBitsPerCompound() {
+		return 1 << bitShift;
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	@Override
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 *
+	 * @param position
+	 * @return
+	 */
+	@Override
+	public C getCompoundAt(int position) {
+		if (position < 1 || position > length) {
+			throw new IndexOutOfBoundsException("Position " + position + " is not within 1 and " + length);
+		}
+		return compounds.get(getOrdinal(position - 1));
+	}
+
+	/**
+	 *
+	 * @param compound
+	 * @return
+	 */
+	@Override
+	public int getIndexOf(C compound) {
+		int ordinal = compounds.indexOf(compound);
+		if (ordinal >= 0) {
+			for (int i = 0; i < length; i++) {
+				if (getOrdinal(i) == ordinal) {
+					return i + 1;
+				}
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 *
+	 * @param compound
+	 * @return
+	 */
+	@Override
+	public int getLastIndexOf(C compound) {
+		int ordinal = compounds.indexOf(compound);
+		if (ordinal >= 0) {
+			for (int i = length - 1; i >= 0; i--) {
+				if (getOrdinal(i) == ordinal) {
+					return i + 1;
+				}
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Returns a read-only view of the compounds of this sequence, which
+	 * decodes them on access. Callers that modify the list must copy it.
+	 *
+	 * @return the compounds
+	 */
+	@Override
+	public List<C> getAsList() {
+		return new CompoundList();
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	@Override
+	public Iterator<C> iterator() {
+		return new Iterator<C>() {
+			private int index = 0;
+
+			@Override
+			public boolean hasNext() {
+				return index < length;
+			}
+
+			@Override
+			public C next() {
+				if (index >= length) {
+					throw new NoSuchElementException();
+				}
+				return compounds.get(getOrdinal(index++));
+			}
+		};
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	@Override
+	public String getSequenceAsString() {
+		String[] strings = new String[compounds.size()];
+		boolean chars = true;
+		for (int o = 0; o < strings.length; o++) {
+			strings[o] = compoundSet.getStringForCompound(compounds.get(o));
+			chars &= strings[o].length() == 1;
+		}
+		if (chars) {
+			char[] ret = new char[length];
+			for (int i = 0; i < length; i++) {
+				ret[i] = strings[getOrdinal(i)].charAt(0);
+			}
+			return new String(ret);
+		}
+		StringBuilder builder = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			builder.append(strings[getOrdinal(i)]);
+		}
+		return builder.toString();
+	}
+
+	/**
+	 *
+	 * @param begin
+	 * @param end
+	 * @param strand
+	 * @return
+	 */
+	public String getSequenceAsString(Integer begin, Integer end, Strand strand) {
+		SequenceAsStringHelper<C> sequenceAsStringHelper = new SequenceAsStringHelper<>();
+		return sequenceAsStringHelper.getSequenceAsString(new CompoundList(), compoundSet, begin, end, strand);
+	}
+
+	/**
+	 *
+	 * @param bioBegin
+	 * @param bioEnd
+	 * @return
+	 */
+	@Override
+	public SequenceView<C> getSubSequence(final Integer bioBegin, final Integer bioEnd) {
+		return new SequenceProxyView<>(OrdinalSequenceReader.this, bioBegin, bioEnd);
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	@Override
+	public AccessionID getAccession() {
+		throw new UnsupportedOperationException("Not supported yet.");
+	}
+
+	/**
+	 *
+	 * @param compounds
+	 * @return
+	 */
+	@SafeVarargs
+	@Override
+	public final int countCompounds(C... compounds) {
+		return SequenceMixin.countCompounds(this, compounds);
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	@Override
+	public SequenceView<C> getInverse() {
+		return SequenceMixin.inverse(this);
+	}
+
+	@Override
+	public int hashCode() {
+		if(hashcode == null) {
+			int s = Hashcoder.SEED;
+			for (C compound : this) {
+				s = Hashcoder.hash(s, compound);
+			}
+			s = Hashcoder.hash(s, compoundSet);
+			hashcode = s;
+		}
+		return hashcode;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public boolean equals(Object o) {
+		if(Equals.classEqual(this, o)) {
+			OrdinalSequenceReader<C> that = (OrdinalSequenceReader<C>)o;
+			if (length != that.length || !Objects.equals(compoundSet, that.compoundSet)) {
+				return false;
+			}
+			for (int i = 0; i < length; i++) {
+				if (!compounds.get(getOrdinal(i)).equals(that.compounds.get(that.getOrdinal(i)))) {
+					return false;
+				}
+			}
+			return true;
+		}
+		return false;
+	}
+
+	// splits a string into compounds of several characters
+	private List<C> parse(String sequence) throws CompoundNotFoundException {
+		List<C> list = new ArrayList<>();
+		int maxCompoundLength = compoundSet.getMaxSingleCompoundStringLength();
+		for (int i = 0; i < sequence.length();) {
+			String compoundStr = null;
+			C compound = null;
+			for (int compoundStrLength = 1; compound == null && compoundStrLength <= maxCompoundLength; compoundStrLength++) {
+				compoundStr = sequence.substring(i, i + compoundStrLength);
+				compound = compoundSet.getCompoundForString(compoundStr);
+			}
+			if (compound == null) {
+				throw new CompoundNotFoundException("Cannot find compound for: " + compoundStr);
+			}
+			i += compoundStr.length();
+			list.add(compound);
+		}
+		return list;
+	}
+
+	private static <C> int getOrdinal(C compound, List<C> table, Map<C, Integer> ordinals) {
+		Integer ordinal = ordinals.get(compound);
+		if (ordinal == null) {
+			ordinal = table.size();
+			ordinals.put(compound, ordinal);
+			table.add(compound);
+		}
+		return ordinal;
+	}
+
+	private void init(List<C> table, int length) {
+		int shift = 0;
+		while (shift < 4 && table.size() > 1 << (1 << shift)) {
+			shift++;
+		}
+		if (table.size() > 1 << (1 << shift)) {
+			throw new IllegalArgumentException("Can not store more than " + (1 << (1 << shift)) + " distinct compounds");
+		}
+		hashcode = null;
+		compounds = table;
+		this.length = length;
+		setBits(shift);
+		words = new long[(int) (((long) length + indexMask) >>> wordShift)];
+	}
+
+	private void setBits(int shift) {
+		bitShift = shift;
+		wordShift = 6 - shift;
+		indexMask = (1 << wordShift) - 1;
+		ordinalMask = (1 << (1 << shift)) - 1;
+	}
+
+	private int getOrdinal(int index) {
+		return (int) (words[index >>> wordShift] >>> ((index & indexMask) << bitShift)) & ordinalMask;
+	}
+
+	private void setOrdinal(int index, int ordinal) {
+		words[index >>> wordShift] |= (long) ordinal << ((index & indexMask) << bitShift);
+	}
+
+	/**
+	 * A read-only view of the compounds.
+	 */
+	private class CompoundList extends AbstractList<C> implements RandomAccess {
+
+		@Override
+		public C get(int index) {
+			if (index < 0 || index >= length) {
+				throw new IndexOutOfBoundsException("Index " + index + " is not within 0 and " + (length - 1));
+			}
+			return compounds.get(getOrdinal(index));
+		}
+
+		@Override
+		public int size() {
+			return length;
+		}
+	}
+}
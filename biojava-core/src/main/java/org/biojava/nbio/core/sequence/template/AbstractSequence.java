@@ -29,6 +29,8 @@ package org.biojava.nbio.core.sequence.template;
 import org.biojava.nbio.core.exceptions.CompoundNotFoundException;
 import org.biojava.nbio.core.sequence.AccessionID;
 import org.biojava.nbio.core.sequence.DataSource;
+import org.biojava.nbio.core.sequence.SequenceOptimizationHints;
+import org.biojava.nbio.core.sequence.SequenceOptimizationHints.SequenceStorage;
 import org.biojava.nbio.core.sequence.Strand;
 import org.biojava.nbio.core.sequence.TaxonomyID;
 import org.biojava.nbio.core.sequence.features.*;
@@ -39,6 +41,7 @@ import org.biojava.nbio.core.sequence.location.template.AbstractLocation;
 import org.biojava.nbio.core.sequence.location.template.Location;
 import org.biojava.nbio.core.sequence.reference.AbstractReference;
 import org.biojava.nbio.core.sequence.storage.ArrayListSequenceReader;
+import org.biojava.nbio.core.sequence.storage.OrdinalSequenceReader;
 import org.biojava.nbio.core.util.Equals;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -89,7 +92,7 @@ public abstract class AbstractSequence<C extends Compound> implements Sequence<C
 	 */
 	public AbstractSequence(String seqString, CompoundSet<C> compoundSet) throws CompoundNotFoundException {
 		setCompoundSet(compoundSet);
-		sequenceStorage = new ArrayListSequenceReader<>();
+		sequenceStorage = createSequenceStorage();
 		sequenceStorage.setCompoundSet(this.getCompoundSet());
 		sequenceStorage.setContents(seqString);
 	}
@@ -582,6 +585,14 @@ public abstract class AbstractSequence<C extends Compound> implements Sequence<C
 		return getSequenceAsString();
 	}
 
+	// storage for sequences parsed from strings, as set in the optimization hints
+	private static <C extends Compound> SequenceReader<C> createSequenceStorage() {
+		if (SequenceOptimizationHints.getSequenceStorage() == SequenceStorage.COMPOUND_LIST) {
+			return new ArrayListSequenceReader<>();
+		}
+		return new OrdinalSequenceReader<>();
+	}
+
 	private SequenceReader<C> getSequenceStorage() {
 		if (sequenceStorage != null) {
 			return sequenceStorage;
@@ -591,7 +602,7 @@ public abstract class AbstractSequence<C extends Compound> implements Sequence<C
 			//return parentSequence.getSequenceStorage();
 
 			if ( this.compoundSet.equals(parentSequence.getCompoundSet())){
-				sequenceStorage = new ArrayListSequenceReader<>();
+				sequenceStorage = createSequenceStorage();
 				sequenceStorage.setCompoundSet(this.getCompoundSet());
 				try {
 					sequenceStorage.setContents(parentSequence.getSequenceAsString());
@@ -249,7 +249,7 @@ public class SequenceMixin {
 	 * as a {@link Sequence}.
 	 */
 	public static <C extends Compound> Sequence<C> shuffle(Sequence<C> sequence) {
-		List<C> compounds = sequence.getAsList();
+		List<C> compounds = new ArrayList<>(sequence.getAsList());
 		Collections.shuffle(compounds);
 		return new ArrayListSequenceReader<>(compounds,
 				sequence.getCompoundSet());
@@ -27,10 +27,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Static utility to easily share a thread pool for concurrent/parallel/lazy execution.  To exit cleanly,
  * {@link #shutdown()} or {@link #shutdownAndAwaitTermination()} must be called after all tasks have been submitted.
+ * The methods are thread-safe: the pool is replaced atomically, tasks submitted to a pool that is being
+ * replaced may be rejected.
  *
  * @author Mark Chapman
  */
@@ -38,8 +41,9 @@ public class ConcurrencyTools {
 
 	private final static Logger logger = LoggerFactory.getLogger(ConcurrencyTools.class);
 
-	private static ThreadPoolExecutor pool;
-	private static int tasks = 0;
+	// guarded by the class lock, volatile for the unsynchronized reads
+	private static volatile ThreadPoolExecutor pool;
+	private static final AtomicInteger tasks = new AtomicInteger();
 	private ConcurrencyTools() { }
 
 	/**
@@ -47,7 +51,7 @@ public class ConcurrencyTools {
 	 *
 	 * @return shared thread pool
 	 */
-	public static ThreadPoolExecutor getThreadPool() {
+	public static synchronized ThreadPoolExecutor getThreadPool() {
 		if (pool == null || pool.isShutdown()) {
 			setThreadPoolDefault();
 		}
@@ -104,7 +108,7 @@ public class ConcurrencyTools {
 	 *
 	 * @param pool thread pool to share
 	 */
-	public static void setThreadPool(ThreadPoolExecutor pool) {
+	public static synchronized void setThreadPool(ThreadPoolExecutor pool) {
 		if (ConcurrencyTools.pool != pool) {
 			shutdown();
 			ConcurrencyTools.pool = pool;
@@ -114,7 +118,7 @@ public class ConcurrencyTools {
 	/**
 	 * Disables new tasks from being submitted and closes the thread pool cleanly.
 	 */
-	public static void shutdown() {
+	public static synchronized void shutdown() {
 		if (pool != null) {
 			pool.shutdown();
 		}
@@ -125,6 +129,7 @@ public class ConcurrencyTools {
 	 */
 	public static void shutdownAndAwaitTermination() {
 		shutdown();
+		ThreadPoolExecutor pool = ConcurrencyTools.pool;
 		if (pool != null) {
 			try {
 				// wait a while for existing tasks to terminate
@@ -151,7 +156,7 @@ public class ConcurrencyTools {
 	 * @return future on which the desired value is retrieved by calling get()
 	 */
 	public static<T> Future<T> submit(Callable<T> task, String message) {
-		logger.debug("Task " + (++tasks) + " submitted to shared thread pool. " + message);
+		logger.debug("Task " + tasks.incrementAndGet() + " submitted to shared thread pool. " + message);
 		return getThreadPool().submit(task);
 	}
 
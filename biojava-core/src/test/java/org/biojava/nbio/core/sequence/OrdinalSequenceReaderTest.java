@@ -0,0 +1,115 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.core.sequence;
+
+import org.biojava.nbio.core.exceptions.CompoundNotFoundException;
+import org.biojava.nbio.core.sequence.compound.AmbiguityDNACompoundSet;
+import org.biojava.nbio.core.sequence.compound.AminoAcidCompound;
+import org.biojava.nbio.core.sequence.compound.AminoAcidCompoundSet;
+import org.biojava.nbio.core.sequence.compound.DNACompoundSet;
+import org.biojava.nbio.core.sequence.compound.NucleotideCompound;
+import org.biojava.nbio.core.sequence.storage.ArrayListSequenceReader;
+import org.biojava.nbio.core.sequence.storage.OrdinalSequenceReader;
+import org.biojava.nbio.core.sequence.template.Sequence;
+import org.biojava.nbio.core.sequence.template.SequenceMixin;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.RandomAccess;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class OrdinalSequenceReaderTest {
+
+	@Test
+	public void testPacking() throws CompoundNotFoundException {
+		DNACompoundSet dna = DNACompoundSet.getDNACompoundSet();
+		assertEquals(1, new OrdinalSequenceReader<>("AAAA", dna).getBitsPerCompound());
+		assertEquals(2, new OrdinalSequenceReader<>("ACGTACGTACGTACGTACGTACGTACGTACGTACGT", dna).getBitsPerCompound());
+		assertEquals(4, new OrdinalSequenceReader<>("ACGTNacgtn", dna).getBitsPerCompound());
+		assertEquals(8, new OrdinalSequenceReader<>("ACDEFGHIKLMNPQRSTVWY",
+				AminoAcidCompoundSet.aminoAcidCompoundSet).getBitsPerCompound());
+		assertEquals(0, new OrdinalSequenceReader<>("", dna).getLength());
+	}
+
+	@Test
+	public void testAccess() throws CompoundNotFoundException {
+		// longer than one word at every packing
+		String expected = "ACGTNacgtnRYKMSWBDHV-ACGTTGCAACGTTGCAACGTTGCAACGTTGCAACGTTGCAACGTTGCA";
+		AmbiguityDNACompoundSet dna = AmbiguityDNACompoundSet.getDNACompoundSet();
+		OrdinalSequenceReader<NucleotideCompound> seq = new OrdinalSequenceReader<>(expected, dna);
+		ArrayListSequenceReader<NucleotideCompound> list = new ArrayListSequenceReader<>(expected, dna);
+
+		assertEquals(expected, seq.getSequenceAsString());
+		assertEquals(expected.length(), seq.getLength());
+		assertEquals(list.getAsList(), seq.getAsList());
+		assertEquals(expected, SequenceMixin.toStringBuilder(seq).toString());
+		for (int i = 1; i <= expected.length(); i++) {
+			assertEquals(list.getCompoundAt(i), seq.getCompoundAt(i));
+		}
+		NucleotideCompound n = dna.getCompoundForString("n");
+		assertEquals(list.getIndexOf(n), seq.getIndexOf(n));
+		assertEquals(list.getLastIndexOf(n), seq.getLastIndexOf(n));
+		assertEquals(0, seq.getIndexOf(dna.getCompoundForString("I")));
+		assertEquals("GTNac", seq.getSubSequence(3, 7).getSequenceAsString());
+		assertEquals(list.getSequenceAsString(3, 7, Strand.NEGATIVE), seq.getSequenceAsString(3, 7, Strand.NEGATIVE));
+
+		assertEquals(seq, new OrdinalSequenceReader<>(list.getAsList(), dna));
+		assertEquals(seq.hashCode(), new OrdinalSequenceReader<>(list.getAsList(), dna).hashCode());
+		assertNotEquals(seq, new OrdinalSequenceReader<>(expected.toUpperCase(), dna));
+	}
+
+	@Test
+	public void testAsList() throws CompoundNotFoundException {
+		DNACompoundSet dna = DNACompoundSet.getDNACompoundSet();
+		OrdinalSequenceReader<NucleotideCompound> seq = new OrdinalSequenceReader<>("ACGTACGT", dna);
+		List<NucleotideCompound> compounds = seq.getAsList();
+		assertTrue(compounds instanceof RandomAccess);
+		try {
+			compounds.set(0, dna.getCompoundForString("T"));
+			fail("Expected UnsupportedOperationException");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+
+		// shuffling copies the compounds
+		Sequence<NucleotideCompound> shuffled = SequenceMixin.shuffle(seq);
+		assertEquals("ACGTACGT", seq.getSequenceAsString());
+		assertEquals(seq.getLength(), shuffled.getLength());
+	}
+
+	@Test(expected = CompoundNotFoundException.class)
+	public void testUnknownCompound() throws CompoundNotFoundException {
+		new OrdinalSequenceReader<>("ACGTJ", DNACompoundSet.getDNACompoundSet());
+	}
+
+	@Test
+	public void testDefaultStorage() throws CompoundNotFoundException {
+		ProteinSequence protein = new ProteinSequence("MKTAYIAKQRQ");
+		assertEquals(OrdinalSequenceReader.class, protein.getProxySequenceReader().getClass());
+		AminoAcidCompound k = protein.getCompoundAt(2);
+		assertEquals("K", k.getShortName());
+		assertEquals(2, protein.countCompounds(k));
+	}
+}
@@ -30,9 +30,17 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * Identify attachment modification in a 3-D structure.
+ * <p>
+ * The pairs of groups that may be linked are found once per call of identify()
+ * on a spatial grid (see {@link StructureUtil#findLinkedGroups}), so that the
+ * atom linkages of the modification conditions are only checked for groups
+ * that are close to each other. The potential modifications are processed in
+ * parallel; the results are the same as checking all pairs.
  *
  * @author Jianjiong Gao
  * @since 3.0
@@ -54,6 +62,21 @@ public class ProteinModificationIdentifier {
 	 */
 	private List<Group> residues;
 
+	/**
+	 * Temporary save the amino acids as a set for fast query, for each call of identify().
+	 */
+	private Set<Group> residueSet;
+
+	/**
+	 * Temporary save the groups that may be linked to each group, for each call of identify().
+	 */
+	private Map<Group, Set<Group>> linkedGroups;
+
+	/**
+	 * Temporary save the order of the groups in the chains, for each call of identify().
+	 */
+	private Map<Group, Integer> groupOrder;
+
 
 	public ProteinModificationIdentifier(){
 
@@ -270,19 +293,34 @@ public class ProteinModificationIdentifier {
 		residues = new ArrayList<>();
 		List<Group> ligands = new ArrayList<>();
 		Map<Component, Set<Group>> mapCompGroups = new HashMap<>();
+		Map<Component,Set<Component>> mapSingleMultiComps = getSingleMultiComponents(potentialModifications);
+		groupOrder = new LinkedHashMap<>();
 
+		// sequential: telling amino acids and ligands apart looks up the
+		// chemical components, which may download and cache them
 		for (Chain chain : chains) {
 
 			List<Group> ress = StructureUtil.getAminoAcids(chain);
-
 			//List<Group> ligs = chain.getAtomLigands();
 			List<Group> ligs = StructureTools.filterLigands(chain.getAtomGroups());
+
 			residues.addAll(ress);
 			residues.removeAll(ligs);
 			ligands.addAll(ligs);
-			addModificationGroups(potentialModifications, ress, ligs, mapCompGroups);
+			addModificationGroups(mapSingleMultiComps, ress, ligs, mapCompGroups);
+
+			for (Group group : ligs) {
+				groupOrder.putIfAbsent(group, groupOrder.size());
+			}
+			for (Group group : ress) {
+				groupOrder.putIfAbsent(group, groupOrder.size());
+			}
 		}
 
+		residueSet = new HashSet<>(residues);
+		linkedGroups = StructureUtil.findLinkedGroups(
+				new ArrayList<>(groupOrder.keySet()), bondLengthTolerance);
+
 		if (residues.isEmpty()) {
 			String pdbId = "?";
 			if ( chains.size() > 0) {
@@ -294,30 +332,17 @@ public class ProteinModificationIdentifier {
 		}
 		List<ModifiedCompound> modComps = new ArrayList<>();
 
-		for (ProteinModification mod : potentialModifications) {
-			ModificationCondition condition = mod.getCondition();
-			List<Component> components = condition.getComponents();
-			if (!mapCompGroups.keySet().containsAll(components)) {
-				// not all components exist for this mod.
-				continue;
-			}
-
-			int sizeComps = components.size();
-			if (sizeComps==1) {
-
-				processCrosslink1(mapCompGroups, modComps, mod, components);
-
-			} else {
-
-				processMultiCrosslink(mapCompGroups, modComps, mod, condition);
-			}
+		List<List<ModifiedCompound>> modCompsOfMods = new ArrayList<>(potentialModifications)
+				.parallelStream()
+				.map(mod -> processModification(mapCompGroups, mod))
+				.collect(Collectors.toList());
+		for (List<ModifiedCompound> list : modCompsOfMods) {
+			modComps.addAll(list);
 		}
 
 		if (recordAdditionalAttachments) {
 			// identify additional groups that are not directly attached to amino acids.
-			for (ModifiedCompound mc : modComps) {
-				identifyAdditionalAttachments(mc, ligands, chains);
-			}
+			modComps.parallelStream().forEach(mc -> identifyAdditionalAttachments(mc, ligands, chains));
 		}
 
 		mergeModComps(modComps);
@@ -330,6 +355,9 @@ public class ProteinModificationIdentifier {
 			recordUnidentifiableAtomLinkages(modComps, ligands);
 			recordUnidentifiableModifiedResidues(modComps);
 		}
+
+		linkedGroups = null;
+		groupOrder = null;
 	}
 
 	private void reset() {
@@ -341,6 +369,57 @@ public class ProteinModificationIdentifier {
 
 	}
 
+	private List<ModifiedCompound> processModification(
+			Map<Component, Set<Group>> mapCompGroups, ProteinModification mod) {
+		List<ModifiedCompound> modComps = new ArrayList<>();
+
+		ModificationCondition condition = mod.getCondition();
+		List<Component> components = condition.getComponents();
+		if (!mapCompGroups.keySet().containsAll(components)) {
+			// not all components exist for this mod.
+			return modComps;
+		}
+
+		int sizeComps = components.size();
+		if (sizeComps==1) {
+
+			processCrosslink1(mapCompGroups, modComps, mod, components);
+
+		} else {
+
+			processMultiCrosslink(mapCompGroups, modComps, mod, condition);
+		}
+
+		return modComps;
+	}
+
+	/**
+	 * @param group a {@link Group}.
+	 * @param candidates the groups to consider.
+	 * @return the candidates that may be linked to the group,
+	 *  in the order of the chains.
+	 */
+	private List<Group> getLinkedGroups(Group group, Set<Group> candidates) {
+		Set<Group> linked = linkedGroups.get(group);
+		if (linked == null) {
+			return Collections.emptyList();
+		}
+
+		List<Group> ret = new ArrayList<>();
+		for (Group g : linked) {
+			if (candidates.contains(g)) {
+				ret.add(g);
+			}
+		}
+		ret.sort(Comparator.comparing(groupOrder::get));
+		return ret;
+	}
+
+	private boolean isLinked(Group group1, Group group2) {
+		Set<Group> linked = linkedGroups.get(group1);
+		return linked != null && linked.contains(group2);
+	}
+
 	private void processMultiCrosslink(
 			Map<Component, Set<Group>> mapCompGroups,
 			List<ModifiedCompound> modComps, ProteinModification mod,
@@ -423,7 +502,7 @@ public class ProteinModificationIdentifier {
 			for (Group group1 : ligands) {
 				for (int i=start; i<n; i++) {
 					Group group2 = identifiedGroups.get(i);
-					if (!identifiedGroups.contains(group1)) {
+					if (!identifiedGroups.contains(group1) && isLinked(group1, group2)) {
 						List<Atom[]> linkedAtoms = StructureUtil.findAtomLinkages(
 								group1, group2, false, bondLengthTolerance);
 						if (!linkedAtoms.isEmpty()) {
@@ -520,37 +599,47 @@ public class ProteinModificationIdentifier {
 		// record
 		// cross link
 		int nRes = residues.size();
-		for (int i=0; i<nRes-1; i++) {
+		List<List<StructureAtomLinkage>> crossLinks = IntStream.range(0, nRes).parallel().mapToObj(i -> {
 			Group group1 = residues.get(i);
-			for (int j=i+1; j<nRes; j++) {
-				Group group2 = residues.get(j);
+			int order1 = groupOrder.get(group1);
+			List<StructureAtomLinkage> links = new ArrayList<>();
+			for (Group group2 : getLinkedGroups(group1, residueSet)) {
+				if (groupOrder.get(group2) < order1) { // each pair once
+					continue;
+				}
 				List<Atom[]> linkages = StructureUtil.findAtomLinkages(
 						group1, group2, true, bondLengthTolerance);
 				for (Atom[] atoms : linkages) {
-					StructureAtomLinkage link = StructureUtil.getStructureAtomLinkage(atoms[0],
-							true, atoms[1], true);
-					unidentifiableAtomLinkages.add(link);
+					links.add(StructureUtil.getStructureAtomLinkage(atoms[0],
+							true, atoms[1], true));
 				}
 			}
+			return links;
+		}).collect(Collectors.toList());
+		for (List<StructureAtomLinkage> links : crossLinks) {
+			unidentifiableAtomLinkages.addAll(links);
 		}
 
 		// attachment
-		int nLig = ligands.size();
-		for (int i=0; i<nRes; i++) {
+		Set<Group> ligandSet = new HashSet<>(ligands);
+		List<List<StructureAtomLinkage>> attachments = IntStream.range(0, nRes).parallel().mapToObj(i -> {
 			Group group1 = residues.get(i);
-			for (int j=0; j<nLig; j++) {
-				Group group2 = ligands.get(j);
+			List<StructureAtomLinkage> links = new ArrayList<>();
+			for (Group group2 : getLinkedGroups(group1, ligandSet)) {
 				if (group1.equals(group2)) { // overlap between residues and ligands
 					continue;
 				}
 				List<Atom[]> linkages = StructureUtil.findAtomLinkages(
 						group1, group2, false, bondLengthTolerance);
 				for (Atom[] atoms : linkages) {
-					StructureAtomLinkage link = StructureUtil.getStructureAtomLinkage(atoms[0],
-							true, atoms[1], false);
-					unidentifiableAtomLinkages.add(link);
+					links.add(StructureUtil.getStructureAtomLinkage(atoms[0],
+							true, atoms[1], false));
 				}
 			}
+			return links;
+		}).collect(Collectors.toList());
+		for (List<StructureAtomLinkage> links : attachments) {
+			unidentifiableAtomLinkages.addAll(links);
 		}
 	}
 
@@ -575,23 +664,12 @@ public class ProteinModificationIdentifier {
 	}
 
 	/**
-	 *
+	 * Index the components of the modification conditions by single pdbccId.
 	 * @param modifications a set of {@link ProteinModification}s.
-	 * @param residues
-	 * @param ligands
-	 * @param saveTo save result to
-	 * @return map from component to list of corresponding residues
-	 *  in the chain.
+	 * @return map from single-pdbccId component to the components containing it.
 	 */
-	private void addModificationGroups(
-			final Set<ProteinModification> modifications,
-			final List<Group> residues,
-			final List<Group> ligands,
-			final Map<Component, Set<Group>> saveTo) {
-		if (residues==null || ligands==null || modifications==null) {
-			throw new IllegalArgumentException("Null argument(s).");
-		}
-
+	private Map<Component,Set<Component>> getSingleMultiComponents(
+			final Set<ProteinModification> modifications) {
 		Map<Component,Set<Component>> mapSingleMultiComps = new HashMap<>();
 		for (ProteinModification mod : modifications) {
 			ModificationCondition condition = mod.getCondition();
@@ -604,6 +682,27 @@ public class ProteinModificationIdentifier {
 				}
 			}
 		}
+		return mapSingleMultiComps;
+	}
+
+	/**
+	 *
+	 * @param mapSingleMultiComps index of the components of the modifications,
+	 *  see {@link #getSingleMultiComponents}.
+	 * @param residues
+	 * @param ligands
+	 * @param saveTo save result to
+	 * @return map from component to list of corresponding residues
+	 *  in the chain.
+	 */
+	private void addModificationGroups(
+			final Map<Component,Set<Component>> mapSingleMultiComps,
+			final List<Group> residues,
+			final List<Group> ligands,
+			final Map<Component, Set<Group>> saveTo) {
+		if (residues==null || ligands==null || mapSingleMultiComps==null) {
+			throw new IllegalArgumentException("Null argument(s).");
+		}
 
 		{
 			// ligands
@@ -742,7 +841,7 @@ public class ProteinModificationIdentifier {
 			}
 
 			for (Group g1 : groups1) {
-				for (Group g2 : groups2) {
+				for (Group g2 : getLinkedGroups(g1, groups2)) {
 					if (g1.equals(g2)) {
 						continue;
 					}
@@ -751,8 +850,8 @@ public class ProteinModificationIdentifier {
 					boolean ignoreNCLinkage =
 						potentialNamesOfAtomOnGroup1 == null &&
 						potentialNamesOfAtomOnGroup2 == null &&
-						residues.contains(g1) &&
-						residues.contains(g2);
+						residueSet.contains(g1) &&
+						residueSet.contains(g2);
 
 					Atom[] atoms = StructureUtil.findNearestAtomLinkage(
 							g1, g2,
@@ -805,8 +904,8 @@ public class ProteinModificationIdentifier {
 				for (int i=0; i<n; i++) {
 					Atom[] linkage = atomLinkages.get(i);
 					StructureAtomLinkage link = StructureUtil.getStructureAtomLinkage(
-							linkage[0], residues.contains(linkage[0].getGroup()),
-							linkage[1], residues.contains(linkage[1].getGroup()));
+							linkage[0], residueSet.contains(linkage[0].getGroup()),
+							linkage[1], residueSet.contains(linkage[1].getGroup()));
 					linkages.add(link);
 				}
 
@@ -25,13 +25,20 @@
 package org.biojava.nbio.protmod.structure;
 
 import org.biojava.nbio.structure.*;
+import org.biojava.nbio.structure.contact.Contact;
+import org.biojava.nbio.structure.contact.Grid;
 import org.biojava.nbio.structure.io.mmcif.MetalBondParser;
 import org.biojava.nbio.structure.io.mmcif.chem.MetalBondDistance;
 
+import javax.vecmath.Point3d;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public final class StructureUtil {
 	private StructureUtil() {
@@ -278,6 +285,97 @@ public final class StructureUtil {
 		return ret;
 	}
 
+	/**
+	 * Find the pairs of groups that may be linked, i.e. the groups that have at
+	 * least one pair of atoms for which {@link #findLinkage} could succeed:
+	 * atoms with an explicit bond, or atoms closer than the longest covalent or
+	 * metal bond allowed by the bond length tolerance. The atoms are placed on
+	 * a spatial {@link Grid} so that only nearby atoms are compared.
+	 * @param groups the {@link Group}s to search.
+	 * @param bondLengthTolerance bond length error tolerance.
+	 * @return a map from each group to the other groups it may be linked to.
+	 *  Groups without any candidate are not in the map.
+	 * @since 5.3.1
+	 */
+	public static Map<Group, Set<Group>> findLinkedGroups(final List<Group> groups,
+			final double bondLengthTolerance) {
+		if (bondLengthTolerance<0) {
+			throw new IllegalArgumentException("bondLengthTolerance cannot be negative.");
+		}
+
+		List<Point3d> coords = new ArrayList<>();
+		List<Integer> owners = new ArrayList<>();
+		Map<Atom, Integer> atomOwners = new IdentityHashMap<>();
+		float maxRadius = 0;
+		boolean hasMetal = false;
+		for (int i=0; i<groups.size(); i++) {
+			for (Atom atom : groups.get(i).getAtoms()) {
+				coords.add(atom.getCoordsAsPoint3d());
+				owners.add(i);
+				atomOwners.put(atom, i);
+				Element element = atom.getElement();
+				maxRadius = Math.max(maxRadius, element.getCovalentRadius());
+				hasMetal |= element.isMetal();
+			}
+		}
+
+		Map<Group, Set<Group>> ret = new HashMap<>();
+		if (coords.size() < 2) {
+			return ret;
+		}
+
+		// atoms farther apart than this can not pass the distance checks of findLinkage,
+		// the small margin guards against the 0.01A precision of the grid
+		double cutoff = 2 * maxRadius + bondLengthTolerance;
+		if (hasMetal) {
+			cutoff = Math.max(cutoff, getMaxMetalBondLength());
+		}
+
+		Grid grid = new Grid(cutoff + 0.01);
+		grid.addCoords(coords.toArray(new Point3d[0]));
+		for (Contact contact : grid.getIndicesContacts()) {
+			addLinkedGroups(ret, groups, owners.get(contact.getI()), owners.get(contact.getJ()));
+		}
+
+		// explicit bonds are accepted regardless of the distance
+		for (Atom atom : atomOwners.keySet()) {
+			List<Bond> bonds = atom.getBonds();
+			if (bonds == null) {
+				continue;
+			}
+			for (Bond bond : bonds) {
+				Integer owner1 = atomOwners.get(bond.getAtomA());
+				Integer owner2 = atomOwners.get(bond.getAtomB());
+				if (owner1 != null && owner2 != null) {
+					addLinkedGroups(ret, groups, owner1, owner2);
+				}
+			}
+		}
+
+		return ret;
+	}
+
+	private static void addLinkedGroups(Map<Group, Set<Group>> linkedGroups,
+			List<Group> groups, int i, int j) {
+		if (i == j) {
+			return;
+		}
+		Group group1 = groups.get(i);
+		Group group2 = groups.get(j);
+		linkedGroups.computeIfAbsent(group1, k -> new HashSet<>()).add(group2);
+		linkedGroups.computeIfAbsent(group2, k -> new HashSet<>()).add(group1);
+	}
+
+	private static double getMaxMetalBondLength() {
+		double max = 0;
+		for (List<MetalBondDistance> distances : MetalBondParser.getMetalBondDefinitions().values()) {
+			for (MetalBondDistance d : distances) {
+				max = Math.max(max, d.getUpperLimit());
+			}
+		}
+		return max;
+	}
+
 	private static boolean hasMetalBond(Atom a1, Atom a2, MetalBondDistance definition) {
 
 		double distance = Calc.getDistance(a1,a2);
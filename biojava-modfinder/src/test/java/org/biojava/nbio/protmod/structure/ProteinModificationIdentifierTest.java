@@ -0,0 +1,156 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.protmod.structure;
+
+import org.biojava.nbio.protmod.ProteinModificationRegistry;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.io.FileParsingParameters;
+import org.biojava.nbio.structure.io.PDBFileParser;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the modifications identified with the grid lookup of the linked groups
+ * against the known modifications of some structures.
+ */
+public class ProteinModificationIdentifierTest {
+
+	private static ProteinModificationIdentifier identify(String name) throws IOException {
+		FileParsingParameters params = new FileParsingParameters();
+		params.setAlignSeqRes(true);
+		params.setParseSecStruc(false);
+		params.setCreateAtomBonds(true);
+		PDBFileParser parser = new PDBFileParser();
+		parser.setFileParsingParameters(params);
+		Structure structure;
+		try (InputStream in = new GZIPInputStream(ProteinModificationIdentifierTest.class
+				.getResourceAsStream(name + ".pdb.gz"))) {
+			structure = parser.parsePDBFile(in);
+		}
+
+		ProteinModificationIdentifier identifier = new ProteinModificationIdentifier();
+		identifier.setRecordUnidentifiableCompounds(true);
+		identifier.identify(structure, ProteinModificationRegistry.allModifications());
+		return identifier;
+	}
+
+	private static String toString(StructureGroup group) {
+		return group.getPDBName() + " " + group.getChainId() + " " + group.getResidueNumber()
+				+ (group.getInsCode() == null ? "" : group.getInsCode());
+	}
+
+	private static String toString(StructureAtomLinkage linkage) {
+		return toString(linkage.getAtom1().getGroup()) + " " + linkage.getAtom1().getAtomName() + "-"
+				+ toString(linkage.getAtom2().getGroup()) + " " + linkage.getAtom2().getAtomName();
+	}
+
+	/**
+	 * The modified compounds as the modification id followed by the sorted linkages,
+	 * or by the group if there are no linkages.
+	 */
+	private static Set<String> getCompounds(Set<ModifiedCompound> modComps) {
+		Set<String> ret = new HashSet<>();
+		for (ModifiedCompound mc : modComps) {
+			Set<String> parts = new TreeSet<>();
+			if (mc.getAtomLinkages().isEmpty()) {
+				for (StructureGroup group : mc.getGroups())
+					parts.add(toString(group));
+			} else {
+				for (StructureAtomLinkage linkage : mc.getAtomLinkages())
+					parts.add(toString(linkage));
+			}
+			ret.add(mc.getModification().getId() + " " + String.join(", ", parts));
+		}
+		return ret;
+	}
+
+	private static Set<String> getLinkages(Set<StructureAtomLinkage> linkages) {
+		Set<String> ret = new HashSet<>();
+		for (StructureAtomLinkage linkage : linkages)
+			ret.add(toString(linkage));
+		return ret;
+	}
+
+	/**
+	 * Thrombin with a hirugen peptide: disulfide bonds within and between chains, a sulfated
+	 * tyrosine and sodium ions bound to another chain.
+	 */
+	@Test
+	public void testCrosslinks() throws IOException {
+		ProteinModificationIdentifier identifier = identify("1a4w");
+
+		assertEquals(new HashSet<>(Arrays.asList(
+				"0012 TYS I 363",
+				"0018 CYS A 1 SG-CYS B 122 SG",
+				"0018 CYS B 168 SG-CYS B 182 SG",
+				"0018 CYS B 191 SG-CYS B 220 SG",
+				"0018 CYS B 42 SG-CYS B 58 SG",
+				"360 ARG B 221A O-NA D 541 NA, LYS B 224 O-NA D 541 NA",
+				"360 LYS B 169 O-NA E 542 NA, THR B 172 O-NA E 542 NA")),
+				getCompounds(identifier.getIdentifiedModifiedCompound()));
+
+		assertEquals(new HashSet<>(Arrays.asList(
+				"CYS A 1 SG-CYS B 122 SG",
+				"CYS B 42 SG-CYS B 58 SG",
+				"CYS B 168 SG-CYS B 182 SG",
+				"CYS B 191 SG-CYS B 220 SG",
+				"LYS B 169 O-NA E 542 NA",
+				"THR B 172 O-NA E 542 NA",
+				"ARG B 221A O-NA D 541 NA",
+				"LYS B 224 O-NA D 541 NA")),
+				getLinkages(identifier.getUnidentifiableAtomLinkages()));
+		assertTrue(identifier.getUnidentifiableModifiedResidues().isEmpty());
+	}
+
+	/**
+	 * Formate dehydrogenase H: an iron-sulfur cluster and a molybdenum cofactor, which
+	 * are merged from the linkages of several ligands.
+	 */
+	@Test
+	public void testCofactors() throws IOException {
+		ProteinModificationIdentifier identifier = identify("1fdo");
+
+		assertEquals(new HashSet<>(Arrays.asList(
+				"0074 CYS A 11 SG-SF4 B 800 FE4, CYS A 15 SG-SF4 B 800 FE3, "
+						+ "CYS A 42 SG-SF4 B 800 FE1, CYS A 8 SG-SF4 B 800 FE2",
+				"359 CSE A 140 SE-6MO E 803 MO, MGD C 801 S12-6MO E 803 MO, MGD C 801 S13-6MO E 803 MO, "
+						+ "MGD D 802 S12-6MO E 803 MO, MGD D 802 S13-6MO E 803 MO")),
+				getCompounds(identifier.getIdentifiedModifiedCompound()));
+
+		assertEquals(new HashSet<>(Arrays.asList(
+				"CYS A 8 SG-SF4 B 800 FE2",
+				"CYS A 11 SG-SF4 B 800 FE4",
+				"CYS A 15 SG-SF4 B 800 FE3",
+				"CYS A 42 SG-SF4 B 800 FE1",
+				"CSE A 140 SE-6MO E 803 MO")),
+				getLinkages(identifier.getUnidentifiableAtomLinkages()));
+		assertTrue(identifier.getUnidentifiableModifiedResidues().isEmpty());
+	}
+}
@@ -0,0 +1,616 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.ontology;
+
+import org.biojava.nbio.ontology.obo.OboFileEventListener;
+import org.biojava.nbio.ontology.obo.OboFileHandler;
+import org.biojava.nbio.ontology.obo.OboFileParser;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * An immutable index of the hierarchy of an ontology, for fast ancestor and
+ * descendant queries.
+ *
+ * <p>The terms are numbered from 0 and the direct parents and children of
+ * each term are stored as compressed sparse rows. The transitive closure of
+ * the hierarchy is precomputed as sorted ancestor and descendant rows, so
+ * that the closure queries do not walk the triples of the {@link Ontology}
+ * any more. The (term, ancestor) pairs of the closure are also kept in an
+ * open addressing hash table, which makes {@link #isDescendantOf(int, int)}
+ * a constant time lookup. Unlike a bit matrix, its size is linear in the
+ * size of the closure, since terms may have several parents.</p>
+ *
+ * <p>Only the edges of the given relations are part of the hierarchy, by
+ * default <code>is_a</code> and <code>part_of</code>. The OBO
+ * <code>relationship</code> triples are split into their type and target,
+ * such that <code>relationship: part_of GO:0005634</code> is a
+ * <code>part_of</code> edge to <code>GO:0005634</code>. Cycles are allowed,
+ * the terms of a cycle are then ancestors of each other.</p>
+ *
+ * <p>The index is serializable, see {@link #write(OutputStream)} and
+ * {@link #read(InputStream)}, to avoid parsing the ontology file again at
+ * startup.</p>
+ *
+ * @since 5.3.1
+ */
+public final class OntologyIndex implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The relations used when none are given.
+	 */
+	public static final Set<String> DEFAULT_RELATIONS = Collections.unmodifiableSet(
+			new LinkedHashSet<>(Arrays.asList(OboFileHandler.IS_A, "part_of")));
+
+	private final String[] names;
+
+	private final int[] parentStart;
+	private final int[] parents;
+	private final int[] childStart;
+	private final int[] children;
+
+	private final int[] ancestorStart;
+	private final int[] ancestors;
+	private final int[] descendantStart;
+	private final int[] descendants;
+
+	private transient Map<String, Integer> ids;
+	/** the packed (term, ancestor) pairs of the closure, -1 for empty slots */
+	private transient long[] closureTable;
+
+	private OntologyIndex(String[] names, int[] edgeChild, int[] edgeParent, int nedges) {
+		this.names = names;
+		int n = names.length;
+
+		parentStart = new int[n + 1];
+		parents = new int[nedges];
+		childStart = new int[n + 1];
+		children = new int[nedges];
+		fillRows(n, edgeChild, edgeParent, nedges, parentStart, parents);
+		fillRows(n, edgeParent, edgeChild, nedges, childStart, children);
+
+		// The closure of each term is a walk of its parents, marking the
+		// visited terms with the index of the current term. A term is only
+		// its own ancestor if it is part of a cycle.
+		int[] mark = new int[n];
+		Arrays.fill(mark, -1);
+		int[] stack = new int[n + 1];
+		int[] visited = new int[n];
+		int[][] closure = new int[n][];
+		int total = 0;
+		for (int t = 0; t < n; t++) {
+			int size = 0;
+			int top = 0;
+			stack[top++] = t;
+			while (top > 0) {
+				int u = stack[--top];
+				for (int k = parentStart[u]; k < parentStart[u + 1]; k++) {
+					int p = parents[k];
+					if (mark[p] != t) {
+						mark[p] = t;
+						stack[top++] = p;
+						visited[size++] = p;
+					}
+				}
+			}
+			closure[t] = Arrays.copyOf(visited, size);
+			Arrays.sort(closure[t]);
+			total += size;
+		}
+
+		ancestorStart = new int[n + 1];
+		ancestors = new int[total];
+		for (int t = 0; t < n; t++) {
+			ancestorStart[t + 1] = ancestorStart[t] + closure[t].length;
+			System.arraycopy(closure[t], 0, ancestors, ancestorStart[t], closure[t].length);
+		}
+
+		int[] from = new int[total];
+		for (int t = 0; t < n; t++)
+			Arrays.fill(from, ancestorStart[t], ancestorStart[t + 1], t);
+		descendantStart = new int[n + 1];
+		descendants = new int[total];
+		fillRows(n, ancestors, from, total, descendantStart, descendants);
+
+		buildIds();
+	}
+
+	/**
+	 * Fills sorted compressed rows from a list of (row, column) pairs.
+	 */
+	private static void fillRows(int n, int[] rows, int[] cols, int count, int[] start, int[] values) {
+		for (int e = 0; e < count; e++)
+			start[rows[e] + 1]++;
+		for (int i = 0; i < n; i++)
+			start[i + 1] += start[i];
+		int[] pos = Arrays.copyOf(start, n);
+		for (int e = 0; e < count; e++)
+			values[pos[rows[e]]++] = cols[e];
+		for (int i = 0; i < n; i++)
+			Arrays.sort(values, start[i], start[i + 1]);
+	}
+
+	private void buildIds() {
+		ids = new HashMap<>(names.length * 2);
+		for (int i = 0; i < names.length; i++)
+			ids.put(names[i], i);
+
+		// at most half full, so that the probe sequences stay short
+		int capacity = Integer.highestOneBit(Math.max(ancestors.length, 1) * 2 + 1) << 1;
+		closureTable = new long[capacity];
+		Arrays.fill(closureTable, -1L);
+		int mask = capacity - 1;
+		for (int t = 0; t < names.length; t++) {
+			for (int k = ancestorStart[t]; k < ancestorStart[t + 1]; k++) {
+				long key = pair(t, ancestors[k]);
+				int slot = slot(key, mask);
+				while (closureTable[slot] != -1L)
+					slot = (slot + 1) & mask;
+				closureTable[slot] = key;
+			}
+		}
+	}
+
+	private static long pair(int id, int ancestor) {
+		return ((long) id << 32) | ancestor;
+	}
+
+	private static int slot(long key, int mask) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & mask;
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		buildIds();
+	}
+
+	/**
+	 * Builds the index of the <code>is_a</code> and <code>part_of</code>
+	 * hierarchy of an ontology.
+	 *
+	 * @param ontology the ontology
+	 * @return the index
+	 */
+	public static OntologyIndex build(Ontology ontology) {
+		return build(ontology, DEFAULT_RELATIONS);
+	}
+
+	/**
+	 * Builds the index of the hierarchy of an ontology.
+	 *
+	 * @param ontology the ontology
+	 * @param relations the names of the relations that are part of the
+	 *            hierarchy
+	 * @return the index
+	 */
+	public static OntologyIndex build(Ontology ontology, Set<String> relations) {
+		Builder builder = new Builder(relations);
+		Set<Triple> triples = ontology.getTriples(null, null, null);
+
+		// The predicates and the "<type> <target>" objects of the OBO
+		// relationships are terms of the ontology, but not of the hierarchy
+		Set<String> excluded = new HashSet<>();
+		for (Triple triple : triples) {
+			excluded.add(triple.getPredicate().getName());
+			if (OboFileHandler.RELATIONSHIP.equals(triple.getPredicate().getName()))
+				excluded.add(triple.getObject().getName());
+		}
+		List<String> termNames = new ArrayList<>();
+		for (Term term : ontology.getTerms()) {
+			if (!(term instanceof Triple) && !excluded.contains(term.getName()))
+				termNames.add(term.getName());
+		}
+		Collections.sort(termNames);
+		for (String name : termNames)
+			builder.getId(name);
+
+		for (Triple triple : triples) {
+			builder.addEdge(triple.getSubject().getName(), triple.getPredicate().getName(),
+					triple.getObject().getName());
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Builds the index of the <code>is_a</code> and <code>part_of</code>
+	 * hierarchy straight from an OBO file, without creating an
+	 * {@link Ontology}.
+	 *
+	 * @param oboFile the OBO file
+	 * @return the index
+	 * @throws IOException if the file cannot be read
+	 */
+	public static OntologyIndex build(BufferedReader oboFile) throws IOException {
+		return build(oboFile, DEFAULT_RELATIONS);
+	}
+
+	/**
+	 * Builds the index of the hierarchy straight from an OBO file, without
+	 * creating an {@link Ontology}. Only the tags of the relations are
+	 * processed by the parser.
+	 *
+	 * @param oboFile the OBO file
+	 * @param relations the names of the relations that are part of the
+	 *            hierarchy
+	 * @return the index
+	 * @throws IOException if the file cannot be read
+	 */
+	public static OntologyIndex build(BufferedReader oboFile, Set<String> relations) throws IOException {
+		Builder builder = new Builder(relations);
+		OboFileParser parser = new OboFileParser();
+		Set<String> tags = new HashSet<>(relations);
+		tags.add(OboFileHandler.RELATIONSHIP);
+		parser.setTags(tags);
+		parser.addOboFileEventListener(builder);
+		parser.parseOBO(oboFile);
+		return builder.build();
+	}
+
+	/**
+	 * Reads an index written by {@link #write(OutputStream)}.
+	 *
+	 * @param in the stream to read from, which is not closed
+	 * @return the index
+	 * @throws IOException if the stream cannot be read or does not contain
+	 *             an index
+	 */
+	public static OntologyIndex read(InputStream in) throws IOException {
+		ObjectInputStream objectIn = new ObjectInputStream(in);
+		try {
+			return (OntologyIndex) objectIn.readObject();
+		} catch (ClassNotFoundException | ClassCastException e) {
+			throw new IOException("The stream does not contain an ontology index", e);
+		}
+	}
+
+	/**
+	 * Writes the index to a stream.
+	 *
+	 * @param out the stream to write to, which is flushed but not closed
+	 * @throws IOException if the stream cannot be written
+	 */
+	public void write(OutputStream out) throws IOException {
+		ObjectOutputStream objectOut = new ObjectOutputStream(out);
+		objectOut.writeObject(this);
+		objectOut.flush();
+	}
+
+	/**
+	 * @return the number of terms
+	 */
+	public int getTermCount() {
+		return names.length;
+	}
+
+	/**
+	 * @param name the name of a term, e.g. <code>GO:0005634</code>
+	 * @return the index of the term, or -1 if it is not part of the index
+	 */
+	public int getId(String name) {
+		Integer id = ids.get(name);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * @param id the index of a term
+	 * @return the name of the term
+	 */
+	public String getName(int id) {
+		return names[id];
+	}
+
+	/**
+	 * @param id the index of a term
+	 * @return the sorted indices of the direct parents of the term
+	 */
+	public int[] getParents(int id) {
+		return Arrays.copyOfRange(parents, parentStart[id], parentStart[id + 1]);
+	}
+
+	/**
+	 * @param id the index of a term
+	 * @return the sorted indices of the direct children of the term
+	 */
+	public int[] getChildren(int id) {
+		return Arrays.copyOfRange(children, childStart[id], childStart[id + 1]);
+	}
+
+	/**
+	 * @param id the index of a term
+	 * @return the sorted indices of all the ancestors of the term
+	 */
+	public int[] getAncestors(int id) {
+		return Arrays.copyOfRange(ancestors, ancestorStart[id], ancestorStart[id + 1]);
+	}
+
+	/**
+	 * @param id the index of a term
+	 * @return the sorted indices of all the descendants of the term
+	 */
+	public int[] getDescendants(int id) {
+		return Arrays.copyOfRange(descendants, descendantStart[id], descendantStart[id + 1]);
+	}
+
+	/**
+	 * @param id the index of a term
+	 * @return the number of ancestors of the term
+	 */
+	public int getAncestorCount(int id) {
+		return ancestorStart[id + 1] - ancestorStart[id];
+	}
+
+	/**
+	 * @param id the index of a term
+	 * @return the number of descendants of the term
+	 */
+	public int getDescendantCount(int id) {
+		return descendantStart[id + 1] - descendantStart[id];
+	}
+
+	/**
+	 * Checks whether a term is a descendant of another one. A term is not its
+	 * own descendant, unless it is part of a cycle.
+	 *
+	 * @param id the index of the term
+	 * @param ancestor the index of the possible ancestor
+	 * @return true if <code>ancestor</code> is reachable from the term
+	 */
+	public boolean isDescendantOf(int id, int ancestor) {
+		if (id < 0 || id >= names.length || ancestor < 0 || ancestor >= names.length)
+			throw new IndexOutOfBoundsException("Term index out of range: " + id + ", " + ancestor);
+		long key = pair(id, ancestor);
+		int mask = closureTable.length - 1;
+		for (int slot = slot(key, mask); closureTable[slot] != -1L; slot = (slot + 1) & mask) {
+			if (closureTable[slot] == key)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Checks whether a term is a descendant of another one, by name.
+	 *
+	 * @param name the name of the term
+	 * @param ancestor the name of the possible ancestor
+	 * @return true if both terms are indexed and <code>ancestor</code> is
+	 *         reachable from the term
+	 * @see #isDescendantOf(int, int)
+	 */
+	public boolean isDescendantOf(String name, String ancestor) {
+		int id = getId(name);
+		int ancestorId = getId(ancestor);
+		return id >= 0 && ancestorId >= 0 && isDescendantOf(id, ancestorId);
+	}
+
+	/**
+	 * @param name the name of a term
+	 * @return the names of all the ancestors of the term, empty if the term
+	 *         is not indexed
+	 */
+	public Set<String> getAncestors(String name) {
+		int id = getId(name);
+		return id < 0 ? Collections.emptySet() : toNames(ancestors, ancestorStart[id], ancestorStart[id + 1]);
+	}
+
+	/**
+	 * @param name the name of a term
+	 * @return the names of all the descendants of the term, empty if the term
+	 *         is not indexed
+	 */
+	public Set<String> getDescendants(String name) {
+		int id = getId(name);
+		return id < 0 ? Collections.emptySet() : toNames(descendants, descendantStart[id], descendantStart[id + 1]);
+	}
+
+	/**
+	 * Computes the ancestors of many terms in parallel.
+	 *
+	 * @param ids the indices of the terms
+	 * @return the sorted ancestor indices of each term, in the input order
+	 */
+	public int[][] getAncestors(int[] ids) {
+		int[][] result = new int[ids.length][];
+		IntStream.range(0, ids.length).parallel().forEach(i -> result[i] = getAncestors(ids[i]));
+		return result;
+	}
+
+	/**
+	 * Computes the descendants of many terms in parallel.
+	 *
+	 * @param ids the indices of the terms
+	 * @return the sorted descendant indices of each term, in the input order
+	 */
+	public int[][] getDescendants(int[] ids) {
+		int[][] result = new int[ids.length][];
+		IntStream.range(0, ids.length).parallel().forEach(i -> result[i] = getDescendants(ids[i]));
+		return result;
+	}
+
+	/**
+	 * Computes the ancestors of many terms in parallel, by name.
+	 *
+	 * @param names the names of the terms
+	 * @return the ancestor names of each term, in the iteration order of
+	 *         <code>names</code>
+	 */
+	public Map<String, Set<String>> getAncestors(Collection<String> names) {
+		List<String> list = new ArrayList<>(names);
+		List<Set<String>> closures = new ArrayList<>(Collections.nCopies(list.size(), null));
+		IntStream.range(0, list.size()).parallel().forEach(i -> closures.set(i, getAncestors(list.get(i))));
+		Map<String, Set<String>> result = new LinkedHashMap<>();
+		for (int i = 0; i < list.size(); i++)
+			result.put(list.get(i), closures.get(i));
+		return result;
+	}
+
+	/**
+	 * Computes the union of the given terms and all their ancestors, e.g. to
+	 * propagate the annotations of a gene up the hierarchy.
+	 *
+	 * @param ids the indices of the terms
+	 * @return the sorted indices of the terms and their ancestors
+	 */
+	public int[] getAncestorClosure(int[] ids) {
+		boolean[] seen = new boolean[names.length];
+		for (int id : ids) {
+			seen[id] = true;
+			for (int k = ancestorStart[id]; k < ancestorStart[id + 1]; k++)
+				seen[ancestors[k]] = true;
+		}
+		return IntStream.range(0, seen.length).filter(i -> seen[i]).toArray();
+	}
+
+	private Set<String> toNames(int[] values, int from, int to) {
+		Set<String> result = new LinkedHashSet<>();
+		for (int k = from; k < to; k++)
+			result.add(names[values[k]]);
+		return result;
+	}
+
+	/**
+	 * Collects the terms and the edges of the hierarchy, either from the
+	 * triples of an {@link Ontology} or from the events of an
+	 * {@link OboFileParser}.
+	 */
+	private static class Builder implements OboFileEventListener {
+
+		private final Set<String> relations;
+		private final Map<String, Integer> ids = new HashMap<>();
+		private final List<String> names = new ArrayList<>();
+		private int[] edgeChild = new int[16];
+		private int[] edgeParent = new int[16];
+		private int nedges = 0;
+
+		private boolean isTerm;
+		private String currentTerm;
+
+		Builder(Set<String> relations) {
+			this.relations = relations;
+		}
+
+		int getId(String name) {
+			Integer id = ids.get(name);
+			if (id == null) {
+				id = names.size();
+				ids.put(name, id);
+				names.add(name);
+			}
+			return id;
+		}
+
+		void addEdge(String subject, String predicate, String object) {
+			String type = predicate;
+			String target = object.trim();
+			if (OboFileHandler.RELATIONSHIP.equals(predicate)) {
+				// the value of a relationship is "<type> <target>"
+				String[] split = target.split("\\s+", 2);
+				if (split.length < 2)
+					return;
+				type = split[0];
+				target = split[1];
+			}
+			if (!relations.contains(type))
+				return;
+
+			int child = getId(subject);
+			int parent = getId(target);
+			if (nedges == edgeChild.length) {
+				edgeChild = Arrays.copyOf(edgeChild, 2 * nedges);
+				edgeParent = Arrays.copyOf(edgeParent, 2 * nedges);
+			}
+			edgeChild[nedges] = child;
+			edgeParent[nedges] = parent;
+			nedges++;
+		}
+
+		OntologyIndex build() {
+			// Duplicated edges would be duplicated parents
+			long[] edges = new long[nedges];
+			for (int e = 0; e < nedges; e++)
+				edges[e] = ((long) edgeChild[e] << 32) | edgeParent[e];
+			Arrays.sort(edges);
+			int count = 0;
+			for (int e = 0; e < nedges; e++) {
+				if (e > 0 && edges[e] == edges[e - 1])
+					continue;
+				edgeChild[count] = (int) (edges[e] >>> 32);
+				edgeParent[count] = (int) edges[e];
+				count++;
+			}
+			return new OntologyIndex(names.toArray(new String[names.size()]), edgeChild, edgeParent, count);
+		}
+
+		@Override
+		public void documentStart() {
+		}
+
+		@Override
+		public void documentEnd() {
+		}
+
+		@Override
+		public void newOboFileHeader() {
+		}
+
+		@Override
+		public void newStanza(String stanza) {
+			isTerm = OboFileHandler.TERM.equals(stanza);
+			currentTerm = null;
+		}
+
+		@Override
+		public void newKey(String key, String value) {
+			if (!isTerm)
+				return;
+			if (OboFileHandler.ID_KEY.equals(key)) {
+				currentTerm = value;
+				getId(value);
+			} else if (currentTerm != null) {
+				addEdge(currentTerm, key, value);
+			}
+		}
+
+		@Override
+		public void newSynonym(Synonym synonym) {
+		}
+	}
+}
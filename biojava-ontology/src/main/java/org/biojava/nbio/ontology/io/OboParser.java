@@ -31,6 +31,7 @@ import org.biojava.nbio.ontology.obo.OboFileParser;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.util.Set;
 
 
 /** Parses an OBO file.
@@ -76,11 +77,35 @@ public class OboParser {
 			String ontoDescription
 			)
 					throws IOException {
+		return parseOBO(oboFile, ontoName, ontoDescription, null);
+	}
+
+	/** Parse a OBO file and return its content as a BioJava Ontology object,
+	 * keeping only some of the tags of the terms. The values of the other tags
+	 * are skipped by the parser.
+	 *
+	 * @param oboFile the file to be parsed
+	 * @param ontoName
+	 * @param ontoDescription
+	 * @param tags the tags to keep, e.g. <code>name</code> and
+	 *            <code>is_a</code>, or null to keep all the tags
+	 * @return the ontology represented as a BioJava ontology file
+	 * @throws IOException
+	 * @since 5.3.1
+	 */
+	public Ontology parseOBO(
+			BufferedReader oboFile,
+			String ontoName,
+			String ontoDescription,
+			Set<String> tags
+			)
+					throws IOException {
 
 //		try {
 			OntologyFactory factory = OntoTools.getDefaultFactory();
 
 			OboFileParser parser = new OboFileParser();
+			parser.setTags(tags);
 
 			Ontology ontology = factory.createOntology(ontoName, ontoDescription);
 
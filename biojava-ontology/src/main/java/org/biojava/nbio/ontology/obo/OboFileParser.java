@@ -111,10 +111,72 @@ public class OboFileParser {
 
 
 
+	/** the tags passed to the listeners, or null for all of them */
+	private Set<String> tags;
+
+	/** one instance of each tag name, shared by all the lines */
+	private final Map<String, String> tagNames = new HashMap<>();
+
+	private long linesRead;
+	private long charsRead;
+	private long parseTime;
+
 	public OboFileParser(){
 		listeners = new ArrayList<>();
 	}
 
+	/** Restricts the tags passed to the listeners. The values of the other
+	 * tags are not processed at all, which speeds up the parsing when only
+	 * a few tags are needed, e.g. the hierarchy of an ontology. The
+	 * <code>id</code> tag and the stanzas are always passed.
+	 *
+	 * @param tags the tag names to pass, or null to pass all the tags
+	 * @since 5.3.1
+	 */
+	public void setTags(Set<String> tags) {
+		if (tags == null) {
+			this.tags = null;
+		} else {
+			this.tags = new HashSet<>(tags);
+			this.tags.add(OboFileHandler.ID_KEY);
+		}
+	}
+
+	/**
+	 * @return the tag names passed to the listeners, or null for all of them
+	 * @since 5.3.1
+	 */
+	public Set<String> getTags() {
+		return tags == null ? null : Collections.unmodifiableSet(tags);
+	}
+
+	/**
+	 * @return the number of lines read by the last call of
+	 *         {@link #parseOBO(BufferedReader)}
+	 * @since 5.3.1
+	 */
+	public long getLinesRead() {
+		return linesRead;
+	}
+
+	/**
+	 * @return the number of characters read by the last call of
+	 *         {@link #parseOBO(BufferedReader)}, excluding line terminators
+	 * @since 5.3.1
+	 */
+	public long getCharsRead() {
+		return charsRead;
+	}
+
+	/**
+	 * @return the duration of the last call of
+	 *         {@link #parseOBO(BufferedReader)} in milliseconds
+	 * @since 5.3.1
+	 */
+	public long getParseTime() {
+		return parseTime;
+	}
+
 
 
 	public void addOboFileEventListener(OboFileEventListener listener){
@@ -136,7 +198,14 @@ public class OboFileParser {
 		String line;
 		String currentStanza;
 
+		long start = System.currentTimeMillis();
+		linesRead = 0;
+		charsRead = 0;
+		triggerDocumentStart();
+
 		while ((line = oboFile.readLine()) != null) {
+			linesRead++;
+			charsRead += line.length();
 			if (line.length() == 0)
 				continue;
 
@@ -153,12 +222,21 @@ public class OboFileParser {
 
 			} else {
 				// a content line
-				SOPair pair;
+				int colon = line.indexOf(':');
+				String name;
+				if (colon >= 0 && line.lastIndexOf('\\', colon) < 0) {
+					// no escaped characters in the tag name
+					name = line.substring(0, colon);
+				} else {
+					SOPair pair = unescape(line, ':', 0, true);
+					name = pair.str;
+					colon = pair.index;
+				}
+				name = internTag(name);
 
-				pair = unescape(line, ':', 0, true);
+				if (tags != null && !tags.contains(name))
+					continue;
 
-				//logger.info(pair);
-				String name = pair.str;
 				int lineEnd = findUnescaped(line, '!', 0, line.length(), true);
 				if (lineEnd == -1)
 					lineEnd = line.length();
@@ -204,7 +282,7 @@ public class OboFileParser {
 				} else
 					valueStopIndex = lineEnd;
 
-				String value = line.substring(pair.index + 1, valueStopIndex).trim();
+				String value = line.substring(colon + 1, valueStopIndex).trim();
 				/*
 				 * if (nv != null) logger.warn("nv = "+nv+", value =
 				 * |"+value+"|");
@@ -225,6 +303,22 @@ public class OboFileParser {
 
 			}
 		}
+
+		triggerDocumentEnd();
+		parseTime = System.currentTimeMillis() - start;
+		if (logger.isDebugEnabled()) {
+			logger.debug("Parsed {} lines ({} characters) of OBO in {} ms, {} lines/s", linesRead, charsRead,
+					parseTime, parseTime > 0 ? linesRead * 1000 / parseTime : linesRead);
+		}
+	}
+
+	private String internTag(String name) {
+		String interned = tagNames.get(name);
+		if (interned == null) {
+			tagNames.put(name, name);
+			interned = name;
+		}
+		return interned;
 	}
 
 	private boolean isSynonym(String key){
@@ -397,6 +491,18 @@ public class OboFileParser {
 
 
 
+	private void triggerDocumentStart(){
+		for (OboFileEventListener li : listeners) {
+			li.documentStart();
+		}
+	}
+
+	private void triggerDocumentEnd(){
+		for (OboFileEventListener li : listeners) {
+			li.documentEnd();
+		}
+	}
+
 	private void triggerNewStanza(String stanza){
 		for (OboFileEventListener li : listeners) {
 			li.newStanza(stanza);
@@ -25,6 +25,8 @@
 package org.biojava.nbio.ontology;
 
 import org.biojava.nbio.ontology.io.OboParser;
+import org.biojava.nbio.ontology.obo.OboFileHandler;
+import org.biojava.nbio.ontology.obo.OboFileParser;
 import org.biojava.nbio.ontology.utils.Annotation;
 import org.junit.Assert;
 import org.junit.Test;
@@ -34,6 +36,12 @@ import org.slf4j.LoggerFactory;
 import java.io.BufferedReader;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 public class TestOboFileParsing {
@@ -88,4 +96,45 @@ public class TestOboFileParsing {
         }
 	}
 
+	@Test
+	public void testParsingSelectedTags() throws Exception {
+		OboParser parser = new OboParser();
+		BufferedReader oboFile = new BufferedReader(new InputStreamReader(
+				parser.getClass().getResourceAsStream("/ontology/hp.obo")));
+		Ontology all = parser.parseOBO(oboFile, "Human_phenotype", "the Human Phenotype ontology");
+
+		oboFile = new BufferedReader(new InputStreamReader(
+				parser.getClass().getResourceAsStream("/ontology/hp.obo")));
+		Set<String> tags = new HashSet<>(Arrays.asList("name", "is_a"));
+		Ontology selected = parser.parseOBO(oboFile, "Human_phenotype", "the Human Phenotype ontology", tags);
+
+		Term full = all.getTerm("HP:0000006");
+		Term term = selected.getTerm("HP:0000006");
+		Assert.assertEquals(full.getDescription(), term.getDescription());
+		Assert.assertEquals(0, term.getSynonyms().length);
+		Assert.assertFalse(term.getAnnotation().containsProperty("def"));
+		Assert.assertEquals(all.getTriples(full, null, all.getTerm("is_a")).size(),
+				selected.getTriples(term, null, selected.getTerm("is_a")).size());
+	}
+
+	@Test
+	public void testParseStatistics() throws Exception {
+		OboFileParser parser = new OboFileParser();
+		parser.setTags(Collections.singleton("is_a"));
+		Assert.assertTrue(parser.getTags().contains("id"));
+
+		String obo = "[Term]\nid: X:1\nname: one\n\n[Term]\nid: X:2\nis_a: X:1 ! one\n";
+		List<String> keys = new ArrayList<>();
+		parser.addOboFileEventListener(new OboFileHandler(OntoTools.getDefaultFactory().createOntology("x", "x")) {
+			@Override
+			public void newKey(String key, String value) {
+				keys.add(key + "=" + value);
+			}
+		});
+		parser.parseOBO(new BufferedReader(new StringReader(obo)));
+
+		Assert.assertEquals(Arrays.asList("id=X:1", "id=X:2", "is_a=X:1"), keys);
+		Assert.assertEquals(7, parser.getLinesRead());
+		Assert.assertEquals(obo.length() - 7, parser.getCharsRead());
+	}
 }
@@ -0,0 +1,127 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.ontology;
+
+import org.biojava.nbio.ontology.io.OboParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+public class TestOntologyIndex {
+
+	private static BufferedReader getSO() {
+		return new BufferedReader(new InputStreamReader(
+				TestOntologyIndex.class.getResourceAsStream("/ontology/so.obo")));
+	}
+
+	/**
+	 * Walks the is_a and part_of triples of the ontology.
+	 */
+	private static Set<String> walkAncestors(Ontology ontology, String name) {
+		Set<String> result = new HashSet<>();
+		Deque<String> stack = new ArrayDeque<>();
+		stack.push(name);
+		while (!stack.isEmpty()) {
+			Term term = ontology.getTerm(stack.pop());
+			for (Triple triple : ontology.getTriples(term, null, null)) {
+				String predicate = triple.getPredicate().getName();
+				String object = triple.getObject().getName();
+				String parent = null;
+				if (predicate.equals("is_a"))
+					parent = object;
+				else if (predicate.equals("relationship") && object.startsWith("part_of "))
+					parent = object.substring("part_of ".length());
+				if (parent != null && ontology.containsTerm(parent) && result.add(parent))
+					stack.push(parent);
+			}
+		}
+		return result;
+	}
+
+	@Test
+	public void testClosure() throws Exception {
+		Ontology ontology = new OboParser().parseOBO(getSO(), "SO", "the sequence ontology");
+		OntologyIndex index = OntologyIndex.build(ontology);
+
+		Assert.assertTrue(index.isDescendantOf("SO:0000704", "SO:0000001"));
+		Assert.assertTrue(index.isDescendantOf("SO:0000704", "SO:0000110"));
+		Assert.assertFalse(index.isDescendantOf("SO:0000001", "SO:0000704"));
+		Assert.assertFalse(index.isDescendantOf("SO:0000704", "SO:0000704"));
+		Assert.assertFalse(index.isDescendantOf("SO:0000704", "unknown"));
+		// member_of is not part of the default relations
+		Assert.assertFalse(index.isDescendantOf("SO:0000704", "SO:0005855"));
+
+		for (Term term : ontology.getTerms()) {
+			int id = index.getId(term.getName());
+			if (id < 0)
+				continue;
+			Set<String> expected = walkAncestors(ontology, term.getName());
+			Assert.assertEquals(term.getName(), expected, index.getAncestors(term.getName()));
+			int[] ancestors = index.getAncestors(id);
+			for (int ancestor : ancestors)
+				Assert.assertTrue(Arrays.binarySearch(index.getDescendants(ancestor), id) >= 0);
+			for (int other = 0; other < index.getTermCount(); other++)
+				Assert.assertEquals(Arrays.binarySearch(ancestors, other) >= 0, index.isDescendantOf(id, other));
+		}
+	}
+
+	@Test
+	public void testOboAndSerialization() throws Exception {
+		Ontology ontology = new OboParser().parseOBO(getSO(), "SO", "the sequence ontology");
+		OntologyIndex fromOntology = OntologyIndex.build(ontology);
+		OntologyIndex fromObo = OntologyIndex.build(getSO());
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		fromObo.write(out);
+		OntologyIndex read = OntologyIndex.read(new ByteArrayInputStream(out.toByteArray()));
+		Assert.assertEquals(fromObo.getTermCount(), read.getTermCount());
+
+		for (int id = 0; id < fromOntology.getTermCount(); id++) {
+			String name = fromOntology.getName(id);
+			Assert.assertEquals(name, fromOntology.getAncestors(name), fromObo.getAncestors(name));
+			Assert.assertEquals(name, fromOntology.getDescendants(name), read.getDescendants(name));
+		}
+
+		int[] ids = new int[read.getTermCount()];
+		for (int i = 0; i < ids.length; i++)
+			ids[i] = i;
+		int[][] ancestors = read.getAncestors(ids);
+		for (int i = 0; i < ids.length; i++)
+			Assert.assertArrayEquals(read.getAncestors(i), ancestors[i]);
+
+		Map<String, Set<String>> byName = read.getAncestors(Arrays.asList("SO:0000704", "SO:0000001"));
+		Assert.assertEquals(read.getAncestors("SO:0000704"), byName.get("SO:0000704"));
+
+		int gene = read.getId("SO:0000704");
+		int[] closure = read.getAncestorClosure(new int[] {gene});
+		Assert.assertEquals(read.getAncestorCount(gene) + 1, closure.length);
+	}
+}
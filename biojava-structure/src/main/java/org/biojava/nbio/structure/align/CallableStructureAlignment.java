@@ -58,6 +58,7 @@ public class CallableStructureAlignment implements  Callable<AFPChain> {
 	private AtomCache cache;
 	private Atom[] ca1;
 	private Atom[] ca2;
+	private String description2;
 
 	//File output information - for DB searches
 	private SynchronizedOutFile outFile;
@@ -122,7 +123,8 @@ public class CallableStructureAlignment implements  Callable<AFPChain> {
 
 			//Do not output anything if there is no File information
 			if (outFile != null && outFileDir != null){
-				String desc2 = structure2.getPDBHeader().getDescription();
+				String desc2 = structure2 != null ?
+						structure2.getPDBHeader().getDescription() : description2;
 				if ( desc2 == null)
 					desc2="";
 				afpChain.setDescription2(desc2);
@@ -173,6 +175,32 @@ public class CallableStructureAlignment implements  Callable<AFPChain> {
 		this.ca1 = ca1;
 	}
 
+	public Atom[] getCa2() {
+		return ca2;
+	}
+
+	/**
+	 * Sets the atoms of the second structure, for example when they have
+	 * been prefetched by the caller. The {@link AtomCache} is not used for
+	 * the second structure in that case.
+	 *
+	 * @param ca2
+	 * @see #setDescription2(String)
+	 */
+	public void setCa2(Atom[] ca2) {
+		this.ca2 = ca2;
+	}
+
+	/**
+	 * Sets the description of the second structure that is written to the
+	 * DB search result file when {@link #setCa2(Atom[])} has been used.
+	 *
+	 * @param description2
+	 */
+	public void setDescription2(String description2) {
+		this.description2 = description2;
+	}
+
 	private void writeXML(File outFileF, String name1, String name2, String xml)
 	{
 		try{
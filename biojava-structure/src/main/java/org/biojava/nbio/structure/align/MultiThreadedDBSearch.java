@@ -33,9 +33,10 @@ import org.biojava.nbio.structure.align.ce.*;
 import org.biojava.nbio.structure.align.client.FarmJobParameters;
 import org.biojava.nbio.structure.align.client.JFatCatClient;
 import org.biojava.nbio.structure.align.client.PdbPair;
-import org.biojava.nbio.structure.align.client.StructureName;
+import org.biojava.nbio.structure.align.events.DBSearchProgressListener;
 import org.biojava.nbio.structure.align.model.AFPChain;
 import org.biojava.nbio.structure.align.util.AtomCache;
+import org.biojava.nbio.structure.align.util.DBSearchCheckpoint;
 import org.biojava.nbio.structure.align.util.SynchronizedOutFile;
 import org.biojava.nbio.structure.domain.DomainProvider;
 import org.biojava.nbio.structure.domain.DomainProviderFactory;
@@ -47,13 +48,28 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.SortedSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 /** Performs a multi threaded database search for an input protein structure
+ * <p>
+ * The targets are loaded by the calling thread into a bounded queue, ahead of
+ * the alignment workers in the {@link ConcurrencyTools} pool. Every completed
+ * target is recorded in a checkpoint file next to the results, so that an
+ * interrupted search can be resumed (see {@link #setResume(boolean)}).
+ * Progress and throughput are reported to {@link DBSearchProgressListener}s.
  *
  * @author Andreas Prlic
  *
@@ -84,6 +100,11 @@ public class MultiThreadedDBSearch {
 	String customFile1;
 	String customChain1;
 
+	boolean resume = true;
+	int prefetchSize = -1;
+	DBSearchCheckpoint checkpoint;
+	final List<DBSearchProgressListener> listeners = new CopyOnWriteArrayList<>();
+
 	public MultiThreadedDBSearch(String name, Structure structure,
 			String outFile,
 			StructureAlignment algorithm,
@@ -164,6 +185,50 @@ public class MultiThreadedDBSearch {
 	}
 
 
+	/**
+	 * @return true if targets completed by a previous run are skipped
+	 */
+	public boolean isResume() {
+		return resume;
+	}
+
+	/** If set (the default), targets listed in the checkpoint file of a
+	 * previous, interrupted run in the same output directory are skipped
+	 * and results are appended to the existing result file. Otherwise the
+	 * checkpoint is discarded, the result file is overwritten and all
+	 * targets are aligned again. The checkpoint file is deleted once a
+	 * search has completed, so a rerun always starts from scratch.
+	 *
+	 * @param resume
+	 */
+	public void setResume(boolean resume) {
+		this.resume = resume;
+	}
+
+	/**
+	 * @return the maximum number of targets whose atoms are loaded ahead of the workers
+	 */
+	public int getPrefetchSize() {
+		return prefetchSize > 0 ? prefetchSize : 2 * nrCPUs;
+	}
+
+	/** Sets how many targets are loaded ahead of the alignment workers.
+	 * Defaults to twice the number of CPUs.
+	 *
+	 * @param prefetchSize
+	 */
+	public void setPrefetchSize(int prefetchSize) {
+		this.prefetchSize = prefetchSize;
+	}
+
+	public void addProgressListener(DBSearchProgressListener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeProgressListener(DBSearchProgressListener listener) {
+		listeners.remove(listener);
+	}
+
 	public static String getLegend(String algorithmName){
 
 		if ( algorithmName.equalsIgnoreCase(CeMain.algorithmName) ||
@@ -211,6 +276,7 @@ public class MultiThreadedDBSearch {
 				logger.error("{} is not a directory, can't create result files in there...", outFileF.getAbsolutePath());
 				interrupt();
 				cleanup();
+				return;
 			}
 
 			if ( name1 == null)
@@ -223,37 +289,21 @@ public class MultiThreadedDBSearch {
 
 
 
-			out = new SynchronizedOutFile(resultList);
-
-			out.write(header);
-			out.write(AFPChain.newline);
-			out.write(legend);
-			out.write(AFPChain.newline);
-
-			if ( name1.equals("CUSTOM")) {
-
-				String config1 = "#param:file1=" + customFile1;
-				out.write(config1);
-				out.write(AFPChain.newline);
+			checkpoint = new DBSearchCheckpoint(new File(outFileF, "checkpoint_" + name1 + ".txt"));
+			if ( ! resume)
+				checkpoint.clear();
 
-				if ( customChain1 != null) {
-				String config2 = "#param:chain1=" + customChain1;
-				out.write(config2);
-				out.write(AFPChain.newline);
-				}
+			boolean resuming = checkpoint.size() > 0;
+			if ( ! resuming && resultList.exists() && ! resultList.delete())
+				throw new IOException("Could not overwrite result file " + resultList.getAbsolutePath());
 
-			}
+			out = new SynchronizedOutFile(resultList);
 
-			if ( algorithm.getAlgorithmName().startsWith("jCE")){
-				ConfigStrucAligParams params = algorithm.getParameters();
-				if ( params instanceof CeParameters){
-					CeParameters ceParams = (CeParameters) params;
-					if ( ceParams.getScoringStrategy() != CeParameters.ScoringStrategy.DEFAULT_SCORING_STRATEGY) {
-						String scoring = "#param:scoring=" + ceParams.getScoringStrategy();
-						out.write(scoring);
-						out.write(AFPChain.newline);
-					}
-				}
+			if ( resuming) {
+				// the header is already in the result file
+				logger.info("resuming search from {}", checkpoint.getFile().getAbsolutePath());
+			} else {
+				writeHeader(out, header, legend);
 			}
 
 			out.flush();
@@ -265,15 +315,12 @@ public class MultiThreadedDBSearch {
 		}
 
 
-        int nrJobs = 0;
+		List<String> targets = new ArrayList<>();
+		int nrSkipped = 0;
 		DomainProvider domainProvider;
 		try {
 			domainProvider = DomainProviderFactory.getDomainProvider();
 
-			ConcurrencyTools.setThreadPoolSize(nrCPUs);
-
-			Atom[] ca1 = StructureTools.getRepresentativeAtomArray(structure1);
-
 			for (String repre : representatives){
 
 				if( domainSplit ) {
@@ -281,18 +328,18 @@ public class MultiThreadedDBSearch {
 					//logger.debug(repre +" got domains: " +domainNames);
 					if( domainNames == null || domainNames.size()==0){
 						// no domains found, use whole chain.
-						submit(name1, repre, ca1, algorithm, outFileF, out, cache);
-						nrJobs++;
+						if ( ! addTarget(targets, repre))
+							nrSkipped++;
 						continue;
 					}
 					//logger.debug("got " + domainNames.size() + " for " + repre);
 					for( String domain : domainNames){
-						submit(name1, domain, ca1, algorithm, outFileF, out, cache);
-						nrJobs++;
+						if ( ! addTarget(targets, domain))
+							nrSkipped++;
 					}
 				} else {
-					submit(name1, repre, ca1, algorithm, outFileF, out, cache);
-					nrJobs++;
+					if ( ! addTarget(targets, repre))
+						nrSkipped++;
 				}
 
 			}
@@ -303,45 +350,237 @@ public class MultiThreadedDBSearch {
 			return;
 		}
 
+		logger.info("{} targets to align, {} already completed by a previous run", targets.size(), nrSkipped);
+		for (DBSearchProgressListener li : listeners)
+			li.searchStarted(targets.size(), nrSkipped);
 
-        ThreadPoolExecutor  pool = ConcurrencyTools.getThreadPool();
-		logger.info("{}", pool.getPoolSize());
+		ConcurrencyTools.setThreadPoolSize(nrCPUs);
+		ThreadPoolExecutor  pool = ConcurrencyTools.getThreadPool();
 
-		long startTime = System.currentTimeMillis();
+		// the queue is the prefetch buffer: this thread loads the target atoms
+		// ahead of the workers, but never more than prefetchSize at a time
+		BlockingQueue<PrefetchedTarget> queue = new ArrayBlockingQueue<>(getPrefetchSize());
+		AtomicInteger nrCompleted = new AtomicInteger(0);
+		long startTime = System.nanoTime();
 
+		List<Future<?>> workers = new ArrayList<>(nrCPUs);
+		boolean completed = false;
 		try {
-			while ( pool.getCompletedTaskCount() < nrJobs-1  ) {
-				//long now = System.currentTimeMillis();
-				//logger.debug( pool.getCompletedTaskCount() + " " + (now-startTime)/1000 + " " + pool.getPoolSize() + " " + pool.getActiveCount()  + " " + pool.getTaskCount()  );
-				//				if ((now-startTime)/1000 > 60) {
-				//
-				//					interrupt();
-				//					logger.debug("completed: " + pool.getCompletedTaskCount());
-				//				}
+			Atom[] ca1 = StructureTools.getRepresentativeAtomArray(structure1);
+			for (int i = 0; i < nrCPUs; i++) {
+				workers.add(pool.submit(new AlignmentWorker(queue, ca1, outFileF, out,
+						nrCompleted, targets.size(), startTime)));
+			}
 
+			for (String target : targets) {
 				if ( interrupted.get())
 					break;
+				PrefetchedTarget prefetched = prefetch(target);
+				if ( prefetched != null && ! enqueue(queue, prefetched, workers))
+					break;
+			}
+			for (int i = 0; i < nrCPUs; i++) {
+				if ( ! enqueue(queue, PrefetchedTarget.END, workers))
+					break;
+			}
 
-				Thread.sleep(2000);
+			// rethrows the failure of a worker that died early
+			for (Future<?> worker : workers)
+				worker.get();
 
-			}
 			out.close();
+			completed = ! interrupted.get();
 		}
 		catch (Exception e){
 			logger.error("Exception: ", e);
 			interrupt();
 			cleanup();
+		} finally {
+			try {
+				checkpoint.close();
+				if ( completed)
+					checkpoint.delete();
+			} catch (IOException e) {
+				logger.error("Could not close checkpoint file {}", checkpoint.getFile(), e);
+			}
 		}
 
 		if (domainProvider instanceof RemoteDomainProvider){
 			RemoteDomainProvider remote = (RemoteDomainProvider) domainProvider;
 			remote.flushCache();
 		}
-		long now = System.currentTimeMillis();
-		logger.info("Calculation took : {} sec.", (now-startTime)/1000);
-		logger.info("{} {} {} {}", pool.getCompletedTaskCount(), pool.getPoolSize(), pool.getActiveCount(), pool.getTaskCount());
+		long elapsed = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startTime);
+		logger.info("Calculation took : {} sec. Aligned {} of {} targets.", elapsed, nrCompleted.get(), targets.size());
+		for (DBSearchProgressListener li : listeners)
+			li.searchFinished(nrCompleted.get(), elapsed);
+	}
+
+	private void writeHeader(SynchronizedOutFile out, String header, String legend) throws IOException {
+		out.write(header);
+		out.write(AFPChain.newline);
+		out.write(legend);
+		out.write(AFPChain.newline);
+
+		if ( name1.equals("CUSTOM")) {
+
+			String config1 = "#param:file1=" + customFile1;
+			out.write(config1);
+			out.write(AFPChain.newline);
+
+			if ( customChain1 != null) {
+			String config2 = "#param:chain1=" + customChain1;
+			out.write(config2);
+			out.write(AFPChain.newline);
+			}
+
+		}
+
+		if ( algorithm.getAlgorithmName().startsWith("jCE")){
+			ConfigStrucAligParams params = algorithm.getParameters();
+			if ( params instanceof CeParameters){
+				CeParameters ceParams = (CeParameters) params;
+				if ( ceParams.getScoringStrategy() != CeParameters.ScoringStrategy.DEFAULT_SCORING_STRATEGY) {
+					String scoring = "#param:scoring=" + ceParams.getScoringStrategy();
+					out.write(scoring);
+					out.write(AFPChain.newline);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds a target unless a previous run has already completed it.
+	 *
+	 * @return false if the target was skipped
+	 */
+	private boolean addTarget(List<String> targets, String name) {
+		if ( checkpoint.isCompleted(name))
+			return false;
+		targets.add(name);
+		return true;
+	}
+
+	/**
+	 * Loads the representative atoms of a target, or returns null if the
+	 * structure can not be loaded.
+	 */
+	private PrefetchedTarget prefetch(String name2) {
+		try {
+			Structure structure2 = cache.getStructure(name2);
+			Atom[] ca2 = StructureTools.getRepresentativeAtomArray(structure2);
+			String desc2 = structure2.getPDBHeader().getDescription();
+			return new PrefetchedTarget(name2, ca2, desc2 == null ? "" : desc2);
+		} catch (IOException | StructureException e) {
+			logger.error("Could not load target {}", name2, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Blocks until there is room in the queue, giving up if the search gets
+	 * interrupted or no worker is left to take from the queue.
+	 *
+	 * @return false if the target could not be queued
+	 */
+	private boolean enqueue(BlockingQueue<PrefetchedTarget> queue, PrefetchedTarget target,
+			List<Future<?>> workers) throws InterruptedException {
+		while ( ! queue.offer(target, 1, TimeUnit.SECONDS)) {
+			if ( interrupted.get())
+				return false;
+			boolean alive = false;
+			for (Future<?> worker : workers) {
+				if ( ! worker.isDone()) {
+					alive = true;
+					break;
+				}
+			}
+			if ( ! alive) {
+				logger.error("All alignment workers have stopped, giving up on the remaining targets");
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * A target whose atoms have been loaded ahead of the alignment workers.
+	 */
+	private static class PrefetchedTarget {
+
+		/** tells a worker that there are no more targets */
+		static final PrefetchedTarget END = new PrefetchedTarget(null, null, null);
+
+		final String name2;
+		final Atom[] ca2;
+		final String description2;
+
+		PrefetchedTarget(String name2, Atom[] ca2, String description2) {
+			this.name2 = name2;
+			this.ca2 = ca2;
+			this.description2 = description2;
+		}
 	}
 
+	/**
+	 * Consumes prefetched targets until the end marker is found.
+	 * Each finished alignment is flushed to the result file before it
+	 * is recorded in the checkpoint, so a resumed search never loses rows.
+	 */
+	private class AlignmentWorker implements Callable<Void> {
+
+		private final BlockingQueue<PrefetchedTarget> queue;
+		private final Atom[] ca1;
+		private final File outFileF;
+		private final SynchronizedOutFile out;
+		private final AtomicInteger nrCompleted;
+		private final int nrTargets;
+		private final long startTime;
+
+		AlignmentWorker(BlockingQueue<PrefetchedTarget> queue, Atom[] ca1, File outFileF,
+				SynchronizedOutFile out, AtomicInteger nrCompleted, int nrTargets, long startTime) {
+			this.queue = queue;
+			this.ca1 = ca1;
+			this.outFileF = outFileF;
+			this.out = out;
+			this.nrCompleted = nrCompleted;
+			this.nrTargets = nrTargets;
+			this.startTime = startTime;
+		}
+
+		@Override
+		public Void call() throws Exception {
+			while ( ! interrupted.get()) {
+				PrefetchedTarget target = queue.take();
+				if ( target == PrefetchedTarget.END)
+					break;
+
+				CallableStructureAlignment ali = new CallableStructureAlignment();
+				ali.setCa1(ca1);
+				ali.setCa2(target.ca2);
+				ali.setDescription2(target.description2);
+				ali.setAlgorithmName(algorithm.getAlgorithmName());
+				ali.setParameters(algorithm.getParameters());
+				ali.setPair(new PdbPair(name1, target.name2));
+				ali.setOutFile(out);
+				ali.setOutputDir(outFileF);
+
+				AFPChain afpChain = ali.call();
+				if ( afpChain == null)
+					continue;
+
+				out.flush();
+				checkpoint.markCompleted(target.name2);
+
+				int completed = nrCompleted.incrementAndGet();
+				double seconds = (System.nanoTime() - startTime) / 1e9;
+				double rate = seconds > 0 ? completed / seconds : 0;
+				long eta = rate > 0 ? Math.round((nrTargets - completed) / rate) : -1;
+				for (DBSearchProgressListener li : listeners)
+					li.targetCompleted(target.name2, completed, nrTargets, rate, eta);
+			}
+			return null;
+		}
+	}
 
 
 	private void checkLocalFiles() throws IOException, StructureException {
@@ -408,29 +647,6 @@ public class MultiThreadedDBSearch {
 	}
 
 
-	private void submit(String name12, String repre, Atom[] ca1, StructureAlignment algorithm , File outFileF , SynchronizedOutFile out , AtomCache cache ) {
-		CallableStructureAlignment ali = new CallableStructureAlignment();
-
-		PdbPair pair = new PdbPair(name1, repre);
-		try {
-			ali.setCa1(ca1);
-		} catch (Exception e){
-			logger.error("Exception: ", e);
-			ConcurrencyTools.shutdown();
-			return;
-		}
-		ali.setAlgorithmName(algorithm.getAlgorithmName());
-		ali.setParameters(algorithm.getParameters());
-		ali.setPair(pair);
-		ali.setOutFile(out);
-		ali.setOutputDir(outFileF);
-		ali.setCache(cache);
-
-		ConcurrencyTools.submit(ali);
-
-	}
-
-
 	/** stops what is currently happening and does not continue
 	 *
 	 *
@@ -129,6 +129,25 @@ public class CECalculator {
 	 */
 	public AFPChain extractFragments(AFPChain afpChain,
 			Atom[] ca1, Atom[] ca2) {
+		return extractFragments(afpChain, ca1, ca2, null, null);
+	}
+
+	/**
+	 * Same as {@link #extractFragments(AFPChain, Atom[], Atom[])}, but reuses
+	 * the given intramolecular distance matrices instead of calculating them.
+	 * The matrices are only read, so rows can be shared between them.
+	 *
+	 * @param afpChain A new AFPChain, which will be filled in by this function
+	 * @param ca1
+	 * @param ca2
+	 * @param intraDist1 distance matrix of ca1, as returned by
+	 * 			{@link #getIntraDistanceMatrix(Atom[])}, or null to calculate it
+	 * @param intraDist2 distance matrix of ca2, or null to calculate it
+	 * @return afpChain
+	 * @since 5.3.1
+	 */
+	public AFPChain extractFragments(AFPChain afpChain, Atom[] ca1,
+			Atom[] ca2, double[][] intraDist1, double[][] intraDist2) {
 
 		int nse1 = ca1.length;
 		int nse2 = ca2.length;
@@ -141,8 +160,8 @@ public class CECalculator {
 		f1 = new int[nse1];
 		f2 = new int[nse2];
 
-		dist1 = initIntraDistmatrix(ca1, nse1);
-		dist2 = initIntraDistmatrix(ca2, nse2);
+		dist1 = intraDist1 != null ? intraDist1 : initIntraDistmatrix(ca1, nse1);
+		dist2 = intraDist2 != null ? intraDist2 : initIntraDistmatrix(ca2, nse2);
 
 
 		if ( debug )
@@ -351,6 +370,18 @@ public class CECalculator {
 		}
 	}
 
+	/**
+	 * Calculates the intramolecular distance matrix of the Atoms with the
+	 * distance definition of the current scoring strategy.
+	 *
+	 * @param ca
+	 * @return the distance matrix, of size ca.length x ca.length
+	 * @since 5.3.1
+	 */
+	public double[][] getIntraDistanceMatrix(Atom[] ca) {
+		return initIntraDistmatrix(ca, ca.length);
+	}
+
 	/** build up intramolecular distance matrix dist1 & dist2
 	 *
 	 * @param ca
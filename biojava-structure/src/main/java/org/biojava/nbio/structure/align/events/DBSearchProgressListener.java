@@ -0,0 +1,63 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.align.events;
+
+/**
+ * Receives progress notifications from a
+ * {@link org.biojava.nbio.structure.align.MultiThreadedDBSearch}.
+ * <p>
+ * Callbacks are fired from the worker threads, so implementations
+ * have to be thread safe.
+ *
+ * @since 5.3.1
+ */
+public interface DBSearchProgressListener {
+
+	/**
+	 * Called once before the first alignment is submitted.
+	 *
+	 * @param nrTargets number of targets that will be aligned in this run
+	 * @param nrSkipped number of targets skipped because a previous run
+	 * 			already completed them
+	 */
+	void searchStarted(int nrTargets, int nrSkipped);
+
+	/**
+	 * Called after every finished target.
+	 *
+	 * @param name2 the name of the target that was aligned
+	 * @param nrCompleted number of targets completed so far in this run
+	 * @param nrTargets number of targets in this run
+	 * @param alignmentsPerSecond the average throughput of this run
+	 * @param etaSeconds estimated number of seconds until all targets are done
+	 */
+	void targetCompleted(String name2, int nrCompleted, int nrTargets,
+			double alignmentsPerSecond, long etaSeconds);
+
+	/**
+	 * Called once after all workers have stopped.
+	 *
+	 * @param nrCompleted number of targets completed in this run
+	 * @param elapsedSeconds wall time of this run
+	 */
+	void searchFinished(int nrCompleted, long elapsedSeconds);
+
+}
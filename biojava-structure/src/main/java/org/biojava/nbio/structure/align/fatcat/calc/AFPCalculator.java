@@ -27,15 +27,18 @@
 package org.biojava.nbio.structure.align.fatcat.calc;
 
 import org.biojava.nbio.structure.Atom;
-import org.biojava.nbio.structure.AtomImpl;
 import org.biojava.nbio.structure.Calc;
 import org.biojava.nbio.structure.align.model.AFP;
 import org.biojava.nbio.structure.align.model.AFPChain;
+import org.biojava.nbio.structure.geometry.CalcPoint;
 import org.biojava.nbio.structure.geometry.SuperPositions;
 import org.biojava.nbio.structure.jama.Matrix;
 
+import javax.vecmath.Matrix4d;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /** a class that performs calculations on AFPCHains
  *
@@ -59,26 +62,11 @@ public class AFPCalculator
 
 
 
-		int     p1, p2;
-		@SuppressWarnings("unused")
-		int n0, n, n1, n2;
-		double  filter1;
-		double rmsd;
-
-		Matrix r = new Matrix(3,3);
-		Atom   t = new AtomImpl();
-
-
 		int sparse = params.getSparse();
 		int maxTra = params.getMaxTra();
 		int fragLen = params.getFragLen();
-		double disFilter = params.getDisFilter();
-		double rmsdCut = params.getRmsdCut();
-		double badRmsd = params.getBadRmsd();
-		double fragScore = params.getFragScore();
 
 		int     add = sparse + 1; //if add > 1, use sparse sampling
-		n0 = n = n1 = n2 = 0;
 
 		int minLen;
 
@@ -92,52 +80,105 @@ public class AFPCalculator
 		afpChain.setFocusRes1(new int[minLen]);
 		afpChain.setFocusRes2(new int[minLen]);
 
-		for(p1 = 0; p1 < prot1Length - fragLen; p1 += add )    {
-			for(p2 = 0; p2 < prot2Length - fragLen; p2 += add)     {
-				n0 ++;
-				filter1 = getEnd2EndDistance(ca1, ca2, p1, p1 + fragLen - 1, p2, p2 + fragLen - 1);
-				//difference bewteen end-to-end distances
-				if(filter1 > disFilter) { n1 ++; continue; }
-				boolean filter2 = filterTerminal(ca1,ca2, p1, p1 + fragLen - 1, p2, p2 + fragLen - 1, fragLen, minLen);
-				if(filter2)     {
-					n2 ++;
-					continue;
-
-				} //be cautious to use this filter !!
-
-				// here FATCAT does a a jacobi transformation
-				//rmsd = kearsay(fragLen, ca1[p1], ca2[p2], r, t);
-				// we use the BioJava SVD instead...
-
-				//
-				rmsd = getRmsd(ca1,ca2,fragLen, p1,p2,r,t);
-
-				if(rmsd < rmsdCut)      {
-					AFP     afptmp = new AFP();
-					afptmp.setP1(p1);
-					afptmp.setP2(p2);
-					afptmp.setFragLen(fragLen);
-					afptmp.setRmsd(rmsd);
-					afptmp.setM(r);
-					afptmp.setT(t.getCoords());
-					afptmp.setScore(scoreAfp(afptmp,badRmsd,fragScore));
-					afpSet.add(afptmp);
-					n ++;
-				}
-			}
+		// the fragments are superposed on flat coordinate arrays, without copying the atoms
+		double[] coords1 = CalcPoint.toFlatArray(Calc.atomsToPoints(ca1), null);
+		double[] coords2 = CalcPoint.toFlatArray(Calc.atomsToPoints(ca2), null);
+
+		// the rows of p1 are independent, each is extracted by one task and the AFPs are collected in order
+		int rows = prot1Length - fragLen > 0 ? (prot1Length - fragLen + add - 1) / add : 0;
+		int[] counts = new int[3];
+		List<List<AFP>> rowAfps = IntStream.range(0, rows).parallel()
+				.mapToObj(row -> extractAFPs(params, ca1, ca2, coords1, coords2, row * add, minLen, counts))
+				.collect(Collectors.toList());
+		for (List<AFP> afps : rowAfps) {
+			afpSet.addAll(afps);
 		}
 
 		int afpNum = afpSet.size();
 
 		if(debug) {
 			String msg = String.format("possible AFP-pairs %d, remain %d after filter 1 remove %d; filter 2 remove %d\n",
-					n0, afpNum, n1, n2);
+					counts[0], afpNum, counts[1], counts[2]);
 			System.err.println(msg);
 		}
 
 
 	}
 
+	/**
+	 * Extracts the AFPs starting at position p1 of the first protein.
+	 * @param counts the number of possible AFP-pairs and of the pairs removed by filter 1 and 2, for debugging
+	 * @return the AFPs, in increasing order of p2
+	 */
+	private static List<AFP> extractAFPs(FatCatParameters params, Atom[] ca1, Atom[] ca2,
+			double[] coords1, double[] coords2, int p1, int minLen, int[] counts) {
+
+		int     p2;
+		int n0, n1, n2;
+		double  filter1;
+		double rmsd;
+
+		int sparse = params.getSparse();
+		int fragLen = params.getFragLen();
+		double disFilter = params.getDisFilter();
+		double rmsdCut = params.getRmsdCut();
+		double badRmsd = params.getBadRmsd();
+		double fragScore = params.getFragScore();
+
+		int     add = sparse + 1; //if add > 1, use sparse sampling
+		n0 = n1 = n2 = 0;
+
+		List<AFP> afps = new ArrayList<>();
+
+		for(p2 = 0; p2 < ca2.length - fragLen; p2 += add)     {
+			n0 ++;
+			filter1 = getEnd2EndDistance(ca1, ca2, p1, p1 + fragLen - 1, p2, p2 + fragLen - 1);
+			//difference bewteen end-to-end distances
+			if(filter1 > disFilter) { n1 ++; continue; }
+			boolean filter2 = filterTerminal(ca1,ca2, p1, p1 + fragLen - 1, p2, p2 + fragLen - 1, fragLen, minLen);
+			if(filter2)     {
+				n2 ++;
+				continue;
+
+			} //be cautious to use this filter !!
+
+			// here FATCAT does a a jacobi transformation
+			//rmsd = kearsay(fragLen, ca1[p1], ca2[p2], r, t);
+			// we use the BioJava QCP instead, which gives up on fragments above the cutoff
+			rmsd = SuperPositions.getRmsd(coords1, p1, coords2, p2, fragLen, rmsdCut);
+
+			if(rmsd < rmsdCut)      {
+				// the superposition is only calculated for the AFPs that are kept
+				Matrix4d transform = SuperPositions.superpose(coords1, p1, coords2, p2, fragLen);
+				Matrix r = new Matrix(3,3);
+				for (int i = 0; i < 3; i++) {
+					for (int j = 0; j < 3; j++) {
+						r.set(i, j, transform.getElement(i, j));
+					}
+				}
+
+				AFP     afptmp = new AFP();
+				afptmp.setP1(p1);
+				afptmp.setP2(p2);
+				afptmp.setFragLen(fragLen);
+				afptmp.setRmsd(rmsd);
+				afptmp.setM(r);
+				afptmp.setT(new double[] {transform.m03, transform.m13, transform.m23});
+				afptmp.setScore(scoreAfp(afptmp,badRmsd,fragScore));
+				afps.add(afptmp);
+			}
+		}
+
+		if (debug) {
+			synchronized (counts) {
+				counts[0] += n0;
+				counts[1] += n1;
+				counts[2] += n2;
+			}
+		}
+		return afps;
+	}
+
 	/**
 	 * filter 1 for AFP extration: the distance of end-to-end
 	 * @param p1b
@@ -180,56 +221,6 @@ public class AFPCalculator
 
 	}
 
-	private static double getRmsd(Atom[] ca1, Atom[] ca2, int fragLen,
-                                  int p1, int p2, Matrix m, Atom t) {
-
-
-		double rmsd = 99.9;
-		Atom[] catmp1 = getFragment(ca1, p1, fragLen,false);
-		Atom[] catmp2 = getFragment(ca2, p2, fragLen,false);
-
-		if ( catmp1 == null) {
-			System.err.println("could not get fragment for ca1 " + p1 + " " + fragLen );
-			return rmsd;
-		}
-
-		if ( catmp2 == null) {
-			System.err.println("could not get fragment for ca2 " + p2 + " " + fragLen );
-			return rmsd;
-		}
-
-		return SuperPositions.getRmsd(Calc.atomsToPoints(catmp1),
-				Calc.atomsToPoints(catmp2));
-	}
-
-	/** get a continue subset of Atoms based by the starting position and the length
-	 *
-	 * @param caall
-	 * @param pos ... the start position
-	 * @param fragmentLength .. the length of the subset to extract.
-	 * @param clone: returns a copy of the atom (in case the coordinate get manipulated...)
-	 * @return an Atom[] array
-	 */
-	private static Atom[] getFragment(Atom[] caall, int pos, int fragmentLength ,
-                                      boolean clone){
-
-		if ( pos+fragmentLength > caall.length)
-			return null;
-
-		Atom[] tmp = new Atom[fragmentLength];
-
-		for (int i=0;i< fragmentLength;i++){
-			if (clone){
-				tmp[i] = (Atom)caall[i+pos].clone();
-			} else {
-				tmp[i] = caall[i+pos];
-			}
-		}
-		return tmp;
-
-	}
-
-
 	/**
 	 * Assign score to each AFP
 	 */
@@ -248,6 +239,13 @@ public class AFPCalculator
 	//------------------------------------------------------------------
 	//Sort the AFPs in increase of their diagonals(i,j)
 	//------------------------------------------------------------------
+	/**
+	 * Indexes the AFPs in dense tables of the size of both proteins.
+	 * @deprecated {@link AFPChainer#doChainAfp(FatCatParameters, AFPChain, Atom[], Atom[])}
+	 * indexes the AFPs by their start positions itself and does not use these tables;
+	 * {@link AFPChain#getAfpIndex()} computes them from the AFP set on first use
+	 */
+	@Deprecated
 	public static void sortAfps(AFPChain afpChain, Atom[] ca1, Atom[] ca2)
 	{
 
@@ -99,42 +99,51 @@ public class AFPChainer
 		afpChain.setConn(0d);
 		afpChain.setDVar(0d);
 
-		double[]  sco = new double[afpNum]; //the score ending at an AFP
-		int[] pre = new int[afpNum];    //the previous AFP
+		Workspace ws = workspace.get();
+		ws.index(afpSet, ca1.length);
+		double[]  sco = ws.sco; //the score ending at an AFP
+		int[] pre = ws.pre;    //the previous AFP
+		int[] p1 = ws.p1;
+		int[] p2 = ws.p2;
+		double[] score = ws.score;
 		double  maxsco = 0;
 		int     maxafp = 0;
-		int[] list = new int[afpNum];
+		int[] list = ws.list;
 
 		int maxGap = params.getMaxGap();
 		int fragLen = params.getFragLen();
 		int maxTra = params.getMaxTra();
+		double disCut = params.getDisCut();
 
+		// only the distances between residues closer in sequence than the maximum gap are needed
+		int width = getDisBandWidth(params);
+		double[] disBand1 = getDisBand(width, ca1);
+		double[] disBand2 = getDisBand(width, ca2);
 
-		Matrix disTable1 = getDisTable(maxGap + 2 * fragLen + 1,ca1);
-		Matrix disTable2 = getDisTable(maxGap + 2 * fragLen + 1,ca2);
-
-		afpChain.setDisTable1(disTable1);
-		afpChain.setDisTable2(disTable2);
+		afpChain.setDisBand1(disBand1);
+		afpChain.setDisBand2(disBand2);
 
 		for(i = 0; i < afpNum; i ++)    {
-			sco[i] = afpSet.get(i).getScore(); //start from itself
+			sco[i] = score[i]; //start from itself
 			pre[i] = -1;
 			twi[i] = 0;
-			if ( afpSet.get(i).getP1() < fragLen || afpSet.get(i).getP2() < fragLen)
+			if ( p1[i] < fragLen || p2[i] < fragLen)
 				n = 0;
 			else
-				n = getCompatibleAfps(i, list, params, afpChain); //get a compatible list
+				n = getCompatibleAfps(i, list, params, ws, twi); //get a compatible list
 			//printf("afp %d, compatible %d\n", i, n);
 			for(j0 = 0; j0 < n; j0 ++)      {
 				j = list[j0];
-				isConnected = afpPairConn(j, i, params,afpChain); //note: j, i
-				Double conn = afpChain.getConn();
+				double d = calAfpDis(p1[j], p2[j], p1[i], p2[i], params, disBand1, disBand2, width); //note: j, i
+				isConnected = d >= disCut;
+				double conn = getConn(calcGap(p1[i], p2[i], p1[j], p2[j]),
+						calcMismatch(p1[i], p2[i], p1[j], p2[j], fragLen), d, params);
 				int t = 0;
 				if ( isConnected)
 					t=1;
 				if(twi[j] + t > maxTra) continue;
 				//two many transformation are disfavored
-				stmp = sco[j] + afpSet.get(i).getScore() + conn;
+				stmp = sco[j] + score[i] + conn;
 				if(stmp > sco[i])       { //considered all previous compatible AFPs
 					sco[i] = stmp;
 					twi[i] = twi[j] + t;
@@ -162,30 +171,45 @@ public class AFPChainer
 
 	}
 
-	private static Matrix getDisTable(int maxlen, Atom[]ca)
+	private static int getDisBandWidth(FatCatParameters params)
+	{
+		// the distances of residues up to maxlen apart, as in the distance table of FATCAT
+		int maxlen = params.getMaxGap() + 2 * params.getFragLen() + 1;
+		return maxlen + 1;
+	}
+
+	private static double[] getDisBand(int width, Atom[]ca)
 
 	{
 		int length = ca.length;
-		Matrix dis = new Matrix(length,length);
+		double[] dis = new double[length * width];
 
 		int     i, j;
 		for(i = 0; i < length; i ++)    {
-			dis.set(i,i,0);
-			for(j = i + 1;( j < length) && (j <= i + maxlen); j ++)     {
-				dis.set(i,j,0);
-
-				double val = dis.get(i,j) + (Calc.getDistance(ca[i],ca[j])) * (Calc.getDistance(ca[i],ca[j]));
-				dis.set(i,j,val);
-
-
-				dis.set(i,j,Math.sqrt(dis.get(i,j)));
-				dis.set(j,i,dis.get(i,j));
+			for(j = i + 1;( j < length) && (j < i + width); j ++)     {
+				double d = Calc.getDistance(ca[i],ca[j]);
+				dis[i * width + j - i] = Math.sqrt(d * d);
 			}
 		}
 		return dis;
 
 	}
 
+	/**
+	 * The distance between residues i and j from the band, 0 for residues further apart than
+	 * the width of the band, as they were never set in the distance table.
+	 */
+	private static double getDistance(double[] band, int width, int i, int j)
+	{
+		int d = j - i;
+		if (d < 0) {
+			i = j;
+			d = -d;
+		}
+		if (d >= width) return 0;
+		return band[i * width + d];
+	}
+
 	/*
 
 	derive the compabitle AFP lists for AFP-chaining
@@ -226,7 +250,7 @@ public class AFPChainer
 	 *
 	 *
 	 */
-	private  static int getCompatibleAfps(int afp, int[] list, FatCatParameters params, AFPChain afpChain){
+	private  static int getCompatibleAfps(int afp, int[] list, FatCatParameters params, Workspace ws, int[] twi){
 
 		int     i, j, i1, j1, f, G, c, a1, a2, a3, b1, b2, b3, s1, s2;
 
@@ -234,14 +258,13 @@ public class AFPChainer
 		int maxGapFrag = params.getMaxGapFrag();
 		int misCut = params.getMisCut();
 		int maxTra = params.getMaxTra();
-		List<AFP> afpSet = afpChain.getAfpSet();
 
 		f = fragLen;
 		G = maxGapFrag;
 		c = misCut;
 
-		i1 = afpSet.get(afp).getP1();
-		j1 = afpSet.get(afp).getP2();
+		i1 = ws.p1[afp];
+		j1 = ws.p2[afp];
 		a3 = i1 - f;
 		a2 = a3 - c;
 		a1 = i1 - G;
@@ -254,18 +277,14 @@ public class AFPChainer
 		b2 = Math.max(b2, 0);
 		b1 = Math.max(b1, 0);
 
-		int[][] afpAftIndex = afpChain.getAfpAftIndex();
-		int[][] afpBefIndex = afpChain.getAfpBefIndex();
-		int[] twi = afpChain.getTwi();
-
 
 
 		int     n = 0;
 		//compatible region 1-2, [a1,a3][b2,b3]
 				for(i = a1; i <= a3; i ++)      {//i <= a3 instead of i < a3
-					s1 = afpAftIndex[i][b2]; //note afpAftIndex, not afpIndex
+					s1 = ws.getAfpAft(i, b2); //the first AFP of row i with j >= b2
 					if(s1 < 0)      continue;//no AFP for the given i with j > b2
-					s2 = afpBefIndex[i][b3]; //afps is sorted by j given a i,it's sparse matrix
+					s2 = ws.getAfpBef(i, b3); //afps is sorted by j given a i,it's sparse matrix
 					if(s2 < 0)      continue;//no AFP for the given i with j < b3
 					for(j = s1; j <= s2; j ++)      { //j <= s2 instead of j < s2
 						if(twi[j] <= maxTra)    {
@@ -276,9 +295,9 @@ public class AFPChainer
 
 				//compatible region 3  [a2,a3][b1,b2]
 				for(i = a2; i <= a3; i ++)      {
-					s1 = afpAftIndex[i][b1];
+					s1 = ws.getAfpAft(i, b1);
 					if(s1 < 0)      continue;
-					s2 = afpBefIndex[i][b2]; //afps is sorted by j given a i
+					s2 = ws.getAfpBef(i, b2); //afps is sorted by j given a i
 					if(s2 < 0)      continue;
 					//note j < s2, as the cases of j == s2 is alread considered in previous region
 					for(j = s1; j < s2; j ++)       {
@@ -307,9 +326,31 @@ public class AFPChainer
 
 	{
 
-		double conn;
-		double dvar;
+		List<AFP> afpSet = afpChain.getAfpSet();
+		AFP a1 = afpSet.get(afp1);
+		AFP a2 = afpSet.get(afp2);
+
+		int     m = calcGap(a2,a1);
+		int     g = calcMismatch(a2,a1);
+
+		double  d;
+		d = calAfpDis(afp1, afp2,params, afpChain);
+		//note: the 'dis' value is numerically equivalent to the 'rms' with exceptions
+
+		afpChain.setConn(getConn(m, g, d, params));
+		afpChain.setDVar(d);
+		return d >= params.getDisCut();
+	}
 
+	/**
+	 * The connection score of two AFPs: the gap penalty and the torsion penalty, from the variation
+	 * of the distances between the AFPs
+	 * @param m the gaps between the AFPs
+	 * @param g the mismatches between the AFPs
+	 * @param d the distance between the AFPs
+	 */
+	private static double getConn(int m, int g, double d, FatCatParameters params)
+	{
 		double misScore = params.getMisScore();
 		double maxPenalty = params.getMaxPenalty();
 		double disCut = params.getDisCut();
@@ -317,12 +358,6 @@ public class AFPChainer
 		double torsionPenalty = params.getTorsionPenalty();
 		double disSmooth = params.getDisSmooth();
 
-		List<AFP> afpSet = afpChain.getAfpSet();
-
-		int     m = calcGap(afpSet.get(afp2),afpSet.get(afp1));
-		int     g = calcMismatch(afpSet.get(afp2),afpSet.get(afp1));
-
-
 		double  gp = misScore * m;      //on average, penalty for a mismatch is misScore, no modification on score
 		if(g > 0)       {
 			gp += gapExtend * g;
@@ -330,15 +365,9 @@ public class AFPChainer
 		if(gp < maxPenalty)     gp = maxPenalty; //penalty cut-off
 		//note: use < (smaller) instead of >, because maxPenalty is a negative number
 
-		double  d;
-		d = calAfpDis(afp1, afp2,params, afpChain);
-		//note: the 'dis' value is numerically equivalent to the 'rms' with exceptions
-
-		boolean     ch = false;
 		double  tp = 0.0;
 		if(d >= disCut) {
 			tp = torsionPenalty;
-			ch = true;
 		} //use the variation of the distances between AFPs
 		else  if(d > disCut - disSmooth)        {
 			double  wt = Math.sqrt((d - disCut + disSmooth) / disSmooth);
@@ -346,12 +375,7 @@ public class AFPChainer
 			tp = torsionPenalty * wt;
 		}
 
-		dvar = d;
-		conn = tp + gp;
-
-		afpChain.setConn(conn);
-		afpChain.setDVar(dvar);
-		return ch;
+		return tp + gp;
 	}
 
 	/**
@@ -362,7 +386,12 @@ public class AFPChainer
 
 	private static int  calcGap(AFP afp1 , AFP afp2)
 	{
-		int     g = (afp1.getP1() - afp2.getP1()) - (afp1.getP2() - afp2.getP2());
+		return calcGap(afp1.getP1(), afp1.getP2(), afp2.getP1(), afp2.getP2());
+	}
+
+	private static int  calcGap(int afp1P1, int afp1P2, int afp2P1, int afp2P2)
+	{
+		int     g = (afp1P1 - afp2P1) - (afp1P2 - afp2P2);
 		if(g < 0)       g = -g;
 		return g;
 	}
@@ -379,8 +408,13 @@ public class AFPChainer
 	//--------------------------------------------
 	private static int calcMismatch(AFP afp1, AFP afp2)
 	{
-		int     l1 = afp1.getP1() - afp2.getP1() - afp2.getFragLen();
-		int     l2 = afp1.getP2() - afp2.getP2() - afp2.getFragLen();
+		return calcMismatch(afp1.getP1(), afp1.getP2(), afp2.getP1(), afp2.getP2(), afp2.getFragLen());
+	}
+
+	private static int calcMismatch(int afp1P1, int afp1P2, int afp2P1, int afp2P2, int afp2FragLen)
+	{
+		int     l1 = afp1P1 - afp2P1 - afp2FragLen;
+		int     l2 = afp1P2 - afp2P2 - afp2FragLen;
 		return (Math.min(l1, l2));
 	}
 
@@ -405,7 +439,15 @@ public class AFPChainer
 	{
 
 		List<AFP> afpSet = afpChain.getAfpSet();
+		AFP a1 = afpSet.get(afp1);
+		AFP a2 = afpSet.get(afp2);
+
+		if (afpChain.getDisBand1() != null && afpChain.getDisBand2() != null) {
+			return calAfpDis(a1.getP1(), a1.getP2(), a2.getP1(), a2.getP2(), params,
+					afpChain.getDisBand1(), afpChain.getDisBand2(), getDisBandWidth(params));
+		}
 
+		// distance tables set by an earlier version of the chaining
 		Matrix disTable1 = afpChain.getDisTable1();
 		Matrix disTable2 = afpChain.getDisTable2();
 
@@ -418,11 +460,11 @@ public class AFPChainer
 		double  d;
 		double  rms = 0;
 		for(i = 0; i < fragLen; i ++)   {
-			ai = afpSet.get(afp1).getP1() + i;
-			bi = afpSet.get(afp1).getP2() + i;
+			ai = a1.getP1() + i;
+			bi = a1.getP2() + i;
 			for(j = 0; j < fragLen; j ++)   {
-				aj = afpSet.get(afp2).getP1() + j;
-				bj = afpSet.get(afp2).getP2() + j;
+				aj = a2.getP1() + j;
+				bj = a2.getP2() + j;
 				d = disTable1.get(aj,ai) - disTable2.get(bj,bi);
 				rms += d * d;
 				if(rms > afpDisCut)     { return (disCut); }
@@ -431,6 +473,31 @@ public class AFPChainer
 		return (Math.sqrt(rms / fragLenSq));
 	}
 
+	private static double calAfpDis(int afp1P1, int afp1P2, int afp2P1, int afp2P2, FatCatParameters params,
+			double[] disBand1, double[] disBand2, int width)
+	{
+		int fragLen = params.getFragLen();
+		double afpDisCut = params.getAfpDisCut();
+		double disCut = params.getDisCut();
+		double fragLenSq = params.getFragLenSq();
+
+		int     i, j, ai, bi, aj, bj;
+		double  d;
+		double  rms = 0;
+		for(i = 0; i < fragLen; i ++)   {
+			ai = afp1P1 + i;
+			bi = afp1P2 + i;
+			for(j = 0; j < fragLen; j ++)   {
+				aj = afp2P1 + j;
+				bj = afp2P2 + j;
+				d = getDistance(disBand1, width, aj, ai) - getDistance(disBand2, width, bj, bi);
+				rms += d * d;
+				if(rms > afpDisCut)     { return (disCut); }
+			}
+		}
+		return (Math.sqrt(rms / fragLenSq));
+	}
+
 
 	/**
 	 * derive the optimal chaining of AFPs by trace-back
@@ -741,4 +808,76 @@ public class AFPChainer
 		return Calc.rmsd(catmp1,catmp2);
 	}
 
+	/** Per-thread buffers of the chaining, reused by the next alignment on the same thread */
+	private static final ThreadLocal<Workspace> workspace = ThreadLocal.withInitial(Workspace::new);
+
+	/**
+	 * The buffers of the dynamic programming and the index of the AFPs by their start positions:
+	 * the AFPs starting at position i of the first protein are rowStart[i] to rowStart[i+1]-1,
+	 * sorted by their start position in the second protein.
+	 */
+	private static class Workspace {
+		double[] sco = new double[0];
+		int[] pre = new int[0];
+		int[] list = new int[0];
+		int[] p1 = new int[0];
+		int[] p2 = new int[0];
+		double[] score = new double[0];
+		int[] rowStart = new int[0];
+
+		void index(List<AFP> afpSet, int length1) {
+			int afpNum = afpSet.size();
+			if (sco.length < afpNum) {
+				int size = Math.max(afpNum, 2 * sco.length);
+				sco = new double[size];
+				pre = new int[size];
+				list = new int[size];
+				p1 = new int[size];
+				p2 = new int[size];
+				score = new double[size];
+			}
+			if (rowStart.length < length1 + 1) {
+				rowStart = new int[Math.max(length1 + 1, 2 * rowStart.length)];
+			}
+			for (int a = 0; a < afpNum; a++) {
+				AFP afp = afpSet.get(a);
+				p1[a] = afp.getP1();
+				p2[a] = afp.getP2();
+				score[a] = afp.getScore();
+			}
+			// the AFPs are sorted by p1, then p2
+			int a = 0;
+			for (int i = 0; i <= length1; i++) {
+				while (a < afpNum && p1[a] < i) a++;
+				rowStart[i] = a;
+			}
+		}
+
+		/**
+		 * @return the first AFP of row i with p2 &gt;= j, or -1
+		 */
+		int getAfpAft(int i, int j) {
+			int lo = rowStart[i], hi = rowStart[i + 1];
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (p2[mid] < j) lo = mid + 1;
+				else hi = mid;
+			}
+			return lo < rowStart[i + 1] ? lo : -1;
+		}
+
+		/**
+		 * @return the last AFP of row i with p2 &lt;= j, or -1
+		 */
+		int getAfpBef(int i, int j) {
+			int lo = rowStart[i], hi = rowStart[i + 1];
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (p2[mid] <= j) lo = mid + 1;
+				else hi = mid;
+			}
+			return lo > rowStart[i] ? lo - 1 : -1;
+		}
+	}
+
 }
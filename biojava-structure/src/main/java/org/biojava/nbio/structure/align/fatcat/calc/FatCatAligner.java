@@ -92,15 +92,6 @@ public class FatCatAligner
 			System.out.println("calculation took:" + (cend - tstart) + " ms.");
 
 
-		AFPCalculator.sortAfps(afpChain,ca1,ca2);
-
-		if ( printTimeStamps) {
-			long send = System.currentTimeMillis();
-
-
-			System.out.println("sorting  took:" + (send - cend) + " ms.");
-		}
-
 		if ( doRigid)
 			this.twistedGroups = rChainAfp(params, afpChain,ca1,ca2);
 
@@ -73,6 +73,9 @@ public class AFPChain implements Serializable, Cloneable {
 	private Matrix disTable1;
 	private Matrix disTable2;
 
+	private double[] disBand1;
+	private double[] disBand2;
+
 	private int[] twi = null ; //the number of twists making the best score ending at each AFP
 
 	private int afpChainLen;
@@ -185,6 +188,8 @@ public class AFPChain implements Serializable, Cloneable {
 		this.afpBefIndex = o.afpBefIndex == null? null: o.afpBefIndex.clone();
 		this.disTable1 = o.disTable1 == null? null: (Matrix) o.disTable1.clone();
 		this.disTable2 = o.disTable2 == null? null: (Matrix) o.disTable2.clone();
+		this.disBand1 = o.disBand1 == null? null: o.disBand1.clone();
+		this.disBand2 = o.disBand2 == null? null: o.disBand2.clone();
 		this.twi = o.twi == null ? null : o.twi.clone();
 		this.afpChainLen = o.afpChainLen;
 		this.afpChainList = o.afpChainList == null? null: o.afpChainList.clone();
@@ -595,10 +600,21 @@ public class AFPChain implements Serializable, Cloneable {
 	public void setAfpSet(List<AFP> afpSet)
 	{
 		this.afpSet = afpSet;
+		// the indexes of the previous set no longer apply
+		afpIndex = afpAftIndex = afpBefIndex = null;
 	}
 
+	/**
+	 * The index of the AFP starting at each pair of positions, or -1. FATCAT no longer
+	 * fills this table while chaining; it is then computed from the AFP set, sorted by
+	 * start positions, on first use.
+	 * @return the index of the AFP starting at (i,j), or null if there is no AFP set
+	 */
 	public int[][] getAfpIndex()
 	{
+		if (afpIndex == null) {
+			indexAfps();
+		}
 		return afpIndex;
 	}
 
@@ -608,8 +624,16 @@ public class AFPChain implements Serializable, Cloneable {
 	}
 
 
+	/**
+	 * The index of the AFP (i,j*) nearest to (i,j) with j*&gt;=j, or -1.
+	 * @return the table, or null if there is no AFP set
+	 * @see #getAfpIndex()
+	 */
 	public int[][] getAfpAftIndex()
 	{
+		if (afpAftIndex == null) {
+			indexAfps();
+		}
 		return afpAftIndex;
 	}
 
@@ -619,8 +643,16 @@ public class AFPChain implements Serializable, Cloneable {
 	}
 
 
+	/**
+	 * The index of the AFP (i,j*) nearest to (i,j) with j*&lt;=j, or -1.
+	 * @return the table, or null if there is no AFP set
+	 * @see #getAfpIndex()
+	 */
 	public int[][] getAfpBefIndex()
 	{
+		if (afpBefIndex == null) {
+			indexAfps();
+		}
 		return afpBefIndex;
 	}
 
@@ -630,8 +662,17 @@ public class AFPChain implements Serializable, Cloneable {
 	}
 
 
+	/**
+	 * The distances between the residues of the first protein. FATCAT only keeps the
+	 * distances of residues close in sequence ({@link #getDisBand1()}); the table is then
+	 * built from them on first use, with 0 for the residues further apart.
+	 * @return the distance table, or null
+	 */
 	public Matrix getDisTable1()
 	{
+		if (disTable1 == null && disBand1 != null && ca1Length > 0) {
+			disTable1 = getDisTable(disBand1, ca1Length);
+		}
 		return disTable1;
 	}
 
@@ -641,16 +682,126 @@ public class AFPChain implements Serializable, Cloneable {
 	}
 
 
+	/**
+	 * The distances between the residues of the second protein.
+	 * @return the distance table, or null
+	 * @see #getDisTable1()
+	 */
 	public Matrix getDisTable2()
 	{
+		if (disTable2 == null && disBand2 != null && ca2Length > 0) {
+			disTable2 = getDisTable(disBand2, ca2Length);
+		}
 		return disTable2;
 	}
 
+	private static Matrix getDisTable(double[] band, int length)
+	{
+		int width = band.length / length;
+		Matrix dis = new Matrix(length, length);
+		for (int i = 0; i < length; i++) {
+			for (int j = i + 1; j < length && j < i + width; j++) {
+				dis.set(i, j, band[i * width + j - i]);
+				dis.set(j, i, band[i * width + j - i]);
+			}
+		}
+		return dis;
+	}
+
+	// the AFP tables of FATCAT, from the AFP set sorted by start positions
+	private void indexAfps()
+	{
+		if (afpSet == null || ca1Length <= 0 || ca2Length <= 0) {
+			return;
+		}
+
+		int[][] index = new int[ca1Length][ca2Length];
+		int[][] aftIndex = new int[ca1Length][ca2Length];
+		int[][] befIndex = new int[ca1Length][ca2Length];
+		for (int i = 0; i < ca1Length; i++) {
+			Arrays.fill(index[i], -1);
+			Arrays.fill(aftIndex[i], -1);
+			Arrays.fill(befIndex[i], -1);
+		}
+
+		int afpNum = afpSet.size();
+		int b0 = 0;
+		for (int a = 0; a < afpNum; a++) {
+			if (a == afpNum - 1 || afpSet.get(a).getP1() != afpSet.get(a + 1).getP1()) {
+				int i = afpSet.get(a).getP1();
+				for (int b = b0; b <= a; b++) {
+					int j = afpSet.get(b).getP2();
+					index[i][j] = b;
+					befIndex[i][j] = b;
+					aftIndex[i][j] = b;
+				}
+				for (int k = 1; k < ca2Length; k++) {
+					if (befIndex[i][k] == -1) {
+						befIndex[i][k] = befIndex[i][k - 1];
+					}
+				}
+				for (int k = ca2Length - 2; k >= 0; k--) {
+					if (aftIndex[i][k] == -1) {
+						aftIndex[i][k] = aftIndex[i][k + 1];
+					}
+				}
+				b0 = a + 1;
+			}
+		}
+
+		afpIndex = index;
+		afpAftIndex = aftIndex;
+		afpBefIndex = befIndex;
+	}
+
 	public void setDisTable2(Matrix disTable2)
 	{
 		this.disTable2 = disTable2;
 	}
 
+	/**
+	 * The distances between the residues of the first protein that are close in sequence,
+	 * used by the FATCAT chaining instead of {@link #getDisTable1()}. Row i holds the
+	 * distances from residue i to residues i, i+1, ... i+width-1.
+	 * @return the rows of the band, or null
+	 * @since 5.3.1
+	 */
+	public double[] getDisBand1()
+	{
+		return disBand1;
+	}
+
+	/**
+	 * @param disBand1
+	 * @see #getDisBand1()
+	 * @since 5.3.1
+	 */
+	public void setDisBand1(double[] disBand1)
+	{
+		this.disBand1 = disBand1;
+	}
+
+	/**
+	 * The distances between the residues of the second protein that are close in sequence.
+	 * @return the rows of the band, or null
+	 * @see #getDisBand1()
+	 * @since 5.3.1
+	 */
+	public double[] getDisBand2()
+	{
+		return disBand2;
+	}
+
+	/**
+	 * @param disBand2
+	 * @see #getDisBand1()
+	 * @since 5.3.1
+	 */
+	public void setDisBand2(double[] disBand2)
+	{
+		this.disBand2 = disBand2;
+	}
+
 
 	public int[] getTwi()
 	{
@@ -49,6 +49,22 @@ import java.util.concurrent.*;
  * or flexible alignment. The seed can also directly be the input for the
  * optimization. For that, look at {@link MultipleMcOptimizer}.
  * <p>
+ * The all-to-all pairwise alignments of the seed and the optimization run as
+ * tasks on a shared executor (by default the common {@link ForkJoinPool}),
+ * so that many multiple alignments can be calculated in the same process
+ * without creating new threads for each of them. The tasks never wait for
+ * each other, only the calling thread waits for them; at most
+ * {@link MultipleMcParameters#getNrThreads()} pairwise alignments run at once.
+ * An executor can be given to isolate the calculations from other work.
+ * Pairwise alignments are cached by the content of the Atom arrays, so
+ * aligning again the same structures with the same pairwise algorithm and
+ * parameters does not recalculate them. By default the cache only keeps the
+ * pairwise alignments of the last calculation.
+ * <p>
+ * If more than one replica is set in the {@link MultipleMcParameters}, the
+ * optimization runs several MC chains at increasing temperatures with replica
+ * exchange (parallel tempering) and returns the best alignment found.
+ * <p>
  * A Demo on how to use the algorithm can be found in the demo package.
  *
  * @author Aleix Lafita
@@ -73,6 +89,11 @@ public class MultipleMcMain implements MultipleStructureAligner {
 	private StructureAlignment pairwise;
 	private int reference = 0;
 
+	private final ExecutorService executor;
+	private final Map<PairwiseKey, AFPChain> pairwiseCache;
+	private volatile int cacheSize = -1;
+	private volatile int maxCached = 0;
+
 	/**
 	 * Default constructor.
 	 * Default parameters are used.
@@ -80,10 +101,37 @@ public class MultipleMcMain implements MultipleStructureAligner {
 	 * 			multiple alignment seed.
 	 */
 	public MultipleMcMain(StructureAlignment pairwiseAlgo){
+		this(pairwiseAlgo, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Constructor that runs the calculations on the given executor. The
+	 * executor is never shut down by this class.
+	 * Default parameters are used.
+	 * @param pairwiseAlgo the pairwise structure alignment used to generate
+	 * 			the multiple alignment seed.
+	 * @param executor the executor to run the pairwise alignments and the
+	 * 			optimization replicas
+	 * @since 5.3.1
+	 */
+	public MultipleMcMain(StructureAlignment pairwiseAlgo,
+			ExecutorService executor){
+		if (executor == null)
+			throw new IllegalArgumentException("Executor cannot be null");
 		ensemble = null;
 		params = new MultipleMcParameters();
 		pairwise = pairwiseAlgo;
 		if (pairwise == null) pairwise = new CeCPMain();
+		this.executor = executor;
+		pairwiseCache = Collections.synchronizedMap(
+				new LinkedHashMap<PairwiseKey, AFPChain>(16, 0.75f, true) {
+					private static final long serialVersionUID = 1L;
+					@Override
+					protected boolean removeEldestEntry(
+							Map.Entry<PairwiseKey, AFPChain> eldest) {
+						return size() > maxCached;
+					}
+				});
 	}
 
 	/**
@@ -106,6 +154,8 @@ public class MultipleMcMain implements MultipleStructureAligner {
 			ExecutionException {
 
 		int size = atomArrays.size();
+		int total = size * (size - 1) / 2;
+		setMaxCached(cacheSize < 0 ? total : cacheSize);
 
 		//List to store the all-to-all alignments
 		List<List<AFPChain>> afpAlignments = new ArrayList<>();
@@ -115,36 +165,49 @@ public class MultipleMcMain implements MultipleStructureAligner {
 				afpAlignments.get(i).add(null);
 		}
 
-		int threads = params.getNrThreads();
-		ExecutorService executor = Executors.newFixedThreadPool(threads);
-		List<Future<AFPChain>> afpFuture = new ArrayList<>();
+		String algorithm = pairwise.getAlgorithmName();
+		ConfigStrucAligParams pairParams = pairwise.getParameters();
+		String paramString = String.valueOf(pairParams);
 
 		//Create all the possible protein pairwise combinations
-		//(N*(N-1)/2) and call the pairwise alignment algorithm
+		//(N*(N-1)/2) and call the pairwise alignment algorithm for the
+		//ones not in the cache, with at most nrThreads running at once
+		CompletionService<AFPChain> completion =
+				new ExecutorCompletionService<>(executor);
+		Map<Future<AFPChain>, PairwiseKey> pending = new HashMap<>();
+		List<AtomArrayContent> ids = new ArrayList<>(size);
+		for (Atom[] atoms : atomArrays)
+			ids.add(new AtomArrayContent(atoms));
+		int maxRunning = Math.max(params.getNrThreads(), 1);
+		int computed = 0;
+
 		for (int i=0; i<size; i++){
 			for (int j=i+1; j<size; j++){
 
+				PairwiseKey key = new PairwiseKey(ids.get(i), ids.get(j),
+						algorithm, paramString, i, j);
+				AFPChain cached = pairwiseCache.get(key);
+				if (cached != null) {
+					afpAlignments.get(i).set(j, cached);
+					afpAlignments.get(j).set(i, cached);
+					continue;
+				}
+				if (pending.size() >= maxRunning)
+					storePairwise(completion.take(), pending, afpAlignments);
+
 				Callable<AFPChain> worker = new CallableStructureAlignment(
 						atomArrays.get(i), atomArrays.get(j),
-						pairwise.getAlgorithmName(), pairwise.getParameters());
+						algorithm, pairParams);
 
-				Future<AFPChain> submit = executor.submit(worker);
-				afpFuture.add(submit);
+				pending.put(completion.submit(worker), key);
+				computed++;
 			}
 		}
+		while (!pending.isEmpty())
+			storePairwise(completion.take(), pending, afpAlignments);
 
-		//Store the resulting AFPChains in the 2D List
-		int index = 0;  //the alignment index
-		for (int i=0; i<size; i++){
-			for (int j=i; j<size; j++){
-				if (i!=j){
-					afpAlignments.get(i).add(j,afpFuture.get(index).get());
-					afpAlignments.get(j).add(i,afpFuture.get(index).get());
-					index++;
-				}
-			}
-		}
-		executor.shutdown();
+		logger.info("Seed: {} pairwise alignments calculated, {} cached.",
+				computed, total - computed);
 
 		reference = chooseReferenceRMSD(afpAlignments);
 		boolean flexible = false;
@@ -155,6 +218,99 @@ public class MultipleMcMain implements MultipleStructureAligner {
 				atomArrays, reference, flexible);
 	}
 
+	/**
+	 * Stores the result of a finished pairwise alignment in the all-to-all
+	 * matrix and in the cache.
+	 */
+	private void storePairwise(Future<AFPChain> done,
+			Map<Future<AFPChain>, PairwiseKey> pending,
+			List<List<AFPChain>> afpAlignments)
+					throws InterruptedException, ExecutionException {
+
+		PairwiseKey key = pending.remove(done);
+		AFPChain afp = done.get();
+		afpAlignments.get(key.i).set(key.j, afp);
+		afpAlignments.get(key.j).set(key.i, afp);
+		pairwiseCache.put(key, afp);
+	}
+
+	/**
+	 * Runs the MC optimization of the seed alignment. With a single replica
+	 * a single chain is optimized. Otherwise the chains run in parallel on the
+	 * executor at temperatures spaced geometrically between 1 and the
+	 * maximum temperature, and every exchangeSteps steps neighboring
+	 * replicas try to exchange their states with the Metropolis criterion.
+	 * The best alignment among all the replicas is returned.
+	 *
+	 * @param seed the seed MultipleAlignment
+	 * @return the optimized MultipleAlignment
+	 * @throws StructureException
+	 */
+	private MultipleAlignment optimize(MultipleAlignment seed)
+			throws StructureException {
+
+		int replicas = Math.max(params.getReplicas(), 1);
+		if (replicas == 1)
+			return new MultipleMcOptimizer(seed, params, reference).optimize();
+
+		double ratio = Math.pow(Math.max(params.getMaxTemperature(), 1.0),
+				1.0 / (replicas - 1));
+		int steps = Math.max(params.getExchangeSteps(), 1);
+
+		List<MultipleMcOptimizer> chains = new ArrayList<>(replicas);
+		List<Callable<Integer>> tasks = new ArrayList<>(replicas);
+		double temperature = 1.0;
+		for (int r=0; r<replicas; r++){
+			MultipleMcOptimizer chain = new MultipleMcOptimizer(seed, params,
+					reference, params.getRandomSeed() + r);
+			chain.setTemperature(temperature);
+			chain.initialize();
+			chains.add(chain);
+			tasks.add(() -> chain.runSteps(steps));
+			temperature *= ratio;
+		}
+
+		Random rnd = new Random(params.getRandomSeed());
+		int exchanges = 0;
+		int parity = 0;
+		MultipleMcOptimizer coldest = chains.get(0);
+
+		//The run ends when the chain at the lowest temperature finishes
+		while (!coldest.isFinished()){
+			try {
+				for (Future<Integer> f : executor.invokeAll(tasks)) f.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new StructureException("MC optimization interrupted", e);
+			} catch (ExecutionException e) {
+				throw new StructureException("MC optimization failed",
+						e.getCause());
+			}
+			//Alternate exchanges between even and odd neighbor pairs
+			for (int r=parity; r<replicas-1; r+=2){
+				MultipleMcOptimizer cold = chains.get(r);
+				MultipleMcOptimizer hot = chains.get(r+1);
+				double delta = (1.0 / cold.getTemperature()
+						- 1.0 / hot.getTemperature())
+						* (hot.getMcScore() - cold.getMcScore())
+						/ cold.getScoreScale();
+				if (delta >= 0 || rnd.nextDouble() < Math.exp(delta)){
+					cold.swapState(hot);
+					exchanges++;
+				}
+			}
+			parity = 1 - parity;
+		}
+		logger.debug("Parallel tempering: {} replica exchanges", exchanges);
+
+		//Take the replica with the best MC-Score
+		MultipleMcOptimizer best = coldest;
+		for (MultipleMcOptimizer chain : chains){
+			if (chain.getMcScore() > best.getMcScore()) best = chain;
+		}
+		return best.finish();
+	}
+
 	/**
 	 * This method takes the all-to-all pairwise alignments Matrix (as a
 	 * double List of AFPChain) and calculates the structure with the
@@ -322,49 +478,10 @@ public class MultipleMcMain implements MultipleStructureAligner {
 			logger.warn("Seed generation failed.",e);
 		}
 
-		//Repeat the optimization in parallel - DISALLOWED
-		/*int threads = params.getNrThreads();
-			ExecutorService executor = Executors.newFixedThreadPool(threads);
-			List<Future<MultipleAlignment>> msaFuture =
-					new ArrayList<Future<MultipleAlignment>>();
-
-			for (int i=0; i<params.getNrThreads(); i++){
-				//Change the random seed for each parallelization
-				MultipleMcParameters paramsMC = (MultipleMcParameters) params;
-				paramsMC.setRandomSeed(paramsMC.getRandomSeed()+i);
-
-				Callable<MultipleAlignment> worker =
-						new MultipleMcOptimizer(
-								result, paramsMC, reference);
-
-	  			Future<MultipleAlignment> submit = executor.submit(worker);
-	  			msaFuture.add(submit);
-			}
-
-			double maxScore = Double.NEGATIVE_INFINITY;
-			//Take the one with the best result (best MC-Score)
-			for (int i=0; i<msaFuture.size(); i++){
-				MultipleAlignment align = msaFuture.get(i).get();
-				double s = align.getScore(MultipleAlignmentScorer.MC_SCORE);
-				if (s > maxScore){
-					result = align;
-					maxScore = s;
-				}
-			}
-			Long runtime = System.currentTimeMillis()-ensemble.getIoTime();
-			ensemble.setCalculationTime(runtime);
-
-			result.setEnsemble(ensemble);
-			ensemble.addMultipleAlignment(result);
-			executor.shutdown();*/
-
-		MultipleMcOptimizer optimizer = new MultipleMcOptimizer(
-				result, params, reference);
-
 		Long runtime = System.currentTimeMillis()-ensemble.getIoTime();
 		ensemble.setCalculationTime(runtime);
 
-		result = optimizer.optimize();
+		result = optimize(result);
 		result.setEnsemble(ensemble);
 		ensemble.addMultipleAlignment(result);
 
@@ -397,6 +514,57 @@ public class MultipleMcMain implements MultipleStructureAligner {
 		this.params = (MultipleMcParameters) parameters;
 	}
 
+	/**
+	 * Sets the maximum number of pairwise alignments kept in the cache.
+	 * The least recently used alignments are discarded first. By default
+	 * (a negative size) the cache holds the pairwise alignments of the last
+	 * calculation, N*(N-1)/2 for N structures.
+	 *
+	 * @param cacheSize maximum number of cached alignments, 0 disables it
+	 * @since 5.3.1
+	 */
+	public void setPairwiseCacheSize(int cacheSize) {
+		this.cacheSize = cacheSize;
+		if (cacheSize >= 0)
+			setMaxCached(cacheSize);
+	}
+
+	private void setMaxCached(int max) {
+		synchronized (pairwiseCache) {
+			maxCached = max;
+			Iterator<PairwiseKey> it = pairwiseCache.keySet().iterator();
+			while (pairwiseCache.size() > max && it.hasNext()) {
+				it.next();
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * @return the maximum number of pairwise alignments kept in the cache,
+	 * 			or a negative number if it depends on the last calculation
+	 * @since 5.3.1
+	 */
+	public int getPairwiseCacheSize() {
+		return cacheSize;
+	}
+
+	/**
+	 * Removes all the cached pairwise alignments.
+	 * @since 5.3.1
+	 */
+	public void clearPairwiseCache() {
+		pairwiseCache.clear();
+	}
+
+	/**
+	 * @return the number of pairwise alignments currently cached
+	 * @since 5.3.1
+	 */
+	public int getPairwiseCacheCount() {
+		return pairwiseCache.size();
+	}
+
 	@Override
 	public String getAlgorithmName() {
 		return algorithmName;
@@ -406,4 +574,85 @@ public class MultipleMcMain implements MultipleStructureAligner {
 	public String getVersion() {
 		return version;
 	}
+
+	/**
+	 * The content of an Atom array: the atom names and coordinates, so that
+	 * the cache does not keep a reference to the atoms. Two arrays are equal
+	 * if all their atoms have the same names and coordinates.
+	 */
+	private static final class AtomArrayContent {
+
+		private final String[] names;
+		private final double[] coords;
+		private final int hash;
+
+		AtomArrayContent(Atom[] atoms) {
+			names = new String[atoms.length];
+			coords = new double[3 * atoms.length];
+			for (int i = 0; i < atoms.length; i++) {
+				names[i] = atoms[i].getName();
+				coords[3 * i] = atoms[i].getX();
+				coords[3 * i + 1] = atoms[i].getY();
+				coords[3 * i + 2] = atoms[i].getZ();
+			}
+			hash = 31 * Arrays.hashCode(names) + Arrays.hashCode(coords);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) return true;
+			if (!(obj instanceof AtomArrayContent)) return false;
+			AtomArrayContent other = (AtomArrayContent) obj;
+			return hash == other.hash && Arrays.equals(coords, other.coords)
+					&& Arrays.equals(names, other.names);
+		}
+	}
+
+	/**
+	 * Identifies a pairwise alignment by the content of its Atom arrays,
+	 * the pairwise algorithm and its parameters. The indices only record
+	 * the position of the pair in the current calculation.
+	 */
+	private static final class PairwiseKey {
+
+		private final AtomArrayContent id1;
+		private final AtomArrayContent id2;
+		private final String algorithm;
+		private final String parameters;
+		private final int i;
+		private final int j;
+
+		PairwiseKey(AtomArrayContent id1, AtomArrayContent id2, String algorithm,
+				String parameters, int i, int j) {
+			this.id1 = id1;
+			this.id2 = id2;
+			this.algorithm = algorithm;
+			this.parameters = parameters;
+			this.i = i;
+			this.j = j;
+		}
+
+		@Override
+		public int hashCode() {
+			int h = id1.hashCode();
+			h = 31 * h + id2.hashCode();
+			h = 31 * h + algorithm.hashCode();
+			return 31 * h + parameters.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) return true;
+			if (!(obj instanceof PairwiseKey)) return false;
+			PairwiseKey other = (PairwiseKey) obj;
+			return id1.equals(other.id1) && id2.equals(other.id2)
+					&& algorithm.equals(other.algorithm)
+					&& parameters.equals(other.parameters);
+		}
+	}
 }
@@ -86,6 +86,12 @@ public class MultipleMcOptimizer implements Callable<MultipleAlignment> {
 	private final int blockNr; // the number of Blocks in the alignment
 	private double mcScore; // Optimization score, objective function
 
+	// Optimization state, kept between calls to runSteps
+	private double temperature = 1.0; // scales the acceptance of bad moves
+	private int conv; // Number of steps without an alignment improvement
+	private int step; // Current iteration step
+	private final int maxIter;
+
 	// Variables that store the history of the optimization - slower if on
 	private static final boolean history = false;
 	private static final String pathToHistory = "McOptHistory.csv";
@@ -107,13 +113,22 @@ public class MultipleMcOptimizer implements Callable<MultipleAlignment> {
 	 */
 	public MultipleMcOptimizer(MultipleAlignment seedAln,
 			MultipleMcParameters params, int reference) {
+		this(seedAln, params, reference, params.getRandomSeed());
+	}
+
+	/**
+	 * Constructor that overrides the random seed of the parameters, used to
+	 * run several independent chains with the same parameters.
+	 */
+	MultipleMcOptimizer(MultipleAlignment seedAln,
+			MultipleMcParameters params, int reference, int randomSeed) {
 
 		MultipleAlignmentEnsemble e = seedAln.getEnsemble().clone();
 		msa = e.getMultipleAlignment(0);
 		atomArrays = msa.getAtomArrays();
 		size = seedAln.size();
 
-		rnd = new Random(params.getRandomSeed());
+		rnd = new Random(randomSeed);
 		Gopen = params.getGapOpen();
 		Gextend = params.getGapExtension();
 		dCutoff = params.getDistanceCutoff();
@@ -134,6 +149,7 @@ public class MultipleMcOptimizer implements Callable<MultipleAlignment> {
 					.min(Math.max(params.getMinAlignedStructures(), 2), size);
 		}
 		C = 20 * size;
+		maxIter = convergenceSteps * 100;
 		Lmin = params.getMinBlockLen();
 
 		// Delete all shorter than Lmin blocks, and empty blocksets
@@ -174,7 +190,7 @@ public class MultipleMcOptimizer implements Callable<MultipleAlignment> {
 	 * optimization.
 	 *
 	 */
-	private void initialize() {
+	void initialize() {
 
 		// Initialize alignment variables
 		freePool = new ArrayList<>();
@@ -211,6 +227,9 @@ public class MultipleMcOptimizer implements Callable<MultipleAlignment> {
 		mcScore = MultipleAlignmentScorer.getMCScore(msa, Gopen, Gextend,
 				dCutoff);
 
+		conv = 0;
+		step = 1;
+
 		// Initialize the history variables
 		if (history) {
 			lengthHistory = new ArrayList<>();
@@ -234,12 +253,30 @@ public class MultipleMcOptimizer implements Callable<MultipleAlignment> {
 	public MultipleAlignment optimize() throws StructureException {
 
 		initialize();
+		while (!isFinished())
+			runSteps(maxIter);
+		return finish();
+	}
+
+	/**
+	 * Returns true if the chain has converged or reached the maximum number
+	 * of iterations.
+	 */
+	boolean isFinished() {
+		return step >= maxIter || conv >= convergenceSteps;
+	}
 
-		int conv = 0; // Number of steps without an alignment improvement
-		int i = 1;
-		int maxIter = convergenceSteps * 100;
+	/**
+	 * Runs at most the given number of MC steps, stopping earlier if the
+	 * chain finishes. The optimizer has to be initialized before.
+	 *
+	 * @param steps maximum number of steps to run
+	 * @return the number of steps run
+	 */
+	int runSteps(int steps) {
 
-		while (i < maxIter && conv < convergenceSteps) {
+		int done = 0;
+		while (done < steps && !isFinished()) {
 
 			// Save the state of the system
 			MultipleAlignment lastMSA = msa.clone();
@@ -282,7 +319,7 @@ public class MultipleMcOptimizer implements Callable<MultipleAlignment> {
 			if (AS < 0) {
 
 				// Probability of accepting the move
-				prob = probabilityFunction(AS, i, maxIter);
+				prob = probabilityFunction(AS, step, maxIter);
 				double p = rnd.nextDouble();
 				// Reject the move
 				if (p > prob) {
@@ -297,19 +334,29 @@ public class MultipleMcOptimizer implements Callable<MultipleAlignment> {
 			} else
 				conv = 0;
 
-			logger.debug("Step: " + i + ": --prob: " + prob
+			logger.debug("Step: " + step + ": --prob: " + prob
 					+ ", --score change: " + AS + ", --conv: " + conv);
 
 			if (history) {
-				if (i % 100 == 1) {
+				if (step % 100 == 1) {
 					lengthHistory.add(msa.length());
 					rmsdHistory.add(MultipleAlignmentScorer.getRMSD(msa));
 					scoreHistory.add(mcScore);
 				}
 			}
 
-			i++;
+			step++;
+			done++;
 		}
+		return done;
+	}
+
+	/**
+	 * Superimposes and scores the current state of the chain.
+	 *
+	 * @return the optimized MultipleAlignment
+	 */
+	MultipleAlignment finish() throws StructureException {
 
 		// Return Multiple Alignment
 		imposer.superimpose(msa);
@@ -327,6 +374,74 @@ public class MultipleMcOptimizer implements Callable<MultipleAlignment> {
 		return msa;
 	}
 
+	/**
+	 * Exchanges the current alignment state (alignment, free residues and
+	 * score) with another chain of the same seed alignment, as done in a
+	 * replica exchange move of parallel tempering. The temperatures,
+	 * iteration and convergence counters stay with their chains.
+	 *
+	 * @param other the optimizer of the other replica
+	 */
+	void swapState(MultipleMcOptimizer other) {
+
+		MultipleAlignment m = msa;
+		msa = other.msa;
+		other.msa = m;
+
+		List<SortedSet<Integer>> f = freePool;
+		freePool = other.freePool;
+		other.freePool = f;
+
+		double s = mcScore;
+		mcScore = other.mcScore;
+		other.mcScore = s;
+	}
+
+	/**
+	 * Returns the MC score of the current state of the chain.
+	 *
+	 * @return the current MC score
+	 * @since 5.3.1
+	 */
+	public double getMcScore() {
+		return mcScore;
+	}
+
+	/**
+	 * Returns the constant that scales the score differences in the
+	 * acceptance probability of the chain.
+	 *
+	 * @return the scoring constant C
+	 * @since 5.3.1
+	 */
+	public double getScoreScale() {
+		return C;
+	}
+
+	/**
+	 * @return the temperature of the chain
+	 * @since 5.3.1
+	 */
+	public double getTemperature() {
+		return temperature;
+	}
+
+	/**
+	 * Sets the temperature of the chain. The score loss of a bad move is
+	 * divided by the temperature before computing its acceptance probability,
+	 * so chains at higher temperatures explore more. The default is 1, which
+	 * corresponds to the original CEMC acceptance function.
+	 *
+	 * @param temperature a value of at least 1
+	 * @since 5.3.1
+	 */
+	public void setTemperature(double temperature) {
+		if (temperature < 1.0)
+			throw new IllegalArgumentException(
+					"Temperature has to be at least 1: " + temperature);
+		this.temperature = temperature;
+	}
+
 	/**
 	 * Method that loops through all the alignment columns and checks that there
 	 * are no more gaps than the maximum allowed, Rmin.
@@ -815,13 +930,14 @@ public class MultipleMcOptimizer implements Callable<MultipleAlignment> {
 	 * step and the score change.
 	 * <p>
 	 * Function: p=(C-AS)/(m*C) , slightly different from the CEMC algorithm.
+	 * The score change AS is divided by the temperature of the chain.
 	 * <p>
 	 * Added a normalization factor so that the probability approaches 0 as the
 	 * final of the optimization gets closer.
 	 */
 	private double probabilityFunction(double AS, int m, int maxIter) {
 
-		double prob = (C + AS) / (m * C);
+		double prob = (C + AS / temperature) / (m * C);
 		double norm = (1 - (m * 1.0) / maxIter); // Normalization factor
 		return Math.min(Math.max(prob * norm, 0.0), 1.0);
 	}
@@ -43,6 +43,9 @@ public class MultipleMcParameters implements ConfigStrucAligParams {
 	private double distanceCutoff;
 	private int convergenceSteps;
 	private int nrThreads;
+	private int replicas;
+	private double maxTemperature;
+	private int exchangeSteps;
 
 	/**
 	 * Constructor with DEFAULT values of the parameters.
@@ -63,6 +66,9 @@ public class MultipleMcParameters implements ConfigStrucAligParams {
 		params.add("DistanceCutoff");
 		params.add("ConvergenceSteps");
 		params.add("NrThreads");
+		params.add("Replicas");
+		params.add("MaxTemperature");
+		params.add("ExchangeSteps");
 		return params;
 	}
 
@@ -78,6 +84,9 @@ public class MultipleMcParameters implements ConfigStrucAligParams {
 		params.add("Distance Cutoff");
 		params.add("Steps to Convergence");
 		params.add("Number of Threads");
+		params.add("Number of Replicas");
+		params.add("Maximum Temperature");
+		params.add("Steps between Exchanges");
 		return params;
 	}
 
@@ -94,6 +103,9 @@ public class MultipleMcParameters implements ConfigStrucAligParams {
 		params.add(Double.class);
 		params.add(Integer.class);
 		params.add(Integer.class);
+		params.add(Integer.class);
+		params.add(Double.class);
+		params.add(Integer.class);
 		return params;
 	}
 
@@ -121,8 +133,18 @@ public class MultipleMcParameters implements ConfigStrucAligParams {
 				+"If it is 0 the convergence steps are calculated proportional"
 				+ " to the number of structures and their length.";
 		String nrThreads =
-				"Number of threads to be used for the seed calculation (all-"
-				+ "to-all pairwise alignments) and the MC optimization.";
+				"Maximum number of tasks run concurrently for the seed "
+				+ "calculation (all-to-all pairwise alignments) and the MC "
+				+ "optimization.";
+		String replicas =
+				"Number of MC chains run in parallel tempering. If it is 1 a "
+				+ "single chain is optimized without replica exchange.";
+		String maxTemperature =
+				"Temperature of the hottest replica. Temperatures of the "
+				+ "replicas are spaced geometrically between 1 and this value.";
+		String exchangeSteps =
+				"Number of MC steps every replica performs between two "
+				+ "attempts to exchange the states of neighboring replicas.";
 
 		params.add(randomSeed);
 		params.add(minBlockLen);
@@ -132,6 +154,9 @@ public class MultipleMcParameters implements ConfigStrucAligParams {
 		params.add(dCutoff);
 		params.add(convergenceSteps);
 		params.add(nrThreads);
+		params.add(replicas);
+		params.add(maxTemperature);
+		params.add(exchangeSteps);
 		return params;
 	}
 
@@ -142,7 +167,9 @@ public class MultipleMcParameters implements ConfigStrucAligParams {
 				+ minAlignedStructures + ", gapOpen=" + gapOpen
 				+ ", gapExtension=" + gapExtension + ", distanceCutoff="
 				+ distanceCutoff + ", convergenceSteps=" + convergenceSteps
-				+ ", nrThreads=" + nrThreads + "]";
+				+ ", nrThreads=" + nrThreads + ", replicas=" + replicas
+				+ ", maxTemperature=" + maxTemperature + ", exchangeSteps="
+				+ exchangeSteps + "]";
 	}
 
 	@Override
@@ -156,6 +183,9 @@ public class MultipleMcParameters implements ConfigStrucAligParams {
 		distanceCutoff = 7.0;
 		convergenceSteps = 0;
 		nrThreads = Runtime.getRuntime().availableProcessors();
+		replicas = 1;
+		maxTemperature = 5.0;
+		exchangeSteps = 100;
 	}
 
 	public int getRandomSeed() {
@@ -214,6 +244,48 @@ public class MultipleMcParameters implements ConfigStrucAligParams {
 		this.nrThreads = nrThreads;
 	}
 
+	/**
+	 * @since 5.3.1
+	 */
+	public int getReplicas() {
+		return replicas;
+	}
+
+	/**
+	 * @since 5.3.1
+	 */
+	public void setReplicas(Integer replicas) {
+		this.replicas = replicas;
+	}
+
+	/**
+	 * @since 5.3.1
+	 */
+	public double getMaxTemperature() {
+		return maxTemperature;
+	}
+
+	/**
+	 * @since 5.3.1
+	 */
+	public void setMaxTemperature(Double maxTemperature) {
+		this.maxTemperature = maxTemperature;
+	}
+
+	/**
+	 * @since 5.3.1
+	 */
+	public int getExchangeSteps() {
+		return exchangeSteps;
+	}
+
+	/**
+	 * @since 5.3.1
+	 */
+	public void setExchangeSteps(Integer exchangeSteps) {
+		this.exchangeSteps = exchangeSteps;
+	}
+
 	public double getDistanceCutoff() {
 		return distanceCutoff;
 	}
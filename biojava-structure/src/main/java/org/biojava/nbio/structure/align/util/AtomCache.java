@@ -30,11 +30,14 @@ import org.biojava.nbio.structure.cath.CathFactory;
 import org.biojava.nbio.structure.domain.PDPProvider;
 import org.biojava.nbio.structure.domain.RemotePDPProvider;
 import org.biojava.nbio.structure.io.FileParsingParameters;
+import org.biojava.nbio.structure.io.LocalPDBDirectory;
 import org.biojava.nbio.structure.io.LocalPDBDirectory.FetchBehavior;
 import org.biojava.nbio.structure.io.LocalPDBDirectory.ObsoleteBehavior;
 import org.biojava.nbio.structure.io.MMCIFFileReader;
 import org.biojava.nbio.structure.io.MMTFFileReader;
 import org.biojava.nbio.structure.io.PDBFileReader;
+import org.biojava.nbio.structure.io.PrefetchListener;
+import org.biojava.nbio.structure.io.mmtf.MmtfActions;
 import org.biojava.nbio.structure.quaternary.BioAssemblyInfo;
 import org.biojava.nbio.structure.quaternary.BiologicalAssemblyBuilder;
 import org.biojava.nbio.structure.quaternary.BiologicalAssemblyTransformation;
@@ -42,10 +45,17 @@ import org.biojava.nbio.structure.scop.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -95,6 +105,7 @@ public class AtomCache {
 
 	private boolean useMmCif;
 	private boolean useMmtf;
+	private boolean useColumnarCache;
 
 	/**
 	 * Default AtomCache constructor.
@@ -761,6 +772,29 @@ public class AtomCache {
 		map.clear();
 	}
 
+	/**
+	 * <b>[Optional]</b> Keeps the parsed structures in the cache path in the columnar
+	 * layout of {@link org.biojava.nbio.structure.io.mmtf.ColumnarStructureData}, so that
+	 * structures that were loaded before are read from there instead of being parsed and
+	 * post-processed again. Only the data of the MMTF data model are kept.
+	 * Off by default.
+	 * @param useColumnarCache
+	 * @since 5.3.1
+	 */
+	public void setUseColumnarCache(boolean useColumnarCache) {
+		this.useColumnarCache = useColumnarCache;
+		map.clear();
+	}
+
+	/**
+	 * @return true if structures are cached in the columnar layout
+	 * @see #setUseColumnarCache(boolean)
+	 * @since 5.3.1
+	 */
+	public boolean isUseColumnarCache() {
+		return useColumnarCache;
+	}
+
 	/** Returns useMmtf flag
 	 *
 	 * @return true if will load data via mmtf file format
@@ -844,12 +878,9 @@ public class AtomCache {
 
 		return map.computeIfAbsent(pdbId, p->{
 			try {
-				if (useMmtf)
-					return loadStructureFromMmtfByPdbId(pdbId);
-				else if (useMmCif)
-					return loadStructureFromCifByPdbId(pdbId);
-				else
-					return loadStructureFromPdbByPdbId(pdbId);
+				if (useColumnarCache)
+					return loadStructureWithColumnarCache(pdbId);
+				return loadStructureByPdbId(pdbId);
 			} catch (Exception e) {
 				//TODO wrap exception e as a structure for storage in the cache
 
@@ -859,6 +890,156 @@ public class AtomCache {
 		});
 	}
 
+	/**
+	 * Loads a structure by PDB ID like {@link #getStructureForPdbId(String)}, but without
+	 * keeping it in the memory of this cache, for processing many structures once each.
+	 * A structure that is already in memory is returned from there. Can be called concurrently.
+	 * @param pdbId the PDB id
+	 * @return the structure
+	 * @throws IOException if the structure could not be read or downloaded
+	 * @throws StructureException if the PDB id is not valid
+	 * @see org.biojava.nbio.structure.io.BulkStructureLoader
+	 * @since 5.3.1
+	 */
+	public Structure loadStructureForPdbId(String pdbId) throws IOException, StructureException {
+
+		if(pdbId.length() != 4)
+			throw new StructureException("Unrecognized PDB ID: "+pdbId);
+
+		Structure s = map.get(pdbId);
+		if (s != null)
+			return s;
+
+		if (useColumnarCache)
+			return loadStructureWithColumnarCache(pdbId);
+		return loadStructureByPdbId(pdbId);
+	}
+
+	private Structure loadStructureByPdbId(String pdbId) throws IOException {
+		if (useMmtf)
+			return loadStructureFromMmtfByPdbId(pdbId);
+		else if (useMmCif)
+			return loadStructureFromCifByPdbId(pdbId);
+		else
+			return loadStructureFromPdbByPdbId(pdbId);
+	}
+
+	/**
+	 * Load a {@link Structure} from its columnar file in the cache path if present and
+	 * not older than the local structure file, otherwise load it from the configured file
+	 * format and write the columnar file. With {@link FetchBehavior#FORCE_DOWNLOAD} the
+	 * columnar file is never read, the structure is downloaded and the file written again.
+	 * @param pdbId the input PDB id
+	 * @return the {@link Structure} object
+	 * @throws IOException error reading the PDB file
+	 */
+	private Structure loadStructureWithColumnarCache(String pdbId) throws IOException {
+		File file = getColumnarCacheFile(pdbId);
+		if (fetchBehavior != FetchBehavior.FORCE_DOWNLOAD && file.exists() && isColumnarFileCurrent(pdbId, file)) {
+			try {
+				logger.debug("Loading structure {} from columnar file {}.", pdbId, file);
+				return MmtfActions.readFromColumnarFile(file.toPath());
+			} catch (IOException e) {
+				logger.warn("Could not read columnar file {}, parsing the structure again: {}", file, e.getMessage());
+			}
+		}
+
+		Structure s = loadStructureByPdbId(pdbId);
+		if (s == null)
+			return null;
+
+		// write to a temporary file first, concurrent readers must not see a partial file
+		Path tempFile = null;
+		try {
+			Files.createDirectories(file.getParentFile().toPath());
+			tempFile = Files.createTempFile(file.getParentFile().toPath(), file.getName(), ".part");
+			MmtfActions.writeToColumnarFile(s, tempFile);
+			try {
+				Files.move(tempFile, file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tempFile, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (IOException | RuntimeException e) {
+			logger.warn("Could not write columnar file {}: {}", file, e.getMessage());
+		} finally {
+			if (tempFile != null)
+				Files.deleteIfExists(tempFile);
+		}
+		return s;
+	}
+
+	/**
+	 * Checks that the local structure file was not downloaded again after the columnar file
+	 * was written. Only the local PDB directory is looked at, nothing is downloaded. If there
+	 * is no local file, the columnar file is used.
+	 */
+	private boolean isColumnarFileCurrent(String pdbId, File file) {
+		File source;
+		try {
+			source = getLocalPDBDirectory().getLocalFile(pdbId.toLowerCase());
+		} catch (IOException e) {
+			logger.debug("Could not look up the local file of structure {}, using columnar file {}: {}", pdbId, file, e.getMessage());
+			return true;
+		}
+		if (source != null && source.lastModified() > file.lastModified()) {
+			logger.debug("Columnar file {} is older than {}, parsing the structure again.", file, source);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the file of the columnar cache for a structure, see {@link #setUseColumnarCache(boolean)}.
+	 * The files are kept separately per file format, {@link ObsoleteBehavior} and
+	 * {@link FileParsingParameters}, since they all affect the parsed structure.
+	 * @param pdbId the PDB id
+	 * @return the file, which may not exist
+	 * @since 5.3.1
+	 */
+	public File getColumnarCacheFile(String pdbId) {
+		String format = useMmtf ? "mmtf" : useMmCif ? "cif" : "pdb";
+		int paramsHash = Objects.hash(obsoleteBehavior.name(), params.isParseSecStruc(), params.isAlignSeqRes(),
+				params.isParseCAOnly(), params.isHeaderOnly(), params.getAtomCaThreshold(), params.isParseBioAssembly(),
+				params.shouldCreateAtomBonds(), params.shouldCreateAtomCharges(), params.getChainIds(),
+				params.getEntityIds(), params.getAtomNames(), params.getFirstModel(), params.getLastModel());
+		String id = pdbId.toLowerCase();
+		File dir = new File(new File(new File(cachePath, "columnar"),
+				format + "-" + Integer.toHexString(paramsHash)), id.substring(1, 3));
+		return new File(dir, id + ".col");
+	}
+
+	/**
+	 * Downloads structures to the local PDB directory of this cache without parsing them,
+	 * e.g. to fill a local mirror for {@link org.biojava.nbio.structure.io.BulkStructureLoader}.
+	 * The file format, {@link FetchBehavior} and {@link ObsoleteBehavior} of this cache
+	 * are used.
+	 * @param pdbIds the PDB ids to prefetch
+	 * @param maxConnections the maximum number of concurrent downloads
+	 * @param listener receives the progress, may be null
+	 * @return the ids that could not be prefetched
+	 * @throws IOException if the thread is interrupted while waiting for the downloads
+	 * @see LocalPDBDirectory#prefetchStructures(Collection, int, PrefetchListener)
+	 * @since 5.3.1
+	 */
+	public List<String> prefetchStructures(Collection<String> pdbIds, int maxConnections, PrefetchListener listener)
+			throws IOException {
+		return getLocalPDBDirectory().prefetchStructures(pdbIds, maxConnections, listener);
+	}
+
+	// the local directory of the configured file format
+	private LocalPDBDirectory getLocalPDBDirectory() {
+		LocalPDBDirectory reader;
+		if (useMmtf)
+			reader = new MMTFFileReader(path);
+		else if (useMmCif)
+			reader = new MMCIFFileReader(path);
+		else
+			reader = new PDBFileReader(path);
+		reader.setFetchBehavior(fetchBehavior);
+		reader.setObsoleteBehavior(obsoleteBehavior);
+		return reader;
+	}
+
 	/**
 	 * Load a {@link Structure} from MMTF either from the local file system.
 	 * @param pdbId the input PDB id
@@ -867,7 +1048,7 @@ public class AtomCache {
 	 */
 	private Structure loadStructureFromMmtfByPdbId(String pdbId) throws IOException {
 		logger.debug("Loading structure {} from mmtf file.", pdbId);
-		MMTFFileReader reader = new MMTFFileReader();
+		MMTFFileReader reader = new MMTFFileReader(path);
 		reader.setFetchBehavior(fetchBehavior);
 		reader.setObsoleteBehavior(obsoleteBehavior);
 		return reader.getStructureById(pdbId.toLowerCase());
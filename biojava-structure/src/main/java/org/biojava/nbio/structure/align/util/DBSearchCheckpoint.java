@@ -0,0 +1,145 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.align.util;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A thread safe, append-only record of the targets a database search
+ * has already finished. One target name is written per line and the
+ * file is flushed after every entry, so that an interrupted search can
+ * be resumed by skipping everything listed in the file.
+ *
+ * @since 5.3.1
+ */
+public class DBSearchCheckpoint {
+
+	private final File file;
+	private final Set<String> completed;
+	private BufferedWriter writer;
+
+	/**
+	 * Opens a checkpoint file, reading the targets completed by previous runs.
+	 *
+	 * @param file the checkpoint file, created if it does not exist
+	 * @throws IOException
+	 */
+	public DBSearchCheckpoint(File file) throws IOException {
+		this.file = file;
+		completed = new HashSet<>();
+
+		if (file.exists()) {
+			try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					line = line.trim();
+					if (!line.isEmpty())
+						completed.add(line);
+				}
+			}
+		}
+		writer = new BufferedWriter(new OutputStreamWriter(
+				new FileOutputStream(file, true), StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * @param name a target name
+	 * @return true if the target has been recorded as completed
+	 */
+	public synchronized boolean isCompleted(String name) {
+		return completed.contains(name);
+	}
+
+	/**
+	 * Records a target as completed and flushes the record to disk.
+	 * Targets that were already recorded are ignored.
+	 *
+	 * @param name a target name
+	 * @throws IOException
+	 */
+	public synchronized void markCompleted(String name) throws IOException {
+		if (writer == null)
+			throw new IOException("Checkpoint " + file + " has already been closed");
+		if (!completed.add(name))
+			return;
+		writer.write(name);
+		writer.newLine();
+		writer.flush();
+	}
+
+	/**
+	 * @return the number of completed targets, including those of previous runs
+	 */
+	public synchronized int size() {
+		return completed.size();
+	}
+
+	/**
+	 * @return an unmodifiable snapshot of the completed target names
+	 */
+	public synchronized Set<String> getCompleted() {
+		return Collections.unmodifiableSet(new HashSet<>(completed));
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Forgets all completed targets and truncates the file.
+	 *
+	 * @throws IOException
+	 */
+	public synchronized void clear() throws IOException {
+		close();
+		completed.clear();
+		writer = new BufferedWriter(new OutputStreamWriter(
+				new FileOutputStream(file, false), StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Closes the checkpoint and removes its file, e.g. once a search has
+	 * completed and there is nothing left to resume.
+	 *
+	 * @throws IOException
+	 */
+	public synchronized void delete() throws IOException {
+		close();
+		Files.deleteIfExists(file.toPath());
+	}
+
+	public synchronized void close() throws IOException {
+		if (writer != null) {
+			writer.close();
+			writer = null;
+		}
+	}
+}
@@ -23,6 +23,7 @@ package org.biojava.nbio.structure.cluster;
 import org.biojava.nbio.core.exceptions.CompoundNotFoundException;
 import org.biojava.nbio.structure.Structure;
 import org.biojava.nbio.structure.StructureException;
+import org.biojava.nbio.structure.quaternary.BiologicalAssembly;
 import org.biojava.nbio.structure.symmetry.core.Stoichiometry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -56,6 +57,27 @@ public class SubunitClusterer {
 		return cluster(subunits, params);
 	}
 
+	/**
+	 * Clusters the protein chain copies of a biological assembly, without
+	 * cloning all of its atoms.
+	 *
+	 * @param assembly
+	 *            the biological assembly
+	 * @param params
+	 *            subunit clustering parameters
+	 * @return the clustering results
+	 * @since 5.3.1
+	 * @see SubunitExtractor#extractSubunits(BiologicalAssembly, int, double, int)
+	 */
+	public static Stoichiometry cluster(BiologicalAssembly assembly,
+			SubunitClustererParameters params) {
+		List<Subunit> subunits = SubunitExtractor.extractSubunits(assembly,
+				params.getAbsoluteMinimumSequenceLength(),
+				params.getMinimumSequenceLengthFraction(),
+				params.getMinimumSequenceLength());
+		return cluster(subunits, params);
+	}
+
 	public static Stoichiometry cluster(List<Subunit> subunits, SubunitClustererParameters params) {
 		List<SubunitCluster> clusters = new ArrayList<>();
 		if (subunits.size() == 0)
@@ -22,8 +22,10 @@ package org.biojava.nbio.structure.cluster;
 
 import org.biojava.nbio.structure.Atom;
 import org.biojava.nbio.structure.Chain;
+import org.biojava.nbio.structure.EntityType;
 import org.biojava.nbio.structure.Structure;
 import org.biojava.nbio.structure.StructureTools;
+import org.biojava.nbio.structure.quaternary.BiologicalAssembly;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -82,6 +84,54 @@ public class SubunitExtractor {
 			}
 		}
 
+		removeShortSubunits(subunits, absMinLen, fraction, minLen);
+
+		return subunits;
+	}
+
+	/**
+	 * Extract the information of each protein Chain copy in a
+	 * {@link BiologicalAssembly} and converts them into a List of Subunit,
+	 * without materializing the assembly as a Structure. Only the
+	 * representative Atoms of each copy are transformed and copied, see
+	 * {@link BiologicalAssembly#getRepresentativeAtoms(int)}. The name of the
+	 * Subunits is set to {@link BiologicalAssembly#getCopyId(int)}.
+	 *
+	 * @param assembly
+	 *            the biological assembly
+	 * @param absMinLen
+	 *            {@link SubunitClustererParameters#getAbsoluteMinimumSequenceLength()}
+	 * @param fraction
+	 *            {@link SubunitClustererParameters#getMinimumSequenceLengthFraction()}
+	 * @param minLen
+	 *            {@link SubunitClustererParameters#getMinimumSequenceLength()}
+	 * @return List of Subunits
+	 * @since 5.3.1
+	 */
+	public static List<Subunit> extractSubunits(BiologicalAssembly assembly,
+			int absMinLen, double fraction, int minLen) {
+
+		List<Subunit> subunits = new ArrayList<>();
+
+		for (int i = 0; i < assembly.size(); i++) {
+			Chain c = assembly.getChain(i);
+			// Only take protein polymer chains
+			if (c.getEntityType() != EntityType.POLYMER || !c.isProtein())
+				continue;
+			Atom[] ca = assembly.getRepresentativeAtoms(i);
+			if (ca.length == 0)
+				continue;
+			subunits.add(new Subunit(ca, assembly.getCopyId(i), null, null));
+		}
+
+		removeShortSubunits(subunits, absMinLen, fraction, minLen);
+
+		return subunits;
+	}
+
+	private static void removeShortSubunits(List<Subunit> subunits,
+			int absMinLen, double fraction, int minLen) {
+
 		// Calculate the minimum length of a Subunit
 		int adjustedMinLen = calcAdjustedMinimumSequenceLength(subunits,
 				absMinLen, fraction, minLen);
@@ -92,8 +142,6 @@ public class SubunitExtractor {
 			if (subunits.get(s).size() < adjustedMinLen)
 				subunits.remove(s);
 		}
-
-		return subunits;
 	}
 
 	/**
@@ -28,8 +28,14 @@ import org.biojava.nbio.structure.Chain;
 import org.biojava.nbio.structure.Structure;
 import org.biojava.nbio.structure.StructureTools;
 import org.biojava.nbio.structure.domain.pdp.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 
 /** Protein Domain Parser is a an algorithm that attempts at assigning domains for 3D protein structures.
@@ -51,6 +57,7 @@ Veretnik S, Bourne PE, Alexandrov NN, Shindyalov IN.
  */
 public class LocalProteinDomainParser {
 
+	private static final Logger logger = LoggerFactory.getLogger(LocalProteinDomainParser.class);
 
 	/** make sure this class can only get accessed via the static method calls
 	 *
@@ -111,6 +118,35 @@ public class LocalProteinDomainParser {
 
 	}
 
-
-
+	/** Suggest domains for several chains at once. Each chain is processed
+	 * as an independent task of the executor, which is not shut down.
+	 *
+	 * @param caArrays the representative atoms of each chain
+	 * @param executor the executor running the chains
+	 * @return the domains of each chain, in the input order. The entry of a
+	 *         chain that could not be processed is null.
+	 * @since 5.3.1
+	 */
+	public static List<List<Domain>> suggestDomains(List<Atom[]> caArrays, ExecutorService executor) {
+
+		List<Future<List<Domain>>> futures = new ArrayList<>(caArrays.size());
+		for (final Atom[] ca : caArrays) {
+			futures.add(executor.submit(() -> suggestDomains(ca)));
+		}
+
+		List<List<Domain>> results = new ArrayList<>(caArrays.size());
+		for (int i = 0; i < futures.size(); i++) {
+			try {
+				results.add(futures.get(i).get());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				logger.warn("Interrupted while suggesting domains for chain {}", i);
+				results.add(null);
+			} catch (ExecutionException e) {
+				logger.warn("Could not suggest domains for chain {}: {}", i, e.getCause().getMessage());
+				results.add(null);
+			}
+		}
+		return results;
+	}
 }
@@ -30,10 +30,10 @@ public class ClusterDomains {
 
 	static private final boolean verbose = CutDomain.verbose;
 
-	private static int ndom;
 	public static List<Domain> cluster(List<Domain> domains, PDPDistanceMatrix pdpDistMatrix){
 
-		ndom = domains.size();
+		// kept local so that several chains can be clustered concurrently
+		int ndom = domains.size();
 
 
 		int Si = -1;
@@ -136,7 +136,8 @@ public class ClusterDomains {
 				if(verbose) System.out.println(" Criteria 1 matched");
 				if(verbose) System.out.println(String.format(" maximum_value = %f", maximum_value));
 				if(verbose) System.out.println(String.format(" Si = %d Sj = %d ", Si, Sj));
-				domains = combine(domains,Si, Sj, maximum_value);
+				domains = combine(domains,ndom,Si, Sj, maximum_value);
+				ndom--;
 				maximum_value = PDPParameters.CUT_OFF_VALUE1-.1;
 				maximum_values = PDPParameters.CUT_OFF_VALUE1S-.1;
 				maximum_valuem = PDPParameters.CUT_OFF_VALUE1M-.1;
@@ -154,7 +155,8 @@ public class ClusterDomains {
 				if(verbose) System.out.println(" Criteria 2 matched");
 				if(verbose) System.out.println(String.format(" maximum_values = %f", maximum_valuem));
 				if(verbose) System.out.println(String.format(" Sim = %d Sjm = %d", Sim, Sjm));
-				domains = combine(domains, Sim, Sjm, maximum_valuem);
+				domains = combine(domains,ndom, Sim, Sjm, maximum_valuem);
+				ndom--;
 				maximum_value =  PDPParameters.CUT_OFF_VALUE1-.1;
 				maximum_values = PDPParameters.CUT_OFF_VALUE1S-.1;
 				maximum_valuem = PDPParameters.CUT_OFF_VALUE1M-.1;
@@ -172,7 +174,8 @@ public class ClusterDomains {
 				if(verbose) System.out.println(" Criteria 3 matched");
 				if(verbose) System.out.println(String.format(" maximum_values = %f", maximum_values));
 				if(verbose) System.out.println(String.format(" Sis = %d Sjs = %d", Sis, Sjs));
-				domains = combine(domains, Sis, Sjs, maximum_values);
+				domains = combine(domains,ndom, Sis, Sjs, maximum_values);
+				ndom--;
 				maximum_value = PDPParameters.CUT_OFF_VALUE1-.1;
 				maximum_values = PDPParameters.CUT_OFF_VALUE1S-.1;
 				maximum_valuem = PDPParameters.CUT_OFF_VALUE1M-.1;
@@ -221,7 +224,7 @@ public class ClusterDomains {
 
 
 
-	private static List<Domain> combine(List<Domain> domains,int Si, int Sj, double maximum_value) {
+	private static List<Domain> combine(List<Domain> domains,int ndom,int Si, int Sj, double maximum_value) {
 
 		if ( verbose)
 			System.out.println("  +++  combining domains " + Si + " " + Sj);
@@ -249,7 +252,6 @@ public class ClusterDomains {
 		domains.get(Sj).size=domains.get(ndom-1).size;
 		domains.get(Sj).nseg=domains.get(ndom-1).nseg;
 
-		ndom--;
 		return newdoms;
 
 	}
@@ -257,15 +259,7 @@ public class ClusterDomains {
 	private static long calc_S (int a1,int b1,int a2,int b2, PDPDistanceMatrix pdpDistMatrix)
 	{
 
-		long contacts = 0;
-
-		int[][] dist = pdpDistMatrix.getDist();
-
-		for(int i=a1;i<=b1;i++)
-			for(int j=a2;j<=b2;j++)
-				contacts+=dist[i][j];
-
-		return contacts;
+		return pdpDistMatrix.sum(a1,b1+1,a2,b2+1);
 	}
 
 	private static void listdomains(List<Domain> domains){
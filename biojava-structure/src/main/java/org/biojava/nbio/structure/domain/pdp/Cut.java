@@ -24,20 +24,38 @@ import org.biojava.nbio.structure.Atom;
 
 import java.util.List;
 
+/**
+ * Finds the best single or double cut of a domain, using the contact sums of
+ * the sparse {@link PDPDistanceMatrix}. The contacts of the single cuts are
+ * updated incrementally while moving the cut site along a segment.
+ */
 public class Cut {
 
 	static final boolean verbose = CutDomain.verbose;
 
+	/**
+	 * @deprecated the dense matrix is not used any more, use
+	 *             {@link #cut(Atom[], Domain, CutValues, PDPDistanceMatrix)}
+	 */
+	@Deprecated
 	public static int cut(Atom[] ca, Domain dom, CutValues val, int[][] dist, PDPDistanceMatrix pdpMatrix) {
+		return cut(ca, dom, val, pdpMatrix);
+	}
+
+	/**
+	 * @since 5.3.1
+	 */
+	public static int cut(Atom[] ca, Domain dom, CutValues val, PDPDistanceMatrix pdpMatrix) {
 
 		int nclose = pdpMatrix.getNclose();
 
 		int[] iclose = pdpMatrix.getIclose();
 		int[] jclose = pdpMatrix.getJclose();
 
-		int[] contacts = new int[PDPParameters.MAXLEN];
-		double[] max_contacts = new double [PDPParameters.MAXLEN];
-		double[] contact_density = new double[PDPParameters.MAXLEN];
+		int arraySize = Math.max(ca.length, PDPParameters.MAXSIZE);
+		int[] contacts = new int[arraySize];
+		double[] max_contacts = new double [arraySize];
+		double[] contact_density = new double[arraySize];
 		double average_density,x,y;
 
 		int endsf,endst;
@@ -80,49 +98,41 @@ public class Cut {
 					for(kseg=iseg+1;kseg<dom.nseg;kseg++) {
 						from2 = dom.getSegmentAtPos(kseg).getFrom();
 						to2 = dom.getSegmentAtPos(kseg).getFrom();
-						for(int j=from2;j<to2;j++)
-							if(Math.abs(i-j)>4) contactsd+=(dist[i][j]);
+						contactsd+=pdpMatrix.rowSum(i,from2,to2,4);
 					}
 				}
 			}
 			from = dom.getSegmentAtPos(iseg).getFrom();
 			to = dom.getSegmentAtPos(iseg).getTo();
+
+			// Contacts of [from,k] with the next segments, of [from,k] with
+			// ]k,to] and of ]k,to] with the previous segments. They are
+			// updated with the row of k at every step.
+			int nextContacts = 0;
+			int splitContacts = 0;
+			int prevContacts = 0;
+			for(int i=from;i<=to;i++) {
+				for(kseg=0;kseg<iseg;kseg++) {
+					from2 = dom.getSegmentAtPos(kseg).getFrom();
+					to2 = dom.getSegmentAtPos(kseg).getTo();
+					prevContacts+=pdpMatrix.rowSum(i,from2,to2,4);
+				}
+			}
 			for(k=from;k<to;k++) {
-				contacts[k] = contactsd;
-				/*
-	if(k==392) printf("init contacts = %d\n",contacts[k]);
-				 */
 				size11=size1t+(k-from+1);
 				size22=size2t+(to-k);
-				for(int i=from;i<=k;i++) {
-					for(kseg=iseg+1;kseg<dom.nseg;kseg++) {
-						from2 = dom.getSegmentAtPos(kseg).getFrom();
-						to2 = dom.getSegmentAtPos(kseg).getTo();
-						for(int j=from2;j<=to2;j++)
-							if(Math.abs(i-j)>4) contacts[k]+=(dist[i][j]);
-					}
+				for(kseg=iseg+1;kseg<dom.nseg;kseg++) {
+					from2 = dom.getSegmentAtPos(kseg).getFrom();
+					to2 = dom.getSegmentAtPos(kseg).getTo();
+					nextContacts+=pdpMatrix.rowSum(k,from2,to2+1,4);
 				}
-				/*
-	if(k==392) printf("[from,k]x]iseg,nseg[ = %d\n",contacts[k]);
-				 */
-				for(int i=from;i<=k;i++) {
-					for (int j=k+1;j<=to;j++)
-						if(Math.abs(i-j)>4) contacts[k]+=(dist[i][j]);
+				splitContacts+=pdpMatrix.rowSum(k,k+1,to+1,4)-pdpMatrix.rowSum(k,from,k,4);
+				for(kseg=0;kseg<iseg;kseg++) {
+					from2 = dom.getSegmentAtPos(kseg).getFrom();
+					to2 = dom.getSegmentAtPos(kseg).getTo();
+					prevContacts-=pdpMatrix.rowSum(k,from2,to2,4);
 				}
-				/*
-	if(k==392) printf("[from,k]x]k,to[ = %d\n",contacts[k]);
-				 */
-				for(int i=k+1;i<=to;i++) {
-					for(kseg=0;kseg<iseg;kseg++) {
-						from2 = dom.getSegmentAtPos(kseg).getFrom();
-						to2 = dom.getSegmentAtPos(kseg).getTo();
-						for(int j=from2;j<to2;j++)
-							if(Math.abs(i-j)>4) contacts[k]+=(dist[j][i]);
-					}
-				}
-				/*
-	if(k==392) printf("]k,to]x]0,iseg[ = %d\n",contacts[k]);
-				 */
+				contacts[k] = contactsd + nextContacts + splitContacts + prevContacts;
 				size1=Math.min(size11,size22);
 				size2=Math.max(size11,size22);
 				x=Math.min(PDPParameters.MAXSIZE,size1);
@@ -231,103 +241,47 @@ public class Cut {
 			/******* contacts between [0,iseg[ and ]iseg,jseg[ ********/
 			for(kseg=0;kseg<iseg;kseg++)
 				for(lseg=iseg+1;lseg<jseg;lseg++)
-					for( int i=dom.getSegmentAtPos(kseg).getFrom();i<dom.getSegmentAtPos(kseg).getTo();i++)
-						for(int j=dom.getSegmentAtPos(lseg).getFrom();j<dom.getSegmentAtPos(lseg).getTo();j++) {
-							contacts[nc]+=(dist[i][j]);
-						}
-
-			//System.out.println(String.format("[0,iseg[ - ]iseg,jseg[ : %d\n",contacts[nc]-no));
+					contacts[nc]+=pdpMatrix.sum(dom.getSegmentAtPos(kseg).getFrom(),dom.getSegmentAtPos(kseg).getTo(),
+							dom.getSegmentAtPos(lseg).getFrom(),dom.getSegmentAtPos(lseg).getTo());
 
-			//no=contacts[nc];
-			/**********************************************************/
-			/**********************************************************/
 			/******* contacts between ]jseg,nseg[ and ]iseg,jseg[ ********/
 			for(kseg=jseg+1;kseg<dom.nseg;kseg++)
 				for(lseg=iseg+1;lseg<jseg;lseg++)
-					for(int i=dom.getSegmentAtPos(kseg).getFrom();i<dom.getSegmentAtPos(kseg).getTo();i++)
-						for(int j=dom.getSegmentAtPos(lseg).getFrom();j<dom.getSegmentAtPos(lseg).getTo();j++) {
-							contacts[nc]+=(dist[j][i]);
-						}
-			/*
-		printf("]jseg,nseg] - ]iseg,jseg[ : %d\n",contacts[nc]-no);
-			 */
-			//no=contacts[nc];
-			/*************************************************************/
-			/*************************************************************/
+					contacts[nc]+=pdpMatrix.sum(dom.getSegmentAtPos(kseg).getFrom(),dom.getSegmentAtPos(kseg).getTo(),
+							dom.getSegmentAtPos(lseg).getFrom(),dom.getSegmentAtPos(lseg).getTo());
+
 			/**** contacts between [from,iclose] in iseg and ]iseg,jseg[ ****/
+			int ic = iclose[l];
+			int jc = jclose[l];
 			if(iseg==jseg) {
-				//System.out.println(" CONTACT:  " + from + " " + iclose[l] + " " + iseg + " " + jseg);
-				for(int i=from;i<=iclose[l];i++) {
-					for (int j=iclose[l]+1;j<=jclose[l];j++) {
-						contacts[nc]+=(dist[i][j]);
-					}
-				}
-				for (int j=iclose[l]+1;j<jclose[l];j++) {
-					for(kseg=0;kseg<iseg;kseg++)
-						for(int i=dom.getSegmentAtPos(kseg).getFrom();i<dom.getSegmentAtPos(kseg).getTo();i++) {
-							contacts[nc]+=(dist[i][j]);
-						}
-					for(int i=jclose[l];i<to;i++) {
-						contacts[nc]+=(dist[j][i]);
-					}
-					for(kseg=iseg+1;kseg<dom.nseg;kseg++)
-						for(int i=dom.getSegmentAtPos(kseg).getFrom();i<dom.getSegmentAtPos(kseg).getTo();i++) {
-							contacts[nc]+=(dist[j][i]);
-						}
-				}
-				/*
-		printf("iclose==jclose : %d\n",contacts[nc]-no);
-				 */
-				//no=contacts[nc];
+				contacts[nc]+=pdpMatrix.sum(from,ic+1,ic+1,jc+1);
+				for(kseg=0;kseg<iseg;kseg++)
+					contacts[nc]+=pdpMatrix.sum(dom.getSegmentAtPos(kseg).getFrom(),dom.getSegmentAtPos(kseg).getTo(),ic+1,jc);
+				contacts[nc]+=pdpMatrix.sum(ic+1,jc,jc,to);
+				for(kseg=iseg+1;kseg<dom.nseg;kseg++)
+					contacts[nc]+=pdpMatrix.sum(ic+1,jc,dom.getSegmentAtPos(kseg).getFrom(),dom.getSegmentAtPos(kseg).getTo());
 			}
 			else {
-				//System.out.println(" ISEG!=JSEG " + " " + from + " " + iclose[l]);
-				for(int i=from;i<=iclose[l];i++) {
-					for(kseg=iseg+1;kseg<jseg;kseg++)
-						for(int j=dom.getSegmentAtPos(kseg).getFrom();j<dom.getSegmentAtPos(kseg).getTo();j++) {
-							contacts[nc]+=(dist[i][j]);
-						}
-					for(int j=from1;j<jclose[l];j++) {
-						contacts[nc]+=(dist[i][j]);
-					}
-					for(int j=iclose[l]+1;j<to;j++) {
-						contacts[nc]+=(dist[i][j]);
-					}
-				}
-				for(int i=iclose[l]+1;i<to;i++) {
-					for(kseg=0;kseg<iseg;kseg++)
-						for(int j=dom.getSegmentAtPos(kseg).getFrom();j<dom.getSegmentAtPos(kseg).getTo();j++) {
-							contacts[nc]+=(dist[j][i]);
-						}
-					for(kseg=jseg+1;kseg<dom.nseg;kseg++)
-						for(int j=dom.getSegmentAtPos(kseg).getFrom();j<dom.getSegmentAtPos(kseg).getTo();j++) {
-							contacts[nc]+=(dist[i][j]);
-						}
-					for(int j=jclose[l];j<=to1;j++) {
-						contacts[nc]+=(dist[i][j]);
-					}
-				}
-				for (int i=from1;i<jclose[l];i++) {
-					for(kseg=0;kseg<iseg;kseg++)
-						for(int j=dom.getSegmentAtPos(kseg).getFrom();j<dom.getSegmentAtPos(kseg).getTo();j++) {
-							contacts[nc]+=(dist[j][i]);
-						}
-					for(kseg=jseg+1;kseg<dom.nseg;kseg++)  {
-						for(int j=dom.getSegmentAtPos(kseg).getFrom();j<dom.getSegmentAtPos(kseg).getTo();j++)
-							contacts[nc]+=(dist[i][j]);
-					}
-					for(int j=jclose[l];j<to1;j++) {
-						contacts[nc]+=(dist[i][j]);
-					}
-				}
-				for(int i=jclose[l];i<to1;i++)
-					for(kseg=iseg+1;kseg<jseg;kseg++)
-						for(int j=dom.getSegmentAtPos(kseg).getFrom();j<dom.getSegmentAtPos(kseg).getTo();j++) {
-							/*
-						if(iclose[l]==33&&jclose[l]==69&&dist[i][j]) printf("%d %s %d %s %d\n",i,protein.res[i].type,j,protein.res[j].type,dist[i][j]);
-							 */
-							contacts[nc]+=(dist[j][i]);
-						}
+				// [from,iclose] in iseg
+				for(kseg=iseg+1;kseg<jseg;kseg++)
+					contacts[nc]+=pdpMatrix.sum(from,ic+1,dom.getSegmentAtPos(kseg).getFrom(),dom.getSegmentAtPos(kseg).getTo());
+				contacts[nc]+=pdpMatrix.sum(from,ic+1,from1,jc);
+				contacts[nc]+=pdpMatrix.sum(from,ic+1,ic+1,to);
+				// ]iclose,to[ in iseg
+				for(kseg=0;kseg<iseg;kseg++)
+					contacts[nc]+=pdpMatrix.sum(ic+1,to,dom.getSegmentAtPos(kseg).getFrom(),dom.getSegmentAtPos(kseg).getTo());
+				for(kseg=jseg+1;kseg<dom.nseg;kseg++)
+					contacts[nc]+=pdpMatrix.sum(ic+1,to,dom.getSegmentAtPos(kseg).getFrom(),dom.getSegmentAtPos(kseg).getTo());
+				contacts[nc]+=pdpMatrix.sum(ic+1,to,jc,to1+1);
+				// [from1,jclose[ in jseg
+				for(kseg=0;kseg<iseg;kseg++)
+					contacts[nc]+=pdpMatrix.sum(from1,jc,dom.getSegmentAtPos(kseg).getFrom(),dom.getSegmentAtPos(kseg).getTo());
+				for(kseg=jseg+1;kseg<dom.nseg;kseg++)
+					contacts[nc]+=pdpMatrix.sum(from1,jc,dom.getSegmentAtPos(kseg).getFrom(),dom.getSegmentAtPos(kseg).getTo());
+				contacts[nc]+=pdpMatrix.sum(from1,jc,jc,to1);
+				// [jclose,to1[ in jseg
+				for(kseg=iseg+1;kseg<jseg;kseg++)
+					contacts[nc]+=pdpMatrix.sum(jc,to1,dom.getSegmentAtPos(kseg).getFrom(),dom.getSegmentAtPos(kseg).getTo());
 			}
 			/*******************************************************************/
 			/*******************************************************************/
@@ -23,6 +23,7 @@ package org.biojava.nbio.structure.domain.pdp;
 import org.biojava.nbio.structure.Atom;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 
@@ -34,11 +35,9 @@ public class CutDomain {
 
 	public static final boolean verbose = true;
 
-	final int[][] dist;
 	final Atom[] ca;
 
 	public CutDomain(Atom[]ca, PDPDistanceMatrix pdpMatrix){
-		dist = pdpMatrix.getDist();
 		this.ca = ca;
 
 		ndom = 0;
@@ -69,7 +68,7 @@ public class CutDomain {
 
 //		Cut cut = new Cut();
 
-		site = Cut.cut(ca,dom,val, dist, pdpMatrix);
+		site = Cut.cut(ca,dom,val, pdpMatrix);
 		if ( verbose )
 		System.out.println("  S ... site " + dom + " : site: " + site + " val : " + val);
 
@@ -87,6 +86,8 @@ public class CutDomain {
 		if(verbose)
 			System.out.println(String.format("   C ... Cutting at position(s): %d %d %f\n",site,val.site2,dom.score));
 
+		if (cut_sites.ncuts == cut_sites.cut_sites.length)
+			cut_sites.cut_sites = Arrays.copyOf(cut_sites.cut_sites, 2 * cut_sites.cut_sites.length);
 		cut_sites.cut_sites[cut_sites.ncuts++] = site;
 
 		/* create new domains: dom1 and dom2*/
@@ -24,8 +24,18 @@ import org.biojava.nbio.structure.AminoAcid;
 import org.biojava.nbio.structure.Atom;
 import org.biojava.nbio.structure.Calc;
 import org.biojava.nbio.structure.Group;
+import org.biojava.nbio.structure.contact.Contact;
+import org.biojava.nbio.structure.contact.Grid;
 
+import java.util.Arrays;
 
+
+/**
+ * Calculates the residue contact matrix used by PDP. Residue pairs closer
+ * than 9 A are found with a spatial grid, so that both the time and the
+ * memory grow linearly with the chain length, and only those contacts are
+ * stored (see {@link PDPDistanceMatrix}).
+ */
 public class GetDistanceMatrix {
 
     private static final double dt1 = 81;
@@ -40,112 +50,152 @@ public class GetDistanceMatrix {
      */
     public static PDPDistanceMatrix getDistanceMatrix(final Atom[] protein) {
         int n = protein.length;
-        int[][] dist = new int[n + 3][n + 3];
-        int i, j;
-        int nclose = 0;
-        int[] iclose = new int[n * n];
-        int[] jclose = new int[n * n];
 
-        if (n >= PDPParameters.MAXLEN) {
-            System.err.println(String.format("%d protein.len > MAXLEN %d\n", n, PDPParameters.MAXLEN));
-            return null;
+        // C-beta of each residue, or the C-alpha if it cannot be built
+        Atom[] reps = new Atom[n];
+        for (int i = 0; i < n; i++) {
+            Atom cb = getCBeta(protein[i].getGroup());
+            reps[i] = cb != null ? cb : protein[i];
         }
-        for (i = 0; i < n; i++) {
-            for (j = i; j < n; j++) {
-                dist[i][j] = 0;
-                dist[j][i] = 0;
-
-
-                Atom ca1 = protein[i];
-                Atom ca2 = protein[j];
-                Group g1 = ca1.getGroup();
-                Group g2 = ca2.getGroup();
-
-                Atom cb1 = getCBeta(g1);
-                Atom cb2 = getCBeta(g2);
-                boolean hasCbeta1 = cb1 != null;
-                boolean hasCbeta2 = cb2 != null;
-
-				double d = 0;
-
-                double distance;
-                if (hasCbeta1 && hasCbeta2) {
-                    distance = Calc.getDistance(cb1, cb2);
-                } else if (hasCbeta1 && !hasCbeta2) {
-					distance = Calc.getDistance(cb1, ca2);
-                } else if (!hasCbeta1 && hasCbeta2) {
-                    distance = Calc.getDistance(ca1, cb2);
-                } else /*if (!hasCbeta1 && !hasCbeta2)*/ {
-                    distance = Calc.getDistance(ca1, ca2);
-                }
-				d += distance * distance;
-
-                if (d < dt1) {
-                    dist[i][j] = dist[j][i] = 1;
-                    if (d < dt2) {
-                        dist[i][j] = dist[j][i] = 2;
-                        if (j - i > 35) {
-                            iclose[nclose] = i;
-                            jclose[nclose] = j;
-                            nclose++;
-                        }
-                        if (d < dt3) {
-                            dist[i][j] = dist[j][i] = 4;
-                            if (d < dt4) {
-                                dist[i][j] = dist[j][i] = 6;
-                            }
-                        }
+
+        // Each row stores (column << 32 | value), the diagonal is always 6
+        long[][] rows = new long[n][];
+        int[] rowSize = new int[n];
+        for (int i = 0; i < n; i++) {
+            rows[i] = new long[8];
+            rows[i][rowSize[i]++] = ((long) i << 32) | 6;
+        }
+
+        long[] close = new long[16];
+        int nclose = 0;
+
+        if (n > 1) {
+            Grid grid = new Grid(Math.sqrt(dt1));
+            grid.addAtoms(reps);
+            for (Contact c : grid.getIndicesContacts()) {
+                int i = Math.min(c.getI(), c.getJ());
+                int j = Math.max(c.getI(), c.getJ());
+                if (i == j || find(rows[i], rowSize[i], j) >= 0)
+                    continue;
+
+                double distance = Calc.getDistance(reps[i], reps[j]);
+                double d = distance * distance;
+                if (d >= dt1)
+                    continue;
+
+                int value = 1;
+                if (d < dt2) {
+                    value = 2;
+                    if (j - i > 35) {
+                        if (nclose == close.length)
+                            close = Arrays.copyOf(close, 2 * nclose);
+                        close[nclose++] = ((long) i << 32) | j;
+                    }
+                    if (d < dt3) {
+                        value = 4;
+                        if (d < dt4)
+                            value = 6;
                     }
                 }
+                rows[i] = add(rows[i], rowSize[i]++, j, value);
+                rows[j] = add(rows[j], rowSize[j]++, i, value);
+            }
+        }
+
+        int[] rowStart = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            Arrays.sort(rows[i], 0, rowSize[i]);
+            rowStart[i + 1] = rowStart[i] + rowSize[i];
+        }
+        int[] cols = new int[rowStart[n]];
+        int[] values = new int[rowStart[n]];
+        for (int i = 0; i < n; i++) {
+            for (int k = 0; k < rowSize[i]; k++) {
+                cols[rowStart[i] + k] = (int) (rows[i][k] >>> 32);
+                values[rowStart[i] + k] = (int) rows[i][k];
             }
         }
+        PDPDistanceMatrix contacts = new PDPDistanceMatrix(n, rowStart, cols, values);
+
         /* secondary structure interaction */
-        for (i = 1; i < n; i++) {
-            for (j = i; j < n - 1; j++) {
-                /* beta-sheet */
-                if (dist[i][j] >= 2 && j - i > 5) {
-                    if (dist[i - 1][j - 1] >= 2 && dist[i + 1][j + 1] >= 2 || dist[i - 1][j + 1] >= 2 && dist[i + 1][j - 1] >= 2) {
-                        dist[i][j] += 4;
-                        dist[j][i] += 4;
-						/*
-					printf("1: %d %d %d\n",i,j,dist[i][j]);
-						 */
-                    }
-                    /* alpha-helices */
-                    else if (i > 2 && j < n - 2) {
-                        if (dist[i - 3][j - 3] >= 1 && dist[i + 3][j + 3] >= 1 || dist[i - 3][j + 3] >= 1 && dist[i + 3][j - 3] >= 1) {
-                            dist[i][j] += 4;
-                            dist[j][i] += 4;
-							/*
-						printf("3: %d %d %d\n",i,j,dist[i][j]);
-							 */
-                        } else if (i > 3 && j < n - 3) {
-                            if ((dist[i - 3][j - 3] >= 1 || dist[i - 3][j - 4] >= 1 || dist[i - 4][j - 3] >= 1 || dist[i - 4][j - 4] >= 1) &&
-                                    (dist[i + 4][j + 4] >= 1 || dist[i + 4][j + 3] >= 1 || dist[i + 3][j + 3] >= 1 || dist[i + 3][j + 4] >= 1)
-                                    || (dist[i - 4][j + 4] >= 1 || dist[i - 4][j + 3] >= 1 || dist[i - 3][j + 4] >= 1 || dist[i - 3][j + 3] >= 1) &&
-                                    (dist[i + 4][j - 4] >= 1 || dist[i + 4][j - 3] >= 1 || dist[i + 3][j - 4] >= 1 || dist[i + 3][j - 3] >= 1)) {
-                                dist[i][j] += 4;
-                                dist[j][i] += 4;
-								/*
-							printf("4: %d %d %d\n",i,j,dist[i][j]);
-								 */
-                            }
-                        }
+        // The conditions only test values of at least 1 or 2, which the
+        // increments cannot change, so they are all applied at the end
+        int[] bonus = new int[values.length];
+        for (int i = 1; i < n; i++) {
+            for (int k = rowStart[i]; k < rowStart[i + 1]; k++) {
+                int j = cols[k];
+                if (j < i || j >= n - 1)
+                    continue;
+                if (values[k] >= 2 && j - i > 5) {
+                    if (isSecStrucContact(contacts, i, j, n)) {
+                        bonus[k] += 4;
+                        bonus[findEntry(rowStart, cols, j, i)] += 4;
                     }
                 }
             }
         }
+        for (int k = 0; k < values.length; k++)
+            values[k] += bonus[k];
+
+        Arrays.sort(close, 0, nclose);
+        int[] iclose = new int[nclose];
+        int[] jclose = new int[nclose];
+        for (int l = 0; l < nclose; l++) {
+            iclose[l] = (int) (close[l] >>> 32);
+            jclose[l] = (int) close[l];
+        }
 
-        PDPDistanceMatrix matrix = new PDPDistanceMatrix();
+        PDPDistanceMatrix matrix = new PDPDistanceMatrix(n, rowStart, cols, values);
 
         matrix.setNclose(nclose);
         matrix.setIclose(iclose);
         matrix.setJclose(jclose);
-        matrix.setDist(dist);
         return matrix;
 
     }
 
+    /**
+     * Checks the beta-sheet and alpha-helix patterns around a pair of residues
+     * in contact.
+     */
+    private static boolean isSecStrucContact(PDPDistanceMatrix m, int i, int j, int n) {
+        /* beta-sheet */
+        if (m.getContact(i - 1, j - 1) >= 2 && m.getContact(i + 1, j + 1) >= 2 || m.getContact(i - 1, j + 1) >= 2 && m.getContact(i + 1, j - 1) >= 2) {
+            return true;
+        }
+        /* alpha-helices */
+        else if (i > 2 && j < n - 2) {
+            if (m.getContact(i - 3, j - 3) >= 1 && m.getContact(i + 3, j + 3) >= 1 || m.getContact(i - 3, j + 3) >= 1 && m.getContact(i + 3, j - 3) >= 1) {
+                return true;
+            } else if (i > 3 && j < n - 3) {
+                return (m.getContact(i - 3, j - 3) >= 1 || m.getContact(i - 3, j - 4) >= 1 || m.getContact(i - 4, j - 3) >= 1 || m.getContact(i - 4, j - 4) >= 1) &&
+                        (m.getContact(i + 4, j + 4) >= 1 || m.getContact(i + 4, j + 3) >= 1 || m.getContact(i + 3, j + 3) >= 1 || m.getContact(i + 3, j + 4) >= 1)
+                        || (m.getContact(i - 4, j + 4) >= 1 || m.getContact(i - 4, j + 3) >= 1 || m.getContact(i - 3, j + 4) >= 1 || m.getContact(i - 3, j + 3) >= 1) &&
+                        (m.getContact(i + 4, j - 4) >= 1 || m.getContact(i + 4, j - 3) >= 1 || m.getContact(i + 3, j - 4) >= 1 || m.getContact(i + 3, j - 3) >= 1);
+            }
+        }
+        return false;
+    }
+
+    private static long[] add(long[] row, int pos, int col, int value) {
+        if (pos == row.length)
+            row = Arrays.copyOf(row, 2 * pos);
+        row[pos] = ((long) col << 32) | value;
+        return row;
+    }
+
+    private static int find(long[] row, int rowSize, int col) {
+        for (int k = 0; k < rowSize; k++) {
+            if ((int) (row[k] >>> 32) == col)
+                return k;
+        }
+        return -1;
+    }
+
+    private static int findEntry(int[] rowStart, int[] cols, int i, int j) {
+        return Arrays.binarySearch(cols, rowStart[i], rowStart[i + 1], j);
+    }
+
 
     private static Atom getCBeta(Group g1) {
         Atom cb;
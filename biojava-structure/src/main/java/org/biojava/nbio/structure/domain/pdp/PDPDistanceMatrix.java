@@ -20,24 +20,194 @@
  */
 package org.biojava.nbio.structure.domain.pdp;
 
+import java.util.Arrays;
+
+/**
+ * The residue contact matrix used by PDP. Only the contacts between residues
+ * closer than 9 A are stored, as a symmetric sparse matrix in compressed row
+ * form, so that the memory needed grows linearly with the chain length. Sums
+ * of contacts over blocks of residues are calculated row by row with the
+ * prefix sums of the contact values.
+ * <p>
+ * The dense matrix of older versions can still be obtained with
+ * {@link #getDist()}, but it is built on request.
+ */
 public class PDPDistanceMatrix {
 	int[][] dist;
 	int nclose;
 	int[] iclose ;
 	int[] jclose ;
 
+	private int size;
+	private int[] rowStart = new int[1];
+	private int[] cols = new int[0];
+	private int[] values = new int[0];
+	private int[] prefix = new int[1];
+
 	public PDPDistanceMatrix(){
 
 	}
 
+	/**
+	 * Creates a contact matrix from its compressed rows. The columns of each
+	 * row must be sorted and the matrix has to be symmetric.
+	 *
+	 * @param size number of residues
+	 * @param rowStart index of the first entry of each row, of length size+1
+	 * @param cols column of each entry
+	 * @param values contact value of each entry
+	 * @since 5.3.1
+	 */
+	public PDPDistanceMatrix(int size, int[] rowStart, int[] cols, int[] values) {
+		setContacts(size, rowStart, cols, values);
+	}
+
+	private void setContacts(int size, int[] rowStart, int[] cols, int[] values) {
+		this.size = size;
+		this.rowStart = rowStart;
+		this.cols = cols;
+		this.values = values;
+		prefix = new int[values.length + 1];
+		for (int k = 0; k < values.length; k++)
+			prefix[k + 1] = prefix[k] + values[k];
+	}
+
+	/**
+	 * Returns the dense contact matrix, of size (n+3) x (n+3). It is created
+	 * from the sparse contacts the first time it is requested.
+	 *
+	 * @deprecated use {@link #getContact(int, int)} and the sum methods, the
+	 *             dense matrix needs memory quadratic in the chain length
+	 */
+	@Deprecated
 	public int[][] getDist() {
+		if (dist == null) {
+			int[][] d = new int[size + 3][size + 3];
+			for (int i = 0; i < size; i++) {
+				for (int k = rowStart[i]; k < rowStart[i + 1]; k++)
+					d[i][cols[k]] = values[k];
+			}
+			dist = d;
+		}
 		return dist;
 	}
 
+	/**
+	 * Sets the contacts from a dense contact matrix.
+	 *
+	 * @deprecated the contacts are stored in sparse form
+	 */
+	@Deprecated
 	public void setDist(int[][] dist) {
+		int n = dist.length;
+		int nnz = 0;
+		for (int[] row : dist) {
+			for (int v : row) {
+				if (v != 0)
+					nnz++;
+			}
+		}
+		int[] start = new int[n + 1];
+		int[] c = new int[nnz];
+		int[] v = new int[nnz];
+		int k = 0;
+		for (int i = 0; i < n; i++) {
+			start[i] = k;
+			for (int j = 0; j < dist[i].length; j++) {
+				if (dist[i][j] != 0) {
+					c[k] = j;
+					v[k] = dist[i][j];
+					k++;
+				}
+			}
+		}
+		start[n] = k;
+		setContacts(n, start, c, v);
 		this.dist = dist;
 	}
 
+	/**
+	 * @return the number of residues of the matrix
+	 * @since 5.3.1
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * @return the number of non-zero entries stored
+	 * @since 5.3.1
+	 */
+	public int getNonZeroCount() {
+		return values.length;
+	}
+
+	/**
+	 * Returns the contact value of two residues, 0 if they are not in
+	 * contact or any index is out of the matrix.
+	 *
+	 * @since 5.3.1
+	 */
+	public int getContact(int i, int j) {
+		if (i < 0 || i >= size)
+			return 0;
+		int k = Arrays.binarySearch(cols, rowStart[i], rowStart[i + 1], j);
+		return k < 0 ? 0 : values[k];
+	}
+
+	/**
+	 * Sum of the contacts of residue i with the residues in [from, to).
+	 *
+	 * @since 5.3.1
+	 */
+	public int rowSum(int i, int from, int to) {
+		if (i < 0 || i >= size || from >= to)
+			return 0;
+		int lo = lowerBound(i, from);
+		int hi = lowerBound(i, to);
+		return prefix[hi] - prefix[lo];
+	}
+
+	/**
+	 * Sum of the contacts of residue i with the residues in [from, to) that
+	 * are more than minSeparation residues apart from i.
+	 *
+	 * @since 5.3.1
+	 */
+	public int rowSum(int i, int from, int to, int minSeparation) {
+		return rowSum(i, from, Math.min(to, i - minSeparation))
+				+ rowSum(i, Math.max(from, i + minSeparation + 1), to);
+	}
+
+	/**
+	 * Sum of the contacts between the residues in [from1, to1) and the
+	 * residues in [from2, to2).
+	 *
+	 * @since 5.3.1
+	 */
+	public int sum(int from1, int to1, int from2, int to2) {
+		// The matrix is symmetric, iterate over the shorter range
+		if (to1 - from1 > to2 - from2)
+			return sum(from2, to2, from1, to1);
+		int s = 0;
+		for (int i = Math.max(from1, 0); i < to1 && i < size; i++)
+			s += rowSum(i, from2, to2);
+		return s;
+	}
+
+	private int lowerBound(int i, int col) {
+		int lo = rowStart[i];
+		int hi = rowStart[i + 1];
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (cols[mid] < col)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
 	public int getNclose() {
 		return nclose;
 	}
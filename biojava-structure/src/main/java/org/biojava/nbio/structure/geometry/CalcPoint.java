@@ -111,6 +111,27 @@ public class CalcPoint {
 		return clone;
 	}
 
+	/**
+	 * Copy the coordinates of an array of points into a flat array, as used
+	 * by the flat coordinate methods of {@link SuperPositions}.
+	 *
+	 * @param x
+	 *            array of points. Point objects will not be modified
+	 * @param buffer
+	 *            array to reuse if it has exactly the right length, can be null
+	 * @return flat array with x,y,z of each point
+	 */
+	public static double[] toFlatArray(Point3d[] x, double[] buffer) {
+		if (buffer == null || buffer.length != 3 * x.length)
+			buffer = new double[3 * x.length];
+		for (int i = 0; i < x.length; i++) {
+			buffer[3 * i] = x[i].x;
+			buffer[3 * i + 1] = x[i].y;
+			buffer[3 * i + 2] = x[i].z;
+		}
+		return buffer;
+	}
+
 	/*
 	 * Peter can you document this method? TODO
 	 *
@@ -120,10 +120,12 @@ public final class SuperPositionQCP extends SuperPositionAbstract {
 	private double[] weight;
 	private double wsum;
 
-	private Point3d[] xref;
-	private Point3d[] yref;
-	private Point3d xtrans;
-	private Point3d ytrans;
+	// centroids of the moved (x) and fixed (y) coordinates
+	private double xcx, xcy, xcz;
+	private double ycx, ycy, ycz;
+
+	// sum of squared distances to the centroid of the flat reference coordinates
+	private double yg;
 
 	private double e0;
 	private final Matrix3d rotmat = new Matrix3d();
@@ -256,23 +258,39 @@ public final class SuperPositionQCP extends SuperPositionAbstract {
 	 */
 	private void calcRmsd(Point3d[] x, Point3d[] y) {
 		if (centered) {
-			innerProduct(y, x);
+			xcx = xcy = xcz = 0;
+			ycx = ycy = ycz = 0;
 		} else {
-			// translate to origin
-			xref = CalcPoint.clonePoint3dArray(x);
-			xtrans = CalcPoint.centroid(xref);
-			logger.debug("x centroid: " + xtrans);
-			xtrans.negate();
-			CalcPoint.translate(new Vector3d(xtrans), xref);
-
-			yref = CalcPoint.clonePoint3dArray(y);
-			ytrans = CalcPoint.centroid(yref);
-			logger.debug("y centroid: " + ytrans);
-			ytrans.negate();
-			CalcPoint.translate(new Vector3d(ytrans), yref);
-			innerProduct(yref, xref);
+			// the centroids are subtracted on the fly in innerProduct,
+			// so that the input coordinates don't have to be copied
+			calcCentroids(x, y);
+		}
+		innerProduct(y, x);
+		calcRmsd(wsum, Double.POSITIVE_INFINITY);
+	}
+
+	private void calcCentroids(Point3d[] x, Point3d[] y) {
+		xcx = xcy = xcz = 0;
+		for (Point3d p : x) {
+			xcx += p.x;
+			xcy += p.y;
+			xcz += p.z;
+		}
+		double f = 1.0 / x.length;
+		xcx *= f;
+		xcy *= f;
+		xcz *= f;
+
+		ycx = ycy = ycz = 0;
+		for (Point3d p : y) {
+			ycx += p.x;
+			ycy += p.y;
+			ycz += p.z;
 		}
-		calcRmsd(wsum);
+		f = 1.0 / y.length;
+		ycx *= f;
+		ycy *= f;
+		ycz *= f;
 	}
 
 	/**
@@ -291,16 +309,15 @@ public final class SuperPositionQCP extends SuperPositionAbstract {
 		// combine with x -> origin translation
 		Matrix4d trans = new Matrix4d();
 		trans.setIdentity();
-		trans.setTranslation(new Vector3d(xtrans));
+		trans.setTranslation(new Vector3d(-xcx, -xcy, -xcz));
 		transformation.mul(transformation, trans);
 		// System.out.println("setting xtrans");
 		// System.out.println(transformation);
 
 		// combine with origin -> y translation
-		ytrans.negate();
 		Matrix4d transInverse = new Matrix4d();
 		transInverse.setIdentity();
-		transInverse.setTranslation(new Vector3d(ytrans));
+		transInverse.setTranslation(new Vector3d(ycx, ycy, ycz));
 		transformation.mul(transInverse, transformation);
 		// System.out.println("setting ytrans");
 		// System.out.println(transformation);
@@ -337,15 +354,19 @@ public final class SuperPositionQCP extends SuperPositionAbstract {
 
 				wsum += weight[i];
 
-				x1 = weight[i] * coords1[i].x;
-				y1 = weight[i] * coords1[i].y;
-				z1 = weight[i] * coords1[i].z;
+				double cx1 = coords1[i].x - ycx;
+				double cy1 = coords1[i].y - ycy;
+				double cz1 = coords1[i].z - ycz;
+
+				x1 = weight[i] * cx1;
+				y1 = weight[i] * cy1;
+				z1 = weight[i] * cz1;
 
-				g1 += x1 * coords1[i].x + y1 * coords1[i].y + z1 * coords1[i].z;
+				g1 += x1 * cx1 + y1 * cy1 + z1 * cz1;
 
-				x2 = coords2[i].x;
-				y2 = coords2[i].y;
-				z2 = coords2[i].z;
+				x2 = coords2[i].x - xcx;
+				y2 = coords2[i].y - xcy;
+				z2 = coords2[i].z - xcz;
 
 				g2 += weight[i] * (x2 * x2 + y2 * y2 + z2 * z2);
 
@@ -363,20 +384,28 @@ public final class SuperPositionQCP extends SuperPositionAbstract {
 			}
 		} else {
 			for (int i = 0; i < coords1.length; i++) {
-				g1 += coords1[i].x * coords1[i].x + coords1[i].y * coords1[i].y + coords1[i].z * coords1[i].z;
-				g2 += coords2[i].x * coords2[i].x + coords2[i].y * coords2[i].y + coords2[i].z * coords2[i].z;
+				x1 = coords1[i].x - ycx;
+				y1 = coords1[i].y - ycy;
+				z1 = coords1[i].z - ycz;
 
-				Sxx += coords1[i].x * coords2[i].x;
-				Sxy += coords1[i].x * coords2[i].y;
-				Sxz += coords1[i].x * coords2[i].z;
+				x2 = coords2[i].x - xcx;
+				y2 = coords2[i].y - xcy;
+				z2 = coords2[i].z - xcz;
 
-				Syx += coords1[i].y * coords2[i].x;
-				Syy += coords1[i].y * coords2[i].y;
-				Syz += coords1[i].y * coords2[i].z;
+				g1 += x1 * x1 + y1 * y1 + z1 * z1;
+				g2 += x2 * x2 + y2 * y2 + z2 * z2;
 
-				Szx += coords1[i].z * coords2[i].x;
-				Szy += coords1[i].z * coords2[i].y;
-				Szz += coords1[i].z * coords2[i].z;
+				Sxx += x1 * x2;
+				Sxy += x1 * y2;
+				Sxz += x1 * z2;
+
+				Syx += y1 * x2;
+				Syy += y1 * y2;
+				Syz += y1 * z2;
+
+				Szx += z1 * x2;
+				Szy += z1 * y2;
+				Szz += z1 * z2;
 			}
 			wsum = coords1.length;
 		}
@@ -384,7 +413,133 @@ public final class SuperPositionQCP extends SuperPositionAbstract {
 		e0 = (g1 + g2) * 0.5;
 	}
 
-	private int calcRmsd(double len) {
+	/**
+	 * Centers the flat reference coordinates (fixed, y) and stores the
+	 * centroid and the sum of squared distances to it, so that they can be
+	 * reused for many calls to
+	 * {@link #flatInnerProduct(double[], int, double[], int, int)}.
+	 *
+	 * @param coords
+	 *            x,y,z of each point
+	 * @param start
+	 *            the first point
+	 * @param length
+	 *            the number of points
+	 */
+	private void setFlatReference(double[] coords, int start, int length) {
+		int from = 3 * start;
+		int to = 3 * (start + length);
+		ycx = ycy = ycz = 0;
+		for (int i = from; i < to; i += 3) {
+			ycx += coords[i];
+			ycy += coords[i + 1];
+			ycz += coords[i + 2];
+		}
+		double f = 1.0 / length;
+		ycx *= f;
+		ycy *= f;
+		ycz *= f;
+
+		yg = 0;
+		for (int i = from; i < to; i += 3) {
+			double x1 = coords[i] - ycx;
+			double y1 = coords[i + 1] - ycy;
+			double z1 = coords[i + 2] - ycz;
+			yg += x1 * x1 + y1 * y1 + z1 * z1;
+		}
+	}
+
+	/**
+	 * Inner product between the flat reference coordinates, set by
+	 * {@link #setFlatReference(double[], int, int)}, and the moved
+	 * coordinates. The centroid of the moved coordinates is subtracted on the
+	 * fly.
+	 */
+	private void flatInnerProduct(double[] fixed, int fixedStart, double[] moved, int movedStart, int length) {
+		int f0 = 3 * fixedStart;
+		int m0 = 3 * movedStart;
+		int n = 3 * length;
+
+		xcx = xcy = xcz = 0;
+		for (int i = m0; i < m0 + n; i += 3) {
+			xcx += moved[i];
+			xcy += moved[i + 1];
+			xcz += moved[i + 2];
+		}
+		double f = 1.0 / length;
+		xcx *= f;
+		xcy *= f;
+		xcz *= f;
+
+		double g2 = 0;
+		double sxx = 0, sxy = 0, sxz = 0;
+		double syx = 0, syy = 0, syz = 0;
+		double szx = 0, szy = 0, szz = 0;
+
+		for (int k = 0; k < n; k += 3) {
+			int i = f0 + k;
+			int j = m0 + k;
+			double x1 = fixed[i] - ycx;
+			double y1 = fixed[i + 1] - ycy;
+			double z1 = fixed[i + 2] - ycz;
+
+			double x2 = moved[j] - xcx;
+			double y2 = moved[j + 1] - xcy;
+			double z2 = moved[j + 2] - xcz;
+
+			g2 += x2 * x2 + y2 * y2 + z2 * z2;
+
+			sxx += x1 * x2;
+			sxy += x1 * y2;
+			sxz += x1 * z2;
+
+			syx += y1 * x2;
+			syy += y1 * y2;
+			syz += y1 * z2;
+
+			szx += z1 * x2;
+			szy += z1 * y2;
+			szz += z1 * z2;
+		}
+
+		Sxx = sxx;
+		Sxy = sxy;
+		Sxz = sxz;
+		Syx = syx;
+		Syy = syy;
+		Syz = syz;
+		Szx = szx;
+		Szy = szy;
+		Szz = szz;
+
+		wsum = length;
+		e0 = (yg + g2) * 0.5;
+	}
+
+	private static int checkFlatLength(double[] fixed, double[] moved) {
+		if (fixed.length != moved.length || fixed.length % 3 != 0)
+			throw new IllegalArgumentException(
+					"Coordinate arrays must have the same length, a multiple of 3: "
+							+ fixed.length + " " + moved.length);
+		return fixed.length / 3;
+	}
+
+	private static void checkFlatWindow(double[] coords, int start, int length) {
+		if (start < 0 || length <= 0 || 3 * (start + length) > coords.length)
+			throw new IllegalArgumentException("Points " + start + " to " + (start + length - 1)
+					+ " are outside of the coordinate array of " + coords.length / 3 + " points");
+	}
+
+	/**
+	 * Calculates the RMSD from the inner product. The Newton iteration
+	 * approaches the largest eigenvalue from above, so every intermediate
+	 * RMSD is a lower bound of the final one: the calculation is abandoned
+	 * as soon as it exceeds maxRmsd.
+	 *
+	 * @return 1 if the RMSD was calculated, 0 if the calculation was
+	 *         abandoned because the RMSD is larger than maxRmsd
+	 */
+	private int calcRmsd(double len, double maxRmsd) {
 		double Sxx2 = Sxx * Sxx;
 		double Syy2 = Syy * Syy;
 		double Szz2 = Szz * Szz;
@@ -428,6 +583,10 @@ public final class SuperPositionQCP extends SuperPositionAbstract {
 
 		mxEigenV = e0;
 
+		// abandon once 2*(e0 - mxEigenV)/len > maxRmsd^2
+		double minEigenV = maxRmsd == Double.POSITIVE_INFINITY ?
+				Double.NEGATIVE_INFINITY : e0 - 0.5 * maxRmsd * maxRmsd * len;
+
 		int i;
 		for (i = 1; i < 51; ++i) {
 			double oldg = mxEigenV;
@@ -439,12 +598,17 @@ public final class SuperPositionQCP extends SuperPositionAbstract {
 
 			if (Math.abs(mxEigenV - oldg) < Math.abs(eval_prec * mxEigenV))
 				break;
+
+			if (mxEigenV < minEigenV) {
+				rmsd = Math.sqrt(Math.abs(2.0 * (e0 - mxEigenV) / len));
+				return 0;
+			}
 		}
 
 		if (i == 50) {
-			logger.warn(String.format("More than %d iterations needed!", i));
+			logger.warn("More than {} iterations needed!", i);
 		} else {
-			logger.info(String.format("%d iterations needed!", i));
+			logger.debug("{} iterations needed!", i);
 		}
 
 		/*
@@ -595,6 +759,151 @@ public final class SuperPositionQCP extends SuperPositionAbstract {
 		return getRmsd();
 	}
 
+	/**
+	 * Calculates the RMSD of two flat coordinate arrays, without
+	 * allocating any objects. The arrays are not modified.
+	 *
+	 * @param fixed
+	 *            x,y,z of each point of the reference coordinate set
+	 * @param moved
+	 *            x,y,z of each point of the coordinate set for superposition,
+	 *            of the same length as fixed
+	 * @return root mean square deviation for superposition of moved onto fixed
+	 */
+	public double getRmsd(double[] fixed, double[] moved) {
+		return getRmsd(fixed, moved, Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * Calculates the RMSD of two flat coordinate arrays, giving up as soon
+	 * as it is known to be larger than maxRmsd. This is the fastest way of
+	 * filtering candidate superpositions by RMSD.
+	 *
+	 * @param fixed
+	 *            x,y,z of each point of the reference coordinate set
+	 * @param moved
+	 *            x,y,z of each point of the coordinate set for superposition,
+	 *            of the same length as fixed
+	 * @param maxRmsd
+	 *            the RMSD threshold
+	 * @return the RMSD if it is not larger than maxRmsd, otherwise a value
+	 *         larger than maxRmsd (a lower bound of the RMSD)
+	 */
+	public double getRmsd(double[] fixed, double[] moved, double maxRmsd) {
+		int length = checkFlatLength(fixed, moved);
+		return getRmsd(fixed, 0, moved, 0, length, maxRmsd);
+	}
+
+	/**
+	 * Calculates the RMSD of two windows of consecutive points of flat
+	 * coordinate arrays, e.g. two fragments of the CA atoms of two chains,
+	 * without copying them. The RMSD calculation is given up as soon as it is
+	 * known to be larger than maxRmsd.
+	 *
+	 * @param fixed
+	 *            x,y,z of each point of the reference coordinates
+	 * @param fixedStart
+	 *            the first point of the reference window
+	 * @param moved
+	 *            x,y,z of each point of the coordinates for superposition
+	 * @param movedStart
+	 *            the first point of the moved window
+	 * @param length
+	 *            the number of points of both windows
+	 * @param maxRmsd
+	 *            the RMSD threshold, Double.POSITIVE_INFINITY for exact
+	 *            values
+	 * @return the RMSD if it is not larger than maxRmsd, otherwise a value
+	 *         larger than maxRmsd (a lower bound of the RMSD)
+	 */
+	public double getRmsd(double[] fixed, int fixedStart, double[] moved, int movedStart, int length,
+			double maxRmsd) {
+		checkFlatWindow(fixed, fixedStart, length);
+		checkFlatWindow(moved, movedStart, length);
+		setFlatReference(fixed, fixedStart, length);
+		flatInnerProduct(fixed, fixedStart, moved, movedStart, length);
+		calcRmsd(wsum, maxRmsd);
+		transformationCalculated = false;
+		rmsdCalculated = false;
+		return rmsd;
+	}
+
+	/**
+	 * Calculates the RMSDs of one reference against many candidate
+	 * coordinate sets. The reference is centered only once.
+	 *
+	 * @param fixed
+	 *            x,y,z of each point of the reference coordinate set
+	 * @param candidates
+	 *            flat coordinate sets, each of the same length as fixed
+	 * @param maxRmsd
+	 *            the RMSD threshold, see
+	 *            {@link #getRmsd(double[], double[], double)}. Use
+	 *            Double.POSITIVE_INFINITY for exact values.
+	 * @param rmsds
+	 *            the output array, of the same length as candidates
+	 */
+	public void getRmsds(double[] fixed, double[][] candidates, double maxRmsd, double[] rmsds) {
+		int length = fixed.length / 3;
+		setFlatReference(fixed, 0, length);
+		for (int i = 0; i < candidates.length; i++) {
+			checkFlatLength(fixed, candidates[i]);
+			flatInnerProduct(fixed, 0, candidates[i], 0, length);
+			calcRmsd(wsum, maxRmsd);
+			rmsds[i] = rmsd;
+		}
+		transformationCalculated = false;
+		rmsdCalculated = false;
+	}
+
+	/**
+	 * Calculates the transformation that superposes the flat moved
+	 * coordinates onto the fixed ones. The returned matrix is reused by
+	 * the next call on this object.
+	 *
+	 * @param fixed
+	 *            x,y,z of each point of the reference coordinate set
+	 * @param moved
+	 *            x,y,z of each point of the coordinate set for superposition,
+	 *            of the same length as fixed
+	 * @return transformation matrix as a Matrix4d to superpose moved onto fixed
+	 */
+	public Matrix4d superpose(double[] fixed, double[] moved) {
+		int length = checkFlatLength(fixed, moved);
+		return superpose(fixed, 0, moved, 0, length);
+	}
+
+	/**
+	 * Calculates the transformation that superposes a window of consecutive
+	 * points of the flat moved coordinates onto a window of the fixed ones.
+	 * The returned matrix is reused by the next call on this object.
+	 *
+	 * @param fixed
+	 *            x,y,z of each point of the reference coordinates
+	 * @param fixedStart
+	 *            the first point of the reference window
+	 * @param moved
+	 *            x,y,z of each point of the coordinates for superposition
+	 * @param movedStart
+	 *            the first point of the moved window
+	 * @param length
+	 *            the number of points of both windows
+	 * @return transformation matrix as a Matrix4d to superpose the moved
+	 *         window onto the fixed one
+	 */
+	public Matrix4d superpose(double[] fixed, int fixedStart, double[] moved, int movedStart, int length) {
+		checkFlatWindow(fixed, fixedStart, length);
+		checkFlatWindow(moved, movedStart, length);
+		setFlatReference(fixed, fixedStart, length);
+		flatInnerProduct(fixed, fixedStart, moved, movedStart, length);
+		calcRmsd(wsum, Double.POSITIVE_INFINITY);
+		calcRotationMatrix();
+		calcTransformation();
+		transformationCalculated = false;
+		rmsdCalculated = false;
+		return transformation;
+	}
+
 	/**
 	 * The QCP method can be used as a two-step calculation: first compute the
 	 * RMSD (fast) and then compute the superposition.
@@ -38,6 +38,10 @@ public class SuperPositions {
 	private static SuperPositionAbstract superposer = new SuperPositionQuat(
 			false);
 
+	/** Per-thread QCP workspace for the flat coordinate methods */
+	private static final ThreadLocal<SuperPositionQCP> qcp = ThreadLocal
+			.withInitial(() -> new SuperPositionQCP(false));
+
 	/** Prevent instantiation */
 	private SuperPositions(){}
 
@@ -101,6 +105,88 @@ public class SuperPositions {
 		return superposer.getRmsd(fixed, moved);
 	}
 
+	/**
+	 * Calculate the RMSD of two flat coordinate arrays (x,y,z of each point)
+	 * with a per-thread {@link SuperPositionQCP} workspace, without
+	 * allocating any objects. Thread safe.
+	 *
+	 * @see SuperPositionQCP#getRmsd(double[], double[])
+	 * @see CalcPoint#toFlatArray(Point3d[], double[])
+	 */
+	public static double getRmsd(double[] fixed, double[] moved) {
+		return qcp.get().getRmsd(fixed, moved);
+	}
+
+	/**
+	 * Calculate the RMSD of two flat coordinate arrays, giving up as soon as
+	 * it is known to be larger than maxRmsd. Thread safe.
+	 *
+	 * @return the RMSD if it is not larger than maxRmsd, otherwise a value
+	 *         larger than maxRmsd
+	 * @see SuperPositionQCP#getRmsd(double[], double[], double)
+	 */
+	public static double getRmsd(double[] fixed, double[] moved,
+			double maxRmsd) {
+		return qcp.get().getRmsd(fixed, moved, maxRmsd);
+	}
+
+	/**
+	 * Calculate the RMSD of two windows of consecutive points of flat
+	 * coordinate arrays, giving up as soon as it is known to be larger than
+	 * maxRmsd. Thread safe.
+	 *
+	 * @see SuperPositionQCP#getRmsd(double[], int, double[], int, int, double)
+	 */
+	public static double getRmsd(double[] fixed, int fixedStart,
+			double[] moved, int movedStart, int length, double maxRmsd) {
+		return qcp.get().getRmsd(fixed, fixedStart, moved, movedStart, length,
+				maxRmsd);
+	}
+
+	/**
+	 * Calculate the RMSDs of one flat reference coordinate array against
+	 * many candidate coordinate arrays of the same length. Thread safe.
+	 *
+	 * @param maxRmsd
+	 *            RMSDs above this threshold are not calculated exactly, see
+	 *            {@link #getRmsd(double[], double[], double)}. Use
+	 *            Double.POSITIVE_INFINITY for exact values.
+	 * @return the RMSD of each candidate
+	 * @see SuperPositionQCP#getRmsds(double[], double[][], double, double[])
+	 */
+	public static double[] getRmsds(double[] fixed, double[][] candidates,
+			double maxRmsd) {
+		double[] rmsds = new double[candidates.length];
+		qcp.get().getRmsds(fixed, candidates, maxRmsd, rmsds);
+		return rmsds;
+	}
+
+	/**
+	 * Calculate the transformation that superposes two flat coordinate
+	 * arrays with the per-thread QCP workspace. Thread safe.
+	 *
+	 * @return a new transformation matrix to superpose moved onto fixed
+	 * @see SuperPositionQCP#superpose(double[], double[])
+	 */
+	public static Matrix4d superpose(double[] fixed, double[] moved) {
+		return new Matrix4d(qcp.get().superpose(fixed, moved));
+	}
+
+	/**
+	 * Calculate the transformation that superposes a window of consecutive
+	 * points of a flat coordinate array onto a window of another. Thread
+	 * safe.
+	 *
+	 * @return a new transformation matrix to superpose the moved window onto
+	 *         the fixed one
+	 * @see SuperPositionQCP#superpose(double[], int, double[], int, int)
+	 */
+	public static Matrix4d superpose(double[] fixed, int fixedStart,
+			double[] moved, int movedStart, int length) {
+		return new Matrix4d(qcp.get().superpose(fixed, fixedStart, moved,
+				movedStart, length));
+	}
+
 	public static void setDefaultSuperPosition(SuperPositionAbstract defaultAlgorithm) {
 		superposer = defaultAlgorithm;
 	}
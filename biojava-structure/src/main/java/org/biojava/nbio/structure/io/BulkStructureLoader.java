@@ -0,0 +1,414 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.io;
+
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.StructureTools;
+import org.biojava.nbio.structure.align.util.AtomCache;
+import org.biojava.nbio.structure.io.mmcif.ChemCompGroupFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Parses many structures in parallel, given as PDB ids or as a directory tree of structure
+ * files, and delivers them one by one to a consumer.
+ * <p>
+ * The structures are parsed on a fixed pool of worker threads and handed to the consumer on
+ * the calling thread, in the order they finish, so the consumer needs not be thread-safe.
+ * At most {@link #getMaxPending()} structures are being parsed or waiting for the consumer
+ * at any time: a slow consumer holds back the parsing and the reading of the input, so that
+ * the memory use does not grow with the number of structures.
+ * <p>
+ * Every structure is delivered as a {@link LoadResult} with its parse time, its number of
+ * atoms, or the error that prevented loading it. A failure does not stop the other structures,
+ * except a {@link VirtualMachineError} such as an {@link OutOfMemoryError}, which stops the
+ * loading and is thrown by the load methods.
+ * The load methods return the {@link LoadStatistics} of the whole run.
+ * <p>
+ * PDB ids are loaded with {@link AtomCache#loadStructureForPdbId(String)}, with the file format,
+ * {@link FileParsingParameters} and fetch behavior of the given cache, but without keeping the
+ * structures in its memory. Files are parsed with the reader matching their extension and the
+ * same {@link FileParsingParameters}.
+ * <p>
+ * Thread safety: the static state used while parsing, the chemical component cache of
+ * {@link ChemCompGroupFactory} and the download of chemical components, is safe for concurrent
+ * use. The {@link ChemCompGroupFactory#setChemCompProvider(org.biojava.nbio.structure.io.mmcif.ChemCompProvider)
+ * chemical component provider} and the AtomCache settings must not be changed during a load.
+ *
+ * @since 5.3.1
+ */
+public class BulkStructureLoader {
+
+	private static final Logger logger = LoggerFactory.getLogger(BulkStructureLoader.class);
+
+	/** The readers for files, by extension */
+	private static final List<Supplier<LocalPDBDirectory>> READERS = Arrays.asList(
+			PDBFileReader::new, CifFileReader::new, BcifFileReader::new, MMTFFileReader::new);
+
+	private final AtomCache cache;
+	private final int nrThreads;
+	private int maxPending;
+
+	/**
+	 * @param cache the cache to load PDB ids with, whose {@link FileParsingParameters} are used for files too
+	 * @param nrThreads the number of parsing threads
+	 */
+	public BulkStructureLoader(AtomCache cache, int nrThreads) {
+		if (nrThreads < 1)
+			throw new IllegalArgumentException("Number of threads must be at least 1, was " + nrThreads);
+		this.cache = cache;
+		this.nrThreads = nrThreads;
+		this.maxPending = 2 * nrThreads;
+	}
+
+	/**
+	 * @return the maximum number of structures being parsed or waiting to be consumed
+	 */
+	public int getMaxPending() {
+		return maxPending;
+	}
+
+	/**
+	 * Sets the maximum number of structures being parsed or waiting to be consumed,
+	 * by default twice the number of threads. Values smaller than the number of
+	 * threads leave threads idle.
+	 * @param maxPending
+	 */
+	public void setMaxPending(int maxPending) {
+		if (maxPending < 1)
+			throw new IllegalArgumentException("Maximum number of pending structures must be at least 1, was " + maxPending);
+		this.maxPending = maxPending;
+	}
+
+	/**
+	 * Loads the structures of PDB ids.
+	 * @param pdbIds the PDB ids, read as far as needed to keep the threads busy
+	 * @param consumer receives the results on the calling thread
+	 * @return the statistics of all structures
+	 * @throws InterruptedException if the calling thread is interrupted, the loading is then stopped
+	 */
+	public LoadStatistics loadIds(Iterator<String> pdbIds, Consumer<LoadResult> consumer) throws InterruptedException {
+		return load(new Iterator<Task>() {
+			@Override
+			public boolean hasNext() {
+				return pdbIds.hasNext();
+			}
+
+			@Override
+			public Task next() {
+				String pdbId = pdbIds.next();
+				return new Task(pdbId, null, () -> cache.loadStructureForPdbId(pdbId));
+			}
+		}, consumer);
+	}
+
+	/**
+	 * Loads the structures of PDB ids.
+	 * @param pdbIds the PDB ids, read as far as needed to keep the threads busy
+	 * @param consumer receives the results on the calling thread
+	 * @return the statistics of all structures
+	 * @throws InterruptedException if the calling thread is interrupted, the loading is then stopped
+	 * @see #loadIds(Iterator, Consumer)
+	 */
+	public LoadStatistics loadIds(Stream<String> pdbIds, Consumer<LoadResult> consumer) throws InterruptedException {
+		return loadIds(pdbIds.iterator(), consumer);
+	}
+
+	/**
+	 * Loads all structure files in a directory tree, recognized by the extensions of
+	 * {@link PDBFileReader}, {@link CifFileReader}, {@link BcifFileReader} and {@link MMTFFileReader}.
+	 * Other files are ignored.
+	 * @param root the directory to search
+	 * @param consumer receives the results on the calling thread
+	 * @return the statistics of all structures
+	 * @throws IOException if the directory tree can not be read
+	 * @throws InterruptedException if the calling thread is interrupted, the loading is then stopped
+	 */
+	public LoadStatistics loadFiles(Path root, Consumer<LoadResult> consumer) throws IOException, InterruptedException {
+		List<List<String>> extensions = new ArrayList<>();
+		for (Supplier<LocalPDBDirectory> reader : READERS) {
+			extensions.add(reader.get().getExtensions());
+		}
+
+		try (Stream<Path> paths = Files.walk(root)) {
+			Iterator<Path> files = paths.filter(Files::isRegularFile)
+					.filter(file -> getReaderIndex(file, extensions) >= 0)
+					.iterator();
+
+			return load(new Iterator<Task>() {
+				@Override
+				public boolean hasNext() {
+					return files.hasNext();
+				}
+
+				@Override
+				public Task next() {
+					Path file = files.next();
+					int readerIndex = getReaderIndex(file, extensions);
+					return new Task(file.getFileName().toString(), file, () -> {
+						LocalPDBDirectory reader = READERS.get(readerIndex).get();
+						reader.setFileParsingParameters(cache.getFileParsingParams());
+						return reader.getStructure(file.toFile());
+					});
+				}
+			}, consumer);
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Returns the index in {@link #READERS} of the reader for the file, according to its extension,
+	 * or -1 if it is not a structure file
+	 */
+	private static int getReaderIndex(Path file, List<List<String>> extensions) {
+		String name = file.getFileName().toString().toLowerCase();
+		for (int i = 0; i < extensions.size(); i++) {
+			for (String extension : extensions.get(i)) {
+				if (name.endsWith(extension.toLowerCase()))
+					return i;
+			}
+		}
+		return -1;
+	}
+
+	private LoadStatistics load(Iterator<Task> tasks, Consumer<LoadResult> consumer) throws InterruptedException {
+
+		LoadStatistics statistics = new LoadStatistics();
+		long start = System.nanoTime();
+
+		// filled by the workers, never holds more than maxPending results
+		BlockingQueue<LoadResult> results = new LinkedBlockingQueue<>();
+		ExecutorService executor = Executors.newFixedThreadPool(nrThreads);
+		int pending = 0;
+		try {
+			while (tasks.hasNext()) {
+				if (pending >= maxPending) {
+					deliver(results.take(), consumer, statistics);
+					pending--;
+				}
+				Task task = tasks.next();
+				executor.execute(() -> results.add(task.run()));
+				pending++;
+
+				LoadResult result;
+				while ((result = results.poll()) != null) {
+					deliver(result, consumer, statistics);
+					pending--;
+				}
+			}
+			while (pending > 0) {
+				deliver(results.take(), consumer, statistics);
+				pending--;
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		statistics.wallTimeNanos = System.nanoTime() - start;
+		logger.info("Loaded {}", statistics);
+		return statistics;
+	}
+
+	private static void deliver(LoadResult result, Consumer<LoadResult> consumer, LoadStatistics statistics) {
+		if (result.getError() instanceof VirtualMachineError) {
+			// not a failure of this structure, the other ones would fail as well
+			throw (VirtualMachineError) result.getError();
+		}
+		if (result.isSuccess()) {
+			statistics.nrLoaded++;
+			statistics.nrAtoms += result.getNrAtoms();
+		} else {
+			statistics.nrFailed++;
+			logger.warn("Could not load {}: {}", result.getId(), result.getError().getMessage());
+		}
+		statistics.parseTimeNanos += result.getParseTimeNanos();
+		consumer.accept(result);
+	}
+
+	private interface StructureSource {
+		Structure load() throws Exception;
+	}
+
+	private static class Task {
+		private final String id;
+		private final Path file;
+		private final StructureSource source;
+
+		Task(String id, Path file, StructureSource source) {
+			this.id = id;
+			this.file = file;
+			this.source = source;
+		}
+
+		LoadResult run() {
+			long start = System.nanoTime();
+			try {
+				Structure structure = source.load();
+				if (structure == null)
+					throw new IOException("No structure was found for " + id);
+				return new LoadResult(id, file, structure, null, System.nanoTime() - start, StructureTools.getNrAtoms(structure));
+			} catch (Throwable e) {
+				// every task must produce a result, load() waits for as many results as tasks.
+				// load() rethrows VirtualMachineErrors when delivering the result
+				return new LoadResult(id, file, null, e, System.nanoTime() - start, 0);
+			}
+		}
+	}
+
+	/**
+	 * The outcome of loading one structure.
+	 */
+	public static class LoadResult {
+		private final String id;
+		private final Path file;
+		private final Structure structure;
+		private final Throwable error;
+		private final long parseTimeNanos;
+		private final int nrAtoms;
+
+		LoadResult(String id, Path file, Structure structure, Throwable error, long parseTimeNanos, int nrAtoms) {
+			this.id = id;
+			this.file = file;
+			this.structure = structure;
+			this.error = error;
+			this.parseTimeNanos = parseTimeNanos;
+			this.nrAtoms = nrAtoms;
+		}
+
+		/**
+		 * @return the PDB id, or the file name when loading files
+		 */
+		public String getId() {
+			return id;
+		}
+
+		/**
+		 * @return the file, or null when loading PDB ids
+		 */
+		public Path getFile() {
+			return file;
+		}
+
+		/**
+		 * @return the structure, null if it could not be loaded
+		 */
+		public Structure getStructure() {
+			return structure;
+		}
+
+		/**
+		 * @return the reason the structure could not be loaded, null if it was loaded
+		 */
+		public Throwable getError() {
+			return error;
+		}
+
+		public boolean isSuccess() {
+			return error == null;
+		}
+
+		/**
+		 * @return the time to load the structure, including any download, in nanoseconds
+		 */
+		public long getParseTimeNanos() {
+			return parseTimeNanos;
+		}
+
+		/**
+		 * @return the number of atoms of all models of the structure
+		 */
+		public int getNrAtoms() {
+			return nrAtoms;
+		}
+
+		@Override
+		public String toString() {
+			return "LoadResult [id=" + id + (isSuccess() ? ", nrAtoms=" + nrAtoms : ", error=" + error)
+					+ ", parseTimeMs=" + parseTimeNanos / 1000000 + "]";
+		}
+	}
+
+	/**
+	 * The totals of a load.
+	 */
+	public static class LoadStatistics {
+		private int nrLoaded;
+		private int nrFailed;
+		private long nrAtoms;
+		private long parseTimeNanos;
+		private long wallTimeNanos;
+
+		LoadStatistics() {
+		}
+
+		public int getNrLoaded() {
+			return nrLoaded;
+		}
+
+		public int getNrFailed() {
+			return nrFailed;
+		}
+
+		/**
+		 * @return the number of atoms of all loaded structures
+		 */
+		public long getNrAtoms() {
+			return nrAtoms;
+		}
+
+		/**
+		 * @return the sum of the parse times of all structures, in nanoseconds
+		 */
+		public long getParseTimeNanos() {
+			return parseTimeNanos;
+		}
+
+		/**
+		 * @return the elapsed time of the load, in nanoseconds
+		 */
+		public long getWallTimeNanos() {
+			return wallTimeNanos;
+		}
+
+		@Override
+		public String toString() {
+			return "LoadStatistics [nrLoaded=" + nrLoaded + ", nrFailed=" + nrFailed + ", nrAtoms=" + nrAtoms
+					+ ", parseTimeMs=" + parseTimeNanos / 1000000 + ", wallTimeMs=" + wallTimeNanos / 1000000 + "]";
+		}
+	}
+}
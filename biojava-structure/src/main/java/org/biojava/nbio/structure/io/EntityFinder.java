@@ -23,7 +23,6 @@ package org.biojava.nbio.structure.io;
 import org.biojava.nbio.alignment.Alignments;
 import org.biojava.nbio.alignment.Alignments.PairwiseSequenceAlignerType;
 import org.biojava.nbio.alignment.SimpleGapPenalty;
-import org.biojava.nbio.alignment.template.GapPenalty;
 import org.biojava.nbio.alignment.template.PairwiseSequenceAligner;
 import org.biojava.nbio.core.alignment.matrices.SubstitutionMatrixHelper;
 import org.biojava.nbio.core.alignment.template.SequencePair;
@@ -32,6 +31,9 @@ import org.biojava.nbio.core.exceptions.CompoundNotFoundException;
 import org.biojava.nbio.core.sequence.DNASequence;
 import org.biojava.nbio.core.sequence.ProteinSequence;
 import org.biojava.nbio.core.sequence.RNASequence;
+import org.biojava.nbio.core.sequence.template.Compound;
+import org.biojava.nbio.core.sequence.template.CompoundSet;
+import org.biojava.nbio.core.sequence.template.Sequence;
 import org.biojava.nbio.core.sequence.compound.AminoAcidCompound;
 import org.biojava.nbio.core.sequence.compound.NucleotideCompound;
 import org.biojava.nbio.structure.*;
@@ -39,6 +41,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.stream.IntStream;
 
 /**
  * Heuristical finding of Entities (called Compounds in legacy PDB format)
@@ -71,6 +74,9 @@ public class EntityFinder {
 	 */
 	public static final double GAP_COVERAGE_THRESHOLD = 0.3;
 
+	private static final int GAP_OPEN = 8;
+	private static final int GAP_EXTENSION = 1;
+
 
 
 
@@ -236,73 +242,40 @@ public class EntityFinder {
 			polyChainIndices.add(i);
 		}
 
+		// the sequences only depend on the chain, compute them once rather than for every pair
+		List<Chain> chains = polyModels.get(0);
+		List<PolymerSequence> sequences = new ArrayList<>();
+		for (Chain c : chains) {
+			sequences.add(new PolymerSequence(c));
+		}
+		// the matrices are cached on first use, get them before aligning in parallel
+		SubstitutionMatrix<AminoAcidCompound> proteinMatrix = SubstitutionMatrixHelper.getIdentity();
+		SubstitutionMatrix<NucleotideCompound> nucleotideMatrix = SubstitutionMatrixHelper.getNuc4_4();
 
 		int molId = 1;
 
 		outer:
 			for (int i:polyChainIndices) {
-				for (int j:polyChainIndices) {
-
-					if (j<=i) continue;
-
-					Chain c1 = polyModels.get(0).get(i);
-					Chain c2 = polyModels.get(0).get(j);
 
-					Map<Integer,Integer> positionIndex1 = new HashMap<>();
-					Map<Integer,Integer> positionIndex2 = new HashMap<>();
-					// here we use false, which means that X will be used for unknown compounds
-					String str1 = SeqRes2AtomAligner.getFullAtomSequence(c1.getAtomGroups(), positionIndex1, false);
-					String str2 = SeqRes2AtomAligner.getFullAtomSequence(c2.getAtomGroups(), positionIndex2, false);
+				// the pairs of this chain are decided in parallel, the entities are then assigned in order
+				Boolean[] sameEntity = new Boolean[chains.size()];
+				PolymerSequence p1 = sequences.get(i);
+				IntStream.range(i + 1, chains.size()).parallel().forEach(j ->
+						sameEntity[j] = isSameEntity(p1, sequences.get(j), proteinMatrix, nucleotideMatrix));
 
-					int seq1Length;
-					int seq2Length;
-
-					SequencePair<?,?> pair;
-					if (isProteinSequence(str1) && isProteinSequence(str2)) {
-						ProteinSequence s1 = getProteinSequence(str1);
-						ProteinSequence s2 = getProteinSequence(str2);
-						seq1Length = s1.getLength();
-						seq2Length = s2.getLength();
-
-						pair = alignProtein(s1,s2);
-
-					} else if (isDNASequence(str1) && isDNASequence(str2)) {
-						DNASequence s1 = getDNASequence(str1);
-						DNASequence s2 = getDNASequence(str2);
-						seq1Length = s1.getLength();
-						seq2Length = s2.getLength();
-
-						pair = alignDNA(s1,s2);
+				for (int j:polyChainIndices) {
 
-					} else if (isRNASequence(str1) && isRNASequence(str2)) {
-						RNASequence s1 = getRNASequence(str1);
-						RNASequence s2 = getRNASequence(str2);
-						seq1Length = s1.getLength();
-						seq2Length = s2.getLength();
+					if (j<=i) continue;
 
-						pair = alignRNA(s1,s2);
+					Chain c1 = chains.get(i);
+					Chain c2 = chains.get(j);
 
-					} else {
-						logger.debug("Chains {},{} are either different kind of polymers or could not be recognized as protein or nucleotide polymers");
+					if (sameEntity[j] == null) {
+						logger.debug("Chains {},{} are either different kind of polymers or could not be recognized as protein or nucleotide polymers", c1.getId(), c2.getId());
 						continue;
 					}
 
-
-					int numGaps = getNumGaps(pair);
-					int numGaps1 = getNumGapsQuery(pair);
-					int numGaps2 = getNumGapsTarget(pair);
-
-					int nonGaps = pair.getLength() - numGaps;
-
-					double identity = (double)pair.getNumIdenticals()/(double)nonGaps;
-					double gapCov1 = (double) numGaps1 / (double) seq1Length;
-					double gapCov2 = (double) numGaps2 / (double) seq2Length;
-
-					logger.debug("Alignment for chain pair {},{}: identity: {}, gap coverage 1: {}, gap coverage 2: {}",
-							c1.getId(), c2.getId(), String.format("%4.2f",identity), String.format("%4.2f",gapCov1), String.format("%4.2f",gapCov2));
-					logger.debug("\n"+pair.toString(100));
-
-					if (identity > IDENTITY_THRESHOLD && gapCov1<GAP_COVERAGE_THRESHOLD && gapCov2<GAP_COVERAGE_THRESHOLD) {
+					if (sameEntity[j]) {
 						if (	!chainIds2entities.containsKey(c1.getId()) &&
 								!chainIds2entities.containsKey(c2.getId())) {
 							logger.debug("Creating Compound with chains {},{}",c1.getId(),c2.getId());
@@ -342,12 +315,6 @@ public class EntityFinder {
 						}
 					}
 
-					if (identity>1) {
-						logger.warn("Identity for chains {},{} above 1. {} identicals out of {} non-gap-aligned residues (identity {})",
-								c1.getId(),c2.getId(),pair.getNumIdenticals(),nonGaps,identity);
-						logger.warn("\n"+pair.toString(100));
-					}
-
 					if (chainIds2entities.size()==polyChainIndices.size()) // we've got all chains in entities
 						break outer;
 				}
@@ -383,37 +350,109 @@ public class EntityFinder {
 		return chainIds2entities;
 	}
 
-	private static SequencePair<ProteinSequence, AminoAcidCompound> alignProtein(ProteinSequence s1, ProteinSequence s2) {
-		SubstitutionMatrix<AminoAcidCompound> matrix = SubstitutionMatrixHelper.getIdentity();
+	/**
+	 * Decides whether two chains belong to the same entity.
+	 * @return the decision, or null if the chains are different kinds of polymers
+	 */
+	private static Boolean isSameEntity(PolymerSequence p1, PolymerSequence p2,
+			SubstitutionMatrix<AminoAcidCompound> proteinMatrix, SubstitutionMatrix<NucleotideCompound> nucleotideMatrix) {
+		if (p1.protein != null && p2.protein != null) {
+			return isSameEntity(p1, p2, p1.protein, p2.protein, proteinMatrix);
+		} else if (p1.dna != null && p2.dna != null) {
+			return isSameEntity(p1, p2, p1.dna, p2.dna, nucleotideMatrix);
+		} else if (p1.rna != null && p2.rna != null) {
+			return isSameEntity(p1, p2, p1.rna, p2.rna, nucleotideMatrix);
+		}
+		return null;
+	}
+
+	private static <S extends Sequence<C>, C extends Compound> boolean isSameEntity(PolymerSequence p1, PolymerSequence p2,
+			S s1, S s2, SubstitutionMatrix<C> matrix) {
 
-		GapPenalty penalty = new SimpleGapPenalty(8, 1);
+		Boolean same = isSameEntityWithoutAlignment(p1.sequence, p2.sequence, matrix, s1.getCompoundSet());
+		if (same != null) {
+			logger.debug("Chain pair {},{} is {} without alignment", p1.chainId, p2.chainId, same ? "identical" : "different");
+			return same;
+		}
 
-		PairwiseSequenceAligner<ProteinSequence, AminoAcidCompound> nw =
-				Alignments.getPairwiseAligner(s1, s2, PairwiseSequenceAlignerType.GLOBAL, penalty, matrix);
+		PairwiseSequenceAligner<S, C> nw = Alignments.getPairwiseAligner(s1, s2, PairwiseSequenceAlignerType.GLOBAL,
+				new SimpleGapPenalty(GAP_OPEN, GAP_EXTENSION), matrix);
+		SequencePair<S, C> pair = nw.getPair();
 
-		return nw.getPair();
-	}
+		int numGaps = getNumGaps(pair);
+		int numGaps1 = getNumGapsQuery(pair);
+		int numGaps2 = getNumGapsTarget(pair);
 
-	private static SequencePair<DNASequence, NucleotideCompound> alignDNA(DNASequence s1, DNASequence s2) {
-		SubstitutionMatrix<NucleotideCompound> matrix = SubstitutionMatrixHelper.getNuc4_4();
+		int nonGaps = pair.getLength() - numGaps;
 
-		GapPenalty penalty = new SimpleGapPenalty(8, 1);
+		double identity = (double)pair.getNumIdenticals()/(double)nonGaps;
+		double gapCov1 = (double) numGaps1 / (double) s1.getLength();
+		double gapCov2 = (double) numGaps2 / (double) s2.getLength();
 
-		PairwiseSequenceAligner<DNASequence, NucleotideCompound> nw =
-				Alignments.getPairwiseAligner(s1, s2, PairwiseSequenceAlignerType.GLOBAL, penalty, matrix);
+		logger.debug("Alignment for chain pair {},{}: identity: {}, gap coverage 1: {}, gap coverage 2: {}",
+				p1.chainId, p2.chainId, String.format("%4.2f",identity), String.format("%4.2f",gapCov1), String.format("%4.2f",gapCov2));
+		logger.debug("\n"+pair.toString(100));
 
-		return nw.getPair();
-	}
+		if (identity>1) {
+			logger.warn("Identity for chains {},{} above 1. {} identicals out of {} non-gap-aligned residues (identity {})",
+					p1.chainId,p2.chainId,pair.getNumIdenticals(),nonGaps,identity);
+			logger.warn("\n"+pair.toString(100));
+		}
 
-	private static SequencePair<RNASequence, NucleotideCompound> alignRNA(RNASequence s1, RNASequence s2) {
-		SubstitutionMatrix<NucleotideCompound> matrix = SubstitutionMatrixHelper.getNuc4_4();
+		return identity > IDENTITY_THRESHOLD && gapCov1<GAP_COVERAGE_THRESHOLD && gapCov2<GAP_COVERAGE_THRESHOLD;
+	}
 
-		GapPenalty penalty = new SimpleGapPenalty(8, 1);
+	/**
+	 * Decides whether the global alignment of two sequences puts them in the same entity, when this
+	 * follows from the sequences without aligning them:
+	 * <ul>
+	 * <li>if an upper bound of the number of identical pairs, from the lengths, the composition or the longest
+	 * common subsequence, is too low for the gap coverage thresholds, the sequences are different</li>
+	 * <li>if one sequence is a substring of the other and the matrix scores identical pairs above any other pair
+	 * by more than a gap opening, every optimal alignment places it identically within the other, and only its
+	 * gap coverage is left to check</li>
+	 * </ul>
+	 * @param str1
+	 * @param str2
+	 * @param matrix the matrix used for the alignment
+	 * @param compoundSet the compound set of both sequences
+	 * @return the decision, or null if the sequences need to be aligned
+	 */
+	static <C extends Compound> Boolean isSameEntityWithoutAlignment(String str1, String str2,
+			SubstitutionMatrix<C> matrix, CompoundSet<C> compoundSet) {
+		int n1 = str1.length();
+		int n2 = str2.length();
+		if (n1 == 0 || n2 == 0) {
+			return null;
+		}
 
-		PairwiseSequenceAligner<RNASequence, NucleotideCompound> nw =
-				Alignments.getPairwiseAligner(s1, s2, PairwiseSequenceAlignerType.GLOBAL, penalty, matrix);
+		// all aligned pairs must be identical, and the residues aligned to gaps must stay below the gap coverage of
+		// the other sequence. The margin accounts for rounding.
+		double minIdenticals = Math.max(n2 - GAP_COVERAGE_THRESHOLD * n1, n1 - GAP_COVERAGE_THRESHOLD * n2) - 1e-6;
+		if (Math.min(n1, n2) <= minIdenticals
+				|| IdentityAlignmentBounds.getCompositionBound(str1, str2) <= minIdenticals
+				|| IdentityAlignmentBounds.getLcsLength(str1, str2) <= minIdenticals) {
+			return false;
+		}
 
-		return nw.getPair();
+		int margin = IdentityAlignmentBounds.getIdentityMargin(matrix, compoundSet, str1, str2);
+		// dropping a residue must cost more than its identical pair scores
+		if (margin <= 0 || IdentityAlignmentBounds.getMinIdentityScore(matrix, compoundSet, str1, str2) < -GAP_EXTENSION) {
+			return null;
+		}
+		if (str1.equals(str2)) {
+			return true;
+		}
+		String shorter = n1 < n2 ? str1 : str2;
+		String longer = n1 < n2 ? str2 : str1;
+		if (!longer.contains(shorter)) {
+			return null;
+		}
+		// with a gap at one end only, an identical placement has the fewest gap openings
+		if (margin <= GAP_OPEN && !longer.startsWith(shorter) && !longer.endsWith(shorter)) {
+			return null;
+		}
+		return (double) (longer.length() - shorter.length()) / (double) shorter.length() < GAP_COVERAGE_THRESHOLD;
 	}
 
 
@@ -525,4 +564,24 @@ public class EntityFinder {
 		return null;
 	}
 
+	/**
+	 * The sequence of a chain, as each kind of polymer it can be.
+	 */
+	private static class PolymerSequence {
+		final String chainId;
+		final String sequence;
+		final ProteinSequence protein;
+		final DNASequence dna;
+		final RNASequence rna;
+
+		PolymerSequence(Chain c) {
+			chainId = c.getId();
+			// here we use false, which means that X will be used for unknown compounds
+			sequence = SeqRes2AtomAligner.getFullAtomSequence(c.getAtomGroups(), new HashMap<>(), false);
+			protein = isProteinSequence(sequence) ? getProteinSequence(sequence) : null;
+			dna = isDNASequence(sequence) ? getDNASequence(sequence) : null;
+			rna = isRNASequence(sequence) ? getRNASequence(sequence) : null;
+		}
+	}
+
 }
@@ -29,7 +29,10 @@ import org.biojava.nbio.structure.io.mmcif.model.AtomSite;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.text.DateFormat;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
@@ -71,6 +74,13 @@ public class FileConvert {
 
 	private static final String newline = System.getProperty("line.separator");
 
+	private static final String[] ELEMENT_SYMBOLS = new String[Element.values().length];
+	static {
+		for (Element e : Element.values()) {
+			ELEMENT_SYMBOLS[e.ordinal()] = e.toString().toUpperCase();
+		}
+	}
+
 	/**
 	 * Constructs a FileConvert object.
 	 *
@@ -99,164 +109,28 @@ public class FileConvert {
 		this.printConnections = printConnections;
 	}
 
-	/**
-	 * Prints the connections in PDB style
-	 *
-	 * Rewritten since 5.0 to use {@link Bond}s
-	 * Will produce strictly one CONECT record per bond (won't group several bonds in one line)
-	 */
-	private String printPDBConnections(){
-
-		StringBuilder str = new StringBuilder();
-
-		for (Chain c:structure.getChains()) {
-			for (Group g:c.getAtomGroups()) {
-				for (Atom a:g.getAtoms()) {
-					if (a.getBonds()!=null) {
-						for (Bond b:a.getBonds()) {				//7890123456789012345678901234567890123456789012345678901234567890
-							str.append(String.format("CONECT%5d%5d                                                                "+newline, b.getAtomA().getPDBserial(), b.getAtomB().getPDBserial()));
-						}
-					}
-				}
-			}
-		}
-
-		return str.toString();
-	}
-
 	/** Convert a structure into a PDB file.
 	 * @return a String representing a PDB file.
+	 * @see PDBStreamWriter
 	 */
 	public String toPDB() {
 
-
-		StringBuffer str = new StringBuffer();
-		//int i = 0 ;
-
-
-
-		// TODO: print all the PDB header informaton in PDB style
-		// some objects (PDBHeader, Compound) are still missing
-		//
-
-		PDBHeader header = structure.getPDBHeader();
-		header.toPDB(str);
-
-
-		//REMARK 800
-		if (!structure.getSites().isEmpty()) {
-			str.append("REMARK 800                                                                      ").append(newline);
-			str.append("REMARK 800 SITE                                                                 ").append(newline);
-			for (Site site : structure.getSites()) {
-				site.remark800toPDB(str);
-			}
-		}
-		//DBREF
-		for (DBRef dbref : structure.getDBRefs()){
-			dbref.toPDB(str);
-			str.append(newline);
-		}
-		//SSBOND
-		List<SSBondImpl> ssbonds = SSBondImpl.getSsBondListFromBondList(structure.getSSBonds());
-		for (SSBondImpl ssbond : ssbonds){
-			ssbond.toPDB(str);
-			str.append(newline);
-		}
-		//SITE
-		for (Site site : structure.getSites()) {
-			try {
-				site.toPDB(str);
-			} catch (Exception e){
-				e.printStackTrace();
-			}
-		}
-
-		//
-		// print the atom records
-		//
-
-		// do for all models
-		int nrModels = structure.nrModels() ;
-		if ( structure.isNmr()) {
-			str.append("EXPDTA    NMR, ").append(nrModels).append(" STRUCTURES").append(newline);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (PDBStreamWriter writer = new PDBStreamWriter(out)) {
+			writer.setPrintConnections(doPrintConnections());
+			writer.writeStructure(structure);
+		} catch (IOException e) {
+			// not thrown by a ByteArrayOutputStream
+			throw new UncheckedIOException(e);
 		}
-		for (int m = 0 ; m < nrModels ; m++) {
-
-
-			if ( nrModels>1 ) {
-				str.append("MODEL      ").append(m + 1).append(newline);
-			}
-
-			List<Chain> polyChains = structure.getPolyChains(m);
-			List<Chain> nonPolyChains = structure.getNonPolyChains(m);
-			List<Chain> waterChains = structure.getWaterChains(m);
-
-			for (Chain chain : polyChains) {
-
-				// do for all groups
-				int nrGroups = chain.getAtomLength();
-				for ( int h=0; h<nrGroups;h++){
-
-					Group g= chain.getAtomGroup(h);
-
-					toPDB(g,str);
-
-				}
-				// End any polymeric chain with a "TER" record
-				if (nrGroups > 0) str.append(String.format("%-80s","TER")).append(newline);
-
-			}
-
-			boolean nonPolyGroupsExist = false;
-			for (Chain chain : nonPolyChains) {
-
-				// do for all groups
-				int nrGroups = chain.getAtomLength();
-				for ( int h=0; h<nrGroups;h++){
-
-					Group g= chain.getAtomGroup(h);
-
-					toPDB(g,str);
-
-					nonPolyGroupsExist = true;
-				}
-
-			}
-			if (nonPolyGroupsExist) str.append(String.format("%-80s","TER")).append(newline);
-
-			boolean waterGroupsExist = false;
-			for (Chain chain : waterChains) {
-
-				// do for all groups
-				int nrGroups = chain.getAtomLength();
-				for ( int h=0; h<nrGroups;h++){
-
-					Group g= chain.getAtomGroup(h);
-
-					toPDB(g,str);
-
-					waterGroupsExist = true;
-				}
-
-			}
-			if (waterGroupsExist) str.append(String.format("%-80s","TER")).append(newline);
-
-
-			if ( nrModels>1) {
-				str.append(String.format("%-80s","ENDMDL")).append(newline);
-			}
-
-
-
-		}
-
-		if ( doPrintConnections() )
-			str.append(printPDBConnections());
-
-		return str.toString() ;
+		return new String(out.toByteArray(), StandardCharsets.UTF_8);
 	}
 
 	private static void toPDB(Group g, StringBuffer str) {
+		toPDB(g, str, new RecordBuffer());
+	}
+
+	private static void toPDB(Group g, StringBuffer str, RecordBuffer line) {
 		// iterate over all atoms ...
 		// format output ...
 		int groupsize  = g.size();
@@ -268,7 +142,8 @@ public class FileConvert {
 			if ( a == null)
 				continue ;
 
-			toPDB(a, str);
+			toPDB(a, a.getGroup().getChain().getName(), line);
+			str.append(line.chars(), 0, line.length()).append(newline);
 
 
 			//line = record + serial + " " + fullname +altLoc
@@ -280,7 +155,7 @@ public class FileConvert {
 		}
 		if ( g.hasAltLoc()){
 			for (Group alt : g.getAltLocs() ) {
-				toPDB(alt,str);
+				toPDB(alt,str,line);
 			}
 		}
 
@@ -317,6 +192,7 @@ public class FileConvert {
 	 */
 	public static String toPDB(Chain chain){
 		StringBuffer w = new StringBuffer();
+		RecordBuffer line = new RecordBuffer();
 		int nrGroups = chain.getAtomLength();
 
 		for ( int h=0; h<nrGroups;h++){
@@ -324,7 +200,7 @@ public class FileConvert {
 			Group g= chain.getAtomGroup(h);
 
 
-			toPDB(g,w);
+			toPDB(g,w,line);
 
 
 		}
@@ -377,6 +253,22 @@ public class FileConvert {
 	 */
 	public static void toPDB(Atom a, StringBuffer str, String chainID) {
 
+		RecordBuffer line = new RecordBuffer();
+		toPDB(a, chainID, line);
+		str.append(line.chars(), 0, line.length());
+		str.append(newline);
+
+	}
+
+	/**
+	 * Formats the ATOM record of an atom, without the line separator, in a line that is cleared first.
+	 * @param a
+	 * @param chainID the chain ID that the Atom will have in the output string
+	 * @param line
+	 * @see #toPDB(Atom, StringBuffer, String)
+	 */
+	static void toPDB(Atom a, String chainID, RecordBuffer line) {
+
 		Group g = a.getGroup();
 
 		GroupType type = g.getType() ;
@@ -388,61 +280,48 @@ public class FileConvert {
 			record = "ATOM  ";
 		}
 
-
-		// format output ...
-		String resName = g.getPDBName();
-		String pdbcode = g.getResidueNumber().toString();
-
-
-		int    seri       = a.getPDBserial()        ;
-		String serial     = String.format("%5d",seri);
-		String fullName   = formatAtomName(a);
-
 		Character  altLoc = a.getAltLoc();
 		if ( altLoc == null)
 			altLoc = ' ';
 
-		String resseq;
-		if ( hasInsertionCode(pdbcode) )
-			resseq     = String.format("%5s",pdbcode);
-		else
-			resseq     = String.format("%4s",pdbcode)+" ";
-
-		String x          = String.format("%8s",d3.format(a.getX()));
-		String y          = String.format("%8s",d3.format(a.getY()));
-		String z          = String.format("%8s",d3.format(a.getZ()));
-		String occupancy  = String.format("%6s",d2.format(a.getOccupancy())) ;
-		String tempfactor = String.format("%6s",d2.format(a.getTempFactor()));
-
-
-		String leftResName = String.format("%3s",resName);
-
-		StringBuilder s = new StringBuilder();
-		s.append(record);
-		s.append(serial);
-		s.append(" ");
-		s.append(fullName);
-		s.append(altLoc);
-		s.append(leftResName);
-		s.append(" ");
-		s.append(chainID);
-		s.append(resseq);
-		s.append("   ");
-		s.append(x);
-		s.append(y);
-		s.append(z);
-		s.append(occupancy);
-		s.append(tempfactor);
+		line.clear();
+		line.append(record);
+		line.appendInt(a.getPDBserial(), 5);
+		line.append(' ');
+		line.append(formatAtomName(a));
+		line.append(altLoc);
+		line.appendRight(g.getPDBName(), 3);
+		line.append(' ');
+		line.append(chainID);
+
+		ResidueNumber resNum = g.getResidueNumber();
+		Character insCode = resNum.getInsCode();
+		if (resNum.getSeqNum() != null && (insCode == null || insCode == ' ')) {
+			line.appendInt(resNum.getSeqNum(), 4).append(' ');
+		} else {
+			String pdbcode = resNum.toString();
+			if ( hasInsertionCode(pdbcode) )
+				line.appendRight(pdbcode, 5);
+			else
+				line.appendRight(pdbcode, 4).append(' ');
+		}
+
+		line.append("   ");
+		line.appendDecimal(a.getX(), d3, 8);
+		line.appendDecimal(a.getY(), d3, 8);
+		line.appendDecimal(a.getZ(), d3, 8);
+		line.appendDecimal(a.getOccupancy(), d2, 6);
+		line.appendDecimal(a.getTempFactor(), d2, 6);
 
 		Element e = a.getElement();
 
-		String eString = e.toString().toUpperCase();
+		String eString = ELEMENT_SYMBOLS[e.ordinal()];
 
 		if ( e.equals(Element.R)) {
 			eString = "X";
 		}
-		str.append(String.format("%-76s%2s", s.toString(),eString));
-		str.append(newline);
+		line.padTo(76);
+		line.appendRight(eString, 2);
 
 	}
 
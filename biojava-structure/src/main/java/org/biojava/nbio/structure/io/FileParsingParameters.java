@@ -27,6 +27,10 @@ package org.biojava.nbio.structure.io;
 import org.biojava.nbio.structure.AminoAcid;
 
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 
 /**
  * A class that configures parameters that can be sent to the PDB file parsers
@@ -41,6 +45,9 @@ import java.io.Serializable;
  * </li>
  * <li> {@link #setCreateAtomBonds(boolean)} - create atom bonds from parsed bonds in PDB/mmCIF files and chemical component files
  * </li>
+ * <li> {@link #setChainIds(Collection)}, {@link #setEntityIds(Collection)}, {@link #setAtomNames(Collection)} and
+ *      {@link #setModelRange(int, int)} - load only the selected atom records (mmCIF/BinaryCIF files read
+ *      through {@link CifFileReader} and {@link BcifFileReader} only)</li>
  * </ul>
  *
  * @author Andreas Prlic
@@ -108,6 +115,27 @@ public class FileParsingParameters implements Serializable
 
 	int maxAtoms ;
 
+	/**
+	 * The chains to load, null to load all chains
+	 */
+	private Set<String> chainIds;
+
+	/**
+	 * The entities to load, null to load all entities
+	 */
+	private Set<String> entityIds;
+
+	/**
+	 * The atom names to load, null to load all atoms
+	 */
+	private Set<String> atomNames;
+
+	/**
+	 * The range of model numbers to load
+	 */
+	private int firstModel;
+	private int lastModel;
+
 	String[] fullAtomNames;
 
 	public FileParsingParameters(){
@@ -135,6 +163,12 @@ public class FileParsingParameters implements Serializable
 
 		createAtomCharges = true;
 
+		chainIds = null;
+		entityIds = null;
+		atomNames = null;
+		firstModel = Integer.MIN_VALUE;
+		lastModel = Integer.MAX_VALUE;
+
 	}
 
 	/**
@@ -333,6 +367,108 @@ public class FileParsingParameters implements Serializable
 		this.createAtomCharges = createAtomCharges;
 	}
 
+	/**
+	 * Restricts the atom records that are loaded to some chains. Atoms of other chains are
+	 * skipped, and no chain or SEQRES groups are created for them.
+	 *
+	 * @param chainIds the chain ids, matched against both the label_asym_id and the
+	 * auth_asym_id, or null to load all chains (the default)
+	 * @since 5.3.1
+	 */
+	public void setChainIds(Collection<String> chainIds) {
+		this.chainIds = chainIds == null ? null : new HashSet<>(chainIds);
+	}
+
+	/**
+	 * @return the chain ids of the atom records to load, or null to load all chains
+	 * @see #setChainIds(Collection)
+	 * @since 5.3.1
+	 */
+	public Set<String> getChainIds() {
+		return chainIds == null ? null : Collections.unmodifiableSet(chainIds);
+	}
+
+	/**
+	 * Restricts the atom records that are loaded to the chains of some entities.
+	 * The entity information itself is always loaded.
+	 *
+	 * @param entityIds the entity ids (label_entity_id), or null to load all entities (the default)
+	 * @since 5.3.1
+	 */
+	public void setEntityIds(Collection<String> entityIds) {
+		this.entityIds = entityIds == null ? null : new HashSet<>(entityIds);
+	}
+
+	/**
+	 * @return the entity ids of the atom records to load, or null to load all entities
+	 * @see #setEntityIds(Collection)
+	 * @since 5.3.1
+	 */
+	public Set<String> getEntityIds() {
+		return entityIds == null ? null : Collections.unmodifiableSet(entityIds);
+	}
+
+	/**
+	 * Restricts the atom records that are loaded to some atom names, e.g. "CA" and "P" for
+	 * a trace of a protein-nucleic acid complex. Unlike {@link #setParseCAOnly(boolean)},
+	 * groups without any of the atoms are skipped altogether.
+	 *
+	 * @param atomNames the atom names (label_atom_id), or null to load all atoms (the default)
+	 * @since 5.3.1
+	 */
+	public void setAtomNames(Collection<String> atomNames) {
+		this.atomNames = atomNames == null ? null : new HashSet<>(atomNames);
+	}
 
+	/**
+	 * @return the names of the atoms to load, or null to load all atoms
+	 * @see #setAtomNames(Collection)
+	 * @since 5.3.1
+	 */
+	public Set<String> getAtomNames() {
+		return atomNames == null ? null : Collections.unmodifiableSet(atomNames);
+	}
 
+	/**
+	 * Restricts the atom records that are loaded to a range of models. By default all models are loaded.
+	 *
+	 * @param firstModel the first model number (pdbx_PDB_model_num) to load, inclusive
+	 * @param lastModel the last model number to load, inclusive
+	 * @throws IllegalArgumentException if lastModel &lt; firstModel
+	 * @since 5.3.1
+	 */
+	public void setModelRange(int firstModel, int lastModel) {
+		if (lastModel < firstModel)
+			throw new IllegalArgumentException("Empty model range " + firstModel + "-" + lastModel);
+		this.firstModel = firstModel;
+		this.lastModel = lastModel;
+	}
+
+	/**
+	 * @return the first model number to load
+	 * @see #setModelRange(int, int)
+	 * @since 5.3.1
+	 */
+	public int getFirstModel() {
+		return firstModel;
+	}
+
+	/**
+	 * @return the last model number to load
+	 * @see #setModelRange(int, int)
+	 * @since 5.3.1
+	 */
+	public int getLastModel() {
+		return lastModel;
+	}
+
+	/**
+	 * @return true if some atom records are not loaded because of the chain, entity,
+	 * atom name or model filters
+	 * @since 5.3.1
+	 */
+	public boolean isAtomSelection() {
+		return chainIds != null || entityIds != null || atomNames != null
+				|| firstModel != Integer.MIN_VALUE || lastModel != Integer.MAX_VALUE;
+	}
 }
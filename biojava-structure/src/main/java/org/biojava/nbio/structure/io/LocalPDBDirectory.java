@@ -32,14 +32,29 @@ import org.rcsb.mmtf.utils.CodecUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
 import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Superclass for classes which download and interact with the PDB's FTP server,
@@ -132,6 +147,15 @@ import java.util.*;
 	/** Minimum size for a valid structure file (CIF or PDB), in bytes */
 	public static final long MIN_PDB_FILE_SIZE = 40;  // Empty gzip files are 20bytes. Add a few more for buffer.
 
+	/**
+	 * Default number of attempts to download a file in {@link #prefetchStructure(String)}
+	 * @since 5.3.1
+	 */
+	public static final int DEFAULT_MAX_DOWNLOAD_ATTEMPTS = 3;
+
+	private static final int DOWNLOAD_TIMEOUT_MS = 60000;
+	private static final long RETRY_DELAY_MS = 500;
+
 	private File path;
 	private final List<String> extensions;
 
@@ -147,6 +171,8 @@ import java.util.*;
 	private ObsoleteBehavior obsoleteBehavior;
 	private FetchBehavior fetchBehavior;
 
+	private int maxDownloadAttempts = DEFAULT_MAX_DOWNLOAD_ATTEMPTS;
+
 
 	// Cache results of get*DirPath()
 	private String splitDirURL; // path on the server, starting with a slash and ending before the 2-char split directories
@@ -296,6 +322,28 @@ import java.util.*;
 		this.fetchBehavior = fetchBehavior;
 	}
 
+	/**
+	 * Get the number of attempts to download a file before giving up when prefetching.
+	 * @return
+	 * @since 5.3.1
+	 */
+	public int getMaxDownloadAttempts() {
+		return maxDownloadAttempts;
+	}
+
+	/**
+	 * Set the number of attempts to download a file before giving up when prefetching,
+	 * default is {@value #DEFAULT_MAX_DOWNLOAD_ATTEMPTS}. Files that are not found on the
+	 * server are not retried.
+	 * @param maxDownloadAttempts
+	 * @since 5.3.1
+	 */
+	public void setMaxDownloadAttempts(int maxDownloadAttempts) {
+		if (maxDownloadAttempts < 1)
+			throw new IllegalArgumentException("At least one download attempt is needed");
+		this.maxDownloadAttempts = maxDownloadAttempts;
+	}
+
 
 	@Override
 	public Structure getStructure(String filename) throws IOException
@@ -352,24 +400,150 @@ import java.util.*;
 		return downloadStructure(pdbId);
 	}
 
-//	/**
-//	 * Download a structure, but don't parse it yet or store it in memory.
-//	 *
-//	 * Used to pre-fetch large numbers of structures.
-//	 * @param pdbId
-//	 * @throws IOException
-//	 */
-//	public void prefetchStructure(String pdbId) throws IOException {
-//		if ( pdbId.length() != 4)
-//			throw new IOException("The provided ID does not look like a PDB ID : " + pdbId);
-//
-//		// Check existing
-//		File file = downloadStructure(pdbId);
-//
-//		if(!file.exists()) {
-//			throw new IOException("Structure "+pdbId+" not found and unable to download.");
-//		}
-//	}
+	/**
+	 * Download a structure to the local directory, but don't parse it yet or store it in memory,
+	 * according to the {@link FetchBehavior} and the {@link ObsoleteBehavior}.
+	 * The file is first downloaded to a temporary file in the split directory and then
+	 * renamed, so that a partially downloaded file is never seen by {@link #getLocalFile(String)}.
+	 *
+	 * Used to pre-fetch large numbers of structures.
+	 * @param pdbId
+	 * @return the local file
+	 * @throws IOException if the structure could not be downloaded after
+	 * {@link #getMaxDownloadAttempts()} attempts, or if the fetchBehavior is
+	 * {@link FetchBehavior#LOCAL_ONLY} and the structure is not present
+	 * @since 5.3.1
+	 */
+	public File prefetchStructure(String pdbId) throws IOException {
+		if ( pdbId.length() != 4)
+			throw new IOException("The provided ID does not look like a PDB ID : " + pdbId);
+
+		File existing = getLocalFile(pdbId);
+		if ( existing != null && isLocalFileUsable(pdbId, existing)) {
+			return existing;
+		}
+		if ( fetchBehavior == FetchBehavior.LOCAL_ONLY) {
+			throw new IOException(String.format("Structure %s not found in %s "
+					+ "and configured not to download.",pdbId,getPath()));
+		}
+
+		if(obsoleteBehavior == ObsoleteBehavior.FETCH_CURRENT) {
+			String current = PDBStatus.getCurrent(pdbId);
+
+			if(current == null) {
+				// either an error or there is not current entry
+				current = pdbId;
+			}
+			return downloadStructureFile(current, splitDirURL, false);
+		} else if(obsoleteBehavior == ObsoleteBehavior.FETCH_OBSOLETE
+				&& PDBStatus.getStatus(pdbId) == Status.OBSOLETE) {
+			return downloadStructureFile(pdbId, obsoleteDirURL, true);
+		} else {
+			return downloadStructureFile(pdbId, splitDirURL, false);
+		}
+	}
+
+	/**
+	 * Downloads structures to the local directory with up to maxConnections concurrent downloads,
+	 * see {@link #prefetchStructure(String)}. A failure to download one structure does not
+	 * stop the others.
+	 * @param pdbIds the ids to prefetch, duplicates are downloaded only once
+	 * @param maxConnections the maximum number of concurrent downloads
+	 * @param listener receives the progress, may be null
+	 * @return the ids that could not be prefetched, in the order of the input
+	 * @throws InterruptedIOException if the thread is interrupted while waiting for the downloads
+	 * @since 5.3.1
+	 */
+	public List<String> prefetchStructures(Collection<String> pdbIds, int maxConnections, PrefetchListener listener)
+			throws InterruptedIOException {
+
+		Set<String> ids = new LinkedHashSet<>();
+		for (String pdbId : pdbIds) {
+			ids.add(pdbId.toLowerCase());
+		}
+		int nrIds = ids.size();
+
+		if (listener != null)
+			listener.prefetchStarted(nrIds);
+
+		AtomicInteger nrDone = new AtomicInteger();
+		Map<String, Future<File>> futures = new LinkedHashMap<>();
+		ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(maxConnections, nrIds)));
+		try {
+			for (String pdbId : ids) {
+				futures.put(pdbId, pool.submit(() -> {
+					File file;
+					try {
+						file = prefetchStructure(pdbId);
+					} catch (IOException e) {
+						logger.warn("Could not prefetch structure {}: {}", pdbId, e.getMessage());
+						if (listener != null)
+							listener.structureFailed(pdbId, e, nrDone.incrementAndGet(), nrIds);
+						throw e;
+					}
+					if (listener != null)
+						listener.structureFetched(pdbId, file, nrDone.incrementAndGet(), nrIds);
+					return file;
+				}));
+			}
+
+			List<String> failed = new ArrayList<>();
+			for (Map.Entry<String, Future<File>> entry : futures.entrySet()) {
+				try {
+					entry.getValue().get();
+				} catch (ExecutionException e) {
+					failed.add(entry.getKey());
+				}
+			}
+
+			if (listener != null)
+				listener.prefetchFinished(nrIds - failed.size(), failed.size());
+
+			return failed;
+
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while prefetching structures");
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Decides whether an existing local file can be used instead of downloading the
+	 * structure, according to the {@link FetchBehavior}.
+	 */
+	private boolean isLocalFileUsable(String pdbId, File existing) throws MalformedURLException {
+		switch(fetchBehavior) {
+		case LOCAL_ONLY:
+		case FETCH_FILES:
+			return true;
+		case FETCH_IF_OUTDATED:
+			boolean obsolete = existing.toPath().startsWith(obsoleteDirPath.toPath());
+			Date serverFileDate = getLastModifiedTime(getDownloadURL(pdbId, obsolete ? obsoleteDirURL : splitDirURL));
+			if (serverFileDate == null) {
+				logger.warn("Could not determine if file {} is outdated (could not get timestamp from server). Will force redownload", existing);
+				return false;
+			}
+			if (existing.lastModified() < serverFileDate.getTime()) {
+				logger.warn("File {} is outdated, will download new one from PDB (updated on {})",
+						existing, serverFileDate.toString());
+				return false;
+			}
+			return true;
+		case FETCH_REMEDIATED:
+			if (existing.lastModified() < LAST_REMEDIATION_DATE) {
+				// the file is too old, replace with newer version
+				logger.warn("Replacing file {} with latest remediated (remediation of {}) file from PDB.",
+						existing, LAST_REMEDIATION_DATE_STRING);
+				return false;
+			}
+			return true;
+		case FORCE_DOWNLOAD:
+		default:
+			return false;
+		}
+	}
 
 	/**
 	 * Attempts to delete all versions of a structure from the local directory.
@@ -428,49 +602,6 @@ import java.util.*;
 		if ( pdbId.length() != 4)
 			throw new IOException("The provided ID does not look like a PDB ID : " + pdbId);
 
-		// decide whether download is required
-//		File existing =  getLocalFile(pdbId);
-//		switch(fetchBehavior) {
-//		case LOCAL_ONLY:
-//			if( existing == null ) {
-//				throw new IOException(String.format("Structure %s not found in %s "
-//						+ "and configured not to download.",pdbId,getPath()));
-//			} else {
-//				return existing;
-//			}
-//		case FETCH_FILES:
-//			// Use existing if present
-//			if( existing != null) {
-//				return existing;
-//			}
-//			// existing is null, downloadStructure(String,String,boolean,File) will download it
-//			break;
-//		case FETCH_IF_OUTDATED:
-//			// here existing can be null or not:
-//			// existing == null : downloadStructure(String,String,boolean,File) will download it
-//			// existing != null : downloadStructure(String,String,boolean,File) will check its date and download if older
-//			break;
-//		case FETCH_REMEDIATED:
-//			// Use existing if present and recent enough
-//			if( existing != null) {
-//				long lastModified = existing.lastModified();
-//
-//				if (lastModified < LAST_REMEDIATION_DATE) {
-//					// the file is too old, replace with newer version
-//					logger.warn("Replacing file {} with latest remediated (remediation of {}) file from PDB.",
-//							existing, LAST_REMEDIATION_DATE_STRING);
-//					existing = null;
-//					break;
-//				} else {
-//					return existing;
-//				}
-//			}
-//		case FORCE_DOWNLOAD:
-//			// discard the existing file to force redownload
-//			existing = null; // downloadStructure(String,String,boolean,File) will download it
-//			break;
-//		}
-
 		// Force the download now
 		if(obsoleteBehavior == ObsoleteBehavior.FETCH_CURRENT) {
 			String current = PDBStatus.getCurrent(pdbId);
@@ -503,15 +634,7 @@ import java.util.*;
 //		File dir = getDir(pdbId,obsolete);
 //		File realFile = new File(dir,getFilename(pdbId));
 
-		String ftp;
-
-		if (getFilename(pdbId).endsWith(".mmtf.gz")){
-			ftp = CodecUtils.getMmtfEntryUrl(pdbId, true, false);
-		} else {
-			ftp = String.format("%s%s/%s/%s", serverName, pathOnServer, pdbId.substring(1,3).toLowerCase(), getFilename(pdbId));
-		}
-
-		URL url = new URL(ftp);
+		URL url = getDownloadURL(pdbId, pathOnServer);
 
 //		Date serverFileDate;
 //		if (existingFile!=null) {
@@ -554,6 +677,114 @@ import java.util.*;
 //		return realFile;
 	}
 
+	/**
+	 * Downloads a file from the server to the local directory, retrying failed downloads.
+	 * @param pdbId PDB ID
+	 * @param pathOnServer Path on the FTP server, e.g. data/structures/divided/pdb
+	 * @param obsolete Whether or not file should be saved to the obsolete location locally
+	 * @return the local file
+	 * @throws IOException the error of the last attempt
+	 */
+	private File downloadStructureFile(String pdbId, String pathOnServer, boolean obsolete) throws IOException {
+
+		URL url = getDownloadURL(pdbId, pathOnServer);
+		File realFile = new File(getDir(pdbId, obsolete), getFilename(pdbId));
+
+		for (int attempt = 1; ; attempt++) {
+			try {
+				downloadFile(url, realFile);
+				return realFile;
+			} catch (FileNotFoundException e) {
+				// not on the server, another attempt won't help
+				throw e;
+			} catch (IOException e) {
+				if (attempt >= maxDownloadAttempts)
+					throw e;
+				logger.warn("Attempt {} to download {} failed, retrying: {}", attempt, url, e.getMessage());
+			}
+			try {
+				Thread.sleep(RETRY_DELAY_MS * attempt);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while downloading " + url);
+			}
+		}
+	}
+
+	/**
+	 * Downloads a file to a temporary file in the destination directory and renames it
+	 * to the destination.
+	 */
+	private static void downloadFile(URL url, File destination) throws IOException {
+
+		Path tempFile = Files.createTempFile(destination.getParentFile().toPath(), destination.getName(), ".part");
+		try {
+			// responses in the HTTP cache of FileDownloadUtils are used without network access
+			copyToFile(FileDownloadUtils.downloadStream(url, DOWNLOAD_TIMEOUT_MS), tempFile, destination);
+
+			if (Files.size(tempFile) == 0) {
+				URLConnection connection = FileDownloadUtils.prepareURLConnection(url.toString(), DOWNLOAD_TIMEOUT_MS);
+				try (InputStream in = connection.getInputStream()) {
+					Files.copy(in, tempFile, StandardCopyOption.REPLACE_EXISTING);
+				}
+			}
+
+			if (Files.size(tempFile) < MIN_PDB_FILE_SIZE)
+				throw new IOException("Downloaded file " + url + " is too short to have contents");
+
+			logger.debug("Moving downloaded file {} to {}", tempFile, destination);
+			try {
+				Files.move(tempFile, destination.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tempFile, destination.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+	}
+
+	/**
+	 * Copies a stream to a file. The HTTP cache returns gzipped files uncompressed, so
+	 * they are compressed again if the destination is a .gz file.
+	 */
+	private static void copyToFile(InputStream in, Path file, File destination) throws IOException {
+		try (BufferedInputStream bin = new BufferedInputStream(in)) {
+			bin.mark(2);
+			int first = bin.read();
+			int magic = (first & 0xff) << 8 | (bin.read() & 0xff);
+			bin.reset();
+			if (first >= 0 && destination.getName().endsWith(".gz") && magic != InputStreamProvider.GZIP_MAGIC) {
+				try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+					int n = 0;
+					byte[] buffer = new byte[8192];
+					while ((n = bin.read(buffer)) > 0) {
+						out.write(buffer, 0, n);
+					}
+				}
+			} else {
+				Files.copy(bin, file, StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+	}
+
+	/**
+	 * Gets the URL of the file of a structure on the server
+	 * @param pdbId PDB ID
+	 * @param pathOnServer Path on the FTP server, e.g. data/structures/divided/pdb
+	 */
+	private URL getDownloadURL(String pdbId, String pathOnServer) throws MalformedURLException {
+
+		String ftp;
+
+		if (getFilename(pdbId).endsWith(".mmtf.gz")){
+			ftp = CodecUtils.getMmtfEntryUrl(pdbId, true, false);
+		} else {
+			ftp = String.format("%s%s/%s/%s", serverName, pathOnServer, pdbId.substring(1,3).toLowerCase(), getFilename(pdbId));
+		}
+
+		return new URL(ftp);
+	}
+
 	/**
 	 * Get the last modified time of the file in given url by retrieveing the "Last-Modified" header.
 	 * Note that this only works for http URLs
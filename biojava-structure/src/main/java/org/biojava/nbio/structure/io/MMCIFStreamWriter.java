@@ -0,0 +1,263 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.io;
+
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.Chain;
+import org.biojava.nbio.structure.Element;
+import org.biojava.nbio.structure.EntityInfo;
+import org.biojava.nbio.structure.EntityType;
+import org.biojava.nbio.structure.Group;
+import org.biojava.nbio.structure.GroupType;
+import org.biojava.nbio.structure.PDBCrystallographicInfo;
+import org.biojava.nbio.structure.ResidueNumber;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.io.mmcif.MMCIFFileTools;
+import org.biojava.nbio.structure.io.mmcif.SimpleMMcifParser;
+import org.biojava.nbio.structure.io.mmcif.model.AtomSite;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Writes structures in mmCIF format directly to an {@link OutputStream} or a
+ * {@link WritableByteChannel}. The <code>_atom_site</code> category has the same
+ * columns and values as the one of {@link FileConvert#toMMCIF()}, but each row is
+ * formatted in a reusable buffer and encoded as soon as it is complete, so that
+ * models and chains are written incrementally instead of first converting all
+ * atoms to {@link AtomSite} beans. Values are separated by a single space instead
+ * of being aligned in columns, since the column widths are only known once all
+ * rows have been seen.
+ * <p>
+ * The output is buffered: call {@link #flush()} or {@link #close()} when done.
+ * Instances are not thread safe.
+ *
+ * @since 5.3.1
+ */
+public class MMCIFStreamWriter implements Closeable, Flushable {
+
+	private static final Logger logger = LoggerFactory.getLogger(MMCIFStreamWriter.class);
+
+	private final RecordOutput out;
+	private final RecordBuffer line = new RecordBuffer();
+
+	// atoms of a group and its alt loc groups, unique by atom id
+	private final Map<Integer, Atom> uniqueAtoms = new LinkedHashMap<>();
+
+	/**
+	 * Constructs a writer to an OutputStream, which is closed with the writer.
+	 * @param out
+	 */
+	public MMCIFStreamWriter(OutputStream out) {
+		this.out = new RecordOutput(out);
+	}
+
+	/**
+	 * Constructs a writer to a channel, which is closed with the writer.
+	 * @param channel
+	 */
+	public MMCIFStreamWriter(WritableByteChannel channel) {
+		this.out = new RecordOutput(channel);
+	}
+
+	/**
+	 * Writes a whole structure: the data block header, the <code>_cell</code> and
+	 * <code>_symmetry</code> categories if the crystallographic information is
+	 * available and the <code>_atom_site</code> category of all models.
+	 * @param structure
+	 * @throws IOException
+	 */
+	public void writeStructure(Structure structure) throws IOException {
+
+		out.write(SimpleMMcifParser.MMCIF_TOP_HEADER + "BioJava_mmCIF_file");
+		writeLine();
+
+		PDBCrystallographicInfo crystalInfo = structure.getPDBHeader() == null ? null : structure.getPDBHeader().getCrystallographicInfo();
+		if (crystalInfo!=null && crystalInfo.getSpaceGroup()!=null && crystalInfo.getCrystalCell()!=null) {
+			out.write(MMCIFFileTools.toMMCIF("_cell",
+					MMCIFFileTools.convertCrystalCellToCell(crystalInfo.getCrystalCell())));
+			out.write(MMCIFFileTools.toMMCIF("_symmetry",
+					MMCIFFileTools.convertSpaceGroupToSymmetry(crystalInfo.getSpaceGroup())));
+		}
+
+		writeAtomSiteHeader();
+		for (int m=0;m<structure.nrModels();m++) {
+			for (Chain c:structure.getChains(m)) {
+				writeAtomSites(c, m+1, c.getName(), c.getId());
+			}
+		}
+		out.write(SimpleMMcifParser.COMMENT_CHAR);
+		writeLine();
+	}
+
+	/**
+	 * Writes the <code>_atom_site</code> rows of a chain, followed by the end of the
+	 * category, like {@link FileConvert#toMMCIF(Chain, String, String, boolean)}.
+	 * @param chain
+	 * @param authId the chain identifier (author id) for the output rows
+	 * @param asymId the internal chain identifier (asym id) for the output rows
+	 * @param writeHeader whether to write the loop header of the category first
+	 * @throws IOException
+	 */
+	public void writeChain(Chain chain, String authId, String asymId, boolean writeHeader) throws IOException {
+		if (writeHeader)
+			writeAtomSiteHeader();
+		writeAtomSites(chain, 1, authId, asymId);
+		out.write(SimpleMMcifParser.COMMENT_CHAR);
+		writeLine();
+	}
+
+	private void writeAtomSiteHeader() throws IOException {
+		out.write(FileConvert.getAtomSiteHeader());
+	}
+
+	private void writeAtomSites(Chain c, int model, String chainName, String chainId) throws IOException {
+
+		if (c.getEntityInfo()==null) {
+			logger.warn("No entity found for chain {}: entity_id will be set to 0, label_seq_id will be the same as auth_seq_id", c.getName());
+		}
+
+		for ( int h=0; h<c.getAtomLength();h++){
+
+			Group g = c.getAtomGroup(h);
+
+			// The alt locs can have duplicates, since at parsing time we make sure that all alt loc groups have
+			// all atoms (see StructureTools#cleanUpAltLocs), see MMCIFFileTools#convertGroupToAtomSites
+			uniqueAtoms.clear();
+			collectAtoms(g);
+
+			for (Atom a : uniqueAtoms.values()) {
+				writeAtomSite(a, model, chainName, chainId);
+			}
+		}
+		uniqueAtoms.clear();
+	}
+
+	private void collectAtoms(Group g) {
+		int groupsize  = g.size();
+		for ( int atompos = 0 ; atompos < groupsize; atompos++) {
+			Atom a = g.getAtom(atompos);
+			if ( a == null)
+				continue ;
+			uniqueAtoms.put(a.getPDBserial(), a);
+		}
+		if ( g.hasAltLoc()){
+			for (Group alt : g.getAltLocs() ) {
+				collectAtoms(alt);
+			}
+		}
+	}
+
+	/**
+	 * Writes the same values as {@link MMCIFFileTools#convertAtomToAtomSite(Atom, int, String, String)},
+	 * in the order of the {@link AtomSite} fields.
+	 */
+	private void writeAtomSite(Atom a, int model, String chainName, String chainId) throws IOException {
+
+		Group g = a.getGroup();
+		ResidueNumber resNum = g.getResidueNumber();
+
+		int labelSeqId = resNum.getSeqNum();
+		int entityId = 0;
+		Chain chain = g.getChain();
+		EntityInfo entityInfo = chain == null ? null : chain.getEntityInfo();
+		if (entityInfo!=null) {
+			entityId = entityInfo.getMolId();
+			if (entityInfo.getType() == EntityType.POLYMER) {
+				// this only makes sense for polymeric chains, non-polymer chains will never have seqres groups
+				labelSeqId = entityInfo.getAlignedResIndex(g, chain);
+			}
+		}
+
+		Character altLoc = a.getAltLoc();
+		Character insCode = resNum.getInsCode();
+		Element e = a.getElement();
+
+		line.clear();
+		line.append(g.getType().equals(GroupType.HETATM) ? "HETATM" : "ATOM");
+		line.append(' ').appendInt(a.getPDBserial(), 0);
+		appendValue(e.equals(Element.R) ? "X" : e.toString().toUpperCase());
+		appendValue(a.getName());
+		appendValue(altLoc==null || altLoc == ' ' ? MMCIFFileTools.MMCIF_DEFAULT_VALUE : altLoc.toString());
+		appendValue(g.getPDBName());
+		appendValue(chainId);
+		line.append(' ').appendInt(entityId, 0);
+		line.append(' ').appendInt(labelSeqId, 0);
+		appendValue(insCode==null ? MMCIFFileTools.MMCIF_MISSING_VALUE : insCode.toString());
+		line.append(' ').appendDecimal(a.getX(), FileConvert.d3, 0);
+		line.append(' ').appendDecimal(a.getY(), FileConvert.d3, 0);
+		line.append(' ').appendDecimal(a.getZ(), FileConvert.d3, 0);
+		line.append(' ').appendDecimal(a.getOccupancy(), FileConvert.d2, 0);
+		line.append(' ').appendDecimal(a.getTempFactor(), FileConvert.d2, 0);
+		// the esd columns and pdbx_formal_charge
+		for (int i = 0; i < 6; i++) {
+			appendValue(null);
+		}
+		line.append(' ').appendInt(resNum.getSeqNum(), 0);
+		appendValue(g.getPDBName());
+		appendValue(chainName);
+		appendValue(a.getName());
+		line.append(' ').appendInt(model, 0);
+
+		out.writeLine(line);
+	}
+
+	/**
+	 * Appends a space and a value quoted like {@link MMCIFFileTools#toMMCIF(java.util.List, Class)}
+	 * does, null as {@value MMCIFFileTools#MMCIF_MISSING_VALUE}.
+	 */
+	private void appendValue(String val) {
+		line.append(' ');
+		if (val == null || val.isEmpty()) {
+			line.append(MMCIFFileTools.MMCIF_MISSING_VALUE);
+		} else if (val.indexOf('\'') >= 0) {
+			// double quoting for strings containing single quotes
+			line.append('"').append(val).append('"');
+		} else if (val.indexOf(' ') >= 0) {
+			// single quoting for strings containing spaces
+			line.append('\'').append(val).append('\'');
+		} else {
+			line.append(val);
+		}
+	}
+
+	private void writeLine() throws IOException {
+		line.clear();
+		out.writeLine(line);
+	}
+
+	@Override
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+}
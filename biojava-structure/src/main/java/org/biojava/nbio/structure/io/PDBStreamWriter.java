@@ -0,0 +1,298 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.io;
+
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.Bond;
+import org.biojava.nbio.structure.Chain;
+import org.biojava.nbio.structure.DBRef;
+import org.biojava.nbio.structure.Group;
+import org.biojava.nbio.structure.Site;
+import org.biojava.nbio.structure.Structure;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+
+/**
+ * Writes structures in PDB format directly to an {@link OutputStream} or a
+ * {@link WritableByteChannel}. The records are the same as the ones of
+ * {@link FileConvert#toPDB()}, but each ATOM/HETATM line is formatted in a reusable
+ * buffer and encoded as soon as it is complete, so that models and chains are
+ * written incrementally instead of building the whole file as a String.
+ * <p>
+ * The output is buffered: call {@link #flush()} or {@link #close()} when done.
+ * Instances are not thread safe.
+ *
+ * @since 5.3.1
+ */
+public class PDBStreamWriter implements Closeable, Flushable {
+
+	private static final Logger logger = LoggerFactory.getLogger(PDBStreamWriter.class);
+
+	private static final String newline = System.getProperty("line.separator");
+
+	private final RecordOutput out;
+	private final RecordBuffer line = new RecordBuffer();
+
+	private boolean printConnections = true;
+
+	/**
+	 * Constructs a writer to an OutputStream, which is closed with the writer.
+	 * @param out
+	 */
+	public PDBStreamWriter(OutputStream out) {
+		this.out = new RecordOutput(out);
+	}
+
+	/**
+	 * Constructs a writer to a channel, which is closed with the writer.
+	 * @param channel
+	 */
+	public PDBStreamWriter(WritableByteChannel channel) {
+		this.out = new RecordOutput(channel);
+	}
+
+	/**
+	 * Returns if the CONECT records are written by {@link #writeStructure(Structure)},
+	 * default is true.
+	 * @return if the printConnections flag is set
+	 */
+	public boolean doPrintConnections() {
+		return printConnections;
+	}
+
+	/**
+	 * Enable/disable writing of CONECT records.
+	 * @param printConnections
+	 * @see FileConvert#setPrintConnections(boolean)
+	 */
+	public void setPrintConnections(boolean printConnections) {
+		this.printConnections = printConnections;
+	}
+
+	/**
+	 * Writes a whole structure: the header records, all models and, if enabled,
+	 * the CONECT records.
+	 * @param structure
+	 * @throws IOException
+	 */
+	public void writeStructure(Structure structure) throws IOException {
+
+		writeHeader(structure);
+
+		int nrModels = structure.nrModels() ;
+		if ( structure.isNmr()) {
+			line.clear();
+			line.append("EXPDTA    NMR, ").appendInt(nrModels, 0).append(" STRUCTURES");
+			out.writeLine(line);
+		}
+		for (int m = 0 ; m < nrModels ; m++) {
+
+			if ( nrModels>1 ) {
+				line.clear();
+				line.append("MODEL      ").appendInt(m + 1, 0);
+				out.writeLine(line);
+			}
+
+			writeModel(structure, m);
+
+			if ( nrModels>1) {
+				writeRecord("ENDMDL");
+			}
+		}
+
+		if ( printConnections )
+			writeConnections(structure);
+	}
+
+	private void writeHeader(Structure structure) throws IOException {
+
+		StringBuffer str = new StringBuffer();
+
+		structure.getPDBHeader().toPDB(str);
+		out.write(str);
+		str.setLength(0);
+
+		//REMARK 800
+		if (!structure.getSites().isEmpty()) {
+			writeRecord("REMARK 800");
+			writeRecord("REMARK 800 SITE");
+			for (Site site : structure.getSites()) {
+				site.remark800toPDB(str);
+			}
+		}
+		//DBREF
+		for (DBRef dbref : structure.getDBRefs()){
+			dbref.toPDB(str);
+			str.append(newline);
+		}
+		out.write(str);
+		str.setLength(0);
+
+		//SSBOND
+		List<SSBondImpl> ssbonds = SSBondImpl.getSsBondListFromBondList(structure.getSSBonds());
+		for (SSBondImpl ssbond : ssbonds){
+			ssbond.toPDB(str);
+			str.append(newline);
+		}
+		//SITE
+		for (Site site : structure.getSites()) {
+			try {
+				site.toPDB(str);
+			} catch (Exception e){
+				logger.error("Could not write SITE records of site {}", site.getSiteID(), e);
+			}
+		}
+		out.write(str);
+	}
+
+	/**
+	 * Writes the polymer, non-polymer and water chains of a model, each followed
+	 * by a TER record.
+	 */
+	private void writeModel(Structure structure, int modelIdx) throws IOException {
+
+		for (Chain chain : structure.getPolyChains(modelIdx)) {
+			writeChain(chain);
+			// End any polymeric chain with a "TER" record
+			if (chain.getAtomLength() > 0) writeRecord("TER");
+		}
+
+		boolean nonPolyGroupsExist = false;
+		for (Chain chain : structure.getNonPolyChains(modelIdx)) {
+			writeChain(chain);
+			nonPolyGroupsExist |= chain.getAtomLength() > 0;
+		}
+		if (nonPolyGroupsExist) writeRecord("TER");
+
+		boolean waterGroupsExist = false;
+		for (Chain chain : structure.getWaterChains(modelIdx)) {
+			writeChain(chain);
+			waterGroupsExist |= chain.getAtomLength() > 0;
+		}
+		if (waterGroupsExist) writeRecord("TER");
+	}
+
+	/**
+	 * Writes the ATOM/HETATM records of all groups of a chain, like {@link FileConvert#toPDB(Chain)}.
+	 * @param chain
+	 * @throws IOException
+	 */
+	public void writeChain(Chain chain) throws IOException {
+		int nrGroups = chain.getAtomLength();
+		for ( int h=0; h<nrGroups;h++){
+			writeGroup(chain.getAtomGroup(h));
+		}
+	}
+
+	/**
+	 * Writes the ATOM/HETATM records of a group and of its alternate location groups,
+	 * like {@link FileConvert#toPDB(Group)}.
+	 * @param g
+	 * @throws IOException
+	 */
+	public void writeGroup(Group g) throws IOException {
+		int groupsize  = g.size();
+
+		for ( int atompos = 0 ; atompos < groupsize; atompos++) {
+			Atom a = g.getAtom(atompos);
+			if ( a == null)
+				continue ;
+
+			writeAtom(a);
+		}
+		if ( g.hasAltLoc()){
+			for (Group alt : g.getAltLocs() ) {
+				writeGroup(alt);
+			}
+		}
+	}
+
+	/**
+	 * Writes the ATOM/HETATM record of an atom, like {@link FileConvert#toPDB(Atom)}.
+	 * @param a
+	 * @throws IOException
+	 */
+	public void writeAtom(Atom a) throws IOException {
+		writeAtom(a, a.getGroup().getChain().getName());
+	}
+
+	/**
+	 * Writes the ATOM/HETATM record of an atom, like {@link FileConvert#toPDB(Atom, String)}.
+	 * @param a
+	 * @param chainID the chain ID that the Atom will have in the output
+	 * @throws IOException
+	 */
+	public void writeAtom(Atom a, String chainID) throws IOException {
+		FileConvert.toPDB(a, chainID, line);
+		out.writeLine(line);
+	}
+
+	/**
+	 * Writes one CONECT record per {@link Bond} of the atoms of all chains in the
+	 * structure (bonds are not grouped in one line).
+	 * @param structure
+	 * @throws IOException
+	 */
+	public void writeConnections(Structure structure) throws IOException {
+		for (Chain c:structure.getChains()) {
+			for (Group g:c.getAtomGroups()) {
+				for (Atom a:g.getAtoms()) {
+					if (a.getBonds()!=null) {
+						for (Bond b:a.getBonds()) {
+							line.clear();
+							line.append("CONECT");
+							line.appendInt(b.getAtomA().getPDBserial(), 5);
+							line.appendInt(b.getAtomB().getPDBserial(), 5);
+							line.padTo(line.length() + 64);
+							out.writeLine(line);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes a record name padded to 80 columns.
+	 */
+	private void writeRecord(String record) throws IOException {
+		line.clear();
+		line.appendLeft(record, 80);
+		out.writeLine(line);
+	}
+
+	@Override
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+}
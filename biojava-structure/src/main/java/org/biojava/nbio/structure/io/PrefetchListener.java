@@ -0,0 +1,73 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.io;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Receives progress notifications from
+ * {@link LocalPDBDirectory#prefetchStructures(java.util.Collection, int, PrefetchListener)}.
+ * <p>
+ * Callbacks are fired from the download threads, so implementations
+ * have to be thread safe.
+ *
+ * @since 5.3.1
+ */
+public interface PrefetchListener {
+
+	/**
+	 * Called once before the first download starts.
+	 *
+	 * @param nrIds number of distinct ids that will be prefetched
+	 */
+	void prefetchStarted(int nrIds);
+
+	/**
+	 * Called after every id that is available in the local directory,
+	 * whether it was downloaded or already present.
+	 *
+	 * @param pdbId the id
+	 * @param file the local file of the structure
+	 * @param nrDone number of ids done so far, including failed ones
+	 * @param nrIds number of ids in this run
+	 */
+	void structureFetched(String pdbId, File file, int nrDone, int nrIds);
+
+	/**
+	 * Called after every id that could not be prefetched.
+	 *
+	 * @param pdbId the id
+	 * @param e the error of the last download attempt
+	 * @param nrDone number of ids done so far, including failed ones
+	 * @param nrIds number of ids in this run
+	 */
+	void structureFailed(String pdbId, IOException e, int nrDone, int nrIds);
+
+	/**
+	 * Called once after all downloads have ended.
+	 *
+	 * @param nrFetched number of ids available in the local directory
+	 * @param nrFailed number of ids that could not be prefetched
+	 */
+	void prefetchFinished(int nrFetched, int nrFailed);
+
+}
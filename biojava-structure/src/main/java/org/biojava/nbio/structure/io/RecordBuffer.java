@@ -0,0 +1,223 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.io;
+
+import java.text.DecimalFormat;
+import java.util.Arrays;
+
+/**
+ * A reusable line of a fixed-width or whitespace separated record, with
+ * appenders for right and left aligned values and for integers and decimals
+ * that are formatted without creating intermediate Strings.
+ * <p>
+ * Decimals are formatted exactly like the given {@link DecimalFormat} would
+ * format them, so that the records are identical to the ones formatted with
+ * {@link FileConvert#d3} and {@link FileConvert#d2}: values that are not close to
+ * a rounding tie are rounded directly, the few others are left to the format.
+ *
+ * @since 5.3.1
+ */
+final class RecordBuffer {
+
+	private static final long[] POWERS_OF_TEN = {
+			1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L, 1000000000L };
+
+	// far larger than the rounding error of the scaled value, for up to 9 digits
+	private static final double TIE_TOLERANCE = 1e-6;
+
+	private char[] chars = new char[128];
+	private int length;
+
+	// digits of a number, from the last one
+	private final char[] digits = new char[20];
+
+	/**
+	 * Empties the line.
+	 */
+	void clear() {
+		length = 0;
+	}
+
+	int length() {
+		return length;
+	}
+
+	/**
+	 * @return the characters of the line, valid up to {@link #length()}
+	 */
+	char[] chars() {
+		return chars;
+	}
+
+	RecordBuffer append(char c) {
+		ensure(1);
+		chars[length++] = c;
+		return this;
+	}
+
+	/**
+	 * Appends a String, "null" for null like {@link StringBuilder#append(String)}.
+	 */
+	RecordBuffer append(String s) {
+		if (s == null) s = "null";
+		int n = s.length();
+		ensure(n);
+		s.getChars(0, n, chars, length);
+		length += n;
+		return this;
+	}
+
+	/**
+	 * Appends a String right aligned in a field of the given width, like
+	 * <code>String.format("%" + width + "s", s)</code>.
+	 */
+	RecordBuffer appendRight(String s, int width) {
+		if (s == null) s = "null";
+		pad(width - s.length());
+		return append(s);
+	}
+
+	/**
+	 * Appends a String left aligned in a field of the given width, like
+	 * <code>String.format("%-" + width + "s", s)</code>.
+	 */
+	RecordBuffer appendLeft(String s, int width) {
+		if (s == null) s = "null";
+		append(s);
+		pad(width - s.length());
+		return this;
+	}
+
+	/**
+	 * Appends spaces up to the given column (the length of the line), if the
+	 * line is shorter.
+	 */
+	RecordBuffer padTo(int column) {
+		pad(column - length);
+		return this;
+	}
+
+	/**
+	 * Appends an integer right aligned in a field of the given width, like
+	 * <code>String.format("%" + width + "d", value)</code>.
+	 */
+	RecordBuffer appendInt(long value, int width) {
+		int n = toDigits(value < 0 ? -value : value);
+		if (value < 0) digits[n++] = '-';
+		pad(width - n);
+		ensure(n);
+		while (n > 0) chars[length++] = digits[--n];
+		return this;
+	}
+
+	/**
+	 * Appends a decimal right aligned in a field of the given width, like
+	 * <code>String.format("%" + width + "s", format.format(value))</code>.
+	 * @param value
+	 * @param format a format with the same minimum and maximum number of
+	 * fraction digits, no grouping and half-even rounding, e.g. {@link FileConvert#d3}
+	 * @param width
+	 */
+	RecordBuffer appendDecimal(double value, DecimalFormat format, int width) {
+		int fractionDigits = format.getMaximumFractionDigits();
+		int integerDigits = format.getMaximumIntegerDigits();
+		if (Double.isNaN(value) || Double.isInfinite(value)
+				|| fractionDigits >= POWERS_OF_TEN.length || integerDigits + fractionDigits >= POWERS_OF_TEN.length) {
+			return appendFormatted(value, format, width);
+		}
+		long scale = POWERS_OF_TEN[fractionDigits];
+		double scaled = value * scale;
+		if (Math.abs(scaled) >= POWERS_OF_TEN[integerDigits] * scale) {
+			// DecimalFormat drops the leading integer digits
+			return appendFormatted(value, format, width);
+		}
+		if (Math.abs(scaled - Math.floor(scaled) - 0.5) < TIE_TOLERANCE) {
+			// at or close to a tie the rounding depends on how DecimalFormat sees the decimal digits
+			return appendFormatted(value, format, width);
+		}
+		long unscaled = (long) Math.rint(scaled);
+		if (unscaled == 0 && (value < 0 || 1 / value < 0)
+				|| Math.abs(unscaled) >= POWERS_OF_TEN[integerDigits] * scale) {
+			// negative zero, or rounded up to a dropped integer digit
+			return appendFormatted(value, format, width);
+		}
+
+		long abs = Math.abs(unscaled);
+		int n = 0;
+		for (int i = 0; i < fractionDigits; i++) {
+			digits[n++] = (char) ('0' + abs % 10);
+			abs /= 10;
+		}
+		if (fractionDigits > 0) digits[n++] = '.';
+		do {
+			digits[n++] = (char) ('0' + abs % 10);
+			abs /= 10;
+		} while (abs > 0);
+		if (unscaled < 0) digits[n++] = '-';
+
+		pad(width - n);
+		ensure(n);
+		while (n > 0) chars[length++] = digits[--n];
+		return this;
+	}
+
+	private RecordBuffer appendFormatted(double value, DecimalFormat format, int width) {
+		String s;
+		// the formats are shared
+		synchronized (format) {
+			s = format.format(value);
+		}
+		return appendRight(s, width);
+	}
+
+	private int toDigits(long value) {
+		int n = 0;
+		if (value < 0) {
+			// Long.MIN_VALUE
+			String s = Long.toString(value).substring(1);
+			for (int i = s.length() - 1; i >= 0; i--) digits[n++] = s.charAt(i);
+			return n;
+		}
+		do {
+			digits[n++] = (char) ('0' + value % 10);
+			value /= 10;
+		} while (value > 0);
+		return n;
+	}
+
+	private void pad(int n) {
+		if (n <= 0) return;
+		ensure(n);
+		Arrays.fill(chars, length, length + n, ' ');
+		length += n;
+	}
+
+	private void ensure(int n) {
+		if (length + n > chars.length) {
+			chars = Arrays.copyOf(chars, Math.max(length + n, 2 * chars.length));
+		}
+	}
+
+	@Override
+	public String toString() {
+		return new String(chars, 0, length);
+	}
+}
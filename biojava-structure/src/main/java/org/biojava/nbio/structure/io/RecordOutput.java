@@ -0,0 +1,141 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.io;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A buffered byte sink for text records, writing to either an {@link OutputStream}
+ * or a {@link WritableByteChannel}. ASCII characters are copied to the buffer
+ * directly, any other text is encoded as UTF-8.
+ *
+ * @since 5.3.1
+ */
+final class RecordOutput implements Closeable, Flushable {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private static final String newline = System.getProperty("line.separator");
+
+	private final OutputStream out;
+	private final WritableByteChannel channel;
+
+	private final byte[] bytes = new byte[BUFFER_SIZE];
+	private final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+	private int position;
+
+	RecordOutput(OutputStream out) {
+		if (out == null) throw new NullPointerException("out");
+		this.out = out;
+		this.channel = null;
+	}
+
+	RecordOutput(WritableByteChannel channel) {
+		if (channel == null) throw new NullPointerException("channel");
+		this.out = null;
+		this.channel = channel;
+	}
+
+	/**
+	 * Writes the line followed by the line separator.
+	 */
+	void writeLine(RecordBuffer line) throws IOException {
+		write(line.chars(), 0, line.length());
+		write(newline);
+	}
+
+	void write(CharSequence s) throws IOException {
+		int n = s.length();
+		for (int i = 0; i < n; i++) {
+			char c = s.charAt(i);
+			if (c >= 0x80) {
+				writeEncoded(s.subSequence(i, n).toString());
+				return;
+			}
+			if (position == BUFFER_SIZE) drain();
+			bytes[position++] = (byte) c;
+		}
+	}
+
+	void write(char[] chars, int offset, int length) throws IOException {
+		int end = offset + length;
+		for (int i = offset; i < end; i++) {
+			char c = chars[i];
+			if (c >= 0x80) {
+				writeEncoded(new String(chars, i, end - i));
+				return;
+			}
+			if (position == BUFFER_SIZE) drain();
+			bytes[position++] = (byte) c;
+		}
+	}
+
+	private void writeEncoded(String s) throws IOException {
+		byte[] encoded = s.getBytes(StandardCharsets.UTF_8);
+		int offset = 0;
+		while (offset < encoded.length) {
+			if (position == BUFFER_SIZE) drain();
+			int n = Math.min(encoded.length - offset, BUFFER_SIZE - position);
+			System.arraycopy(encoded, offset, bytes, position, n);
+			position += n;
+			offset += n;
+		}
+	}
+
+	/**
+	 * Writes the buffered bytes to the stream or channel.
+	 */
+	private void drain() throws IOException {
+		if (position == 0) return;
+		if (out != null) {
+			out.write(bytes, 0, position);
+		} else {
+			buffer.clear();
+			buffer.limit(position);
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		}
+		position = 0;
+	}
+
+	@Override
+	public void flush() throws IOException {
+		drain();
+		if (out != null) out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			drain();
+		} finally {
+			if (out != null) out.close();
+			else channel.close();
+		}
+	}
+}
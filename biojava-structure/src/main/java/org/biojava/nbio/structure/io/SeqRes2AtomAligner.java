@@ -29,7 +29,9 @@ import org.biojava.nbio.alignment.Alignments.PairwiseSequenceAlignerType;
 import org.biojava.nbio.alignment.SimpleGapPenalty;
 import org.biojava.nbio.alignment.template.GapPenalty;
 import org.biojava.nbio.alignment.template.PairwiseSequenceAligner;
+import org.biojava.nbio.core.alignment.SimpleSequencePair;
 import org.biojava.nbio.core.alignment.matrices.SubstitutionMatrixHelper;
+import org.biojava.nbio.core.alignment.template.AlignedSequence.Step;
 import org.biojava.nbio.core.alignment.template.SequencePair;
 import org.biojava.nbio.core.alignment.template.SubstitutionMatrix;
 import org.biojava.nbio.core.exceptions.CompoundNotFoundException;
@@ -47,6 +49,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -482,12 +485,14 @@ public class SeqRes2AtomAligner {
 
 		GapPenalty penalty = new SimpleGapPenalty(8,1);
 
-		PairwiseSequenceAligner<Sequence<NucleotideCompound>, NucleotideCompound> smithWaterman =
-				Alignments.getPairwiseAligner(s1, s2, PairwiseSequenceAlignerType.LOCAL, penalty, matrix);
+		SequencePair<Sequence<NucleotideCompound>, NucleotideCompound> pair = getIdenticalOccurrence(seq1, seq2, s1, s2, matrix);
 
+		if (pair == null) {
+			PairwiseSequenceAligner<Sequence<NucleotideCompound>, NucleotideCompound> smithWaterman =
+					Alignments.getPairwiseAligner(s1, s2, PairwiseSequenceAlignerType.LOCAL, penalty, matrix);
 
-
-		SequencePair<Sequence<NucleotideCompound>, NucleotideCompound> pair = smithWaterman.getPair();
+			pair = smithWaterman.getPair();
+		}
 
 
 
@@ -511,6 +516,34 @@ public class SeqRes2AtomAligner {
 
 	}
 
+	/**
+	 * Returns the local alignment of the ATOM sequence to the SEQRES sequence when the ATOM sequence occurs
+	 * exactly once in the SEQRES sequence and the matrix scores every identical pair positively and above any
+	 * other pair: that occurrence is then the only optimal local alignment and does not need to be searched for.
+	 * @param seq1 the SEQRES sequence
+	 * @param seq2 the ATOM sequence
+	 * @param s1
+	 * @param s2
+	 * @param matrix
+	 * @return the alignment of the full ATOM sequence to its occurrence, or null if it has to be aligned
+	 */
+	private static <S extends Sequence<C>, C extends Compound> SequencePair<S, C> getIdenticalOccurrence(
+			String seq1, String seq2, S s1, S s2, SubstitutionMatrix<C> matrix) {
+
+		int offset = seq1.indexOf(seq2);
+		if (seq2.isEmpty() || offset < 0 || offset != seq1.lastIndexOf(seq2)) {
+			return null;
+		}
+		if (IdentityAlignmentBounds.getIdentityMargin(matrix, s1.getCompoundSet(), seq1, seq2) <= 0
+				|| IdentityAlignmentBounds.getMinIdentityScore(matrix, s1.getCompoundSet(), seq1, seq2) <= 0) {
+			return null;
+		}
+
+		List<Step> steps = Collections.nCopies(seq2.length(), Step.COMPOUND);
+		logger.debug("ATOM sequence found at position {} of SEQRES sequence", offset);
+		return new SimpleSequencePair<>(s1, s2, steps, offset, seq1.length() - offset - seq2.length(), steps, 0, 0);
+	}
+
 	private Sequence<NucleotideCompound> getNucleotideSequence(String seq) {
 		Sequence<NucleotideCompound> s;
 
@@ -581,10 +614,14 @@ public class SeqRes2AtomAligner {
 		GapPenalty penalty = new SimpleGapPenalty(8, 1);
 
 
-		PairwiseSequenceAligner<ProteinSequence, AminoAcidCompound> smithWaterman =
-				Alignments.getPairwiseAligner(s1, s2, PairwiseSequenceAlignerType.LOCAL, penalty, matrix);
+		SequencePair<ProteinSequence, AminoAcidCompound> pair = getIdenticalOccurrence(seq1, seq2, s1, s2, matrix);
+
+		if (pair == null) {
+			PairwiseSequenceAligner<ProteinSequence, AminoAcidCompound> smithWaterman =
+					Alignments.getPairwiseAligner(s1, s2, PairwiseSequenceAlignerType.LOCAL, penalty, matrix);
 
-		SequencePair<ProteinSequence, AminoAcidCompound> pair = smithWaterman.getPair();
+			pair = smithWaterman.getPair();
+		}
 
 
 		// sequences that are only X (e.g. 1jnv chain A) produced empty alignments, because nothing aligns to nothing and thus the local alignment is empty
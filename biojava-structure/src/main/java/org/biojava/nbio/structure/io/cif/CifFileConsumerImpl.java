@@ -125,8 +125,34 @@ class CifFileConsumerImpl implements CifFileConsumer<Structure> {
         StrColumn pdbxPDBInsCode = atomSite.getPdbxPDBInsCode();
         IntColumn labelSeqId = atomSite.getLabelSeqId();
         IntColumn pdbx_pdb_model_num = atomSite.getPdbxPDBModelNum();
+        StrColumn labelEntityId = atomSite.getLabelEntityId();
+
+        Set<String> chainIds = params.getChainIds();
+        Set<String> entityIds = params.getEntityIds();
+        Set<String> atomNames = params.getAtomNames();
+        int firstModel = params.getFirstModel();
+        int lastModel = params.getLastModel();
+        boolean atomSelection = params.isAtomSelection();
 
         for (int atomIndex = 0; atomIndex < atomSite.getRowCount(); atomIndex++) {
+            // skip unselected rows before anything is created for them
+            if (atomSelection) {
+                int model = pdbx_pdb_model_num.isDefined() ? pdbx_pdb_model_num.get(atomIndex) : 1;
+                if (model < firstModel || model > lastModel) {
+                    continue;
+                }
+                if (chainIds != null && !chainIds.contains(labelAsymId.get(atomIndex))
+                        && !chainIds.contains(authAsymId.get(atomIndex))) {
+                    continue;
+                }
+                if (entityIds != null && !entityIds.contains(labelEntityId.get(atomIndex))) {
+                    continue;
+                }
+                if (atomNames != null && !atomNames.contains(labelAtomId.get(atomIndex))) {
+                    continue;
+                }
+            }
+
             boolean startOfNewChain = false;
             Character oneLetterCode = StructureTools.get1LetterCodeAmino(labelCompId.get(atomIndex));
 
@@ -287,6 +313,20 @@ class CifFileConsumerImpl implements CifFileConsumer<Structure> {
         }
     }
 
+    /**
+     * Whether the atoms of a chain are loaded according to the chain and entity filters
+     * of the {@link FileParsingParameters}.
+     */
+    private boolean isChainSelected(String asymId, String entityId) {
+        Set<String> chainIds = params.getChainIds();
+        if (chainIds != null && !chainIds.contains(asymId)
+                && !chainIds.contains(asymId2authorId.getOrDefault(asymId, asymId))) {
+            return false;
+        }
+        Set<String> entityIds = params.getEntityIds();
+        return entityIds == null || entityIds.contains(entityId);
+    }
+
     private Group getAltLocGroup(String recordName, Character altLoc, Character oneLetterCode, String threeLetterCode,
                                  long seqId) {
         List<Atom> atoms = currentGroup.getAtoms();
@@ -1056,7 +1096,7 @@ class CifFileConsumerImpl implements CifFileConsumer<Structure> {
             seqRes.setName(asymId2authorId.getOrDefault(id, id));
 
             EntityType type = EntityType.entityTypeFromString(getEntityType(entityId));
-            if (type == null || type == EntityType.POLYMER) {
+            if ((type == null || type == EntityType.POLYMER) && isChainSelected(id, entityId)) {
                 seqResChains.add(seqRes);
             }
 
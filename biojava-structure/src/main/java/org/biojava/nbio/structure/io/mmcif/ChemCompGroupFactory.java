@@ -30,24 +30,49 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 
+/**
+ * Provides the chemical components of groups, from a static {@link ChemCompProvider}
+ * and an in-memory cache.
+ * <p>
+ * The methods can be called concurrently, e.g. by structures being parsed in parallel.
+ * The cache is guarded by a lock that is not held while the provider loads a chemical
+ * component, so that a slow download does not block the other threads.
+ */
 public class ChemCompGroupFactory {
 
 	private static final Logger logger = LoggerFactory.getLogger(ChemCompGroupFactory.class);
 
-	private static ChemCompProvider chemCompProvider = new DownloadChemCompProvider();
+	private static volatile ChemCompProvider chemCompProvider = new DownloadChemCompProvider();
 
+	/** Not thread-safe, guarded by synchronizing on it */
 	private static final SoftHashMap<String, ChemComp> cache = new SoftHashMap<>(0);
 
 	public static ChemComp getChemComp(String recordName){
 		// we are using the cache, to avoid hitting the file system too often.
-		// Note that this also caches null or empty responses
-		return cache.computeIfAbsent(recordName.toUpperCase().trim(), r -> {
-			// not cached, get the chem comp from the provider
-			if (logger.isDebugEnabled())
-				logger.debug("Chem comp " + r + " read from provider " + chemCompProvider.getClass().getCanonicalName());
-
-			return chemCompProvider.getChemComp(r);
-		});
+		String r = recordName.toUpperCase().trim();
+		ChemComp cc;
+		synchronized (cache) {
+			cc = cache.get(r);
+		}
+		if (cc != null)
+			return cc;
+
+		// not cached, get the chem comp from the provider. Another thread may be doing
+		// the same, the first one stored is kept
+		ChemCompProvider provider = chemCompProvider;
+		if (logger.isDebugEnabled())
+			logger.debug("Chem comp " + r + " read from provider " + provider.getClass().getCanonicalName());
+
+		cc = provider.getChemComp(r);
+
+		synchronized (cache) {
+			ChemComp cached = cache.get(r);
+			if (cached != null)
+				return cached;
+			if (cc != null)
+				cache.put(r, cc);
+		}
+		return cc;
 	}
 
 	/**
@@ -65,7 +90,7 @@ public class ChemCompGroupFactory {
 		logger.debug("Setting new chem comp provider to "+provider.getClass().getCanonicalName());
 		chemCompProvider = provider;
 		// clear cache
-		cache.clear();
+		clearCache();
 	}
 
 	public static ChemCompProvider getChemCompProvider(){
@@ -78,7 +103,9 @@ public class ChemCompGroupFactory {
 	 * Note that the ChemCompProvider may have additional memory or disk caches that need to be cleared too.
 	 */
 	public static void clearCache() {
-		cache.clear();
+		synchronized (cache) {
+			cache.clear();
+		}
 	}
 
 	public static Group getGroupFromChemCompDictionary(String recordName) {
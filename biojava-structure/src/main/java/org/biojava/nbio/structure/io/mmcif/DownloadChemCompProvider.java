@@ -414,30 +414,27 @@ public class DownloadChemCompProvider implements ChemCompProvider {
 
 	private void downloadAllDefinitions() {
 
-		if ( loading.get()){
-			logger.info("Waiting for other thread to install chemical components...");
-		}
-
-		while ( loading.get() ) {
+		if ( ! loading.compareAndSet(false, true)) {
 
 			// another thread is already downloading the components definitions
 			// wait for the other thread to finish...
+			logger.info("Waiting for other thread to install chemical components...");
 
-			try {
-				// wait half a second
-
-				Thread.sleep(500);
-			} catch (InterruptedException e) {
-				//e.printStackTrace();
-				logger.error("Thread interrupted "+e.getMessage());
+			while ( loading.get() ) {
+				try {
+					// wait half a second
+					Thread.sleep(500);
+				} catch (InterruptedException e) {
+					logger.error("Thread interrupted "+e.getMessage());
+					Thread.currentThread().interrupt();
+					return;
+				}
 			}
 
 			logger.info("Another thread installed the chemical components.");
 			return;
-
 		}
 
-		loading.set(true);
 		long timeS = System.currentTimeMillis();
 
 		logger.info("Performing first installation of chemical components.");
@@ -445,26 +442,28 @@ public class DownloadChemCompProvider implements ChemCompProvider {
 
 
 		try {
-			AllChemCompProvider.downloadFile();
-		} catch (IOException e){
-			logger.error("Could not download the all chemical components file. Error: {}. "
-					+ "Chemical components information won't be available", e.getMessage());
-			// no point in trying to split if the file could not be downloaded
-			loading.set(false);
-			return;
-		}
-		try {
-			split();
-		} catch (IOException e) {
-			logger.error("Could not split all chem comp file into individual chemical component files. Error: {}",
-				 e.getMessage());
-			// no point in reporting time
+			try {
+				AllChemCompProvider.downloadFile();
+			} catch (IOException e){
+				logger.error("Could not download the all chemical components file. Error: {}. "
+						+ "Chemical components information won't be available", e.getMessage());
+				// no point in trying to split if the file could not be downloaded
+				return;
+			}
+			try {
+				split();
+			} catch (IOException e) {
+				logger.error("Could not split all chem comp file into individual chemical component files. Error: {}",
+					 e.getMessage());
+				// no point in reporting time
+				return;
+			}
+			long timeE = System.currentTimeMillis();
+			logger.info("time to install chem comp dictionary: " + (timeE - timeS) / 1000 + " sec.");
+		} finally {
+			// also on unchecked exceptions, the waiting threads would wait forever otherwise
 			loading.set(false);
-			return;
 		}
-		long timeE = System.currentTimeMillis();
-		logger.info("time to install chem comp dictionary: " + (timeE - timeS) / 1000 + " sec.");
-		loading.set(false);
 
 	}
 
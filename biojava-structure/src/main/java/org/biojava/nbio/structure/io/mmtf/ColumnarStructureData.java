@@ -0,0 +1,808 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.io.mmtf;
+
+import org.rcsb.mmtf.api.StructureDataInterface;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The MMTF data of a structure in a versioned binary columnar layout, for a local cache
+ * that can be reloaded much faster than MMTF files.
+ * <p>
+ * Unlike MMTF, the columns are neither MessagePack encoded nor compressed: every
+ * per-atom, per-group and per-chain column is stored as a plain little-endian
+ * primitive array, so that reading a file amounts to memory mapping it and bulk
+ * copying the arrays. The layout is specific to this version of BioJava: files
+ * with another {@link #VERSION} are rejected and should be rewritten.
+ * <p>
+ * Use {@link MmtfActions#writeToColumnarFile(org.biojava.nbio.structure.Structure, Path)}
+ * and {@link MmtfActions#readFromColumnarFile(Path)} to store and load structures.
+ *
+ * @since 5.3.1
+ */
+public class ColumnarStructureData implements StructureDataInterface {
+
+	/** The first 4 bytes of a file, "BJCS" */
+	private static final int MAGIC = 0x53434A42;
+
+	/** The version of the layout, to be increased with any change of it */
+	public static final int VERSION = 1;
+
+	private String structureId;
+	private String mmtfVersion;
+	private String mmtfProducer;
+	private String title;
+	private String depositionDate;
+	private String releaseDate;
+	private String spaceGroup;
+	private float[] unitCell;
+	private String[] experimentalMethods;
+	private float rFree;
+	private float rWork;
+	private float resolution;
+	private int numModels;
+	private int numChains;
+	private int numGroups;
+	private int numAtoms;
+	private int numBonds;
+	private double[][] ncsOperatorList;
+
+	private String[] bioassemblyNames;
+	private int[][][] bioassemblyChainIndices;
+	private double[][][] bioassemblyMatrices;
+
+	private String[] entityDescriptions;
+	private String[] entityTypes;
+	private String[] entitySequences;
+	private int[][] entityChainIndices;
+
+	private String[] groupNames;
+	private String[][] groupAtomNames;
+	private String[][] groupElementNames;
+	private int[][] groupBondOrders;
+	private int[][] groupBondIndices;
+	private int[][] groupAtomCharges;
+	private char[] groupSingleLetterCodes;
+	private String[] groupChemCompTypes;
+
+	private int[] groupTypeIndices;
+	private int[] groupIds;
+	private int[] groupSequenceIndices;
+	private int[] secStructList;
+	private char[] insCodes;
+	private String[] chainIds;
+	private String[] chainNames;
+	private int[] chainsPerModel;
+	private int[] groupsPerChain;
+	private int[] interGroupBondIndices;
+	private int[] interGroupBondOrders;
+
+	private int[] atomIds;
+	private char[] altLocIds;
+	private float[] xCoords;
+	private float[] yCoords;
+	private float[] zCoords;
+	private float[] bFactors;
+	private float[] occupancies;
+
+	private ColumnarStructureData() {
+	}
+
+	/**
+	 * Writes the data of a structure, e.g. an {@link org.rcsb.mmtf.encoder.AdapterToStructureData}
+	 * filled by a {@link MmtfStructureWriter}.
+	 * @param data
+	 * @param path the file to write, replaced if it exists
+	 * @throws IOException
+	 */
+	public static void write(StructureDataInterface data, Path path) throws IOException {
+
+		Output out = new Output(16 * data.getNumAtoms() * 4 + 4096);
+
+		out.putInt(MAGIC);
+		out.putInt(VERSION);
+
+		out.putString(data.getStructureId());
+		out.putString(data.getMmtfVersion());
+		out.putString(data.getMmtfProducer());
+		out.putString(data.getTitle());
+		out.putString(data.getDepositionDate());
+		out.putString(data.getReleaseDate());
+		out.putString(data.getSpaceGroup());
+		out.putFloats(data.getUnitCell());
+		out.putStrings(data.getExperimentalMethods());
+		out.putFloat(data.getRfree());
+		out.putFloat(data.getRwork());
+		out.putFloat(data.getResolution());
+		out.putInt(data.getNumModels());
+		out.putInt(data.getNumChains());
+		out.putInt(data.getNumGroups());
+		out.putInt(data.getNumAtoms());
+		out.putInt(data.getNumBonds());
+
+		double[][] ncsOperators = data.getNcsOperatorList();
+		if (ncsOperators == null) {
+			out.putInt(-1);
+		} else {
+			out.putInt(ncsOperators.length);
+			for (double[] operator : ncsOperators) {
+				out.putDoubles(operator);
+			}
+		}
+
+		int numBioassemblies = data.getNumBioassemblies();
+		out.putInt(numBioassemblies);
+		for (int i = 0; i < numBioassemblies; i++) {
+			out.putString(data.getBioassemblyName(i));
+			int numTrans = data.getNumTransInBioassembly(i);
+			out.putInt(numTrans);
+			for (int j = 0; j < numTrans; j++) {
+				out.putInts(data.getChainIndexListForTransform(i, j));
+				out.putDoubles(data.getMatrixForTransform(i, j));
+			}
+		}
+
+		int numEntities = data.getNumEntities();
+		out.putInt(numEntities);
+		for (int i = 0; i < numEntities; i++) {
+			out.putString(data.getEntityDescription(i));
+			out.putString(data.getEntityType(i));
+			out.putString(data.getEntitySequence(i));
+			out.putInts(data.getEntityChainIndexList(i));
+		}
+
+		int[] groupTypeIndices = data.getGroupTypeIndices();
+		int numGroupTypes = 0;
+		for (int groupType : groupTypeIndices) {
+			numGroupTypes = Math.max(numGroupTypes, groupType + 1);
+		}
+		out.putInt(numGroupTypes);
+		for (int i = 0; i < numGroupTypes; i++) {
+			out.putString(data.getGroupName(i));
+			out.putStrings(data.getGroupAtomNames(i));
+			out.putStrings(data.getGroupElementNames(i));
+			out.putInts(data.getGroupBondOrders(i));
+			out.putInts(data.getGroupBondIndices(i));
+			out.putInts(data.getGroupAtomCharges(i));
+			out.putChar(data.getGroupSingleLetterCode(i));
+			out.putString(data.getGroupChemCompType(i));
+		}
+
+		out.putInts(groupTypeIndices);
+		out.putInts(data.getGroupIds());
+		out.putInts(data.getGroupSequenceIndices());
+		out.putInts(data.getSecStructList());
+		out.putChars(data.getInsCodes());
+		out.putStrings(data.getChainIds());
+		out.putStrings(data.getChainNames());
+		out.putInts(data.getChainsPerModel());
+		out.putInts(data.getGroupsPerChain());
+		out.putInts(data.getInterGroupBondIndices());
+		out.putInts(data.getInterGroupBondOrders());
+
+		out.putInts(data.getAtomIds());
+		out.putChars(data.getAltLocIds());
+		out.putFloats(data.getxCoords());
+		out.putFloats(data.getyCoords());
+		out.putFloats(data.getzCoords());
+		out.putFloats(data.getbFactors());
+		out.putFloats(data.getOccupancies());
+
+		ByteBuffer buffer = out.buffer;
+		buffer.flip();
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE,
+				StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		}
+	}
+
+	/**
+	 * Reads a file written by {@link #write(StructureDataInterface, Path)}, by memory mapping it.
+	 * @param path
+	 * @return
+	 * @throws IOException if the file can not be read, or was not written with
+	 * this {@link #VERSION} of the layout
+	 */
+	public static ColumnarStructureData read(Path path) throws IOException {
+
+		ByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			// the mapping stays valid after closing the channel
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+		try {
+			if (buffer.remaining() < 8 || buffer.getInt() != MAGIC)
+				throw new IOException("File " + path + " is not a columnar structure file");
+			int version = buffer.getInt();
+			if (version != VERSION)
+				throw new IOException("File " + path + " has version " + version + " of the columnar layout, expected " + VERSION);
+
+			return read(buffer);
+		} catch (RuntimeException e) {
+			// BufferUnderflowException, NegativeArraySizeException...
+			throw new IOException("File " + path + " is truncated or corrupt", e);
+		}
+	}
+
+	private static ColumnarStructureData read(ByteBuffer in) {
+
+		ColumnarStructureData d = new ColumnarStructureData();
+
+		d.structureId = getString(in);
+		d.mmtfVersion = getString(in);
+		d.mmtfProducer = getString(in);
+		d.title = getString(in);
+		d.depositionDate = getString(in);
+		d.releaseDate = getString(in);
+		d.spaceGroup = getString(in);
+		d.unitCell = getFloats(in);
+		d.experimentalMethods = getStrings(in);
+		d.rFree = in.getFloat();
+		d.rWork = in.getFloat();
+		d.resolution = in.getFloat();
+		d.numModels = in.getInt();
+		d.numChains = in.getInt();
+		d.numGroups = in.getInt();
+		d.numAtoms = in.getInt();
+		d.numBonds = in.getInt();
+
+		int numNcsOperators = getLength(in, 4);
+		if (numNcsOperators >= 0) {
+			d.ncsOperatorList = new double[numNcsOperators][];
+			for (int i = 0; i < numNcsOperators; i++) {
+				d.ncsOperatorList[i] = getDoubles(in);
+			}
+		}
+
+		int numBioassemblies = getLength(in, 4);
+		d.bioassemblyNames = new String[numBioassemblies];
+		d.bioassemblyChainIndices = new int[numBioassemblies][][];
+		d.bioassemblyMatrices = new double[numBioassemblies][][];
+		for (int i = 0; i < numBioassemblies; i++) {
+			d.bioassemblyNames[i] = getString(in);
+			int numTrans = getLength(in, 4);
+			d.bioassemblyChainIndices[i] = new int[numTrans][];
+			d.bioassemblyMatrices[i] = new double[numTrans][];
+			for (int j = 0; j < numTrans; j++) {
+				d.bioassemblyChainIndices[i][j] = getInts(in);
+				d.bioassemblyMatrices[i][j] = getDoubles(in);
+			}
+		}
+
+		int numEntities = getLength(in, 4);
+		d.entityDescriptions = new String[numEntities];
+		d.entityTypes = new String[numEntities];
+		d.entitySequences = new String[numEntities];
+		d.entityChainIndices = new int[numEntities][];
+		for (int i = 0; i < numEntities; i++) {
+			d.entityDescriptions[i] = getString(in);
+			d.entityTypes[i] = getString(in);
+			d.entitySequences[i] = getString(in);
+			d.entityChainIndices[i] = getInts(in);
+		}
+
+		int numGroupTypes = getLength(in, 4);
+		d.groupNames = new String[numGroupTypes];
+		d.groupAtomNames = new String[numGroupTypes][];
+		d.groupElementNames = new String[numGroupTypes][];
+		d.groupBondOrders = new int[numGroupTypes][];
+		d.groupBondIndices = new int[numGroupTypes][];
+		d.groupAtomCharges = new int[numGroupTypes][];
+		d.groupSingleLetterCodes = new char[numGroupTypes];
+		d.groupChemCompTypes = new String[numGroupTypes];
+		for (int i = 0; i < numGroupTypes; i++) {
+			d.groupNames[i] = getString(in);
+			d.groupAtomNames[i] = getStrings(in);
+			d.groupElementNames[i] = getStrings(in);
+			d.groupBondOrders[i] = getInts(in);
+			d.groupBondIndices[i] = getInts(in);
+			d.groupAtomCharges[i] = getInts(in);
+			d.groupSingleLetterCodes[i] = in.getChar();
+			d.groupChemCompTypes[i] = getString(in);
+		}
+
+		d.groupTypeIndices = getInts(in);
+		d.groupIds = getInts(in);
+		d.groupSequenceIndices = getInts(in);
+		d.secStructList = getInts(in);
+		d.insCodes = getChars(in);
+		d.chainIds = getStrings(in);
+		d.chainNames = getStrings(in);
+		d.chainsPerModel = getInts(in);
+		d.groupsPerChain = getInts(in);
+		d.interGroupBondIndices = getInts(in);
+		d.interGroupBondOrders = getInts(in);
+
+		d.atomIds = getInts(in);
+		d.altLocIds = getChars(in);
+		d.xCoords = getFloats(in);
+		d.yCoords = getFloats(in);
+		d.zCoords = getFloats(in);
+		d.bFactors = getFloats(in);
+		d.occupancies = getFloats(in);
+
+		return d;
+	}
+
+	/**
+	 * Reads the length of an array, which must fit into the remaining bytes, so that a
+	 * corrupt length fails before the array is allocated.
+	 * @param elementSize the minimum number of bytes per element
+	 */
+	private static int getLength(ByteBuffer in, int elementSize) {
+		int length = in.getInt();
+		if (length > in.remaining() / elementSize)
+			throw new BufferUnderflowException();
+		return length;
+	}
+
+	private static String getString(ByteBuffer in) {
+		int length = getLength(in, 1);
+		if (length < 0) return null;
+		byte[] bytes = new byte[length];
+		in.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static String[] getStrings(ByteBuffer in) {
+		int length = getLength(in, 4);
+		if (length < 0) return null;
+		String[] strings = new String[length];
+		for (int i = 0; i < length; i++) {
+			strings[i] = getString(in);
+		}
+		return strings;
+	}
+
+	private static int[] getInts(ByteBuffer in) {
+		int length = getLength(in, 4);
+		if (length < 0) return null;
+		int[] values = new int[length];
+		in.asIntBuffer().get(values);
+		in.position(in.position() + 4 * length);
+		return values;
+	}
+
+	private static float[] getFloats(ByteBuffer in) {
+		int length = getLength(in, 4);
+		if (length < 0) return null;
+		float[] values = new float[length];
+		in.asFloatBuffer().get(values);
+		in.position(in.position() + 4 * length);
+		return values;
+	}
+
+	private static double[] getDoubles(ByteBuffer in) {
+		int length = getLength(in, 8);
+		if (length < 0) return null;
+		double[] values = new double[length];
+		in.asDoubleBuffer().get(values);
+		in.position(in.position() + 8 * length);
+		return values;
+	}
+
+	private static char[] getChars(ByteBuffer in) {
+		int length = getLength(in, 2);
+		if (length < 0) return null;
+		char[] values = new char[length];
+		in.asCharBuffer().get(values);
+		in.position(in.position() + 2 * length);
+		return values;
+	}
+
+	/**
+	 * A growing little-endian buffer, with null arrays and Strings written as length -1.
+	 */
+	private static class Output {
+
+		private ByteBuffer buffer;
+
+		Output(int capacity) {
+			buffer = ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+		}
+
+		private void ensure(int n) {
+			if (buffer.remaining() < n) {
+				int capacity = Math.max(buffer.position() + n, 2 * buffer.capacity());
+				ByteBuffer grown = ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+				buffer.flip();
+				grown.put(buffer);
+				buffer = grown;
+			}
+		}
+
+		void putInt(int value) {
+			ensure(4);
+			buffer.putInt(value);
+		}
+
+		void putFloat(float value) {
+			ensure(4);
+			buffer.putFloat(value);
+		}
+
+		void putChar(char value) {
+			ensure(2);
+			buffer.putChar(value);
+		}
+
+		void putString(String s) {
+			if (s == null) {
+				putInt(-1);
+				return;
+			}
+			byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+			putInt(bytes.length);
+			ensure(bytes.length);
+			buffer.put(bytes);
+		}
+
+		void putStrings(String[] strings) {
+			if (strings == null) {
+				putInt(-1);
+				return;
+			}
+			putInt(strings.length);
+			for (String s : strings) {
+				putString(s);
+			}
+		}
+
+		void putInts(int[] values) {
+			if (values == null) {
+				putInt(-1);
+				return;
+			}
+			putInt(values.length);
+			ensure(4 * values.length);
+			buffer.asIntBuffer().put(values);
+			buffer.position(buffer.position() + 4 * values.length);
+		}
+
+		void putFloats(float[] values) {
+			if (values == null) {
+				putInt(-1);
+				return;
+			}
+			putInt(values.length);
+			ensure(4 * values.length);
+			buffer.asFloatBuffer().put(values);
+			buffer.position(buffer.position() + 4 * values.length);
+		}
+
+		void putDoubles(double[] values) {
+			if (values == null) {
+				putInt(-1);
+				return;
+			}
+			putInt(values.length);
+			ensure(8 * values.length);
+			buffer.asDoubleBuffer().put(values);
+			buffer.position(buffer.position() + 8 * values.length);
+		}
+
+		void putChars(char[] values) {
+			if (values == null) {
+				putInt(-1);
+				return;
+			}
+			putInt(values.length);
+			ensure(2 * values.length);
+			buffer.asCharBuffer().put(values);
+			buffer.position(buffer.position() + 2 * values.length);
+		}
+	}
+
+	@Override
+	public float[] getxCoords() {
+		return xCoords;
+	}
+
+	@Override
+	public float[] getyCoords() {
+		return yCoords;
+	}
+
+	@Override
+	public float[] getzCoords() {
+		return zCoords;
+	}
+
+	@Override
+	public float[] getbFactors() {
+		return bFactors;
+	}
+
+	@Override
+	public float[] getOccupancies() {
+		return occupancies;
+	}
+
+	@Override
+	public int[] getAtomIds() {
+		return atomIds;
+	}
+
+	@Override
+	public char[] getAltLocIds() {
+		return altLocIds;
+	}
+
+	@Override
+	public char[] getInsCodes() {
+		return insCodes;
+	}
+
+	@Override
+	public int[] getGroupIds() {
+		return groupIds;
+	}
+
+	@Override
+	public String getGroupName(int groupInd) {
+		return groupNames[groupInd];
+	}
+
+	@Override
+	public int getNumAtomsInGroup(int groupInd) {
+		return groupAtomNames[groupInd].length;
+	}
+
+	@Override
+	public String[] getGroupAtomNames(int groupInd) {
+		return groupAtomNames[groupInd];
+	}
+
+	@Override
+	public String[] getGroupElementNames(int groupInd) {
+		return groupElementNames[groupInd];
+	}
+
+	@Override
+	public int[] getGroupBondOrders(int groupInd) {
+		return groupBondOrders[groupInd];
+	}
+
+	@Override
+	public int[] getGroupBondIndices(int groupInd) {
+		return groupBondIndices[groupInd];
+	}
+
+	@Override
+	public int[] getGroupAtomCharges(int groupInd) {
+		return groupAtomCharges[groupInd];
+	}
+
+	@Override
+	public char getGroupSingleLetterCode(int groupInd) {
+		return groupSingleLetterCodes[groupInd];
+	}
+
+	@Override
+	public String getGroupChemCompType(int groupInd) {
+		return groupChemCompTypes[groupInd];
+	}
+
+	@Override
+	public int[] getGroupTypeIndices() {
+		return groupTypeIndices;
+	}
+
+	@Override
+	public int[] getGroupSequenceIndices() {
+		return groupSequenceIndices;
+	}
+
+	@Override
+	public String[] getChainIds() {
+		return chainIds;
+	}
+
+	@Override
+	public String[] getChainNames() {
+		return chainNames;
+	}
+
+	@Override
+	public int[] getChainsPerModel() {
+		return chainsPerModel;
+	}
+
+	@Override
+	public int[] getGroupsPerChain() {
+		return groupsPerChain;
+	}
+
+	@Override
+	public String getSpaceGroup() {
+		return spaceGroup;
+	}
+
+	@Override
+	public float[] getUnitCell() {
+		return unitCell;
+	}
+
+	@Override
+	public int getNumBioassemblies() {
+		return bioassemblyNames.length;
+	}
+
+	@Override
+	public int getNumTransInBioassembly(int bioassemblyIndex) {
+		return bioassemblyMatrices[bioassemblyIndex].length;
+	}
+
+	@Override
+	public String getBioassemblyName(int bioassemblyIndex) {
+		return bioassemblyNames[bioassemblyIndex];
+	}
+
+	@Override
+	public int[] getChainIndexListForTransform(int bioassemblyIndex, int transformationIndex) {
+		return bioassemblyChainIndices[bioassemblyIndex][transformationIndex];
+	}
+
+	@Override
+	public double[] getMatrixForTransform(int bioassemblyIndex, int transformationIndex) {
+		return bioassemblyMatrices[bioassemblyIndex][transformationIndex];
+	}
+
+	@Override
+	public int[] getInterGroupBondIndices() {
+		return interGroupBondIndices;
+	}
+
+	@Override
+	public int[] getInterGroupBondOrders() {
+		return interGroupBondOrders;
+	}
+
+	@Override
+	public String getMmtfVersion() {
+		return mmtfVersion;
+	}
+
+	@Override
+	public String getMmtfProducer() {
+		return mmtfProducer;
+	}
+
+	@Override
+	public int getNumEntities() {
+		return entityDescriptions.length;
+	}
+
+	@Override
+	public String getEntityDescription(int entityInd) {
+		return entityDescriptions[entityInd];
+	}
+
+	@Override
+	public String getEntityType(int entityInd) {
+		return entityTypes[entityInd];
+	}
+
+	@Override
+	public int[] getEntityChainIndexList(int entityInd) {
+		return entityChainIndices[entityInd];
+	}
+
+	@Override
+	public String getEntitySequence(int entityInd) {
+		return entitySequences[entityInd];
+	}
+
+	@Override
+	public String getStructureId() {
+		return structureId;
+	}
+
+	@Override
+	public int getNumModels() {
+		return numModels;
+	}
+
+	@Override
+	public int getNumBonds() {
+		return numBonds;
+	}
+
+	@Override
+	public int getNumChains() {
+		return numChains;
+	}
+
+	@Override
+	public int getNumGroups() {
+		return numGroups;
+	}
+
+	@Override
+	public int getNumAtoms() {
+		return numAtoms;
+	}
+
+	@Override
+	public float getRfree() {
+		return rFree;
+	}
+
+	@Override
+	public float getRwork() {
+		return rWork;
+	}
+
+	@Override
+	public float getResolution() {
+		return resolution;
+	}
+
+	@Override
+	public String getTitle() {
+		return title;
+	}
+
+	@Override
+	public String[] getExperimentalMethods() {
+		return experimentalMethods;
+	}
+
+	@Override
+	public String getDepositionDate() {
+		return depositionDate;
+	}
+
+	@Override
+	public String getReleaseDate() {
+		return releaseDate;
+	}
+
+	@Override
+	public int[] getSecStructList() {
+		return secStructList;
+	}
+
+	@Override
+	public double[][] getNcsOperatorList() {
+		return ncsOperatorList;
+	}
+
+	@Override
+	public String toString() {
+		return "ColumnarStructureData [structureId=" + structureId + ", numModels=" + numModels
+				+ ", numChains=" + numChains + ", numGroups=" + numGroups + ", numAtoms=" + numAtoms
+				+ ", experimentalMethods=" + Arrays.toString(experimentalMethods) + "]";
+	}
+}
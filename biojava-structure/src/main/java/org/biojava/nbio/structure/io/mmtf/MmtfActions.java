@@ -115,4 +115,31 @@ public class MmtfActions {
 		// Get the structue
 		return mmtfStructureReader.getStructure();
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Write a Structure object to a file in the uncompressed columnar layout of
+	 * {@link ColumnarStructureData}, meant for local caching.
+	 * @param structure the Structure to write
+	 * @param path the file to write
+	 * @throws IOException
+	 * @since 5.3.1
+	 */
+	public static void writeToColumnarFile(Structure structure, Path path) throws IOException {
+		AdapterToStructureData writerToEncoder = new AdapterToStructureData();
+		new MmtfStructureWriter(structure, writerToEncoder);
+		ColumnarStructureData.write(writerToEncoder, path);
+	}
+
+	/**
+	 * Get a Structure object from a file written by {@link #writeToColumnarFile(Structure, Path)}.
+	 * @param path the columnar file
+	 * @return the Structure
+	 * @throws IOException if the file can not be read or has another version of the layout
+	 * @since 5.3.1
+	 */
+	public static Structure readFromColumnarFile(Path path) throws IOException {
+		MmtfStructureReader mmtfStructureReader = new MmtfStructureReader();
+		new StructureDataToAdapter(ColumnarStructureData.read(path), mmtfStructureReader);
+		return mmtfStructureReader.getStructure();
+	}
+}
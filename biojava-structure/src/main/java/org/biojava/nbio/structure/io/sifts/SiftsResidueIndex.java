@@ -0,0 +1,342 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.io.sifts;
+
+import org.biojava.nbio.structure.ResidueNumber;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A memory-mapped index of the residue-level SIFTS mapping between PDB
+ * residue numbers and UniProt positions, written by
+ * {@link SiftsResidueIndexBuilder}.
+ * <p>
+ * The index is keyed by PDB id and chain id and stores, for each chain,
+ * ranges of consecutive residues mapped to consecutive UniProt positions.
+ * Lookups are binary searches on the mapped file, so that the index does not
+ * need to be loaded on the heap and can be shared by threads.
+ * <pre>
+ * SiftsResidueIndex index = SiftsResidueIndex.open(new File("sifts.idx"));
+ * SiftsResidue res = index.getResidue("4hhb", "A", ResidueNumber.fromString("10"));
+ * System.out.println(res.getUniProtAccessionId() + " " + res.getUniProtPos());
+ * List&lt;SiftsResidue&gt; all = index.getResidues(res.getUniProtAccessionId(), res.getUniProtPos());
+ * </pre>
+ *
+ * @see SiftsResidueIndexBuilder
+ * @since 5.3.1
+ */
+public class SiftsResidueIndex {
+
+	static final int MAGIC = 0x53494654; // "SIFT"
+	static final int VERSION = 1;
+
+	static final int PDB_START = 0;
+	static final int INS_CODE = 1;
+	static final int UNIPROT_START = 2;
+	static final int LENGTH = 3;
+	static final int ACCESSION = 4;
+	static final int CHAIN = 5;
+	static final int RANGE_FIELDS = 6;
+
+	private final int nChains;
+	private final int nAccessions;
+	private final int nRanges;
+
+	private final StringTable chainKeys;
+	private final IntBuffer chainStarts;
+	private final StringTable accessions;
+	private final IntBuffer accessionStarts;
+	private final IntBuffer accessionMaxLength;
+	private final IntBuffer ranges;
+	private final IntBuffer byUniProt;
+
+	/**
+	 * Maps an index file in memory.
+	 * @param file
+	 * @return
+	 * @throws IOException if the file can not be read or is not a SIFTS index
+	 */
+	public static SiftsResidueIndex open(File file) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+				FileChannel channel = raf.getChannel()) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return new SiftsResidueIndex(buffer);
+		}
+	}
+
+	SiftsResidueIndex(ByteBuffer buffer) throws IOException {
+		if (buffer.getInt(0) != MAGIC) {
+			throw new IOException("Not a SIFTS residue index");
+		}
+		if (buffer.getInt(4) != VERSION) {
+			throw new IOException("Unsupported SIFTS residue index version " + buffer.getInt(4));
+		}
+		nChains = buffer.getInt(8);
+		nAccessions = buffer.getInt(12);
+		nRanges = buffer.getInt(16);
+
+		int pos = 20;
+		chainKeys = new StringTable(buffer, pos);
+		pos = chainKeys.end;
+		chainStarts = slice(buffer, pos, 2 * nChains + 1);
+		pos += 4 * (2 * nChains + 1);
+
+		accessions = new StringTable(buffer, pos);
+		pos = accessions.end;
+		accessionStarts = slice(buffer, pos, nAccessions + 1);
+		pos += 4 * (nAccessions + 1);
+		accessionMaxLength = slice(buffer, pos, nAccessions);
+		pos += 4 * nAccessions;
+
+		ranges = slice(buffer, pos, RANGE_FIELDS * nRanges);
+		pos += 4 * RANGE_FIELDS * nRanges;
+		byUniProt = slice(buffer, pos, nRanges);
+	}
+
+	/**
+	 * @return the number of indexed chains
+	 */
+	public int getChainCount() {
+		return nChains;
+	}
+
+	/**
+	 * @return the number of residue ranges
+	 */
+	public int getRangeCount() {
+		return nRanges;
+	}
+
+	/**
+	 * @param pdbId
+	 * @param chainId
+	 * @return true if the chain has residues mapped to UniProt
+	 */
+	public boolean containsChain(String pdbId, String chainId) {
+		return chainKeys.find(getKey(pdbId, chainId)) >= 0;
+	}
+
+	/**
+	 * Maps a PDB residue to UniProt.
+	 * @param pdbId
+	 * @param chainId
+	 * @param resNum the residue number, its chain name is ignored
+	 * @return the mapping, with the PDB and UniProt fields set, or null if the
+	 *  residue is not mapped
+	 */
+	public SiftsResidue getResidue(String pdbId, String chainId, ResidueNumber resNum) {
+		int c = chainKeys.find(getKey(pdbId, chainId));
+		if (c < 0 || resNum.getSeqNum() == null) {
+			return null;
+		}
+		int seqNum = resNum.getSeqNum();
+		Character ins = resNum.getInsCode();
+		int insCode = ins == null || ins == ' ' ? 0 : ins;
+
+		int r = insCode == 0
+				? findRange(chainStarts.get(2 * c), chainStarts.get(2 * c + 1), seqNum)
+				: findInsertion(chainStarts.get(2 * c + 1), chainStarts.get(2 * c + 2), seqNum, insCode);
+		if (r < 0) {
+			return null;
+		}
+		return getResidue(r, seqNum - field(r, PDB_START));
+	}
+
+	/**
+	 * Maps a UniProt position to all the PDB residues it is observed in.
+	 * @param uniProtAccessionId
+	 * @param uniProtPos
+	 * @return the mappings, with the PDB and UniProt fields set
+	 */
+	public List<SiftsResidue> getResidues(String uniProtAccessionId, int uniProtPos) {
+		List<SiftsResidue> ret = new ArrayList<>();
+		int a = accessions.find(uniProtAccessionId);
+		if (a < 0) {
+			return ret;
+		}
+		int from = accessionStarts.get(a);
+		int to = accessionStarts.get(a + 1);
+		int maxLength = accessionMaxLength.get(a);
+
+		// first range starting after the position
+		int lo = from, hi = to;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (field(byUniProt.get(mid), UNIPROT_START) <= uniProtPos) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		// ranges starting more than maxLength before can not contain the position
+		for (int i = lo - 1; i >= from; i--) {
+			int r = byUniProt.get(i);
+			int offset = uniProtPos - field(r, UNIPROT_START);
+			if (offset >= maxLength) {
+				break;
+			}
+			if (offset < field(r, LENGTH)) {
+				ret.add(getResidue(r, offset));
+			}
+		}
+		return ret;
+	}
+
+	static String getKey(String pdbId, String chainId) {
+		return pdbId.toLowerCase() + "." + chainId;
+	}
+
+	private int field(int range, int field) {
+		return ranges.get(range * RANGE_FIELDS + field);
+	}
+
+	private int findRange(int from, int to, int seqNum) {
+		// last range starting at or before seqNum
+		int lo = from, hi = to;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (field(mid, PDB_START) <= seqNum) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		int r = lo - 1;
+		if (r < from || seqNum >= field(r, PDB_START) + field(r, LENGTH)) {
+			return -1;
+		}
+		return r;
+	}
+
+	private int findInsertion(int from, int to, int seqNum, int insCode) {
+		int lo = from, hi = to - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			int cmp = Integer.compare(field(mid, PDB_START), seqNum);
+			if (cmp == 0) {
+				cmp = Integer.compare(field(mid, INS_CODE), insCode);
+			}
+			if (cmp < 0) {
+				lo = mid + 1;
+			} else if (cmp > 0) {
+				hi = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	private SiftsResidue getResidue(int r, int offset) {
+		String key = chainKeys.get(field(r, CHAIN));
+		int dot = key.indexOf('.');
+		int insCode = field(r, INS_CODE);
+
+		SiftsResidue res = new SiftsResidue();
+		res.setPdbId(key.substring(0, dot));
+		res.setChainId(key.substring(dot + 1));
+		String resNum = String.valueOf(field(r, PDB_START) + offset);
+		res.setPdbResNum(insCode == 0 ? resNum : resNum + (char) insCode);
+		res.setUniProtAccessionId(accessions.get(field(r, ACCESSION)));
+		res.setUniProtPos(field(r, UNIPROT_START) + offset);
+		return res;
+	}
+
+	private static IntBuffer slice(ByteBuffer buffer, int pos, int ints) {
+		ByteBuffer dup = buffer.duplicate();
+		dup.position(pos);
+		dup.limit(pos + 4 * ints);
+		return dup.slice().asIntBuffer();
+	}
+
+	/**
+	 * Sorted ASCII strings: a count, count+1 offsets and the bytes.
+	 */
+	private static class StringTable {
+		final int size;
+		final IntBuffer offsets;
+		final ByteBuffer bytes;
+		final int end;
+
+		StringTable(ByteBuffer buffer, int pos) {
+			size = buffer.getInt(pos);
+			offsets = slice(buffer, pos + 4, size + 1);
+			int start = pos + 4 + 4 * (size + 1);
+			int length = offsets.get(size);
+			ByteBuffer dup = buffer.duplicate();
+			dup.position(start);
+			dup.limit(start + length);
+			bytes = dup.slice();
+			end = start + length;
+		}
+
+		String get(int i) {
+			int from = offsets.get(i);
+			byte[] b = new byte[offsets.get(i + 1) - from];
+			for (int k = 0; k < b.length; k++) {
+				b[k] = bytes.get(from + k);
+			}
+			return new String(b, StandardCharsets.ISO_8859_1);
+		}
+
+		/**
+		 * @return the index of the string, or -1
+		 */
+		int find(String s) {
+			int lo = 0, hi = size - 1;
+			while (lo <= hi) {
+				int mid = (lo + hi) >>> 1;
+				int cmp = compare(mid, s);
+				if (cmp < 0) {
+					lo = mid + 1;
+				} else if (cmp > 0) {
+					hi = mid - 1;
+				} else {
+					return mid;
+				}
+			}
+			return -1;
+		}
+
+		private int compare(int i, String s) {
+			int from = offsets.get(i);
+			int length = offsets.get(i + 1) - from;
+			int n = Math.min(length, s.length());
+			for (int k = 0; k < n; k++) {
+				int c1 = bytes.get(from + k) & 0xff;
+				int c2 = s.charAt(k);
+				if (c1 != c2) {
+					return c1 - c2;
+				}
+			}
+			return length - s.length();
+		}
+	}
+}
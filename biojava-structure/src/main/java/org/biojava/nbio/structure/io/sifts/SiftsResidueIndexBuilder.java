@@ -0,0 +1,387 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.io.sifts;
+
+import org.biojava.nbio.core.util.InputStreamProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts SIFTS residue-level XML files into a {@link SiftsResidueIndex}.
+ * <p>
+ * The XML files are read with a streaming StAX parser, without building a
+ * DOM. The residues mapped to both a PDB residue number and a UniProt position
+ * are merged into ranges of consecutive residues of the same UniProt entry;
+ * residues with an insertion code make ranges of their own.
+ * <pre>
+ * SiftsResidueIndexBuilder builder = new SiftsResidueIndexBuilder();
+ * for (File f : siftsXmlFiles)
+ *     builder.add(f);
+ * builder.write(new File("sifts.idx"));
+ * SiftsResidueIndex index = SiftsResidueIndex.open(new File("sifts.idx"));
+ * </pre>
+ *
+ * @see SiftsResidueIndex
+ * @since 5.3.1
+ */
+public class SiftsResidueIndexBuilder {
+
+	private final static Logger logger = LoggerFactory.getLogger(SiftsResidueIndexBuilder.class);
+
+	private final XMLInputFactory factory;
+
+	private final Map<String, ChainRanges> chains = new HashMap<>();
+	private final Map<String, Integer> accessionIds = new HashMap<>();
+	private final List<String> accessions = new ArrayList<>();
+
+	private int residues;
+
+	public SiftsResidueIndexBuilder() {
+		factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+	}
+
+	/**
+	 * Adds the residues of a SIFTS XML file, which may be gzipped.
+	 * @param siftsXml
+	 * @throws IOException
+	 */
+	public void add(File siftsXml) throws IOException {
+		InputStreamProvider prov = new InputStreamProvider();
+		try (InputStream is = prov.getInputStream(siftsXml)) {
+			add(is);
+		}
+	}
+
+	/**
+	 * Adds the residues of a SIFTS XML document.
+	 * @param is the XML document, it is not closed
+	 * @throws IOException if the document could not be parsed
+	 */
+	public void add(InputStream is) throws IOException {
+		try {
+			XMLStreamReader reader = factory.createXMLStreamReader(is);
+			try {
+				parse(reader);
+			} finally {
+				reader.close();
+			}
+		} catch (XMLStreamException e) {
+			throw new IOException("Could not parse SIFTS XML: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Adds a residue mapping. Mappings must be added in the order of the
+	 * residues in the chain to be merged into ranges.
+	 * @param pdbId
+	 * @param chainId
+	 * @param pdbResNum the residue number with an optional insertion code, e.g. <code>27A</code>
+	 * @param uniProtAccessionId
+	 * @param uniProtPos
+	 * @return false if the residue number could not be read
+	 */
+	public boolean add(String pdbId, String chainId, String pdbResNum,
+			String uniProtAccessionId, int uniProtPos) {
+		int n = pdbResNum.length();
+		char insCode = 0;
+		if (n > 1 && !Character.isDigit(pdbResNum.charAt(n - 1))) {
+			insCode = pdbResNum.charAt(n - 1);
+			n--;
+		}
+		int seqNum;
+		try {
+			seqNum = Integer.parseInt(pdbResNum.substring(0, n));
+		} catch (NumberFormatException e) {
+			return false;
+		}
+
+		Integer accession = accessionIds.get(uniProtAccessionId);
+		if (accession == null) {
+			accession = accessions.size();
+			accessionIds.put(uniProtAccessionId, accession);
+			accessions.add(uniProtAccessionId);
+		}
+
+		String key = SiftsResidueIndex.getKey(pdbId, chainId);
+		chains.computeIfAbsent(key, k -> new ChainRanges()).add(seqNum, insCode, uniProtPos, accession);
+		residues++;
+		return true;
+	}
+
+	/**
+	 * @return the number of residue mappings added so far
+	 */
+	public int getResidueCount() {
+		return residues;
+	}
+
+	/**
+	 * Writes the index file.
+	 * @param file
+	 * @throws IOException
+	 */
+	public void write(File file) throws IOException {
+		// accessions and chains are stored sorted, for binary search
+		Integer[] accessionOrder = new Integer[accessions.size()];
+		for (int i = 0; i < accessionOrder.length; i++) {
+			accessionOrder[i] = i;
+		}
+		Arrays.sort(accessionOrder, (a, b) -> accessions.get(a).compareTo(accessions.get(b)));
+		int[] accessionRank = new int[accessionOrder.length];
+		for (int i = 0; i < accessionOrder.length; i++) {
+			accessionRank[accessionOrder[i]] = i;
+		}
+
+		List<String> keys = new ArrayList<>(chains.keySet());
+		Collections.sort(keys);
+
+		int nRanges = 0;
+		for (ChainRanges ranges : chains.values()) {
+			nRanges += ranges.size;
+		}
+
+		int[][] table = new int[SiftsResidueIndex.RANGE_FIELDS][nRanges];
+		int[] chainStarts = new int[2 * keys.size() + 1];
+		int r = 0;
+		for (int c = 0; c < keys.size(); c++) {
+			ChainRanges ranges = chains.get(keys.get(c));
+			Integer[] order = ranges.sortedOrder();
+			chainStarts[2 * c] = r;
+			boolean inserted = false;
+			for (int i : order) {
+				if (!inserted && ranges.insCode[i] != 0) {
+					chainStarts[2 * c + 1] = r;
+					inserted = true;
+				}
+				table[SiftsResidueIndex.PDB_START][r] = ranges.pdbStart[i];
+				table[SiftsResidueIndex.INS_CODE][r] = ranges.insCode[i];
+				table[SiftsResidueIndex.UNIPROT_START][r] = ranges.uniProtStart[i];
+				table[SiftsResidueIndex.LENGTH][r] = ranges.length[i];
+				table[SiftsResidueIndex.ACCESSION][r] = accessionRank[ranges.accession[i]];
+				table[SiftsResidueIndex.CHAIN][r] = c;
+				r++;
+			}
+			if (!inserted) {
+				chainStarts[2 * c + 1] = r;
+			}
+		}
+		chainStarts[2 * keys.size()] = r;
+
+		// the ranges by UniProt accession and start
+		Integer[] byUniProt = new Integer[nRanges];
+		for (int i = 0; i < nRanges; i++) {
+			byUniProt[i] = i;
+		}
+		int[] acc = table[SiftsResidueIndex.ACCESSION];
+		int[] start = table[SiftsResidueIndex.UNIPROT_START];
+		Arrays.sort(byUniProt, (a, b) -> acc[a] != acc[b] ? Integer.compare(acc[a], acc[b]) : Integer.compare(start[a], start[b]));
+
+		int[] accessionStarts = new int[accessions.size() + 1];
+		int[] accessionMaxLength = new int[accessions.size()];
+		for (int i = 0; i < nRanges; i++) {
+			int a = acc[byUniProt[i]];
+			accessionStarts[a + 1] = i + 1;
+			accessionMaxLength[a] = Math.max(accessionMaxLength[a], table[SiftsResidueIndex.LENGTH][byUniProt[i]]);
+		}
+		for (int a = 1; a < accessionStarts.length; a++) {
+			accessionStarts[a] = Math.max(accessionStarts[a], accessionStarts[a - 1]);
+		}
+
+		List<String> sortedAccessions = new ArrayList<>(accessions.size());
+		for (Integer a : accessionOrder) {
+			sortedAccessions.add(accessions.get(a));
+		}
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+			out.writeInt(SiftsResidueIndex.MAGIC);
+			out.writeInt(SiftsResidueIndex.VERSION);
+			out.writeInt(keys.size());
+			out.writeInt(sortedAccessions.size());
+			out.writeInt(nRanges);
+
+			writeStrings(out, keys);
+			writeInts(out, chainStarts);
+
+			writeStrings(out, sortedAccessions);
+			writeInts(out, accessionStarts);
+			writeInts(out, accessionMaxLength);
+
+			for (int i = 0; i < nRanges; i++) {
+				for (int f = 0; f < SiftsResidueIndex.RANGE_FIELDS; f++) {
+					out.writeInt(table[f][i]);
+				}
+			}
+			for (int i = 0; i < nRanges; i++) {
+				out.writeInt(byUniProt[i]);
+			}
+		}
+
+		logger.info("Wrote SIFTS index {} with {} residues in {} ranges of {} chains",
+				file, residues, nRanges, keys.size());
+	}
+
+	private void parse(XMLStreamReader reader) throws XMLStreamException {
+		boolean inResidue = false;
+		String pdbId = null;
+		String chainId = null;
+		String pdbResNum = null;
+		String uniProtAccessionId = null;
+		String uniProtResNum = null;
+
+		while (reader.hasNext()) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				String name = reader.getLocalName();
+				if (name.equals("residue")) {
+					inResidue = true;
+					pdbId = chainId = pdbResNum = uniProtAccessionId = uniProtResNum = null;
+				} else if (inResidue && name.equals("crossRefDb")) {
+					String dbSource = reader.getAttributeValue(null, "dbSource");
+					if ("PDB".equals(dbSource) && "PDBresnum".equals(reader.getAttributeValue(null, "dbCoordSys"))) {
+						pdbId = reader.getAttributeValue(null, "dbAccessionId");
+						chainId = reader.getAttributeValue(null, "dbChainId");
+						pdbResNum = reader.getAttributeValue(null, "dbResNum");
+					} else if ("UniProt".equals(dbSource)) {
+						uniProtAccessionId = reader.getAttributeValue(null, "dbAccessionId");
+						uniProtResNum = reader.getAttributeValue(null, "dbResNum");
+					}
+				}
+			} else if (event == XMLStreamConstants.END_ELEMENT && inResidue
+					&& reader.getLocalName().equals("residue")) {
+				inResidue = false;
+				if (pdbId == null || chainId == null || pdbResNum == null
+						|| uniProtAccessionId == null || uniProtResNum == null) {
+					continue;
+				}
+				int uniProtPos;
+				try {
+					uniProtPos = Integer.parseInt(uniProtResNum);
+				} catch (NumberFormatException e) {
+					continue;
+				}
+				// unobserved residues may have a "null" residue number
+				if (!add(pdbId, chainId, pdbResNum, uniProtAccessionId, uniProtPos)) {
+					logger.debug("Skipping residue {} of {}.{}", pdbResNum, pdbId, chainId);
+				}
+			}
+		}
+	}
+
+	private static void writeStrings(DataOutputStream out, List<String> strings) throws IOException {
+		byte[][] bytes = new byte[strings.size()][];
+		int offset = 0;
+		out.writeInt(strings.size());
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = strings.get(i).getBytes(StandardCharsets.ISO_8859_1);
+			out.writeInt(offset);
+			offset += bytes[i].length;
+		}
+		out.writeInt(offset);
+		for (byte[] b : bytes) {
+			out.write(b);
+		}
+	}
+
+	private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+		for (int v : values) {
+			out.writeInt(v);
+		}
+	}
+
+	/**
+	 * The ranges of one chain, in the order they were added.
+	 */
+	private static class ChainRanges {
+		int size;
+		int[] pdbStart = new int[4];
+		char[] insCode = new char[4];
+		int[] uniProtStart = new int[4];
+		int[] length = new int[4];
+		int[] accession = new int[4];
+
+		void add(int seqNum, char ins, int uniProtPos, int acc) {
+			if (size > 0) {
+				int last = size - 1;
+				if (ins == 0 && insCode[last] == 0 && accession[last] == acc
+						&& seqNum == pdbStart[last] + length[last]
+						&& uniProtPos == uniProtStart[last] + length[last]) {
+					length[last]++;
+					return;
+				}
+			}
+			if (size == pdbStart.length) {
+				int n = size * 2;
+				pdbStart = Arrays.copyOf(pdbStart, n);
+				insCode = Arrays.copyOf(insCode, n);
+				uniProtStart = Arrays.copyOf(uniProtStart, n);
+				length = Arrays.copyOf(length, n);
+				accession = Arrays.copyOf(accession, n);
+			}
+			pdbStart[size] = seqNum;
+			insCode[size] = ins;
+			uniProtStart[size] = uniProtPos;
+			length[size] = 1;
+			accession[size] = acc;
+			size++;
+		}
+
+		/**
+		 * @return the ranges without insertion code by start, followed by
+		 *  the residues with an insertion code by number and code
+		 */
+		Integer[] sortedOrder() {
+			Integer[] order = new Integer[size];
+			for (int i = 0; i < size; i++) {
+				order[i] = i;
+			}
+			Arrays.sort(order, (a, b) -> {
+				if ((insCode[a] == 0) != (insCode[b] == 0)) {
+					return insCode[a] == 0 ? -1 : 1;
+				}
+				if (pdbStart[a] != pdbStart[b]) {
+					return Integer.compare(pdbStart[a], pdbStart[b]);
+				}
+				return Character.compare(insCode[a], insCode[b]);
+			});
+			return order;
+		}
+	}
+}
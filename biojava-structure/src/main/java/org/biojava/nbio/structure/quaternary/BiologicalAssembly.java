@@ -0,0 +1,271 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.quaternary;
+
+import org.biojava.nbio.structure.AminoAcid;
+import org.biojava.nbio.structure.AminoAcidImpl;
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.Calc;
+import org.biojava.nbio.structure.Chain;
+import org.biojava.nbio.structure.ChainImpl;
+import org.biojava.nbio.structure.Group;
+import org.biojava.nbio.structure.HetatomImpl;
+import org.biojava.nbio.structure.NucleotideImpl;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.StructureTools;
+
+import javax.vecmath.Matrix4d;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A biological assembly that references the chains of the asymmetric unit
+ * and keeps one transformation matrix per copy, instead of cloning every
+ * atom of every copy like
+ * {@link BiologicalAssemblyBuilder#rebuildQuaternaryStructure(Structure, List, boolean, boolean)}.
+ * <p>
+ * Transformed coordinates are only computed when requested, either into
+ * primitive arrays ({@link #getCoordinates(int, double[])}), as lightweight
+ * copies of the representative atoms ({@link #getRepresentativeAtoms(int)},
+ * which is what {@link org.biojava.nbio.structure.cluster.SubunitExtractor}
+ * and the quaternary symmetry detection need) or as a fully cloned
+ * {@link Chain} ({@link #getTransformedChain(int)}).
+ * <p>
+ * The asymmetric unit must not be modified while an assembly refers to it.
+ *
+ * @since 5.3.1
+ * @see BiologicalAssemblyBuilder#buildAssembly(Structure, List, boolean)
+ */
+public class BiologicalAssembly {
+
+	private final Structure asymUnit;
+	private final List<Chain> chains;
+	private final List<BiologicalAssemblyTransformation> transformations;
+
+	BiologicalAssembly(Structure asymUnit) {
+		this.asymUnit = asymUnit;
+		this.chains = new ArrayList<>();
+		this.transformations = new ArrayList<>();
+	}
+
+	void addCopy(Chain chain, BiologicalAssemblyTransformation transformation) {
+		chains.add(chain);
+		transformations.add(transformation);
+	}
+
+	/**
+	 * @return the asymmetric unit whose chains are referenced by this assembly
+	 */
+	public Structure getAsymUnit() {
+		return asymUnit;
+	}
+
+	/**
+	 * @return the number of chain copies in the assembly
+	 */
+	public int size() {
+		return chains.size();
+	}
+
+	/**
+	 * Returns the untransformed chain of the asymmetric unit of the given copy.
+	 * The returned chain is shared between all copies and must not be modified.
+	 *
+	 * @param copy index of the copy, from 0 to {@link #size()}-1
+	 * @return chain of the asymmetric unit
+	 */
+	public Chain getChain(int copy) {
+		return chains.get(copy);
+	}
+
+	/**
+	 * @param copy index of the copy, from 0 to {@link #size()}-1
+	 * @return the transformation of the copy
+	 */
+	public BiologicalAssemblyTransformation getTransformation(int copy) {
+		return transformations.get(copy);
+	}
+
+	/**
+	 * @param copy index of the copy, from 0 to {@link #size()}-1
+	 * @return the transformation matrix that maps the asymmetric unit chain onto the copy
+	 */
+	public Matrix4d getTransformationMatrix(int copy) {
+		return transformations.get(copy).getTransformationMatrix();
+	}
+
+	/**
+	 * Returns the identifier of a copy, which is the same as the chain id
+	 * used in flattened assemblies built by {@link BiologicalAssemblyBuilder}:
+	 * originalAsymId_transformId.
+	 *
+	 * @param copy index of the copy, from 0 to {@link #size()}-1
+	 * @return the copy identifier
+	 */
+	public String getCopyId(int copy) {
+		return chains.get(copy).getId() + BiologicalAssemblyBuilder.SYM_CHAIN_ID_SEPARATOR
+				+ transformations.get(copy).getId();
+	}
+
+	/**
+	 * Returns the copy name in the form originalAuthId_transformId.
+	 *
+	 * @param copy index of the copy, from 0 to {@link #size()}-1
+	 * @return the copy name
+	 */
+	public String getCopyName(int copy) {
+		return chains.get(copy).getName() + BiologicalAssemblyBuilder.SYM_CHAIN_ID_SEPARATOR
+				+ transformations.get(copy).getId();
+	}
+
+	/**
+	 * @param copy index of the copy, from 0 to {@link #size()}-1
+	 * @return the number of atoms of the copy, alternate locations excluded
+	 */
+	public int getAtomCount(int copy) {
+		int n = 0;
+		for (Group g : chains.get(copy).getAtomGroups())
+			n += g.size();
+		return n;
+	}
+
+	/**
+	 * Returns the transformed coordinates of all atoms of a copy,
+	 * in the order of {@link Chain#getAtomGroups()} and {@link Group#getAtoms()}.
+	 *
+	 * @param copy index of the copy, from 0 to {@link #size()}-1
+	 * @return a new array of length 3*{@link #getAtomCount(int)} with x,y,z per atom
+	 */
+	public double[] getCoordinates(int copy) {
+		return getCoordinates(copy, null);
+	}
+
+	/**
+	 * Writes the transformed coordinates of all atoms of a copy to the
+	 * given buffer. The buffer is reused if it is large enough.
+	 *
+	 * @param copy index of the copy, from 0 to {@link #size()}-1
+	 * @param buffer a buffer to reuse, can be null
+	 * @return the buffer that was written, with x,y,z per atom
+	 * @see #getCoordinates(int)
+	 */
+	public double[] getCoordinates(int copy, double[] buffer) {
+		int n = 3 * getAtomCount(copy);
+		if (buffer == null || buffer.length < n)
+			buffer = new double[n];
+
+		Matrix4d m = getTransformationMatrix(copy);
+		int i = 0;
+		for (Group g : chains.get(copy).getAtomGroups()) {
+			for (Atom a : g.getAtoms()) {
+				double x = a.getX();
+				double y = a.getY();
+				double z = a.getZ();
+				buffer[i++] = m.m00 * x + m.m01 * y + m.m02 * z + m.m03;
+				buffer[i++] = m.m10 * x + m.m11 * y + m.m12 * z + m.m13;
+				buffer[i++] = m.m20 * x + m.m21 * y + m.m22 * z + m.m23;
+			}
+		}
+		return buffer;
+	}
+
+	/**
+	 * Returns transformed copies of the representative atoms (see
+	 * {@link StructureTools#getRepresentativeAtomArray(Chain)}) of a copy.
+	 * Only the representative atoms are copied: each of them belongs to a new
+	 * group that holds no other atom, in a new chain named as
+	 * {@link #getCopyId(int)}. The rest of the chain is not cloned.
+	 *
+	 * @param copy index of the copy, from 0 to {@link #size()}-1
+	 * @return the transformed representative atoms
+	 */
+	public Atom[] getRepresentativeAtoms(int copy) {
+		Chain original = chains.get(copy);
+		Atom[] repr = StructureTools.getRepresentativeAtomArray(original);
+
+		Chain newChain = new ChainImpl();
+		newChain.setId(getCopyId(copy));
+		newChain.setName(getCopyName(copy));
+		newChain.setEntityInfo(original.getEntityInfo());
+
+		Matrix4d m = getTransformationMatrix(copy);
+		Atom[] transformed = new Atom[repr.length];
+		for (int i = 0; i < repr.length; i++) {
+			Group g = repr[i].getGroup();
+			Group newGroup = newGroupLike(g);
+			Atom a = (Atom) repr[i].clone();
+			Calc.transform(a, m);
+			newGroup.addAtom(a);
+			newChain.addGroup(newGroup);
+			transformed[i] = a;
+		}
+		return transformed;
+	}
+
+	/**
+	 * Clones and transforms a single copy, for callers that need the full
+	 * {@link Chain} object of one copy only.
+	 *
+	 * @param copy index of the copy, from 0 to {@link #size()}-1
+	 * @return a transformed clone of the chain, renamed as in flattened assemblies
+	 */
+	public Chain getTransformedChain(int copy) {
+		Chain chain = (Chain) chains.get(copy).clone();
+		Calc.transform(chain, getTransformationMatrix(copy));
+		chain.setId(getCopyId(copy));
+		chain.setName(getCopyName(copy));
+		return chain;
+	}
+
+	/**
+	 * Materializes the assembly as a {@link Structure}, cloning all the atoms.
+	 * This is the same as calling
+	 * {@link BiologicalAssemblyBuilder#rebuildQuaternaryStructure(Structure, List, boolean, boolean)}.
+	 *
+	 * @param multiModel if true one model per transformId, otherwise the chains are renamed
+	 * @return the biological assembly as a Structure
+	 */
+	public Structure toStructure(boolean multiModel) {
+		BiologicalAssemblyBuilder builder = new BiologicalAssemblyBuilder();
+		return builder.buildStructure(this, multiModel);
+	}
+
+	/**
+	 * Creates an empty group with the same type, name, residue number and
+	 * chemical component as the given one.
+	 */
+	private static Group newGroupLike(Group g) {
+		Group newGroup;
+		if (g instanceof AminoAcid) {
+			AminoAcidImpl aa = new AminoAcidImpl();
+			aa.setAminoType(((AminoAcid) g).getAminoType());
+			newGroup = aa;
+		} else if (g instanceof NucleotideImpl) {
+			newGroup = new NucleotideImpl();
+		} else {
+			newGroup = new HetatomImpl();
+		}
+		newGroup.setPDBName(g.getPDBName());
+		newGroup.setResidueNumber(g.getResidueNumber());
+		newGroup.setChemComp(g.getChemComp());
+		return newGroup;
+	}
+}
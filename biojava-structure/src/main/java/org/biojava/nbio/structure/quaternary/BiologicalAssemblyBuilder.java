@@ -25,6 +25,7 @@ import org.biojava.nbio.structure.Calc;
 import org.biojava.nbio.structure.Chain;
 import org.biojava.nbio.structure.EntityInfo;
 import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.StructureImpl;
 import org.biojava.nbio.structure.io.mmcif.model.PdbxStructAssembly;
 import org.biojava.nbio.structure.io.mmcif.model.PdbxStructAssemblyGen;
 import org.biojava.nbio.structure.io.mmcif.model.PdbxStructOperList;
@@ -95,71 +96,118 @@ public class BiologicalAssemblyBuilder {
 	 * @return
 	 */
 	public Structure rebuildQuaternaryStructure(Structure asymUnit, List<BiologicalAssemblyTransformation> transformations, boolean useAsymIds, boolean multiModel) {
+		return buildStructure(buildAssembly(asymUnit, transformations, useAsymIds), multiModel);
+	}
+
+	/**
+	 * Builds a {@link BiologicalAssembly} from the given asymUnit and transformations.
+	 * Unlike {@link #rebuildQuaternaryStructure(Structure, List, boolean, boolean)} no atoms
+	 * are cloned: the assembly references the chains of the asymUnit together with one
+	 * transformation per copy, and coordinates are transformed on demand.
+	 * This is the preferred way of handling assemblies with many operators, e.g. virus capsids.
+	 *
+	 * @param asymUnit
+	 * @param transformations
+	 * @param useAsymIds if true use {@link Chain#getId()} to match the ids in the BiologicalAssemblyTransformation (needed if data read from mmCIF),
+	 * if false use {@link Chain#getName()} for the chain matching (needed if data read from PDB).
+	 * @return the assembly, in the same chain order as the Structure built by
+	 * {@link #rebuildQuaternaryStructure(Structure, List, boolean, boolean)}
+	 * @since 5.3.1
+	 */
+	public BiologicalAssembly buildAssembly(Structure asymUnit, List<BiologicalAssemblyTransformation> transformations, boolean useAsymIds) {
 
 		// ensure that new chains are build in the same order as they appear in the asymmetric unit
 		orderTransformationsByChainId(asymUnit, transformations);
 
-		Structure s = asymUnit.clone();
-
-		Map<Integer, EntityInfo> entityInfoMap = new HashMap<>();
-		// this resets all models (not only the first one): this is important for NMR (multi-model)
-		// like that we can be sure we start with an empty structures and we add models or chains to it
-		s.resetModels();
-		s.setEntityInfos(new ArrayList<>());
+		BiologicalAssembly assembly = new BiologicalAssembly(asymUnit);
 
 		for (BiologicalAssemblyTransformation transformation : transformations){
 
-			List<Chain> chainsToTransform = new ArrayList<>();
-
 			// note: for NMR structures (or any multi-model) we use the first model only and throw away the rest
 			if (useAsymIds) {
 				Chain c = asymUnit.getChain(transformation.getChainId());
-				chainsToTransform.add(c);
+				assembly.addCopy(c, transformation);
 			} else {
 				Chain polyC = asymUnit.getPolyChainByPDB(transformation.getChainId());
 				List<Chain> nonPolyCs = asymUnit.getNonPolyChainsByPDB(transformation.getChainId());
 				Chain waterC = asymUnit.getWaterChainByPDB(transformation.getChainId());
 				if (polyC!=null)
-					chainsToTransform.add(polyC);
-				if (!nonPolyCs.isEmpty())
-					chainsToTransform.addAll(nonPolyCs);
+					assembly.addCopy(polyC, transformation);
+				for (Chain nonPolyC : nonPolyCs)
+					assembly.addCopy(nonPolyC, transformation);
 				if (waterC!=null)
-					chainsToTransform.add(waterC);
+					assembly.addCopy(waterC, transformation);
 			}
+		}
+		return assembly;
+	}
+
+	/**
+	 * Materializes a {@link BiologicalAssembly} into a new Structure, cloning and
+	 * transforming every chain copy.
+	 *
+	 * @param assembly
+	 * @param multiModel if true the output Structure will be a multi-model one with one transformId per model,
+	 * if false the outputStructure will be as the original with added chains with renamed asymIds (in the form originalAsymId_transformId and originalAuthId_transformId).
+	 * @return the biological assembly as a Structure
+	 * @since 5.3.1
+	 */
+	public Structure buildStructure(BiologicalAssembly assembly, boolean multiModel) {
 
-			for (Chain c: chainsToTransform) {
+		Structure s = copyMetadata(assembly.getAsymUnit());
 
-				Chain chain = (Chain)c.clone();
+		Map<Integer, EntityInfo> entityInfoMap = new HashMap<>();
 
-				Calc.transform(chain, transformation.getTransformationMatrix());
+		for (int i = 0; i < assembly.size(); i++) {
 
-				String transformId = transformation.getId();
+			Chain chain = (Chain)assembly.getChain(i).clone();
 
-				// note that the Structure.addChain/Structure.addModel methods set the parent reference to the new Structure
+			Calc.transform(chain, assembly.getTransformationMatrix(i));
 
-				if (multiModel)
-					addChainMultiModel(s, chain, transformId);
-				else
-					addChainFlattened(s, chain, transformId);
+			String transformId = assembly.getTransformation(i).getId();
 
-				EntityInfo entityInfo;
-				if (!entityInfoMap.containsKey(chain.getEntityInfo().getMolId())) {
-					entityInfo = new EntityInfo(chain.getEntityInfo());
-					entityInfoMap.put(chain.getEntityInfo().getMolId(), entityInfo);
-					s.addEntityInfo(entityInfo);
-				} else {
-					entityInfo = entityInfoMap.get(chain.getEntityInfo().getMolId());
-				}
-				chain.setEntityInfo(entityInfo);
-				entityInfo.addChain(chain);
+			// note that the Structure.addChain/Structure.addModel methods set the parent reference to the new Structure
+
+			if (multiModel)
+				addChainMultiModel(s, chain, transformId);
+			else
+				addChainFlattened(s, chain, transformId);
 
+			EntityInfo entityInfo;
+			if (!entityInfoMap.containsKey(chain.getEntityInfo().getMolId())) {
+				entityInfo = new EntityInfo(chain.getEntityInfo());
+				entityInfoMap.put(chain.getEntityInfo().getMolId(), entityInfo);
+				s.addEntityInfo(entityInfo);
+			} else {
+				entityInfo = entityInfoMap.get(chain.getEntityInfo().getMolId());
 			}
+			chain.setEntityInfo(entityInfo);
+			entityInfo.addChain(chain);
+
 		}
 
 		s.setBiologicalAssembly(true);
 		return s;
 	}
 
+	/**
+	 * Returns a new Structure with the same metadata as the given one, but
+	 * without any models or entities. This is what the models of a
+	 * {@link Structure#clone()} are reset to, without deep-copying the atoms first.
+	 * @param asymUnit
+	 * @return
+	 */
+	private Structure copyMetadata(Structure asymUnit) {
+		Structure s = new StructureImpl();
+		s.setPDBCode(asymUnit.getPDBCode());
+		s.setName(asymUnit.getName());
+		s.setPDBHeader(asymUnit.getPDBHeader());
+		s.setDBRefs(asymUnit.getDBRefs());
+		s.setSites(asymUnit.getSites());
+		s.setEntityInfos(new ArrayList<>());
+		return s;
+	}
+
 	/**
 	 * Orders model transformations by chain ids in the same order as in the asymmetric unit
 	 * @param asymUnit
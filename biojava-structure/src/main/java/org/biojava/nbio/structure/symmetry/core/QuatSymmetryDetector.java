@@ -28,6 +28,7 @@ import org.biojava.nbio.structure.cluster.Subunit;
 import org.biojava.nbio.structure.cluster.SubunitCluster;
 import org.biojava.nbio.structure.cluster.SubunitClusterer;
 import org.biojava.nbio.structure.cluster.SubunitClustererParameters;
+import org.biojava.nbio.structure.quaternary.BiologicalAssembly;
 import org.biojava.nbio.structure.contact.BoundingBox;
 import org.biojava.nbio.structure.contact.Grid;
 import org.jgrapht.Graph;
@@ -94,6 +95,27 @@ public class QuatSymmetryDetector {
 		return calcGlobalSymmetry(composition, symmParams);
 	}
 
+	/**
+	 * Calculate GLOBAL symmetry results of a {@link BiologicalAssembly}. Only
+	 * the representative atoms of the chain copies are transformed, the
+	 * assembly is not materialized as a Structure.
+	 *
+	 * @param assembly
+	 *            protein chain copies will be extracted as {@link Subunit}
+	 * @param symmParams
+	 *            quaternary symmetry parameters
+	 * @param clusterParams
+	 *            subunit clustering parameters
+	 * @return GLOBAL quaternary structure symmetry results
+	 * @since 5.3.1
+	 */
+	public static QuatSymmetryResults calcGlobalSymmetry(BiologicalAssembly assembly,
+			QuatSymmetryParameters symmParams,
+			SubunitClustererParameters clusterParams) {
+		Stoichiometry composition = SubunitClusterer.cluster(assembly, clusterParams);
+		return calcGlobalSymmetry(composition, symmParams);
+	}
+
 	/**
 	 * Calculate GLOBAL symmetry results. This means that all {@link Subunit}
 	 * are included in the symmetry.
@@ -26,6 +26,7 @@ import org.biojava.nbio.structure.align.ce.CeCPMain;
 import org.biojava.nbio.structure.align.ce.MatrixListener;
 import org.biojava.nbio.structure.align.model.AFPChain;
 import org.biojava.nbio.structure.align.multiple.MultipleAlignment;
+import org.biojava.nbio.structure.align.multiple.util.MultipleAlignmentScorer;
 import org.biojava.nbio.structure.align.util.AFPChainScorer;
 import org.biojava.nbio.structure.jama.Matrix;
 import org.biojava.nbio.structure.secstruc.SecStrucCalc;
@@ -38,6 +39,11 @@ import org.slf4j.LoggerFactory;
 import javax.vecmath.Matrix4d;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * Identify the symmetries in a structure by running an alignment of the
@@ -56,7 +62,13 @@ import java.util.List;
  * symmetric repeats.
  * <p>
  * After refinement of the initial alignment, an optimization step can be used
- * to improve the overall score of the repeat multiple alignment.
+ * to improve the overall score of the repeat multiple alignment. Several
+ * optimization chains with different random seeds can be run in parallel on
+ * an executor, keeping the best scoring alignment (see
+ * {@link CESymmParameters#getOptimizationChains()}).
+ * <p>
+ * Many structures can be analyzed at once with
+ * {@link #analyze(List, CESymmParameters, ExecutorService)}.
  *
  * @author Andreas Prlic
  * @author Spencer Bliven
@@ -92,7 +104,7 @@ public class CeSymm {
 
 	private static Matrix align(AFPChain afpChain, Atom[] ca1, Atom[] ca2,
 			CESymmParameters params, Matrix origM, CECalculator calculator,
-			int counter) throws StructureException {
+			double[][] intraDist, int counter) throws StructureException {
 
 		int fragmentLength = params.getWinSize();
 		Atom[] ca2clone = StructureTools.cloneAtomArray(ca2);
@@ -106,8 +118,9 @@ public class CeSymm {
 		int blankWindowSize = fragmentLength;
 		if (origM == null) {
 
-			// Build alignment ca1 to ca2-ca2
-			afpChain = calculator.extractFragments(afpChain, ca1, ca2clone);
+			// Build alignment ca1 to ca2-ca2, ca2 distances repeat ca1 ones
+			afpChain = calculator.extractFragments(afpChain, ca1, ca2clone,
+					intraDist, duplicateDistances(intraDist));
 
 			origM = SymmetryTools.blankOutPreviousAlignment(afpChain, ca2,
 					rows, cols, calculator, null, blankWindowSize);
@@ -162,9 +175,46 @@ public class CeSymm {
 
 	}
 
-	@SuppressWarnings("unused")
+	/**
+	 * Builds the intramolecular distance matrix of the duplicated Atom array
+	 * (see {@link StructureTools#duplicateCA2(Atom[])}) from the one of the
+	 * original Atoms, without calculating any distance again. The rows of the
+	 * second copy are shared with the first one.
+	 */
+	private static double[][] duplicateDistances(double[][] intraDist) {
+
+		int n = intraDist.length;
+		double[][] dist = new double[2 * n][];
+		for (int i = 0; i < n; i++) {
+			double[] row = new double[2 * n];
+			System.arraycopy(intraDist[i], 0, row, 0, n);
+			System.arraycopy(intraDist[i], 0, row, n, n);
+			dist[i] = row;
+			dist[i + n] = row;
+		}
+		return dist;
+	}
+
 	protected static CeSymmResult align(Atom[] atoms, CESymmParameters params)
 			throws StructureException {
+		return align(atoms, params, null);
+	}
+
+	/**
+	 * Self-alignment of the Atoms reusing their intramolecular distance
+	 * matrix, if it was already calculated.
+	 *
+	 * @param atoms
+	 *            representative Atom array of the Structure
+	 * @param params
+	 *            CeSymmParameters bean
+	 * @param intraDist
+	 *            distance matrix of the Atoms, or null to calculate it
+	 * @since 5.3.1
+	 */
+	@SuppressWarnings("unused")
+	protected static CeSymmResult align(Atom[] atoms, CESymmParameters params,
+			double[][] intraDist) throws StructureException {
 
 		CeSymmResult result = new CeSymmResult();
 		result.setParams(params);
@@ -183,6 +233,8 @@ public class CeSymm {
 		AFPChain myAFP = new AFPChain(algorithmName);
 		CECalculator calculator = new CECalculator(params);
 		Matrix lastMatrix = null;
+		if (intraDist == null)
+			intraDist = calculator.getIntraDistanceMatrix(atoms);
 
 		List<AFPChain> selfAlignments = new ArrayList<>();
 		AFPChain optimalAFP;
@@ -193,7 +245,8 @@ public class CeSymm {
 			if (origM != null)
 				myAFP.setDistanceMatrix((Matrix) origM.clone());
 
-			origM = align(myAFP, atoms, ca2, params, origM, calculator, i);
+			origM = align(myAFP, atoms, ca2, params, origM, calculator,
+					intraDist, i);
 
 			double tmScore2 = AFPChainScorer.getTMScore(myAFP, atoms, ca2);
 			myAFP.setTMScore(tmScore2);
@@ -364,6 +417,26 @@ public class CeSymm {
 	 */
 	public static CeSymmResult analyze(Atom[] atoms, CESymmParameters params)
 			throws StructureException {
+		return analyze(atoms, params, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Analyze the symmetries of the input Atom array using the provided
+	 * parameters, running the optimization chains on the given executor.
+	 *
+	 * @param atoms
+	 *            representative Atom array of the Structure
+	 * @param params
+	 *            CeSymmParameters bean
+	 * @param executor
+	 *            executor for the optimization chains, or null to run them
+	 *            sequentially in the calling thread
+	 * @return CeSymmResult
+	 * @throws StructureException
+	 * @since 5.3.1
+	 */
+	public static CeSymmResult analyze(Atom[] atoms, CESymmParameters params,
+			ExecutorService executor) throws StructureException {
 
 		if (atoms.length < 1)
 			throw new IllegalArgumentException("Empty Atom array given.");
@@ -371,22 +444,24 @@ public class CeSymm {
 		// If the SSE information is needed, we calculate it if the user did not
 		if (params.getSSEThreshold() > 0) {
 			Structure s = atoms[0].getGroup().getChain().getStructure();
-			if (SecStrucTools.getSecStrucInfo(s).isEmpty()) {
-				logger.info("Calculating Secondary Structure...");
-				SecStrucCalc ssp = new SecStrucCalc();
-				ssp.calculate(s, true);
+			// Several Atom arrays of a batch can share the Structure
+			synchronized (s) {
+				if (SecStrucTools.getSecStrucInfo(s).isEmpty()) {
+					logger.info("Calculating Secondary Structure...");
+					SecStrucCalc ssp = new SecStrucCalc();
+					ssp.calculate(s, true);
+				}
 			}
 		}
 
-		CeSymmIterative iter = new CeSymmIterative(params);
+		CeSymmIterative iter = new CeSymmIterative(params, executor);
 		CeSymmResult result = iter.execute(atoms);
 
 		if (result.isRefined()) {
 			// Optimize the global alignment freely once more (final step)
 			if (params.getOptimization() && result.getSymmLevels() > 1) {
 				try {
-					SymmOptimizer optimizer = new SymmOptimizer(result);
-					MultipleAlignment optimized = optimizer.optimize();
+					MultipleAlignment optimized = optimize(result, executor);
 					// Set the optimized MultipleAlignment and the axes
 					result.setMultipleAlignment(optimized);
 				} catch (RefinerFailedException e) {
@@ -409,19 +484,40 @@ public class CeSymm {
 	 */
 	public static CeSymmResult analyzeLevel(Atom[] atoms,
 			CESymmParameters params) throws StructureException {
+		return analyzeLevel(atoms, params, null, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Analyze a single level of symmetry, reusing the intramolecular distance
+	 * matrix of the Atoms if it is given.
+	 *
+	 * @param atoms
+	 *            Atom array of the current level
+	 * @param params
+	 *            CeSymmParameters bean
+	 * @param intraDist
+	 *            distance matrix of the Atoms, or null to calculate it
+	 * @param executor
+	 *            executor for the optimization chains, or null to run them
+	 *            sequentially in the calling thread
+	 * @return CeSymmResult
+	 * @throws StructureException
+	 * @since 5.3.1
+	 */
+	public static CeSymmResult analyzeLevel(Atom[] atoms,
+			CESymmParameters params, double[][] intraDist,
+			ExecutorService executor) throws StructureException {
 
 		if (atoms.length < 1)
 			throw new IllegalArgumentException("Empty Atom array given.");
 
-		CeSymmResult result = align(atoms, params);
+		CeSymmResult result = align(atoms, params, intraDist);
 
 		if (result.isRefined()) {
 			// STEP 5: symmetry alignment optimization
 			if (result.getParams().getOptimization()) {
 				try {
-					MultipleAlignment msa;
-					SymmOptimizer optimizer = new SymmOptimizer(result);
-					msa = optimizer.optimize();
+					MultipleAlignment msa = optimize(result, executor);
 					result.setMultipleAlignment(msa);
 				} catch (RefinerFailedException e) {
 					logger.debug("Optimization failed {}", e.getMessage());
@@ -431,4 +527,125 @@ public class CeSymm {
 		return result;
 	}
 
+	/**
+	 * Analyze the symmetries of many Atom arrays in parallel. Each Atom array
+	 * is analyzed as a task of the executor with a copy of the parameters,
+	 * and the optimization chains of a task run sequentially in it.
+	 *
+	 * @param atomArrays
+	 *            representative Atom arrays of the Structures
+	 * @param params
+	 *            CeSymmParameters bean
+	 * @param executor
+	 *            executor that runs the analyses
+	 * @return the CeSymmResult of each Atom array, in the input order. The
+	 *         result is null if the analysis of the Atom array failed.
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for the results
+	 * @since 5.3.1
+	 */
+	public static List<CeSymmResult> analyze(List<Atom[]> atomArrays,
+			CESymmParameters params, ExecutorService executor)
+			throws InterruptedException {
+
+		List<Callable<CeSymmResult>> tasks = new ArrayList<>(atomArrays.size());
+		for (Atom[] atoms : atomArrays) {
+			CESymmParameters p = params.clone();
+			tasks.add(() -> analyze(atoms, p, null));
+		}
+
+		List<CeSymmResult> results = new ArrayList<>(tasks.size());
+		List<Future<CeSymmResult>> futures = executor.invokeAll(tasks);
+		for (int i = 0; i < futures.size(); i++) {
+			try {
+				results.add(futures.get(i).get());
+			} catch (ExecutionException e) {
+				logger.warn("CE-Symm analysis of Atom array {} failed: {}", i,
+						e.getCause().getMessage());
+				results.add(null);
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Optimizes the refined multiple alignment of the result. If more than
+	 * one optimization chain is set in the parameters, the chains run in
+	 * parallel with consecutive random seeds, each one on its own copy of the
+	 * symmetry axes, and the alignment (and axes) with the best MC score is
+	 * kept.
+	 *
+	 * @param result
+	 *            refined CeSymmResult
+	 * @param executor
+	 *            executor for the chains, or null to run them sequentially
+	 * @return the optimized MultipleAlignment
+	 * @throws RefinerFailedException
+	 *             if all the chains failed
+	 */
+	private static MultipleAlignment optimize(CeSymmResult result,
+			ExecutorService executor) throws StructureException,
+			RefinerFailedException {
+
+		int chains = result.getParams().getOptimizationChains();
+		if (chains <= 1)
+			return new SymmOptimizer(result).optimize();
+
+		List<SymmOptimizer> optimizers = new ArrayList<>(chains);
+		List<Callable<MultipleAlignment>> tasks = new ArrayList<>(chains);
+		for (int c = 0; c < chains; c++) {
+			SymmOptimizer optimizer = new SymmOptimizer(result,
+					result.getParams().getRndSeed() + c);
+			optimizers.add(optimizer);
+			tasks.add(optimizer::optimize);
+		}
+
+		List<MultipleAlignment> alignments = new ArrayList<>(chains);
+		Throwable failure = null;
+		if (executor == null) {
+			for (Callable<MultipleAlignment> task : tasks) {
+				try {
+					alignments.add(task.call());
+				} catch (Exception e) {
+					alignments.add(null);
+					failure = e;
+				}
+			}
+		} else {
+			try {
+				for (Future<MultipleAlignment> f : executor.invokeAll(tasks)) {
+					try {
+						alignments.add(f.get());
+					} catch (ExecutionException e) {
+						alignments.add(null);
+						failure = e.getCause();
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new StructureException("Optimization interrupted", e);
+			}
+		}
+
+		// Keep the chain with the best MC score
+		int best = -1;
+		for (int c = 0; c < chains; c++) {
+			MultipleAlignment msa = alignments.get(c);
+			if (msa == null)
+				continue;
+			if (best < 0 || msa.getScore(MultipleAlignmentScorer.MC_SCORE)
+					> alignments.get(best).getScore(MultipleAlignmentScorer.MC_SCORE))
+				best = c;
+		}
+		if (best < 0) {
+			if (failure instanceof StructureException)
+				throw (StructureException) failure;
+			if (failure instanceof RefinerFailedException)
+				throw (RefinerFailedException) failure;
+			throw new StructureException("Optimization failed", failure);
+		}
+		result.setAxes(optimizers.get(best).getSymmetryAxes());
+		return alignments.get(best);
+	}
+
 }
@@ -22,6 +22,7 @@ package org.biojava.nbio.structure.symmetry.internal;
 
 import org.biojava.nbio.structure.Atom;
 import org.biojava.nbio.structure.StructureException;
+import org.biojava.nbio.structure.align.ce.CECalculator;
 import org.biojava.nbio.structure.align.multiple.*;
 import org.biojava.nbio.structure.align.multiple.util.MultipleAlignmentScorer;
 import org.biojava.nbio.structure.secstruc.SecStrucElement;
@@ -39,6 +40,8 @@ import org.slf4j.LoggerFactory;
 
 import javax.vecmath.Matrix4d;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Iterative version of CeSymm that aims at identifying all symmetry axis of a
@@ -53,6 +56,9 @@ import java.util.*;
  * <li>Map back all residues in a multiple alignment of the repeats.
  * </ul>
  * </li>
+ * <p>
+ * The intramolecular distance matrix of the structure is calculated once and
+ * the one of each repeat is taken from it in the following levels.
  *
  * @author Aleix Lafita
  * @since 4.1.1
@@ -66,6 +72,7 @@ public class CeSymmIterative {
 	private final CESymmParameters params;
 	private final Graph<Integer, DefaultEdge> alignGraph; // cumulative
 	private final List<CeSymmResult> levels; // symmetry at each level
+	private final ExecutorService executor; // for the optimization chains
 
 	/**
 	 * For the iterative algorithm to work properly the refinement and
@@ -76,9 +83,25 @@ public class CeSymmIterative {
 	 *            CeSymm parameters, make sure they are cloned
 	 */
 	public CeSymmIterative(CESymmParameters param) {
+		this(param, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Constructor that runs the optimization chains of every level on the
+	 * given executor.
+	 *
+	 * @param param
+	 *            CeSymm parameters, make sure they are cloned
+	 * @param executor
+	 *            executor for the optimization chains, or null to run them
+	 *            sequentially in the calling thread
+	 * @since 5.3.1
+	 */
+	public CeSymmIterative(CESymmParameters param, ExecutorService executor) {
 		params = param;
 		alignGraph = new SimpleGraph<>(DefaultEdge.class);
 		levels = new ArrayList<>();
+		this.executor = executor;
 	}
 
 	/**
@@ -95,7 +118,9 @@ public class CeSymmIterative {
 	public CeSymmResult execute(Atom[] atoms) throws StructureException {
 
 		// First iterate through all levels and then reconstruct all repeats
-		iterate(atoms);
+		double[][] intraDist = new CECalculator(params)
+				.getIntraDistanceMatrix(atoms);
+		iterate(atoms, intraDist);
 		return reconstructSymmResult(atoms);
 
 	}
@@ -106,10 +131,13 @@ public class CeSymmIterative {
 	 *
 	 * @param atoms
 	 *            representative Atom array of the Structure
+	 * @param intraDist
+	 *            intramolecular distance matrix of the Atoms
 	 * @return true if any symmetry was found, false if asymmetric
 	 * @throws StructureException
 	 */
-	private void iterate(Atom[] atoms) throws StructureException {
+	private void iterate(Atom[] atoms, double[][] intraDist)
+			throws StructureException {
 
 		logger.debug("Starting new iteration...");
 
@@ -129,7 +157,8 @@ public class CeSymmIterative {
 		}
 
 		// Perform one level CeSymm alignment
-		CeSymmResult result = CeSymm.analyzeLevel(atoms, params);
+		CeSymmResult result = CeSymm.analyzeLevel(atoms, params, intraDist,
+				executor);
 
 		if (params.getRefineMethod() == RefineMethod.NOT_REFINED
 				|| !result.isSignificant()) {
@@ -180,7 +209,19 @@ public class CeSymmIterative {
 
 		// Iterate further on those Atoms (of the first repeat only)
 		levels.add(result);
-		iterate(atomsR);
+		iterate(atomsR, subMatrix(intraDist, start, end + 1));
+	}
+
+	/**
+	 * Copies the square block of the distance matrix between the given
+	 * start (inclusive) and end (exclusive) indices.
+	 */
+	private static double[][] subMatrix(double[][] dist, int start, int end) {
+
+		double[][] sub = new double[end - start][];
+		for (int i = start; i < end; i++)
+			sub[i - start] = Arrays.copyOfRange(dist[i], start, end);
+		return sub;
 	}
 
 	/**
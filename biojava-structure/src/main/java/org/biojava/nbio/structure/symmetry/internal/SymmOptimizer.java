@@ -111,9 +111,31 @@ public class SymmOptimizer {
 	 * @throws StructureException
 	 */
 	public SymmOptimizer(CeSymmResult symmResult) {
+		this(symmResult, symmResult.getAxes(),
+				symmResult.getParams().getRndSeed());
+	}
+
+	/**
+	 * Constructor for one of several independent optimization chains of the
+	 * same seed alignment. The chain works on a copy of the symmetry axes of
+	 * the result, which can be obtained with {@link #getSymmetryAxes()}, and
+	 * uses the given random seed instead of the one in the parameters.
+	 *
+	 * @param symmResult
+	 *            CeSymmResult with all the information
+	 * @param rndSeed
+	 *            seed of the random number generator of this chain
+	 * @since 5.3.1
+	 */
+	public SymmOptimizer(CeSymmResult symmResult, int rndSeed) {
+		this(symmResult, new SymmetryAxes(symmResult.getAxes()), rndSeed);
+	}
+
+	private SymmOptimizer(CeSymmResult symmResult, SymmetryAxes axes,
+			int rndSeed) {
 
-		this.axes = symmResult.getAxes();
-		this.rnd = new Random(symmResult.getParams().getRndSeed());
+		this.axes = axes;
+		this.rnd = new Random(rndSeed);
 		this.Lmin = symmResult.getParams().getMinCoreLength();
 		this.dCutoff = symmResult.getParams().getDistanceCutoff();
 
@@ -324,6 +346,17 @@ public class SymmOptimizer {
 		return msa;
 	}
 
+	/**
+	 * Returns the symmetry axes updated by this optimizer. They are the axes
+	 * of the result, unless the optimizer works on a copy.
+	 *
+	 * @return the symmetry axes of the optimized alignment
+	 * @since 5.3.1
+	 */
+	public SymmetryAxes getSymmetryAxes() {
+		return axes;
+	}
+
 	/**
 	 * This method translates the internal data structures to a
 	 * MultipleAlignment of the repeats in order to use the methods to score
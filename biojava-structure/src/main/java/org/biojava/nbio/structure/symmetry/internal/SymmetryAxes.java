@@ -194,6 +194,21 @@ public class SymmetryAxes {
 		axes = new ArrayList<>();
 	}
 
+	/**
+	 * Copy constructor. The operators of the axes are copied, so that
+	 * updating the axes of the copy does not modify the original.
+	 *
+	 * @param o the SymmetryAxes to copy
+	 * @since 5.3.1
+	 */
+	public SymmetryAxes(SymmetryAxes o){
+		axes = new ArrayList<>(o.axes.size());
+		for (Axis a : o.axes) {
+			axes.add(new Axis(new Matrix4d(a.getOperator()), a.getOrder(),
+					a.getSymmType(), a.getLevel(), a.getFirstRepeat()));
+		}
+	}
+
 	/**
 	 * Adds a new axis of symmetry to the bottom level of the tree
 	 *
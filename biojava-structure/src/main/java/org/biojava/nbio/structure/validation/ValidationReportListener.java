@@ -0,0 +1,51 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.validation;
+
+import java.util.Map;
+
+/**
+ * Receives the summaries read by a {@link ValidationReportReader}.
+ * <p>
+ * When reports are read in parallel with
+ * {@link ValidationReportReader#readDirectory}, the methods are called from
+ * several threads and must be thread-safe.
+ *
+ * @since 5.3.1
+ */
+public interface ValidationReportListener {
+
+	/**
+	 * Called once per report with the attributes of its <code>Entry</code> element.
+	 * @param reportId the id of the report, usually the PDB id
+	 * @param attributes the selected attributes by name
+	 */
+	default void entry(String reportId, Map<String, String> attributes) {
+	}
+
+	/**
+	 * Called for each <code>ModelledSubgroup</code> element of a report.
+	 * @param reportId the id of the report, usually the PDB id
+	 * @param residue the residue summary
+	 */
+	default void residue(String reportId, ValidationResidueSummary residue) {
+	}
+}
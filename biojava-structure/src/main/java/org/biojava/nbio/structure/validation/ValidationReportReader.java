@@ -0,0 +1,328 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.validation;
+
+import org.biojava.nbio.core.util.InputStreamProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Reads wwPDB validation reports with a streaming StAX parser, as an
+ * alternative to unmarshalling a {@link WwPDBValidationInformation} tree with
+ * JAXB.
+ * <p>
+ * The attributes of the <code>Entry</code> element and a
+ * {@link ValidationResidueSummary} of each <code>ModelledSubgroup</code> are
+ * passed to a {@link ValidationReportListener} as they are read. The
+ * attributes kept can be restricted with {@link #setEntryAttributes} and
+ * {@link #setResidueAttributes}, and {@link #setEntryOnly} stops reading
+ * after the <code>Entry</code> element.
+ * <pre>
+ * ValidationReportReader reader = new ValidationReportReader();
+ * reader.setEntryOnly(true);
+ * reader.setEntryAttributes(Arrays.asList("clashscore", "DCC_Rfree"));
+ * ValidationReportReader.Statistics stats = reader.readDirectory(new File("validation"),
+ *     new ValidationReportListener() {
+ *         public void entry(String id, Map&lt;String, String&gt; attributes) { ... }
+ *     });
+ * </pre>
+ *
+ * @since 5.3.1
+ */
+public class ValidationReportReader {
+
+	private static final Logger logger = LoggerFactory.getLogger(ValidationReportReader.class);
+
+	private static final String ENTRY = "Entry";
+	private static final String MODELLED_SUBGROUP = "ModelledSubgroup";
+
+	private final XMLInputFactory factory;
+
+	private Set<String> entryAttributes = null;
+	private Set<String> residueAttributes = null;
+	private boolean entryOnly = false;
+
+	public ValidationReportReader() {
+		factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+	}
+
+	/**
+	 * @param names the attributes of the <code>Entry</code> element to keep,
+	 *  or null to keep all of them
+	 */
+	public void setEntryAttributes(Collection<String> names) {
+		entryAttributes = names == null ? null : new HashSet<>(names);
+	}
+
+	/**
+	 * The residue identifiers (chain, model, resnum, icode, altcode and
+	 * resname) are always kept.
+	 * @param names the attributes of the <code>ModelledSubgroup</code>
+	 *  elements to keep, or null to keep all of them
+	 */
+	public void setResidueAttributes(Collection<String> names) {
+		residueAttributes = names == null ? null : new HashSet<>(names);
+	}
+
+	/**
+	 * @param entryOnly true to stop reading a report after its <code>Entry</code>
+	 *  element, no residues are passed to the listener
+	 */
+	public void setEntryOnly(boolean entryOnly) {
+		this.entryOnly = entryOnly;
+	}
+
+	/**
+	 * Reads a validation report file, which may be gzipped. The report id is
+	 * the file name without the <code>-valdata</code> or <code>_validation</code>
+	 * suffix and the extensions.
+	 * @param file
+	 * @param listener
+	 * @return the number of residues read
+	 * @throws IOException
+	 */
+	public int read(File file, ValidationReportListener listener) throws IOException {
+		InputStreamProvider prov = new InputStreamProvider();
+		try (InputStream is = prov.getInputStream(file)) {
+			return read(getReportId(file), is, listener);
+		}
+	}
+
+	/**
+	 * Reads a validation report.
+	 * @param reportId the id passed to the listener
+	 * @param is the XML document, it is not closed
+	 * @param listener
+	 * @return the number of residues read
+	 * @throws IOException if the document could not be parsed
+	 */
+	public int read(String reportId, InputStream is, ValidationReportListener listener) throws IOException {
+		try {
+			XMLStreamReader reader = factory.createXMLStreamReader(is);
+			try {
+				return parse(reportId, reader, listener);
+			} finally {
+				reader.close();
+			}
+		} catch (XMLStreamException e) {
+			throw new IOException("Could not parse validation report " + reportId + ": " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Reads all the <code>.xml</code> and <code>.xml.gz</code> files below a
+	 * directory in parallel. Files that can not be read are logged and counted
+	 * in the statistics.
+	 * @param dir
+	 * @param listener a thread-safe listener
+	 * @return the statistics of the run
+	 * @throws IOException if the directory can not be listed
+	 */
+	public Statistics readDirectory(File dir, ValidationReportListener listener) throws IOException {
+		List<Path> files;
+		try (Stream<Path> paths = Files.walk(dir.toPath())) {
+			files = paths.filter(Files::isRegularFile)
+					.filter(p -> {
+						String name = p.getFileName().toString();
+						return name.endsWith(".xml") || name.endsWith(".xml.gz");
+					})
+					.collect(Collectors.toList());
+		}
+
+		Statistics stats = new Statistics();
+		files.parallelStream().forEach(path -> {
+			File file = path.toFile();
+			try {
+				int residues = read(file, listener);
+				stats.add(file.length(), residues);
+			} catch (IOException e) {
+				logger.warn("Could not read validation report {}: {}", file, e.getMessage());
+				stats.failed.incrementAndGet();
+			}
+			long done = stats.files.get() + stats.failed.get();
+			if (done % 1000 == 0) {
+				logger.info("Read {} of {} validation reports: {}", done, files.size(), stats);
+			}
+		});
+		stats.stop();
+
+		logger.info("Read validation reports in {}: {}", dir, stats);
+		return stats;
+	}
+
+	private int parse(String reportId, XMLStreamReader reader, ValidationReportListener listener)
+			throws XMLStreamException {
+		int residues = 0;
+		ValidationResidueSummary residue = null;
+
+		while (reader.hasNext()) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				String name = reader.getLocalName();
+				if (residue != null) {
+					// all the children of a residue are outliers
+					residue.addOutlier(name);
+				} else if (name.equals(MODELLED_SUBGROUP)) {
+					residue = new ValidationResidueSummary(
+							reader.getAttributeValue(null, "chain"),
+							reader.getAttributeValue(null, "model"),
+							reader.getAttributeValue(null, "resnum"),
+							reader.getAttributeValue(null, "icode"),
+							reader.getAttributeValue(null, "altcode"),
+							reader.getAttributeValue(null, "resname"),
+							getAttributes(reader, residueAttributes));
+				} else if (name.equals(ENTRY)) {
+					listener.entry(reportId, getAttributes(reader, entryAttributes));
+					if (entryOnly) {
+						return residues;
+					}
+				}
+			} else if (event == XMLStreamConstants.END_ELEMENT && residue != null
+					&& reader.getLocalName().equals(MODELLED_SUBGROUP)) {
+				listener.residue(reportId, residue);
+				residue = null;
+				residues++;
+			}
+		}
+		return residues;
+	}
+
+	private static Map<String, String> getAttributes(XMLStreamReader reader, Set<String> selected) {
+		int n = reader.getAttributeCount();
+		Map<String, String> attributes = new HashMap<>(selected == null ? 2 * n : 2 * selected.size());
+		for (int i = 0; i < n; i++) {
+			String name = reader.getAttributeLocalName(i);
+			if (selected == null || selected.contains(name)) {
+				attributes.put(name, reader.getAttributeValue(i));
+			}
+		}
+		return attributes;
+	}
+
+	static String getReportId(File file) {
+		String name = file.getName();
+		for (String suffix : new String[] {".gz", ".xml", "-valdata", "_validation"}) {
+			if (name.endsWith(suffix)) {
+				name = name.substring(0, name.length() - suffix.length());
+			}
+		}
+		return name;
+	}
+
+	/**
+	 * The counts and throughput of {@link #readDirectory}.
+	 */
+	public static class Statistics {
+
+		private final long start = System.nanoTime();
+		private volatile long end = -1;
+
+		private final AtomicLong files = new AtomicLong();
+		private final AtomicLong failed = new AtomicLong();
+		private final AtomicLong residues = new AtomicLong();
+		private final AtomicLong bytes = new AtomicLong();
+
+		private void add(long fileBytes, int fileResidues) {
+			files.incrementAndGet();
+			residues.addAndGet(fileResidues);
+			bytes.addAndGet(fileBytes);
+		}
+
+		private void stop() {
+			end = System.nanoTime();
+		}
+
+		/**
+		 * @return the number of reports read
+		 */
+		public long getFiles() {
+			return files.get();
+		}
+
+		/**
+		 * @return the number of reports that could not be read
+		 */
+		public long getFailedFiles() {
+			return failed.get();
+		}
+
+		/**
+		 * @return the number of residues read
+		 */
+		public long getResidues() {
+			return residues.get();
+		}
+
+		/**
+		 * @return the size of the files read, compressed if they are
+		 */
+		public long getBytes() {
+			return bytes.get();
+		}
+
+		/**
+		 * @return the time since the start, up to the end of the run
+		 */
+		public double getElapsedSeconds() {
+			return ((end < 0 ? System.nanoTime() : end) - start) / 1e9;
+		}
+
+		public double getFilesPerSecond() {
+			return getFiles() / getElapsedSeconds();
+		}
+
+		public double getResiduesPerSecond() {
+			return getResidues() / getElapsedSeconds();
+		}
+
+		public double getMegabytesPerSecond() {
+			return getBytes() / 1e6 / getElapsedSeconds();
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%d files (%d failed), %d residues in %.1f s: %.1f files/s, %.0f residues/s, %.2f MB/s",
+					getFiles(), getFailedFiles(), getResidues(), getElapsedSeconds(),
+					getFilesPerSecond(), getResiduesPerSecond(), getMegabytesPerSecond());
+		}
+	}
+}
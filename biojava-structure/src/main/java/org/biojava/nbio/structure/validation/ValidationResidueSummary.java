@@ -0,0 +1,152 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.validation;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The summary of a <code>ModelledSubgroup</code> element of a validation
+ * report: the residue identifiers, the selected attributes and the number of
+ * outliers of each type (<code>clash</code>, <code>angle-outlier</code>, ...)
+ * listed for the residue.
+ *
+ * @see ValidationReportReader
+ * @since 5.3.1
+ */
+public class ValidationResidueSummary {
+
+	private final String chain;
+	private final String model;
+	private final String resnum;
+	private final String icode;
+	private final String altcode;
+	private final String resname;
+	private final Map<String, String> attributes;
+	private Map<String, Integer> outlierCounts;
+	private int outlierCount;
+
+	ValidationResidueSummary(String chain, String model, String resnum, String icode,
+			String altcode, String resname, Map<String, String> attributes) {
+		this.chain = chain;
+		this.model = model;
+		this.resnum = resnum;
+		this.icode = icode;
+		this.altcode = altcode;
+		this.resname = resname;
+		this.attributes = attributes;
+	}
+
+	void addOutlier(String type) {
+		if (outlierCounts == null) {
+			outlierCounts = new HashMap<>();
+		}
+		outlierCounts.merge(type, 1, Integer::sum);
+		outlierCount++;
+	}
+
+	public String getChain() {
+		return chain;
+	}
+
+	public String getModel() {
+		return model;
+	}
+
+	public String getResnum() {
+		return resnum;
+	}
+
+	/**
+	 * @return the insertion code, a blank if there is none
+	 */
+	public String getIcode() {
+		return icode;
+	}
+
+	/**
+	 * @return the alternate location code, a blank if there is none
+	 */
+	public String getAltcode() {
+		return altcode;
+	}
+
+	public String getResname() {
+		return resname;
+	}
+
+	/**
+	 * @return the selected attributes of the residue by name
+	 */
+	public Map<String, String> getAttributes() {
+		return Collections.unmodifiableMap(attributes);
+	}
+
+	/**
+	 * @param name the attribute name, e.g. <code>rsrz</code>
+	 * @return the value, or null if it is absent or was not selected
+	 */
+	public String getAttribute(String name) {
+		return attributes.get(name);
+	}
+
+	/**
+	 * @param name the attribute name, e.g. <code>rsrz</code>
+	 * @return the value, or NaN if it is absent, not a number or was not selected
+	 */
+	public double getDouble(String name) {
+		String value = attributes.get(name);
+		if (value == null) {
+			return Double.NaN;
+		}
+		try {
+			return Double.parseDouble(value);
+		} catch (NumberFormatException e) {
+			return Double.NaN;
+		}
+	}
+
+	/**
+	 * @param type the element name of the outlier, e.g. <code>clash</code>
+	 * @return the number of outliers of this type
+	 */
+	public int getOutlierCount(String type) {
+		if (outlierCounts == null) {
+			return 0;
+		}
+		return outlierCounts.getOrDefault(type, 0);
+	}
+
+	/**
+	 * @return the number of outliers of all types
+	 */
+	public int getOutlierCount() {
+		return outlierCount;
+	}
+
+	@Override
+	public String toString() {
+		return "ValidationResidueSummary [chain=" + chain + ", model=" + model
+				+ ", resnum=" + resnum + ", icode=" + icode + ", altcode=" + altcode
+				+ ", resname=" + resname + ", outliers=" + outlierCount + "]";
+	}
+}
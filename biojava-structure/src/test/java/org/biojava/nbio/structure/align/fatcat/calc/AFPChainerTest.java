@@ -0,0 +1,98 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.align.fatcat.calc;
+
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.Calc;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.StructureTools;
+import org.biojava.nbio.structure.align.model.AFPChain;
+import org.biojava.nbio.structure.io.FileParsingParameters;
+import org.biojava.nbio.structure.io.mmcif.MMcifParser;
+import org.biojava.nbio.structure.io.mmcif.SimpleMMcifConsumer;
+import org.biojava.nbio.structure.io.mmcif.SimpleMMcifParser;
+import org.biojava.nbio.structure.jama.Matrix;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the tables FATCAT no longer fills while chaining are computed on
+ * demand by {@link AFPChain}, as they were before.
+ */
+public class AFPChainerTest {
+
+	private static Structure get4hhb() throws Exception {
+		InputStream inStream = new GZIPInputStream(AFPChainerTest.class.getResourceAsStream("/4hhb.cif.gz"));
+		MMcifParser parser = new SimpleMMcifParser();
+		SimpleMMcifConsumer consumer = new SimpleMMcifConsumer();
+		consumer.setFileParsingParameters(new FileParsingParameters());
+		parser.addMMcifConsumer(consumer);
+		parser.parse(inStream);
+		return consumer.getStructure();
+	}
+
+	// the distance table FATCAT used to fill
+	private static void assertDisTable(Atom[] ca, int maxlen, Matrix actual) {
+		assertNotNull(actual);
+		assertEquals(ca.length, actual.getRowDimension());
+		assertEquals(ca.length, actual.getColumnDimension());
+		for (int i = 0; i < ca.length; i++) {
+			for (int j = 0; j < ca.length; j++) {
+				double expected = (i != j && Math.abs(i - j) <= maxlen) ? Calc.getDistance(ca[i], ca[j]) : 0;
+				assertEquals(expected, actual.get(i, j), 1e-9);
+			}
+		}
+	}
+
+	@SuppressWarnings("deprecation")
+	@Test
+	public void testTables() throws Exception {
+		Structure s = get4hhb();
+		Atom[] ca1 = StructureTools.getRepresentativeAtomArray(s.getPolyChainByPDB("A"));
+		Atom[] ca2 = StructureTools.getRepresentativeAtomArray(s.getPolyChainByPDB("B"));
+
+		FatCatParameters params = new FatCatParameters();
+		FatCatAligner aligner = new FatCatAligner();
+		aligner.align(ca1, ca2, false, params);
+		AFPChain afpChain = aligner.getAfpChain();
+		assertTrue(afpChain.getAfpSet().size() > 0);
+
+		int maxlen = params.getMaxGap() + 2 * params.getFragLen() + 1;
+		assertDisTable(ca1, maxlen, afpChain.getDisTable1());
+		assertDisTable(ca2, maxlen, afpChain.getDisTable2());
+
+		AFPChain expected = new AFPChain(afpChain.getAlgorithmName());
+		expected.setCa1Length(ca1.length);
+		expected.setCa2Length(ca2.length);
+		expected.setAfpSet(afpChain.getAfpSet());
+		AFPCalculator.sortAfps(expected, ca1, ca2);
+		assertArrayEquals(expected.getAfpIndex(), afpChain.getAfpIndex());
+		assertArrayEquals(expected.getAfpAftIndex(), afpChain.getAfpAftIndex());
+		assertArrayEquals(expected.getAfpBefIndex(), afpChain.getAfpBefIndex());
+
+		// copies compute them as well
+		assertArrayEquals(expected.getAfpIndex(), new AFPChain(afpChain).getAfpIndex());
+	}
+}
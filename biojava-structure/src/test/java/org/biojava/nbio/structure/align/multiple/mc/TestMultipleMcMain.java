@@ -0,0 +1,137 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.align.multiple.mc;
+
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.StructureTools;
+import org.biojava.nbio.structure.align.ce.CeMain;
+import org.biojava.nbio.structure.align.multiple.MultipleAlignment;
+import org.biojava.nbio.structure.align.multiple.util.MultipleAlignmentScorer;
+import org.biojava.nbio.structure.io.FileParsingParameters;
+import org.biojava.nbio.structure.io.mmcif.MMcifParser;
+import org.biojava.nbio.structure.io.mmcif.SimpleMMcifConsumer;
+import org.biojava.nbio.structure.io.mmcif.SimpleMMcifParser;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the executor handling, the pairwise cache and the parallel tempering
+ * of {@link MultipleMcMain}.
+ */
+public class TestMultipleMcMain {
+
+	private static List<Atom[]> getAtomArrays() throws Exception {
+		InputStream inStream = new GZIPInputStream(TestMultipleMcMain.class.getResourceAsStream("/4hhb.cif.gz"));
+		MMcifParser parser = new SimpleMMcifParser();
+		SimpleMMcifConsumer consumer = new SimpleMMcifConsumer();
+		consumer.setFileParsingParameters(new FileParsingParameters());
+		parser.addMMcifConsumer(consumer);
+		parser.parse(inStream);
+		Structure s = consumer.getStructure();
+
+		List<Atom[]> atomArrays = new ArrayList<>();
+		for (String chainId : new String[] {"A", "B", "C"}) {
+			atomArrays.add(StructureTools.getRepresentativeAtomArray(s.getPolyChainByPDB(chainId)));
+		}
+		return atomArrays;
+	}
+
+	@Test
+	public void testSharedExecutorAndCache() throws Exception {
+
+		List<Atom[]> atomArrays = getAtomArrays();
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(2, 2, 0, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<>());
+		try {
+			MultipleMcMain mc = new MultipleMcMain(new CeMain(), executor);
+			MultipleMcParameters params = new MultipleMcParameters();
+			params.setRandomSeed(42);
+			params.setConvergenceSteps(30);
+			params.setReplicas(3);
+			params.setExchangeSteps(10);
+
+			MultipleAlignment msa = mc.align(atomArrays, params);
+			assertNotNull(msa);
+			assertNotNull(msa.getScore(MultipleAlignmentScorer.MC_SCORE));
+			assertEquals(3, mc.getPairwiseCacheCount());
+			assertFalse(executor.isShutdown());
+
+			// The second alignment of the same arrays reuses all the pairwise
+			// alignments, and a single chain submits no tasks
+			long tasks = executor.getTaskCount();
+			params.setReplicas(1);
+			msa = mc.align(atomArrays, params);
+			assertNotNull(msa);
+			assertEquals(tasks, executor.getTaskCount());
+			assertEquals(3, mc.getPairwiseCacheCount());
+
+			// Moving the atoms of one structure recalculates its two pairs
+			Atom[] moved = StructureTools.cloneAtomArray(atomArrays.get(2));
+			for (Atom a : moved)
+				a.setX(a.getX() + 1);
+			msa = mc.align(Arrays.asList(atomArrays.get(0), atomArrays.get(1), moved), params);
+			assertNotNull(msa);
+			assertEquals(tasks + 2, executor.getTaskCount());
+
+			mc.setPairwiseCacheSize(1);
+			assertEquals(1, mc.getPairwiseCacheCount());
+			mc.clearPairwiseCache();
+			assertEquals(0, mc.getPairwiseCacheCount());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testTemperature() throws Exception {
+
+		List<Atom[]> atomArrays = getAtomArrays();
+		MultipleMcMain mc = new MultipleMcMain(new CeMain());
+		MultipleMcParameters params = new MultipleMcParameters();
+		params.setConvergenceSteps(10);
+		MultipleAlignment msa = mc.align(atomArrays, params);
+		assertEquals(3, mc.getPairwiseCacheCount());
+
+		// By default only the alignments of the last calculation are kept
+		assertNotNull(mc.align(atomArrays.subList(0, 2), params));
+		assertEquals(1, mc.getPairwiseCacheCount());
+
+		MultipleMcOptimizer optimizer = new MultipleMcOptimizer(msa, params, 0);
+		assertEquals(1.0, optimizer.getTemperature(), 0.0);
+		try {
+			optimizer.setTemperature(0.5);
+			fail("Temperatures below 1 are not allowed");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,93 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.align.util;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link DBSearchCheckpoint}.
+ */
+public class DBSearchCheckpointTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@Test
+	public void testResume() throws IOException {
+		File f = new File(tmp.getRoot(), "checkpoint.txt");
+
+		DBSearchCheckpoint checkpoint = new DBSearchCheckpoint(f);
+		assertEquals(0, checkpoint.size());
+		checkpoint.markCompleted("1hiv.A");
+		checkpoint.markCompleted("4hhb.B");
+		checkpoint.markCompleted("1hiv.A");
+		assertEquals(2, checkpoint.size());
+		// simulate a crash: the file is not closed
+		DBSearchCheckpoint resumed = new DBSearchCheckpoint(f);
+		assertEquals(2, resumed.size());
+		assertTrue(resumed.isCompleted("1hiv.A"));
+		assertTrue(resumed.isCompleted("4hhb.B"));
+		assertFalse(resumed.isCompleted("1cdg.A"));
+
+		resumed.markCompleted("1cdg.A");
+		resumed.close();
+		checkpoint.close();
+		assertEquals(3, new DBSearchCheckpoint(f).size());
+	}
+
+	@Test
+	public void testClear() throws IOException {
+		File f = new File(tmp.getRoot(), "checkpoint.txt");
+
+		DBSearchCheckpoint checkpoint = new DBSearchCheckpoint(f);
+		checkpoint.markCompleted("1hiv.A");
+		checkpoint.clear();
+		assertEquals(0, checkpoint.size());
+		checkpoint.markCompleted("4hhb.B");
+		checkpoint.close();
+
+		DBSearchCheckpoint resumed = new DBSearchCheckpoint(f);
+		assertEquals(1, resumed.size());
+		assertTrue(resumed.isCompleted("4hhb.B"));
+		resumed.close();
+	}
+
+	@Test
+	public void testDelete() throws IOException {
+		File f = new File(tmp.getRoot(), "checkpoint.txt");
+
+		DBSearchCheckpoint checkpoint = new DBSearchCheckpoint(f);
+		checkpoint.markCompleted("1hiv.A");
+		checkpoint.delete();
+		assertFalse(f.exists());
+
+		DBSearchCheckpoint rerun = new DBSearchCheckpoint(f);
+		assertEquals(0, rerun.size());
+		rerun.close();
+	}
+}
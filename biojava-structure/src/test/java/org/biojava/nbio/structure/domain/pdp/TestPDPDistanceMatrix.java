@@ -0,0 +1,138 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.domain.pdp;
+
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.AtomImpl;
+import org.biojava.nbio.structure.Calc;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.StructureTools;
+import org.biojava.nbio.structure.domain.LocalProteinDomainParser;
+import org.biojava.nbio.structure.io.PDBFileReader;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the sparse contact sums of {@link PDPDistanceMatrix} against the dense
+ * matrix, and the domain assignment of large and multiple chains.
+ */
+public class TestPDPDistanceMatrix {
+
+	private static Structure getStructure() throws Exception {
+		InputStream inStream = new GZIPInputStream(TestPDPDistanceMatrix.class.getResourceAsStream("/4hhb.pdb.gz"));
+		return new PDBFileReader().getStructure(inStream);
+	}
+
+	@Test
+	public void testSparseSums() throws Exception {
+
+		Atom[] ca = StructureTools.getRepresentativeAtomArray(getStructure().getPolyChainByPDB("A"));
+		PDPDistanceMatrix matrix = GetDistanceMatrix.getDistanceMatrix(ca);
+		int n = ca.length;
+		assertEquals(n, matrix.getSize());
+		assertTrue(matrix.getNonZeroCount() < n * n / 4);
+
+		int[][] dist = matrix.getDist();
+		for (int i = 0; i < n; i++) {
+			int total = 0;
+			int separated = 0;
+			for (int j = 0; j < n; j++) {
+				assertEquals(dist[i][j], dist[j][i]);
+				assertEquals(dist[i][j], matrix.getContact(i, j));
+				total += dist[i][j];
+				if (Math.abs(i - j) > 4)
+					separated += dist[i][j];
+			}
+			assertEquals(total, matrix.rowSum(i, 0, n));
+			assertEquals(separated, matrix.rowSum(i, 0, n, 4));
+		}
+
+		int[][] blocks = {{0, 40, 60, 120}, {10, 100, 5, 30}, {70, 70, 0, n}, {0, n, 0, n}};
+		for (int[] b : blocks) {
+			int expected = 0;
+			for (int i = b[0]; i < b[1]; i++)
+				for (int j = b[2]; j < b[3]; j++)
+					expected += dist[i][j];
+			assertEquals(Arrays.toString(b), expected, matrix.sum(b[0], b[1], b[2], b[3]));
+		}
+	}
+
+	@Test
+	public void testLargeChain() throws Exception {
+
+		// Copies of the tetramer far apart give a chain longer than the
+		// former limit of the dense matrix
+		Structure s = getStructure();
+		List<Atom> atoms = new ArrayList<>();
+		for (int k = 0; k < 10; k++) {
+			Structure copy = s.clone();
+			Atom shift = new AtomImpl();
+			shift.setCoords(new double[] {200.0 * k, 0, 0});
+			Calc.shift(copy, shift);
+			atoms.addAll(Arrays.asList(StructureTools.getRepresentativeAtomArray(copy)));
+		}
+		Atom[] ca = atoms.toArray(new Atom[atoms.size()]);
+		assertTrue(ca.length > PDPParameters.MAXLEN);
+
+		PDPDistanceMatrix matrix = GetDistanceMatrix.getDistanceMatrix(ca);
+		assertEquals(ca.length, matrix.getSize());
+		assertEquals(0, matrix.sum(0, ca.length / 10, ca.length / 10, ca.length));
+
+		List<Domain> domains = LocalProteinDomainParser.suggestDomains(ca);
+		assertTrue(domains.size() >= 10);
+	}
+
+	@Test
+	public void testBatch() throws Exception {
+
+		Structure s = getStructure();
+		List<Atom[]> chains = new ArrayList<>();
+		for (String chainId : new String[] {"A", "B", "C", "D"})
+			chains.add(StructureTools.getRepresentativeAtomArray(s.getPolyChainByPDB(chainId)));
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			List<List<Domain>> batch = LocalProteinDomainParser.suggestDomains(chains, executor);
+			assertEquals(chains.size(), batch.size());
+			for (int i = 0; i < chains.size(); i++) {
+				List<Domain> expected = LocalProteinDomainParser.suggestDomains(chains.get(i));
+				List<Domain> actual = batch.get(i);
+				assertNotNull(actual);
+				assertEquals(expected.size(), actual.size());
+				for (int d = 0; d < expected.size(); d++) {
+					assertEquals(expected.get(d).getSize(), actual.get(d).getSize());
+					assertEquals(expected.get(d).getNseg(), actual.get(d).getNseg());
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
@@ -28,6 +28,7 @@ import javax.vecmath.AxisAngle4d;
 import javax.vecmath.Matrix4d;
 import javax.vecmath.Point3d;
 import javax.vecmath.Vector3d;
+import java.util.Arrays;
 import java.util.Random;
 
 import static org.junit.Assert.assertEquals;
@@ -164,4 +165,98 @@ public class TestSuperPositionQCP {
 
 	}
 
+	/**
+	 * Test that the flat coordinate methods give the same results as the
+	 * Point3d methods, including the early abort above an RMSD threshold and
+	 * the batch calculation.
+	 */
+	@Test
+	public void testFlatCoordinates() {
+
+		AxisAngle4d rotAxis = new AxisAngle4d(0.440, 0.302, 0.845, 1.570);
+		Vector3d translation = new Vector3d(0.345, 2.453, 5.324);
+		Matrix4d transform = new Matrix4d();
+		transform.set(rotAxis);
+		transform.setTranslation(translation);
+
+		Random rnd = new Random(0);
+
+		Point3d[] c1 = new Point3d[100];
+		Point3d[][] candidates = new Point3d[5][100];
+		for (int p = 0; p < 100; p++) {
+			c1[p] = new Point3d(rnd.nextInt(100), rnd.nextInt(50), rnd.nextInt(150));
+			for (int c = 0; c < candidates.length; c++) {
+				// increasing noise for each candidate
+				candidates[c][p] = new Point3d(c1[p].x + c * rnd.nextDouble(),
+						c1[p].y + c * rnd.nextDouble(), c1[p].z + c * rnd.nextDouble());
+			}
+		}
+		for (Point3d[] candidate : candidates)
+			CalcPoint.transform(transform, candidate);
+
+		double[] fixed = CalcPoint.toFlatArray(c1, null);
+		double[][] flatCandidates = new double[candidates.length][];
+		double[] expected = new double[candidates.length];
+
+		SuperPositionQCP qcp = new SuperPositionQCP(false);
+		for (int c = 0; c < candidates.length; c++) {
+			flatCandidates[c] = CalcPoint.toFlatArray(candidates[c], null);
+			expected[c] = qcp.getRmsd(c1, candidates[c]);
+
+			assertEquals(expected[c], SuperPositions.getRmsd(fixed, flatCandidates[c]), 1e-9);
+
+			Matrix4d m1 = new Matrix4d(qcp.superpose(c1, candidates[c]));
+			Matrix4d m2 = SuperPositions.superpose(fixed, flatCandidates[c]);
+			assertTrue(m1.epsilonEquals(m2, 1e-9));
+		}
+		assertEquals(0.0, expected[0], 1e-4);
+
+		// the batch gives exactly the same values
+		double[] rmsds = SuperPositions.getRmsds(fixed, flatCandidates, Double.POSITIVE_INFINITY);
+		for (int c = 0; c < candidates.length; c++)
+			assertEquals(expected[c], rmsds[c], 1e-9);
+
+		// early abort: values below the threshold are exact, the rest are above it
+		double threshold = 0.5 * (expected[2] + expected[3]);
+		rmsds = SuperPositions.getRmsds(fixed, flatCandidates, threshold);
+		for (int c = 0; c < candidates.length; c++) {
+			double rmsd = SuperPositions.getRmsd(fixed, flatCandidates[c], threshold);
+			assertEquals(rmsds[c], rmsd, 1e-9);
+			if (expected[c] <= threshold)
+				assertEquals(expected[c], rmsd, 1e-9);
+			else
+				assertTrue(rmsd > threshold);
+		}
+	}
+
+	/**
+	 * Test that the window methods give the same results as copying the
+	 * windows of the flat coordinates.
+	 */
+	@Test
+	public void testFlatCoordinateWindows() {
+
+		Random rnd = new Random(1);
+		double[] coords1 = new double[3 * 50];
+		double[] coords2 = new double[3 * 40];
+		for (int i = 0; i < coords1.length; i++)
+			coords1[i] = 100 * rnd.nextDouble();
+		for (int i = 0; i < coords2.length; i++)
+			coords2[i] = 100 * rnd.nextDouble();
+
+		int length = 8;
+		for (int p1 = 0; p1 + length <= 50; p1 += 7) {
+			double[] fixed = Arrays.copyOfRange(coords1, 3 * p1, 3 * (p1 + length));
+			for (int p2 = 0; p2 + length <= 40; p2 += 5) {
+				double[] moved = Arrays.copyOfRange(coords2, 3 * p2, 3 * (p2 + length));
+
+				double expected = SuperPositions.getRmsd(fixed, moved);
+				assertEquals(expected, SuperPositions.getRmsd(coords1, p1, coords2, p2, length,
+						Double.POSITIVE_INFINITY), 1e-9);
+				assertTrue(SuperPositions.superpose(fixed, moved).epsilonEquals(
+						SuperPositions.superpose(coords1, p1, coords2, p2, length), 1e-9));
+			}
+		}
+	}
+
 }
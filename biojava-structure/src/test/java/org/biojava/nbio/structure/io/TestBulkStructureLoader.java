@@ -0,0 +1,212 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.io;
+
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.StructureException;
+import org.biojava.nbio.structure.StructureImpl;
+import org.biojava.nbio.structure.align.util.AtomCache;
+import org.biojava.nbio.structure.io.BulkStructureLoader.LoadResult;
+import org.biojava.nbio.structure.io.BulkStructureLoader.LoadStatistics;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests parsing structures in parallel with {@link BulkStructureLoader}.
+ */
+public class TestBulkStructureLoader {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testLoadFiles() throws IOException, InterruptedException {
+		Path root = folder.getRoot().toPath();
+		Path sub = Files.createDirectory(root.resolve("sub"));
+		copyResource("/4hhb.pdb.gz", root.resolve("4hhb.pdb.gz"));
+		copyResource("/4hhb.cif.gz", sub.resolve("4hhb.cif.gz"));
+		copyResource("/org/biojava/nbio/structure/io/mmtf/4CUP.mmtf", sub.resolve("4cup.mmtf"));
+		Files.write(root.resolve("broken.bcif"), new byte[] { 1, 2, 3 });
+		Files.write(root.resolve("notes.txt"), new byte[] { 1, 2, 3 });
+
+		Thread caller = Thread.currentThread();
+		Map<String, LoadResult> results = new HashMap<>();
+		BulkStructureLoader loader = new BulkStructureLoader(new AtomCache(root.toString()), 2);
+		LoadStatistics statistics = loader.loadFiles(root, result -> {
+			assertSame(caller, Thread.currentThread());
+			results.put(result.getId(), result);
+		});
+
+		assertEquals(4, results.size());
+		assertEquals(3, statistics.getNrLoaded());
+		assertEquals(1, statistics.getNrFailed());
+		assertFalse(results.get("broken.bcif").isSuccess());
+		assertNull(results.get("broken.bcif").getStructure());
+
+		LoadResult pdb = results.get("4hhb.pdb.gz");
+		LoadResult cif = results.get("4hhb.cif.gz");
+		assertTrue(pdb.isSuccess());
+		assertTrue(cif.isSuccess());
+		assertEquals(root.resolve("4hhb.pdb.gz"), pdb.getFile());
+		assertEquals(pdb.getNrAtoms(), cif.getNrAtoms());
+		assertTrue(pdb.getNrAtoms() > 4000);
+
+		long nrAtoms = results.values().stream().mapToLong(LoadResult::getNrAtoms).sum();
+		assertEquals(nrAtoms, statistics.getNrAtoms());
+		long parseTime = results.values().stream().mapToLong(LoadResult::getParseTimeNanos).sum();
+		assertEquals(parseTime, statistics.getParseTimeNanos());
+	}
+
+	@Test
+	public void testBackpressure() throws InterruptedException {
+		AtomicInteger loading = new AtomicInteger();
+		AtomicInteger maxLoading = new AtomicInteger();
+		AtomCache cache = new AtomCache(folder.getRoot().toString()) {
+			@Override
+			public Structure loadStructureForPdbId(String pdbId) throws StructureException {
+				int n = loading.incrementAndGet();
+				maxLoading.accumulateAndGet(n, Math::max);
+				try {
+					Thread.sleep(5);
+					if (pdbId.endsWith("7"))
+						throw new StructureException("Failed " + pdbId);
+					Structure s = new StructureImpl();
+					s.setPDBCode(pdbId);
+					return s;
+				} catch (InterruptedException e) {
+					throw new StructureException(e);
+				} finally {
+					loading.decrementAndGet();
+				}
+			}
+		};
+
+		AtomicInteger read = new AtomicInteger();
+		Iterator<String> ids = IntStream.range(0, 100).mapToObj(i -> String.format("%04d", i)).iterator();
+		Iterator<String> countingIds = new Iterator<String>() {
+			@Override
+			public boolean hasNext() {
+				return ids.hasNext();
+			}
+
+			@Override
+			public String next() {
+				read.incrementAndGet();
+				return ids.next();
+			}
+		};
+
+		List<String> consumed = new ArrayList<>();
+		BulkStructureLoader loader = new BulkStructureLoader(cache, 3);
+		loader.setMaxPending(5);
+		LoadStatistics statistics = loader.loadIds(countingIds, result -> {
+			// a slow consumer must hold back the reading of ids
+			assertTrue(read.get() - consumed.size() <= 5);
+			consumed.add(result.getId());
+			if (result.isSuccess())
+				assertEquals(result.getId(), result.getStructure().getPDBCode());
+		});
+
+		assertEquals(100, consumed.size());
+		assertEquals(90, statistics.getNrLoaded());
+		assertEquals(10, statistics.getNrFailed());
+		assertTrue(maxLoading.get() <= 3);
+		assertEquals(IntStream.range(0, 100).mapToObj(i -> String.format("%04d", i)).collect(Collectors.toSet()),
+				new HashSet<>(consumed));
+	}
+
+	@Test(timeout = 60000)
+	public void testErrors() throws InterruptedException {
+		AtomCache cache = new AtomCache(folder.getRoot().toString()) {
+			@Override
+			public Structure loadStructureForPdbId(String pdbId) {
+				if (pdbId.endsWith("3"))
+					throw new NoClassDefFoundError("Failed " + pdbId);
+				Structure s = new StructureImpl();
+				s.setPDBCode(pdbId);
+				return s;
+			}
+		};
+
+		List<LoadResult> results = new ArrayList<>();
+		BulkStructureLoader loader = new BulkStructureLoader(cache, 2);
+		LoadStatistics statistics = loader.loadIds(IntStream.range(0, 20).mapToObj(i -> String.format("%04d", i)),
+				results::add);
+
+		// an error fails its structure without losing its result
+		assertEquals(20, results.size());
+		assertEquals(18, statistics.getNrLoaded());
+		assertEquals(2, statistics.getNrFailed());
+		for (LoadResult result : results) {
+			if (!result.isSuccess())
+				assertTrue(result.getError() instanceof NoClassDefFoundError);
+		}
+	}
+
+	@Test(timeout = 60000)
+	public void testOutOfMemory() throws InterruptedException {
+		AtomCache cache = new AtomCache(folder.getRoot().toString()) {
+			@Override
+			public Structure loadStructureForPdbId(String pdbId) {
+				if (pdbId.equals("0003"))
+					throw new OutOfMemoryError("Failed " + pdbId);
+				Structure s = new StructureImpl();
+				s.setPDBCode(pdbId);
+				return s;
+			}
+		};
+
+		List<LoadResult> results = new ArrayList<>();
+		BulkStructureLoader loader = new BulkStructureLoader(cache, 2);
+		try {
+			loader.loadIds(IntStream.range(0, 20).mapToObj(i -> String.format("%04d", i)), results::add);
+			fail("Expected the OutOfMemoryError to stop the loading");
+		} catch (OutOfMemoryError e) {
+			assertEquals("Failed 0003", e.getMessage());
+		}
+		for (LoadResult result : results) {
+			assertTrue(result.isSuccess());
+		}
+	}
+
+	private void copyResource(String resource, Path destination) throws IOException {
+		try (InputStream in = getClass().getResourceAsStream(resource)) {
+			Files.copy(in, destination);
+		}
+	}
+}
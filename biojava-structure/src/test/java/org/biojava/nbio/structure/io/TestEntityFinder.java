@@ -0,0 +1,145 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.io;
+
+import org.biojava.nbio.alignment.Alignments;
+import org.biojava.nbio.alignment.Alignments.PairwiseSequenceAlignerType;
+import org.biojava.nbio.alignment.SimpleGapPenalty;
+import org.biojava.nbio.core.alignment.matrices.SubstitutionMatrixHelper;
+import org.biojava.nbio.core.alignment.template.SequencePair;
+import org.biojava.nbio.core.alignment.template.SubstitutionMatrix;
+import org.biojava.nbio.core.sequence.ProteinSequence;
+import org.biojava.nbio.core.sequence.compound.AminoAcidCompound;
+import org.biojava.nbio.core.sequence.compound.AminoAcidCompoundSet;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the decisions {@link EntityFinder} takes without aligning chains against the alignments.
+ */
+public class TestEntityFinder {
+
+	private static final String AMINO_ACIDS = "ACDEFGHIKLMNPQRSTVWY";
+
+	@Test
+	public void testLcsLength() {
+		Random random = new Random(42);
+		for (int i = 0; i < 200; i++) {
+			String alphabet = AMINO_ACIDS.substring(0, 2 + random.nextInt(AMINO_ACIDS.length() - 2));
+			String str1 = randomSequence(random, alphabet, random.nextInt(150));
+			String str2 = randomSequence(random, alphabet, random.nextInt(150));
+			assertEquals(str1 + " " + str2, naiveLcsLength(str1, str2), IdentityAlignmentBounds.getLcsLength(str1, str2));
+		}
+		assertEquals(3, IdentityAlignmentBounds.getLcsLength("abcd", "ACXD"));
+	}
+
+	@Test
+	public void testCompositionBound() {
+		assertEquals(0, IdentityAlignmentBounds.getCompositionBound("", "AAA"));
+		assertEquals(2, IdentityAlignmentBounds.getCompositionBound("AAB", "BAC"));
+		assertEquals(4, IdentityAlignmentBounds.getCompositionBound("ACGT", "tgca"));
+	}
+
+	@Test
+	public void testSameEntityWithoutAlignment() throws Exception {
+		SubstitutionMatrix<AminoAcidCompound> matrix = SubstitutionMatrixHelper.getIdentity();
+		AminoAcidCompoundSet compoundSet = AminoAcidCompoundSet.aminoAcidCompoundSet;
+		Random random = new Random(7);
+		int decided = 0;
+		for (int i = 0; i < 300; i++) {
+			String str1 = randomSequence(random, AMINO_ACIDS, 20 + random.nextInt(100));
+			String str2 = mutate(random, str1);
+
+			Boolean same = EntityFinder.isSameEntityWithoutAlignment(str1, str2, matrix, compoundSet);
+			if (same != null) {
+				decided++;
+				assertEquals(str1 + " " + str2, isSameEntity(str1, str2, matrix), same);
+			}
+		}
+		assertTrue(decided > 0);
+
+		assertTrue(EntityFinder.isSameEntityWithoutAlignment("MKLV", "MKLV", matrix, compoundSet));
+		assertFalse(EntityFinder.isSameEntityWithoutAlignment("MKLVAAAA", "MK", matrix, compoundSet));
+	}
+
+	/**
+	 * The decision EntityFinder takes from the global alignment.
+	 */
+	private static boolean isSameEntity(String str1, String str2, SubstitutionMatrix<AminoAcidCompound> matrix) throws Exception {
+		ProteinSequence s1 = new ProteinSequence(str1);
+		ProteinSequence s2 = new ProteinSequence(str2);
+		SequencePair<ProteinSequence, AminoAcidCompound> pair = Alignments.getPairwiseAligner(s1, s2,
+				PairwiseSequenceAlignerType.GLOBAL, new SimpleGapPenalty(8, 1), matrix).getPair();
+		int gaps1 = 0, gaps2 = 0;
+		for (int i = 1; i <= pair.getLength(); i++) {
+			if (pair.getCompoundInQueryAt(i).getShortName().equals("-")) gaps1++;
+			if (pair.getCompoundInTargetAt(i).getShortName().equals("-")) gaps2++;
+		}
+		int nonGaps = pair.getLength() - gaps1 - gaps2;
+		double identity = (double) pair.getNumIdenticals() / nonGaps;
+		return identity > EntityFinder.IDENTITY_THRESHOLD
+				&& (double) gaps1 / str1.length() < EntityFinder.GAP_COVERAGE_THRESHOLD
+				&& (double) gaps2 / str2.length() < EntityFinder.GAP_COVERAGE_THRESHOLD;
+	}
+
+	private static String mutate(Random random, String str) {
+		StringBuilder sb = new StringBuilder(str);
+		switch (random.nextInt(4)) {
+		case 0:
+			// truncate one or both ends
+			int from = random.nextInt(sb.length() / 2);
+			int to = sb.length() - random.nextInt(sb.length() / 2);
+			return random.nextBoolean() ? sb.substring(from) : sb.substring(from, to);
+		case 1:
+			// extend
+			return randomSequence(random, AMINO_ACIDS, random.nextInt(20)) + str + randomSequence(random, AMINO_ACIDS, random.nextInt(20));
+		case 2:
+			// point mutation
+			sb.setCharAt(random.nextInt(sb.length()), AMINO_ACIDS.charAt(random.nextInt(AMINO_ACIDS.length())));
+			return sb.toString();
+		default:
+			// unrelated
+			return randomSequence(random, AMINO_ACIDS, str.length());
+		}
+	}
+
+	private static String randomSequence(Random random, String alphabet, int length) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < length; i++) {
+			sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+		}
+		return sb.toString();
+	}
+
+	private static int naiveLcsLength(String str1, String str2) {
+		int[][] lcs = new int[str1.length() + 1][str2.length() + 1];
+		for (int i = 1; i <= str1.length(); i++) {
+			for (int j = 1; j <= str2.length(); j++) {
+				lcs[i][j] = str1.charAt(i - 1) == str2.charAt(j - 1) ? lcs[i - 1][j - 1] + 1
+						: Math.max(lcs[i - 1][j], lcs[i][j - 1]);
+			}
+		}
+		return lcs[str1.length()][str2.length()];
+	}
+}
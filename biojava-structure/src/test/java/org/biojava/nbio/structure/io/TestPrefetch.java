@@ -0,0 +1,258 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.io;
+
+import com.sun.net.httpserver.HttpServer;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.io.LocalPDBDirectory.FetchBehavior;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests prefetching structures from a local HTTP server standing in for the PDB file server.
+ */
+public class TestPrefetch {
+
+	private static final String PATH_ON_SERVER = "/pub/pdb/data/structures/divided/pdb/";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private HttpServer server;
+	private String previousServerName;
+	private byte[] content;
+
+	private final Set<String> available = ConcurrentHashMap.newKeySet();
+	private final Set<String> failOnce = ConcurrentHashMap.newKeySet();
+	private final Map<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+	private final AtomicInteger concurrent = new AtomicInteger();
+	private final AtomicInteger maxConcurrent = new AtomicInteger();
+
+	@Before
+	public void startServer() throws IOException {
+		try (InputStream in = getClass().getResourceAsStream("/4hhb.pdb.gz")) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buf = new byte[8192];
+			int n;
+			while ((n = in.read(buf)) > 0) out.write(buf, 0, n);
+			content = out.toByteArray();
+		}
+
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.createContext("/", exchange -> {
+			int c = concurrent.incrementAndGet();
+			maxConcurrent.accumulateAndGet(c, Math::max);
+			try {
+				String path = exchange.getRequestURI().getPath();
+				requests.computeIfAbsent(path, p -> new AtomicInteger()).incrementAndGet();
+				// keep the connection busy for a while to see the concurrency
+				Thread.sleep(50);
+
+				String fileName = path.substring(path.lastIndexOf('/') + 1);
+				String pdbId = fileName.substring(3, 7);
+				if (failOnce.remove(pdbId)) {
+					exchange.sendResponseHeaders(500, -1);
+				} else if (available.contains(pdbId) && path.equals(PATH_ON_SERVER + pdbId.substring(1, 3) + "/" + fileName)) {
+					exchange.sendResponseHeaders(200, content.length);
+					try (OutputStream out = exchange.getResponseBody()) {
+						out.write(content);
+					}
+				} else {
+					exchange.sendResponseHeaders(404, -1);
+				}
+			} catch (InterruptedException e) {
+				exchange.sendResponseHeaders(500, -1);
+			} finally {
+				concurrent.decrementAndGet();
+				exchange.close();
+			}
+		});
+		server.start();
+
+		previousServerName = System.getProperty(LocalPDBDirectory.PDB_FILE_SERVER_PROPERTY);
+		System.setProperty(LocalPDBDirectory.PDB_FILE_SERVER_PROPERTY, "http://localhost:" + server.getAddress().getPort());
+	}
+
+	@After
+	public void stopServer() {
+		if (server != null) server.stop(0);
+		if (previousServerName == null)
+			System.clearProperty(LocalPDBDirectory.PDB_FILE_SERVER_PROPERTY);
+		else
+			System.setProperty(LocalPDBDirectory.PDB_FILE_SERVER_PROPERTY, previousServerName);
+	}
+
+	private PDBFileReader getReader() {
+		return new PDBFileReader(folder.getRoot().getAbsolutePath());
+	}
+
+	private int getNrRequests(String pdbId) {
+		AtomicInteger n = requests.get(PATH_ON_SERVER + pdbId.substring(1, 3) + "/pdb" + pdbId + ".ent.gz");
+		return n == null ? 0 : n.get();
+	}
+
+	@Test
+	public void testPrefetchStructures() throws IOException {
+		available.addAll(Arrays.asList("4hhb", "1aaa", "2aaa", "3aaa"));
+
+		PDBFileReader reader = getReader();
+		RecordingListener listener = new RecordingListener();
+		List<String> failed = reader.prefetchStructures(
+				Arrays.asList("4hhb", "1aaa", "2aaa", "3aaa", "4HHB", "9zzz"), 2, listener);
+
+		assertEquals(Collections.singletonList("9zzz"), failed);
+		assertTrue(maxConcurrent.get() <= 2);
+		assertEquals(Integer.valueOf(5), listener.nrIds);
+		assertEquals(4, listener.fetched.size());
+		assertEquals(Collections.singletonList("9zzz"), listener.failed);
+		assertEquals(Arrays.asList(4, 1), listener.finished);
+
+		for (String pdbId : available) {
+			File file = reader.getLocalFile(pdbId);
+			assertNotNull(pdbId, file);
+			assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+			assertEquals(1, getNrRequests(pdbId));
+			String[] left = file.getParentFile().list((dir, name) -> name.endsWith(".part"));
+			assertEquals(0, left.length);
+		}
+		assertNull(reader.getLocalFile("9zzz"));
+
+		// files present locally are not downloaded again
+		reader.setFetchBehavior(FetchBehavior.FETCH_FILES);
+		assertTrue(reader.prefetchStructures(available, 4, null).isEmpty());
+		assertEquals(1, getNrRequests("4hhb"));
+
+		// and can be parsed without the server
+		server.stop(0);
+		server = null;
+		Structure s = reader.getStructure(reader.getLocalFile("4hhb"));
+		assertEquals(4, s.getPolyChains().size());
+	}
+
+	@Test
+	public void testRetry() throws IOException {
+		available.add("1aaa");
+		failOnce.add("1aaa");
+
+		PDBFileReader reader = getReader();
+		File file = reader.prefetchStructure("1aaa");
+		assertEquals(2, getNrRequests("1aaa"));
+		assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+
+		available.add("2aaa");
+		failOnce.add("2aaa");
+		reader.setMaxDownloadAttempts(1);
+		try {
+			reader.prefetchStructure("2aaa");
+			fail("Expected the failed download to be reported");
+		} catch (IOException e) {
+			// expected
+		}
+		assertNull(reader.getLocalFile("2aaa"));
+
+		// not found on the server: not retried
+		reader.setMaxDownloadAttempts(3);
+		try {
+			reader.prefetchStructure("9zzz");
+			fail("Expected the missing file to be reported");
+		} catch (IOException e) {
+			// expected
+		}
+		assertEquals(1, getNrRequests("9zzz"));
+	}
+
+	@Test
+	public void testFetchBehavior() throws IOException {
+		available.add("1aaa");
+
+		PDBFileReader reader = getReader();
+		reader.setFetchBehavior(FetchBehavior.LOCAL_ONLY);
+		try {
+			reader.prefetchStructure("1aaa");
+			fail("Expected LOCAL_ONLY not to download");
+		} catch (IOException e) {
+			// expected
+		}
+		assertEquals(0, getNrRequests("1aaa"));
+
+		reader.setFetchBehavior(FetchBehavior.FETCH_FILES);
+		reader.prefetchStructure("1aaa");
+		reader.prefetchStructure("1aaa");
+		assertEquals(1, getNrRequests("1aaa"));
+
+		reader.setFetchBehavior(FetchBehavior.LOCAL_ONLY);
+		assertNotNull(reader.prefetchStructure("1aaa"));
+
+		reader.setFetchBehavior(FetchBehavior.FORCE_DOWNLOAD);
+		reader.prefetchStructure("1aaa");
+		assertEquals(2, getNrRequests("1aaa"));
+	}
+
+	private static class RecordingListener implements PrefetchListener {
+		Integer nrIds;
+		final List<String> fetched = Collections.synchronizedList(new ArrayList<>());
+		final List<String> failed = Collections.synchronizedList(new ArrayList<>());
+		List<Integer> finished;
+
+		@Override
+		public void prefetchStarted(int nrIds) {
+			this.nrIds = nrIds;
+		}
+
+		@Override
+		public void structureFetched(String pdbId, File file, int nrDone, int nrIds) {
+			fetched.add(pdbId);
+		}
+
+		@Override
+		public void structureFailed(String pdbId, IOException e, int nrDone, int nrIds) {
+			failed.add(pdbId);
+		}
+
+		@Override
+		public void prefetchFinished(int nrFetched, int nrFailed) {
+			finished = Arrays.asList(nrFetched, nrFailed);
+		}
+	}
+}
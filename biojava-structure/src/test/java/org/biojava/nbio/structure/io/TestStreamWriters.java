@@ -0,0 +1,140 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.io;
+
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.StructureTools;
+import org.biojava.nbio.structure.io.mmcif.MMcifParser;
+import org.biojava.nbio.structure.io.mmcif.SimpleMMcifConsumer;
+import org.biojava.nbio.structure.io.mmcif.SimpleMMcifParser;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.text.DecimalFormat;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the records of {@link PDBStreamWriter} and {@link MMCIFStreamWriter}.
+ */
+public class TestStreamWriters {
+
+	private static final String PATH_TO_TEST_FILES = "/org/biojava/nbio/structure/io/";
+
+	@Test
+	public void testDecimalsLikeDecimalFormat() {
+		Random random = new Random(42);
+		RecordBuffer line = new RecordBuffer();
+		double[] special = {0.0, -0.0, 0.0005, -0.0005, 0.0625, -0.0625, 0.005, 0.015, 1.0005, -1e-9,
+				999.995, -999.995, 1000.0, 9999.9995, -9999.9995, 10000.0, 123456.7, Double.NaN, Double.NEGATIVE_INFINITY};
+		for (double value : special) {
+			checkDecimal(line, value);
+		}
+		for (int i = 0; i < 20000; i++) {
+			checkDecimal(line, (random.nextDouble() - 0.5) * 20000);
+			// exact ties and the values closest to them
+			checkDecimal(line, (random.nextInt(2000001) - 1000000) / 2000.0);
+			checkDecimal(line, (random.nextInt(200001) - 100000) / 1000.0 + 0.0005);
+		}
+	}
+
+	private static void checkDecimal(RecordBuffer line, double value) {
+		checkDecimal(line, value, FileConvert.d3, 8);
+		checkDecimal(line, value, FileConvert.d2, 6);
+	}
+
+	private static void checkDecimal(RecordBuffer line, double value, DecimalFormat format, int width) {
+		line.clear();
+		line.appendDecimal(value, format, width);
+		assertEquals(Double.toString(value), String.format("%" + width + "s", format.format(value)), line.toString());
+	}
+
+	@Test
+	public void testPDBRoundTrip() throws IOException {
+		// an NMR structure
+		Structure s = getStructure("3c5f_raw.pdb.gz");
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (PDBStreamWriter writer = new PDBStreamWriter(out)) {
+			writer.writeStructure(s);
+		}
+		ByteArrayOutputStream channelOut = new ByteArrayOutputStream();
+		try (PDBStreamWriter writer = new PDBStreamWriter(Channels.newChannel(channelOut))) {
+			writer.writeStructure(s);
+		}
+		assertArrayEquals(out.toByteArray(), channelOut.toByteArray());
+
+		String pdb = new String(out.toByteArray(), StandardCharsets.UTF_8);
+		assertEquals(pdb, s.toPDB());
+
+		Structure read = new PDBFileParser().parsePDBFile(new ByteArrayInputStream(out.toByteArray()));
+		assertEquals(s.nrModels(), read.nrModels());
+		for (int m = 0; m < s.nrModels(); m++) {
+			assertAtomsEqual(StructureTools.getAllAtomArray(s, m), StructureTools.getAllAtomArray(read, m));
+		}
+	}
+
+	@Test
+	public void testMMCIFRoundTrip() throws IOException {
+		Structure s = getStructure("1b8g_raw.pdb.gz");
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (MMCIFStreamWriter writer = new MMCIFStreamWriter(out)) {
+			writer.writeStructure(s);
+		}
+
+		MMcifParser parser = new SimpleMMcifParser();
+		SimpleMMcifConsumer consumer = new SimpleMMcifConsumer();
+		parser.addMMcifConsumer(consumer);
+		parser.parse(new BufferedReader(new InputStreamReader(new ByteArrayInputStream(out.toByteArray()), StandardCharsets.UTF_8)));
+		Structure read = consumer.getStructure();
+
+		assertEquals(s.getPolyChains().size(), read.getPolyChains().size());
+		assertAtomsEqual(StructureTools.getAllAtomArray(s), StructureTools.getAllAtomArray(read));
+	}
+
+	private static void assertAtomsEqual(Atom[] expected, Atom[] actual) {
+		assertEquals(expected.length, actual.length);
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i].getPDBserial(), actual[i].getPDBserial());
+			assertEquals(expected[i].getName(), actual[i].getName());
+			assertEquals(expected[i].getGroup().getResidueNumber(), actual[i].getGroup().getResidueNumber());
+			assertEquals(expected[i].getX(), actual[i].getX(), 0.0005);
+			assertEquals(expected[i].getY(), actual[i].getY(), 0.0005);
+			assertEquals(expected[i].getZ(), actual[i].getZ(), 0.0005);
+		}
+	}
+
+	private Structure getStructure(String fileName) throws IOException {
+		InputStream inStream = new GZIPInputStream(this.getClass().getResourceAsStream(PATH_TO_TEST_FILES + fileName));
+		return new PDBFileParser().parsePDBFile(inStream);
+	}
+}
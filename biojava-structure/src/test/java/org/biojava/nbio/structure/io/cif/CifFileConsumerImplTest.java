@@ -1,9 +1,11 @@
 package org.biojava.nbio.structure.io.cif;
 
+import org.biojava.nbio.structure.Atom;
 import org.biojava.nbio.structure.Chain;
 import org.biojava.nbio.structure.EntityInfo;
 import org.biojava.nbio.structure.EntityType;
 import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.StructureTools;
 import org.biojava.nbio.structure.io.CifFileReader;
 import org.biojava.nbio.structure.io.FileParsingParameters;
 import org.biojava.nbio.structure.io.PDBFileParser;
@@ -18,10 +20,13 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
 import java.util.Objects;
+import java.util.stream.Collectors;
 import java.util.zip.GZIPInputStream;
 
 import static org.junit.Assert.*;
@@ -219,4 +224,60 @@ public class CifFileConsumerImplTest {
         column.valueKinds().forEach(vk -> assertEquals(ValueKind.NOT_PRESENT, vk));
         column.stringData().forEach(sd -> assertTrue(sd.isEmpty()));
     }
-}
\ No newline at end of file
+
+    /**
+     * Test loading only the atoms selected by the chain, entity, atom name and model filters.
+     */
+    @Test
+    public void testAtomSelection() throws IOException {
+        Structure full = read4hhb(new FileParsingParameters());
+        assertEquals(4, full.getPolyChains().size());
+
+        // chain ids are matched against auth_asym_id too: the heme and water chains of A are included
+        FileParsingParameters params = new FileParsingParameters();
+        params.setChainIds(Collections.singleton("A"));
+        Structure s = read4hhb(params);
+        assertEquals(1, s.getPolyChains().size());
+        assertEquals("A", s.getPolyChains().get(0).getId());
+        for (Chain chain : s.getChains()) {
+            assertEquals("A", chain.getName());
+        }
+        assertEquals(full.getPolyChain("A").getAtomGroups().size(), s.getPolyChain("A").getAtomGroups().size());
+        assertEquals(full.getPolyChain("A").getSeqResGroups().size(), s.getPolyChain("A").getSeqResGroups().size());
+        // the entities are always there
+        assertEquals(full.getEntityInfos().size(), s.getEntityInfos().size());
+
+        // the label_entity_id of the beta chains is 2
+        params = new FileParsingParameters();
+        params.setEntityIds(Collections.singleton("2"));
+        s = read4hhb(params);
+        assertEquals(Arrays.asList("B", "D"), s.getPolyChains().stream().map(Chain::getId).collect(Collectors.toList()));
+        assertEquals(2, s.getChains().size());
+
+        params = new FileParsingParameters();
+        params.setAtomNames(Arrays.asList("CA", "FE"));
+        s = read4hhb(params);
+        Atom[] atoms = StructureTools.getAllAtomArray(s);
+        assertEquals(StructureTools.getRepresentativeAtomArray(full).length + 4, atoms.length);
+        for (Atom atom : atoms) {
+            assertTrue(atom.getName().equals("CA") || atom.getName().equals("FE"));
+        }
+
+        params = new FileParsingParameters();
+        params.setModelRange(2, 3);
+        s = read4hhb(params);
+        assertEquals(0, StructureTools.getAllAtomArray(s).length);
+
+        params.setModelRange(1, 1);
+        s = read4hhb(params);
+        assertEquals(StructureTools.getAllAtomArray(full).length, StructureTools.getAllAtomArray(s).length);
+    }
+
+    private Structure read4hhb(FileParsingParameters params) throws IOException {
+        CifFileReader reader = new CifFileReader();
+        reader.setFileParsingParameters(params);
+        try (InputStream inputStream = new GZIPInputStream(getClass().getResourceAsStream("/4hhb.cif.gz"))) {
+            return reader.getStructure(inputStream);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.io.mmtf;
+
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.Chain;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.StructureException;
+import org.biojava.nbio.structure.StructureTools;
+import org.biojava.nbio.structure.align.util.AtomCache;
+import org.biojava.nbio.structure.io.LocalPDBDirectory.FetchBehavior;
+import org.biojava.nbio.structure.io.LocalPDBDirectory.ObsoleteBehavior;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the columnar structure cache format.
+ */
+public class TestColumnarStructureData {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Path getMmtfResource() {
+		return Paths.get(getClass().getResource("/org/biojava/nbio/structure/io/mmtf/4CUP.mmtf").getPath());
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+
+		Structure structure = MmtfActions.readFromFile(getMmtfResource());
+		Path file = folder.getRoot().toPath().resolve("4cup.col");
+		MmtfActions.writeToColumnarFile(structure, file);
+		Structure reloaded = MmtfActions.readFromColumnarFile(file);
+
+		// the same as going through MMTF
+		Path mmtfFile = folder.getRoot().toPath().resolve("4cup.mmtf");
+		MmtfActions.writeToFile(structure, mmtfFile);
+		Structure expected = MmtfActions.readFromFile(mmtfFile);
+
+		assertEquals(expected.getPDBCode(), reloaded.getPDBCode());
+		assertEquals(expected.getPDBHeader().getTitle(), reloaded.getPDBHeader().getTitle());
+		assertEquals(expected.getEntityInfos().size(), reloaded.getEntityInfos().size());
+		assertEquals(expected.getPDBHeader().getBioAssemblies().keySet(), reloaded.getPDBHeader().getBioAssemblies().keySet());
+		assertEquals(chainIds(expected), chainIds(reloaded));
+		assertEquals(expected.toPDB(), reloaded.toPDB());
+
+		Atom[] expectedAtoms = StructureTools.getAllAtomArray(expected);
+		Atom[] atoms = StructureTools.getAllAtomArray(reloaded);
+		assertEquals(expectedAtoms.length, atoms.length);
+		for (int i = 0; i < atoms.length; i++) {
+			assertArrayEquals(expectedAtoms[i].getCoords(), atoms[i].getCoords(), 0.0);
+			assertEquals(bondCount(expectedAtoms[i]), bondCount(atoms[i]));
+		}
+	}
+
+	@Test
+	public void testInvalidFile() throws IOException {
+		Path file = folder.newFile("invalid.col").toPath();
+
+		Files.write(file, new byte[] { 1, 2, 3 });
+		try {
+			ColumnarStructureData.read(file);
+			fail("Expected IOException");
+		} catch (IOException e) {
+			// expected
+		}
+
+		// a truncated file
+		Structure structure = MmtfActions.readFromFile(getMmtfResource());
+		MmtfActions.writeToColumnarFile(structure, file);
+		byte[] bytes = Files.readAllBytes(file);
+		Files.write(file, Arrays.copyOf(bytes, bytes.length / 2));
+		try {
+			ColumnarStructureData.read(file);
+			fail("Expected IOException");
+		} catch (IOException e) {
+			// expected
+		}
+
+		// a corrupt length of the first string, must not be allocated
+		bytes[8] = (byte) 0xff;
+		bytes[9] = (byte) 0xff;
+		bytes[10] = (byte) 0xff;
+		bytes[11] = (byte) 0x7f;
+		Files.write(file, bytes);
+		try {
+			ColumnarStructureData.read(file);
+			fail("Expected IOException");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * An AtomCache that parses the MMTF resource instead of a PDB file, and counts
+	 * how often it parses it.
+	 */
+	private class CountingCache extends AtomCache {
+		int nrLoaded;
+
+		CountingCache(File pdbDir) {
+			super(pdbDir.getAbsolutePath());
+			setUseMmtf(false);
+			setUseMmCif(false);
+			setFetchBehavior(FetchBehavior.LOCAL_ONLY);
+			setUseColumnarCache(true);
+		}
+
+		@Override
+		protected Structure loadStructureFromPdbByPdbId(String pdbId) throws IOException {
+			nrLoaded++;
+			return MmtfActions.readFromFile(getMmtfResource());
+		}
+	}
+
+	@Test
+	public void testAtomCache() throws IOException, StructureException {
+		File pdbDir = folder.newFolder("pdb");
+
+		CountingCache cache = new CountingCache(pdbDir);
+		Structure parsed = cache.getStructureForPdbId("4CUP");
+		assertNotNull(parsed);
+		assertEquals(1, cache.nrLoaded);
+		File cached = cache.getColumnarCacheFile("4CUP");
+		assertTrue(cached.exists());
+
+		// a new cache reads the columnar file
+		CountingCache cache2 = new CountingCache(pdbDir);
+		Structure reloaded = cache2.getStructureForPdbId("4CUP");
+		assertNotNull(reloaded);
+		assertEquals(0, cache2.nrLoaded);
+		assertEquals(parsed.toPDB(), reloaded.toPDB());
+	}
+
+	@Test
+	public void testAtomCacheOutdated() throws IOException, StructureException {
+		File pdbDir = folder.newFolder("pdb");
+		// only the modification time of the local file is used
+		File split = new File(pdbDir, "data/structures/divided/pdb/cu");
+		assertTrue(split.mkdirs());
+		File pdbFile = new File(split, "pdb4cup.ent.gz");
+		Files.copy(getMmtfResource(), pdbFile.toPath());
+
+		CountingCache cache = new CountingCache(pdbDir);
+		assertNotNull(cache.getStructureForPdbId("4CUP"));
+		File cached = cache.getColumnarCacheFile("4CUP");
+		assertTrue(cached.exists());
+
+		// the obsolete behavior changes the structure that is loaded
+		cache.setObsoleteBehavior(ObsoleteBehavior.FETCH_OBSOLETE);
+		assertNotEquals(cached, cache.getColumnarCacheFile("4CUP"));
+		cache.setObsoleteBehavior(ObsoleteBehavior.DEFAULT);
+
+		// a structure file downloaded again after the columnar file was written replaces it
+		long written = pdbFile.lastModified() - 60000;
+		assertTrue(cached.setLastModified(written));
+		CountingCache cache2 = new CountingCache(pdbDir);
+		assertNotNull(cache2.getStructureForPdbId("4CUP"));
+		assertEquals(1, cache2.nrLoaded);
+		assertTrue(cached.lastModified() > written);
+		assertTrue(cached.lastModified() >= pdbFile.lastModified());
+
+		// a current columnar file is not read when forcing the download
+		CountingCache cache3 = new CountingCache(pdbDir);
+		cache3.setFetchBehavior(FetchBehavior.FORCE_DOWNLOAD);
+		assertNotNull(cache3.getStructureForPdbId("4CUP"));
+		assertEquals(1, cache3.nrLoaded);
+	}
+
+	private static List<String> chainIds(Structure s) {
+		return s.getChains().stream().map(Chain::getId).collect(Collectors.toList());
+	}
+
+	private static int bondCount(Atom atom) {
+		return atom.getBonds() == null ? 0 : atom.getBonds().size();
+	}
+}
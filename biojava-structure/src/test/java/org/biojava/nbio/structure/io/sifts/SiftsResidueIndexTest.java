@@ -0,0 +1,88 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.io.sifts;
+
+import org.biojava.nbio.structure.ResidueNumber;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests {@link SiftsResidueIndex} against the residues of {@link SiftsXMLParser}.
+ */
+public class SiftsResidueIndexTest {
+
+	private static final String SIFTS_XML = "/org/biojava/nbio/structure/io/4dou.sifts.xml.gz";
+
+	@Test
+	public void test4dou() throws Exception {
+		SiftsResidueIndexBuilder builder = new SiftsResidueIndexBuilder();
+		try (InputStream is = new GZIPInputStream(getClass().getResourceAsStream(SIFTS_XML))) {
+			builder.add(is);
+		}
+		builder.add("1abc", "B", "27A", "P12345", 40);
+		File file = File.createTempFile("biojavaSiftsIndexTest-", ".idx");
+		file.deleteOnExit();
+		builder.write(file);
+
+		SiftsResidueIndex index = SiftsResidueIndex.open(file);
+		assertTrue(index.containsChain("4DOU", "A"));
+		assertFalse(index.containsChain("4dou", "Z"));
+		assertTrue(index.getRangeCount() < builder.getResidueCount());
+
+		SiftsXMLParser parser = new SiftsXMLParser();
+		try (InputStream is = new GZIPInputStream(getClass().getResourceAsStream(SIFTS_XML))) {
+			parser.parseXmlFile(is);
+		}
+		int mapped = 0;
+		for (SiftsEntity entity : parser.getEntities()) {
+			for (SiftsSegment segment : entity.getSegments()) {
+				for (SiftsResidue expected : segment.getResidues()) {
+					if (expected.getUniProtPos() == null || "null".equals(expected.getPdbResNum())) {
+						continue;
+					}
+					SiftsResidue res = index.getResidue(expected.getPdbId(), expected.getChainId(),
+							ResidueNumber.fromString(expected.getPdbResNum()));
+					assertNotNull(expected.toString(), res);
+					assertEquals(expected.getUniProtAccessionId(), res.getUniProtAccessionId());
+					assertEquals(expected.getUniProtPos(), res.getUniProtPos());
+					assertEquals(expected.getPdbResNum(), res.getPdbResNum());
+
+					List<SiftsResidue> reverse = index.getResidues(expected.getUniProtAccessionId(), expected.getUniProtPos());
+					assertTrue(reverse.contains(res));
+					mapped++;
+				}
+			}
+		}
+		assertEquals(builder.getResidueCount() - 1, mapped);
+
+		SiftsResidue inserted = index.getResidue("1abc", "B", ResidueNumber.fromString("27A"));
+		assertEquals(40, inserted.getUniProtPos().intValue());
+		assertNull(index.getResidue("1abc", "B", ResidueNumber.fromString("27")));
+		assertEquals(1, index.getResidues("P12345", 40).size());
+		assertTrue(index.getResidues("P12345", 41).isEmpty());
+	}
+}
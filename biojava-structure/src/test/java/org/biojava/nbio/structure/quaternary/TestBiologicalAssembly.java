@@ -0,0 +1,167 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.quaternary;
+
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.Chain;
+import org.biojava.nbio.structure.Group;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.StructureTools;
+import org.biojava.nbio.structure.cluster.Subunit;
+import org.biojava.nbio.structure.cluster.SubunitClustererParameters;
+import org.biojava.nbio.structure.cluster.SubunitExtractor;
+import org.biojava.nbio.structure.io.FileParsingParameters;
+import org.biojava.nbio.structure.io.mmcif.MMcifParser;
+import org.biojava.nbio.structure.io.mmcif.SimpleMMcifConsumer;
+import org.biojava.nbio.structure.io.mmcif.SimpleMMcifParser;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.vecmath.AxisAngle4d;
+import javax.vecmath.Matrix4d;
+import javax.vecmath.Vector3d;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that a {@link BiologicalAssembly} is equivalent to the Structure
+ * built by {@link BiologicalAssemblyBuilder#rebuildQuaternaryStructure(Structure, List, boolean, boolean)}.
+ */
+public class TestBiologicalAssembly {
+
+	private static Structure asymUnit;
+
+	@BeforeClass
+	public static void setUp() throws IOException {
+		InputStream inStream = new GZIPInputStream(TestBiologicalAssembly.class.getResourceAsStream("/4hhb.cif.gz"));
+		MMcifParser parser = new SimpleMMcifParser();
+		SimpleMMcifConsumer consumer = new SimpleMMcifConsumer();
+		FileParsingParameters params = new FileParsingParameters();
+		params.setAlignSeqRes(true);
+		consumer.setFileParsingParameters(params);
+		parser.addMMcifConsumer(consumer);
+		parser.parse(inStream);
+		asymUnit = consumer.getStructure();
+	}
+
+	private static List<BiologicalAssemblyTransformation> getTransformations() {
+		Matrix4d identity = new Matrix4d();
+		identity.setIdentity();
+		Matrix4d rotation = new Matrix4d();
+		rotation.set(new AxisAngle4d(0, 0, 1, Math.PI / 2));
+		rotation.setTranslation(new Vector3d(10, -5, 2));
+
+		List<BiologicalAssemblyTransformation> transformations = new ArrayList<>();
+		for (String chainId : new String[] {"A", "B", "C", "D"}) {
+			for (int op = 1; op <= 2; op++) {
+				BiologicalAssemblyTransformation t = new BiologicalAssemblyTransformation();
+				t.setChainId(chainId);
+				t.setId(Integer.toString(op));
+				t.setTransformationMatrix(op == 1 ? identity : rotation);
+				transformations.add(t);
+			}
+		}
+		return transformations;
+	}
+
+	@Test
+	public void testCoordinatesMatchRebuiltStructure() {
+		double[] before = getFirstAtomCoords(asymUnit.getChain("A"));
+
+		BiologicalAssemblyBuilder builder = new BiologicalAssemblyBuilder();
+		BiologicalAssembly assembly = builder.buildAssembly(asymUnit, getTransformations(), true);
+		Structure rebuilt = new BiologicalAssemblyBuilder().rebuildQuaternaryStructure(asymUnit, getTransformations(), true, false);
+
+		assertEquals(8, assembly.size());
+		assertEquals(8, rebuilt.getChains().size());
+
+		double[] buffer = null;
+		for (int i = 0; i < assembly.size(); i++) {
+			Chain chain = rebuilt.getChain(assembly.getCopyId(i));
+			assertNotNull(assembly.getCopyId(i), chain);
+			assertSame(asymUnit.getChain(assembly.getChain(i).getId()), assembly.getChain(i));
+
+			buffer = assembly.getCoordinates(i, buffer);
+			assertEquals(3 * assembly.getAtomCount(i), assembly.getCoordinates(i).length);
+			int j = 0;
+			for (Group g : chain.getAtomGroups()) {
+				for (Atom a : g.getAtoms()) {
+					assertEquals(a.getX(), buffer[j++], 1e-6);
+					assertEquals(a.getY(), buffer[j++], 1e-6);
+					assertEquals(a.getZ(), buffer[j++], 1e-6);
+				}
+			}
+			assertEquals(3 * assembly.getAtomCount(i), j);
+
+			Chain transformed = assembly.getTransformedChain(i);
+			assertArrayEquals(getFirstAtomCoords(chain), getFirstAtomCoords(transformed), 1e-6);
+		}
+
+		// the asymmetric unit is left untouched
+		assertArrayEquals(before, getFirstAtomCoords(asymUnit.getChain("A")), 0);
+	}
+
+	@Test
+	public void testSubunits() {
+		BiologicalAssemblyBuilder builder = new BiologicalAssemblyBuilder();
+		BiologicalAssembly assembly = builder.buildAssembly(asymUnit, getTransformations(), true);
+		Structure rebuilt = assembly.toStructure(false);
+
+		SubunitClustererParameters params = new SubunitClustererParameters();
+		List<Subunit> fromAssembly = SubunitExtractor.extractSubunits(assembly,
+				params.getAbsoluteMinimumSequenceLength(),
+				params.getMinimumSequenceLengthFraction(),
+				params.getMinimumSequenceLength());
+		List<Subunit> fromStructure = SubunitExtractor.extractSubunits(rebuilt,
+				params.getAbsoluteMinimumSequenceLength(),
+				params.getMinimumSequenceLengthFraction(),
+				params.getMinimumSequenceLength());
+
+		assertEquals(8, fromAssembly.size());
+		assertEquals(fromStructure.size(), fromAssembly.size());
+
+		for (int i = 0; i < fromAssembly.size(); i++) {
+			Subunit s1 = fromAssembly.get(i);
+			Subunit s2 = fromStructure.get(i);
+			assertEquals(s2.getName(), s1.getName());
+			assertEquals(s2.getProteinSequenceString(), s1.getProteinSequenceString());
+			Atom[] ca1 = s1.getRepresentativeAtoms();
+			Atom[] ca2 = s2.getRepresentativeAtoms();
+			assertEquals(ca2.length, ca1.length);
+			for (int j = 0; j < ca1.length; j++) {
+				assertArrayEquals(ca2[j].getCoords(), ca1[j].getCoords(), 1e-6);
+				assertEquals(s1.getName(), ca1[j].getGroup().getChain().getId());
+			}
+			// the copied atoms survive cloning, as done by some aligners
+			Atom[] cloned = StructureTools.cloneAtomArray(ca1);
+			assertArrayEquals(ca1[0].getCoords(), cloned[0].getCoords(), 0);
+		}
+	}
+
+	private static double[] getFirstAtomCoords(Chain c) {
+		return c.getAtomGroups().get(0).getAtom(0).getCoords();
+	}
+}
@@ -24,11 +24,24 @@ import org.biojava.nbio.structure.Atom;
 import org.biojava.nbio.structure.Structure;
 import org.biojava.nbio.structure.StructureException;
 import org.biojava.nbio.structure.StructureTools;
+import org.biojava.nbio.structure.align.client.StructureName;
+import org.biojava.nbio.structure.align.multiple.util.MultipleAlignmentScorer;
+import org.biojava.nbio.structure.io.FileParsingParameters;
+import org.biojava.nbio.structure.io.mmcif.MMcifParser;
+import org.biojava.nbio.structure.io.mmcif.SimpleMMcifConsumer;
+import org.biojava.nbio.structure.io.mmcif.SimpleMMcifParser;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -58,4 +71,56 @@ public class TestCeSymm {
 			assertEquals(result.getNumRepeats(), orders[i]);
 		}
 	}
+
+	private static Atom[] getHemoglobinAtoms() throws IOException {
+		InputStream inStream = new GZIPInputStream(TestCeSymm.class.getResourceAsStream("/4hhb.cif.gz"));
+		MMcifParser parser = new SimpleMMcifParser();
+		SimpleMMcifConsumer consumer = new SimpleMMcifConsumer();
+		consumer.setFileParsingParameters(new FileParsingParameters());
+		parser.addMMcifConsumer(consumer);
+		parser.parse(inStream);
+		Structure s = consumer.getStructure();
+		s.setStructureIdentifier(new StructureName("4HHB"));
+		return StructureTools.getRepresentativeAtomArray(s);
+	}
+
+	/**
+	 * The best of several optimization chains is at least as good as the
+	 * single chain with the same seed, and batch analysis gives the same
+	 * results as analyzing every structure alone.
+	 */
+	@Test
+	public void testParallelChainsAndBatch() throws Exception {
+
+		Atom[] atoms = getHemoglobinAtoms();
+		CESymmParameters params = new CESymmParameters();
+		params.setRndSeed(5);
+		params.setSymmLevels(1);
+		params.setOptimizationSteps(2000);
+
+		CeSymmResult single = CeSymm.analyze(atoms, params);
+		assertTrue(single.isSignificant());
+
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			CESymmParameters chainParams = params.clone();
+			chainParams.setOptimizationChains(3);
+			CeSymmResult multi = CeSymm.analyze(atoms, chainParams, executor);
+			assertTrue(multi.isSignificant());
+			assertEquals(single.getNumRepeats(), multi.getNumRepeats());
+			assertTrue(multi.getMultipleAlignment().getScore(MultipleAlignmentScorer.MC_SCORE)
+					>= single.getMultipleAlignment().getScore(MultipleAlignmentScorer.MC_SCORE));
+
+			List<CeSymmResult> batch = CeSymm.analyze(Arrays.asList(atoms, atoms), params, executor);
+			assertEquals(2, batch.size());
+			for (CeSymmResult r : batch) {
+				assertNotNull(r);
+				assertEquals(single.getNumRepeats(), r.getNumRepeats());
+				assertEquals(single.getMultipleAlignment().getScore(MultipleAlignmentScorer.MC_SCORE),
+						r.getMultipleAlignment().getScore(MultipleAlignmentScorer.MC_SCORE), 1e-6);
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
 }
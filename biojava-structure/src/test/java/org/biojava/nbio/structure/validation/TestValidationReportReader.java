@@ -0,0 +1,118 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.validation;
+
+import org.junit.Test;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.Unmarshaller;
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+public class TestValidationReportReader {
+
+	@Test
+	public void testSameAsJaxb() throws Exception {
+		JAXBContext ctx = JAXBContext.newInstance(WwPDBValidationInformation.class);
+		for (String pdbId : new String[] {"3zjq", "3vu8", "3wcp"}) {
+			Unmarshaller um = ctx.createUnmarshaller();
+			WwPDBValidationInformation report;
+			try (InputStream inStream = open(pdbId)) {
+				report = (WwPDBValidationInformation) um.unmarshal(inStream);
+			}
+
+			List<Map<String, String>> entries = new ArrayList<>();
+			List<ValidationResidueSummary> residues = new ArrayList<>();
+			ValidationReportReader reader = new ValidationReportReader();
+			reader.setResidueAttributes(Collections.singleton("rsrz"));
+			int n;
+			try (InputStream inStream = open(pdbId)) {
+				n = reader.read(pdbId, inStream, new ValidationReportListener() {
+					@Override
+					public void entry(String reportId, Map<String, String> attributes) {
+						entries.add(attributes);
+					}
+
+					@Override
+					public void residue(String reportId, ValidationResidueSummary residue) {
+						residues.add(residue);
+					}
+				});
+			}
+
+			assertEquals(1, entries.size());
+			assertEquals(report.getEntry().getClashscore().doubleValue(),
+					Double.parseDouble(entries.get(0).get("clashscore")), 0);
+
+			List<ModelledSubgroup> expected = report.getModelledSubgroup();
+			assertEquals(expected.size(), n);
+			assertEquals(expected.size(), residues.size());
+			for (int i = 0; i < n; i++) {
+				ModelledSubgroup group = expected.get(i);
+				ValidationResidueSummary residue = residues.get(i);
+				assertEquals(group.getChain(), residue.getChain());
+				assertEquals(group.getResnum().toString(), residue.getResnum());
+				assertEquals(group.getResname(), residue.getResname());
+				assertEquals(group.getClash().size(), residue.getOutlierCount("clash"));
+				assertEquals(group.getAngleOutlier().size(), residue.getOutlierCount("angle-outlier"));
+				assertEquals(group.getMogBondOutlier().size(), residue.getOutlierCount("mog-bond-outlier"));
+				if (group.getRsrz() != null) {
+					assertEquals(group.getRsrz().doubleValue(), residue.getDouble("rsrz"), 0);
+				}
+				assertNull(residue.getAttribute("rscc"));
+			}
+		}
+	}
+
+	@Test
+	public void testReadDirectory() throws Exception {
+		File dir = new File(getClass().getResource("/validation/3zjq-valdata.xml.gz").toURI()).getParentFile();
+		Map<String, String> clashscores = new ConcurrentHashMap<>();
+
+		ValidationReportReader reader = new ValidationReportReader();
+		reader.setEntryOnly(true);
+		reader.setEntryAttributes(Collections.singleton("clashscore"));
+		ValidationReportReader.Statistics stats = reader.readDirectory(dir, new ValidationReportListener() {
+			@Override
+			public void entry(String reportId, Map<String, String> attributes) {
+				clashscores.put(reportId, attributes.get("clashscore"));
+			}
+		});
+
+		assertEquals(34, stats.getFiles());
+		assertEquals(0, stats.getFailedFiles());
+		assertEquals(0, stats.getResidues());
+		assertEquals(34, clashscores.size());
+		assertEquals("6.37", clashscores.get("3zjq"));
+	}
+
+	private InputStream open(String pdbId) throws Exception {
+		return new GZIPInputStream(getClass().getResourceAsStream("/validation/" + pdbId + "-valdata.xml.gz"));
+	}
+}
@@ -21,6 +21,7 @@
 package org.biojava.nbio.survival.cox;
 
 
+import org.biojava.nbio.survival.data.ColumnTable;
 import org.biojava.nbio.survival.data.WorkSheet;
 
 import java.util.ArrayList;
@@ -144,6 +145,107 @@ public class CoxHelper {
 
 
 
+	/**
+	 * Fits the model from the typed columns of a table, see
+	 * {@link CoxR#process(ColumnTable, String, String, String, String, ArrayList, boolean, boolean)}.
+	 * Only the robust variance of a cluster column needs the samples as
+	 * {@link SurvivalInfo}, see {@link #getSurvivalInfoList(ColumnTable, String, String, String, String, String, ArrayList)}.
+	 *
+	 * @param table the typed survival data, see {@link ColumnTable#readCSV(String, char)}
+	 * @param timeColumn The column representing the event/censor time
+	 * @param statusColumn The column representing an event=1 and censor=0
+	 * @param weightColumn For case-cohort data sets may require weighting to reflect the entire cohort
+	 * @param strataColumn A column representing strata data
+	 * @param clusterColumn If robost variation calculation is required the cluster column will group samples by the value in this column
+	 * @param variables The variables to be used in the cox regression analysis. For Interactions using variable1:variable2
+	 * @param useStrata Boolean to indicate if strata column should be used
+	 * @param useWeights Boolean to indicate if weight column should be used
+	 * @return
+	 * @throws Exception if a column is not part of the table or the model cannot be fitted
+	 * @since 5.3.1
+	 */
+	public static CoxInfo process(ColumnTable table, String timeColumn, String statusColumn, String weightColumn, String strataColumn, String clusterColumn, ArrayList<String> variables, boolean useStrata, boolean useWeights) throws Exception {
+		CoxR cox = new CoxR();
+		if (clusterColumn == null || clusterColumn.isEmpty()) {
+			return cox.process(table, timeColumn, statusColumn, weightColumn, strataColumn, variables, useStrata, useWeights);
+		}
+		ArrayList<SurvivalInfo> survivalInfoList = getSurvivalInfoList(table, timeColumn, statusColumn, weightColumn, strataColumn, clusterColumn, variables);
+		return cox.process(variables, survivalInfoList, useStrata, useWeights, true, true);
+	}
+
+	/**
+	 * Builds the samples of a cox regression from the typed columns of a table. The variables are
+	 * converted to numbers like {@link SurvivalInfoHelper#categorizeData(ArrayList)} does, but once
+	 * per column instead of once per sample and value. Samples with a missing value are left out.
+	 *
+	 * @param table
+	 * @param timeColumn
+	 * @param statusColumn
+	 * @param weightColumn
+	 * @param strataColumn
+	 * @param clusterColumn
+	 * @param variables
+	 * @return the samples with a positive weight and no missing values
+	 * @throws Exception
+	 * @since 5.3.1
+	 */
+	public static ArrayList<SurvivalInfo> getSurvivalInfoList(ColumnTable table, String timeColumn, String statusColumn, String weightColumn, String strataColumn, String clusterColumn, ArrayList<String> variables) throws Exception {
+
+		int n = table.getRowCount();
+		double[] time = table.getDoubles(timeColumn);
+		double[] status = table.getDoubles(statusColumn);
+		double[] weight = null;
+		if (weightColumn != null && weightColumn.length() > 0) {
+			weight = table.getDoubles(weightColumn);
+		}
+		double[] strata = null;
+		if (strataColumn != null && strataColumn.length() > 0) {
+			strata = table.getDoubles(strataColumn);
+		}
+		ArrayList<String> columns = new ArrayList<>();
+		for (String column : variables) {
+			if (!column.contains(":")) {
+				columns.add(column);
+			}
+		}
+
+		// samples that are skipped are still counted in the order
+		int[] used = new int[n];
+		int nused = 0;
+		for (int row = 0; row < n; row++) {
+			boolean complete = !Double.isNaN(time[row]) && !Double.isNaN(status[row])
+					&& (weight == null || weight[row] > 0)
+					&& (strata == null || !Double.isNaN(strata[row]));
+			for (int c = 0; complete && c < columns.size(); c++) {
+				complete = !table.isMissing(row, columns.get(c));
+			}
+			if (complete) {
+				used[nused++] = row;
+			}
+		}
+
+		ArrayList<SurvivalInfo> survivalInfoList = new ArrayList<>(nused);
+		for (int k = 0; k < nused; k++) {
+			int row = used[k];
+			SurvivalInfo si = new SurvivalInfo(time[row], (int) status[row]);
+			si.setOrder(row + 1);
+			si.setWeight(weight == null ? 1.0 : weight[row]);
+			si.setStrata(strata == null ? 0 : (int) strata[row]);
+			if (clusterColumn != null && clusterColumn.length() > 0) {
+				si.setClusterValue(table.getString(row, clusterColumn));
+			}
+			survivalInfoList.add(si);
+		}
+
+		for (String column : columns) {
+			double[] values = CoxR.encode(table, column, used, nused);
+			for (int k = 0; k < nused; k++) {
+				survivalInfoList.get(k).addContinuousVariable(column, table.getString(used[k], column), values[k]);
+			}
+		}
+		return survivalInfoList;
+	}
+
 	/**
 	 * @param args the command line arguments
 	 */
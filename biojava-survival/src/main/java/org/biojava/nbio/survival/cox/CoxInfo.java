@@ -553,6 +553,22 @@ public class CoxInfo {
 		return scoreLogrankTestpvalue;
 	}
 
+	/**
+	 * @return the likelihood ratio test
+	 * @since 5.3.1
+	 */
+	public double getLikelihoodRatioTest() {
+		return logTest;
+	}
+
+	/**
+	 * @return the likelihood ratio test p-value
+	 * @since 5.3.1
+	 */
+	public double getLikelihoodRatioTestpvalue() {
+		return logTestpval;
+	}
+
 	/**
 	 * @return the rscore
 	 */
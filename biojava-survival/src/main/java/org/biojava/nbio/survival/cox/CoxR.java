@@ -23,11 +23,18 @@ package org.biojava.nbio.survival.cox;
 import org.biojava.nbio.survival.cox.matrix.Matrix;
 import org.biojava.nbio.survival.cox.stats.ChiSq;
 import org.biojava.nbio.survival.cox.stats.Cholesky2;
+import org.biojava.nbio.survival.data.ColumnTable;
 import org.biojava.nbio.survival.data.WorkSheet;
 
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.TreeMap;
 
 /**
  *   This is a port of the R survival code used for doing Cox Regression. The algorithm was a fairly easy port from C code to Java where the challenge was
@@ -168,97 +175,15 @@ public class CoxR {
 
 
 
-		int i, j, k, person;
-		boolean gotofinish = false;
-		double[][] cmat, imat;  /*ragged arrays covar[][], */
-		double wtave;
-		double[] a, newbeta;
-		double[] a2;
-		double[][] cmat2;
-		double[] scale;
-		double denom = 0, zbeta, risk;
-		double temp, temp2;
-		int ndead;  /* actually, the sum of their weights */
-		double newlk = 0;
-		double dtime, d2;
-		double deadwt;  /*sum of case weights for the deaths*/
-		double efronwt; /* sum of weighted risk scores for the deaths*/
-		int halving;    /*are we doing step halving at the moment? */
-		@SuppressWarnings("unused")
-		int nrisk = 0;   /* number of subjects in the current risk set */
+		int i, person;
 
 		/* copies of scalar input arguments */
 		int nused, nvar;
 
-
-
-
-		/* vector inputs */
-		//  double *time, *weights, *offset;
-		//  int *status, *strata;
-
-		/* returned objects */
-		// double imat2[][];
-		double[] u, loglik, means;
-
-
-		double sctest;
-		int flag;
-		int iter = 0;
-		//SEXP rlist, rlistnames;
-		//  int nprotect;  /* number of protect calls I have issued */
-
 		/* get local copies of some input args */
 		nused = data.size(); // LENGTH(offset2);
 		nvar = variables.size(); // ncols(covar2);
 
-
-		//       imat2 = new double[nvar][nvar];
-//        nprotect++;
-		imat = new double[nvar][nvar]; //dmatrix(REAL(imat2),  nvar, nvar);
-		a = new double[nvar]; //(double *) R_alloc(2*nvar*nvar + 4*nvar, sizeof(double));
-		newbeta = new double[nvar]; //a + nvar;
-		a2 = new double[nvar]; //newbeta + nvar;
-		scale = new double[nvar]; //a2 + nvar;
-		cmat = new double[nvar][nvar]; //dmatrix(scale + nvar,   nvar, nvar);
-		cmat2 = new double[nvar][nvar]; //dmatrix(scale + nvar +nvar*nvar, nvar, nvar);
-
-		/*
-		 ** create output variables
-		 */
-//    PROTECT(beta2 = duplicate(ibeta));
-//    beta = REAL(beta2);
-		//  beta = new double[nvar];
-		// beta = beta2;
-		//  PROTECT(means2 = allocVector(REALSXP, nvar));
-		//  means = REAL(means2);
-		means = new double[nvar];
-		double[] sd = new double[nvar];
-		//double[] se = new double[nvar];
-
-		//   means = means2;
-		//   PROTECT(u2 = allocVector(REALSXP, nvar));
-		//   u = REAL(u2);
-		u = new double[nvar];
-		//   u = u2;
-//    PROTECT(loglik2 = allocVector(REALSXP, 2));
-//    loglik = REAL(loglik2);
-		loglik = new double[2];
-		//   loglik = loglik2;
-//    PROTECT(sctest2 = allocVector(REALSXP, 1));
-//    sctest = REAL(sctest2);
-//        sctest = new double[1];
-		//   sctest = sctest2;
-//    PROTECT(flag2 = allocVector(INTSXP, 1));
-//    flag = INTEGER(flag2);
-//        flag = new int[1];
-		//     flag = flag2;
-//    PROTECT(iter2 = allocVector(INTSXP, 1));
-//    iterations = INTEGER(iter2);
-//        iterations = new int[1];
-//        iterations = iter2;
-		//       nprotect += 7;
-
 		/*
 		 ** Subtract the mean from each covar, as this makes the regression
 		 **  much more stable.
@@ -303,6 +228,326 @@ public class CoxR {
 			}
 		}
 
+		strata[nused - 1] = 1;
+		Workspace workspace = new Workspace(nvar);
+		fit(workspace, nused, time, status, offset, weights, strata, covar, maxiter, method, eps, toler, beta, doscale);
+		setResults(coxInfo, variables, workspace, beta, maxiter, method, eps, toler);
+
+		coxphfitSCleanup(coxInfo, useWeighted, robust,clusterList);
+		return coxInfo;
+	}
+
+	/**
+	 * Fits the model straight from the typed columns of a table, without a
+	 * {@link SurvivalInfo} per sample. Non numeric variables are converted to
+	 * numbers as {@link SurvivalInfoHelper#categorizeData(ArrayList)} does.
+	 * Samples with a weight &lt;= 0 or a missing value in one of the columns
+	 * are left out. Only the model is returned: the linear predictors and
+	 * residuals of the samples are not computed, so the robust variance
+	 * needs {@link #process(ArrayList, ArrayList, boolean, boolean, boolean, boolean)}.
+	 *
+	 * @param table
+	 * @param timeColumn
+	 * @param statusColumn
+	 * @param weightColumn the weight of the samples, may be null
+	 * @param strataColumn the strata of the samples, may be null
+	 * @param variables
+	 * @param useStrata
+	 * @param useWeighted
+	 * @return
+	 * @throws Exception if a column is not part of the table
+	 * @since 5.3.1
+	 */
+	public CoxInfo process(ColumnTable table, String timeColumn, String statusColumn, String weightColumn, String strataColumn, ArrayList<String> variables, boolean useStrata, boolean useWeighted) throws Exception {
+		//from coxph.control.S
+		int maxiter = 20;
+		double eps = 1e-9;
+		double toler = Math.pow(eps, .75);
+
+		double[] time = table.getDoubles(timeColumn);
+		double[] status = table.getDoubles(statusColumn);
+		double[] weight = weightColumn == null || weightColumn.isEmpty() ? null : table.getDoubles(weightColumn);
+		double[] strataValue = strataColumn == null || strataColumn.isEmpty() ? null : table.getDoubles(strataColumn);
+
+		//the columns of the variables, including the ones of the interactions
+		LinkedHashSet<String> columns = new LinkedHashSet<>();
+		for (String variable : variables) {
+			columns.addAll(Arrays.asList(variable.split(":")));
+		}
+
+		int nrow = table.getRowCount();
+		int[] rows = new int[nrow];
+		int nused = 0;
+		for (int row = 0; row < nrow; row++) {
+			boolean complete = !Double.isNaN(time[row]) && !Double.isNaN(status[row])
+					&& (weight == null || weight[row] > 0)
+					&& (strataValue == null || !Double.isNaN(strataValue[row]));
+			for (Iterator<String> it = columns.iterator(); complete && it.hasNext();) {
+				complete = !table.isMissing(row, it.next());
+			}
+			if (complete) {
+				rows[nused++] = row;
+			}
+		}
+		if (nused == 0) {
+			throw new Exception("No samples without missing values");
+		}
+
+		HashMap<String, double[]> values = new HashMap<>();
+		for (String column : columns) {
+			values.put(column, encode(table, column, rows, nused));
+		}
+
+		//same order as sorting the SurvivalInfo: by time, events first
+		Integer[] order = new Integer[nused];
+		for (int p = 0; p < nused; p++) {
+			order[p] = p;
+		}
+		Arrays.sort(order, (a, b) -> {
+			int c = Double.compare(time[rows[a]], time[rows[b]]);
+			return c != 0 ? c : Integer.compare((int) status[rows[b]] == 1 ? 1 : 0, (int) status[rows[a]] == 1 ? 1 : 0);
+		});
+
+		int nvar = variables.size();
+		double[] ptime = new double[nused];
+		int[] pstatus = new int[nused];
+		double[] offset = new double[nused];
+		double[] weights = new double[nused];
+		int[] strata = new int[nused];
+		double[][] covar = new double[nvar][nused];
+		int events = 0;
+		for (int person = 0; person < nused; person++) {
+			int k = order[person];
+			int row = rows[k];
+			ptime[person] = time[row];
+			pstatus[person] = (int) status[row];
+			if (pstatus[person] == 1) {
+				events++;
+			}
+			weights[person] = useWeighted && weight != null ? weight[row] : 1.0;
+			strata[person] = useStrata && strataValue != null ? (int) strataValue[row] : 0;
+			for (int i = 0; i < nvar; i++) {
+				double value = 1.0;
+				for (String column : variables.get(i).split(":")) {
+					value *= values.get(column)[k];
+				}
+				covar[i][person] = value;
+			}
+		}
+		strata[nused - 1] = 1;
+
+		CoxInfo coxInfo = new CoxInfo();
+		coxInfo.numSamples = nused;
+		coxInfo.numEvents = events;
+		double[] beta = new double[nvar];
+		Workspace workspace = new Workspace(nvar);
+		fit(workspace, nused, ptime, pstatus, offset, weights, strata, covar, maxiter, CoxMethod.Efron, eps, toler, beta, 1);
+		setResults(coxInfo, variables, workspace, beta, maxiter, CoxMethod.Efron, eps, toler);
+		checkConvergence(coxInfo);
+		calculateWaldTestInfo(coxInfo);
+		return coxInfo;
+	}
+
+	/**
+	 * The values of a column for the given rows. A numeric column is used as
+	 * it is, the values of any other column are numbered in alphabetical
+	 * order, from 0 if there are two of them and from 1 otherwise.
+	 */
+	static double[] encode(ColumnTable table, String column, int[] rows, int nused) throws Exception {
+		double[] encoded = new double[nused];
+		if (table.getColumn(column).isNumeric()) {
+			for (int k = 0; k < nused; k++) {
+				encoded[k] = table.getDouble(rows[k], column);
+			}
+			return encoded;
+		}
+		TreeMap<String, Double> categories = new TreeMap<>();
+		for (int k = 0; k < nused; k++) {
+			categories.put(table.getString(rows[k], column), null);
+		}
+		double code = categories.size() == 2 ? 0.0 : 1.0;
+		for (Map.Entry<String, Double> entry : categories.entrySet()) {
+			entry.setValue(code++);
+		}
+		for (int k = 0; k < nused; k++) {
+			encoded[k] = categories.get(table.getString(rows[k], column));
+		}
+		return encoded;
+	}
+
+	/**
+	 * Copies the results of a fit to the coefficients and tests of a model.
+	 */
+	private void setResults(CoxInfo coxInfo, ArrayList<String> variables, Workspace workspace, double[] beta, int maxiter, CoxMethod method, double eps, double toler) {
+		double[][] imat = workspace.imat;
+		double[] u = workspace.u;
+		double[] loglik = workspace.loglik;
+		double[] means = workspace.means;
+		double[] sd = workspace.sd;
+		double sctest = workspace.sctest;
+		int flag = workspace.flag;
+		int iter = workspace.iter;
+
+//finish:
+		/*
+		 for (j = 0; j < numCovariates; j++) {
+		 b[j] = b[j] / SD[j];
+		 * ix = j * (numCovariates + 1) + j
+		 SE[j] = Math.sqrt(a[ix(j, j, numCovariates + 1)]) / SD[j];
+		 //            o = o + ("   " + variables.get(j) + "    " + Fmt(b[j]) + Fmt(SE[j]) + Fmt(Math.exp(b[j])) + Fmt(Norm(Math.abs(b[j] / SE[j]))) + Fmt(Math.exp(b[j] - 1.95 * SE[j])) + Fmt(Math.exp(b[j] + 1.95 * SE[j])) + NL);
+		 CoxCoefficient coe = coxInfo.getCoefficient(variables.get(j));
+		 coe.coeff = b[j];
+		 coe.stdError = SE[j];
+		 coe.hazardRatio = Math.exp(b[j]);
+		 coe.pvalue = Norm(Math.abs(b[j] / SE[j]));
+		 coe.hazardRatioLoCI = Math.exp(b[j] - 1.95 * SE[j]);
+		 coe.hazardRatioHiCI = Math.exp(b[j] + 1.95 * SE[j]);
+		 }
+
+		 */
+
+		coxInfo.setScoreLogrankTest(sctest);
+		coxInfo.setDegreeFreedom(beta.length);
+		coxInfo.setScoreLogrankTestpvalue(ChiSq.chiSq(coxInfo.getScoreLogrankTest(), beta.length));
+		// the variance computes the likelihood ratio test from the log likelihoods
+		coxInfo.loglikInit = loglik[0];
+		coxInfo.loglikFinal = loglik[1];
+		coxInfo.setVariance(imat);
+		coxInfo.u = u;
+
+		//     for (int n = 0; n < beta.length; n++) {
+		//         se[n] = Math.sqrt(imat[n][n]); // / sd[n];
+		//     }
+
+
+		//       System.out.println("coef,se, means,u");
+		for (int n = 0; n < beta.length; n++) {
+			CoxCoefficient coe = new CoxCoefficient();
+			coe.name = variables.get(n);
+			coe.mean = means[n];
+			coe.standardDeviation = sd[n];
+			coe.coeff = beta[n];
+			coe.stdError = Math.sqrt(imat[n][n]);
+			coe.hazardRatio = Math.exp(coe.getCoeff());
+			coe.z = coe.getCoeff() / coe.getStdError();
+			coe.pvalue = ChiSq.norm(Math.abs(coe.getCoeff() / coe.getStdError()));
+			double z = 1.959964;
+			coe.hazardRatioLoCI = Math.exp(coe.getCoeff() - z * coe.getStdError());
+			coe.hazardRatioHiCI = Math.exp(coe.getCoeff() + z * coe.getStdError());
+
+			coxInfo.setCoefficient(coe.getName(), coe);
+			// System.out.println(beta[n] + "," + se[n] + "," + means[n] + "," + sd[n] + "," + u[n]); //+ "," + imat[n] "," + loglik[n] + "," + sctest[n] + "," + iterations[n] + "," + flag[n]
+
+		}
+
+		coxInfo.maxIterations = maxiter;
+		coxInfo.eps = eps;
+		coxInfo.toler = toler;
+
+		coxInfo.iterations = iter;
+		coxInfo.flag = flag;
+		coxInfo.method = method;
+
+		//    System.out.println("loglik[0]=" + loglik[0]);
+		//    System.out.println("loglik[1]=" + loglik[1]);
+
+		//    System.out.println("chisq? sctest[0]=" + sctest[0]);
+		//    System.out.println("?overall model p-value=" + chiSq(sctest[0], beta.length));
+
+
+		//      System.out.println();
+		//       for (int n = 0; n < covar[0].length; n++) {
+		//           System.out.print(n);
+		//           for (int variable = 0; variable < covar.length; variable++) {
+		//               System.out.print("\t" + covar[variable][n]);
+
+		//           }
+		//           System.out.println();
+		//       }
+		//      for (SurvivalInfo si : data) {
+		//          System.out.println(si.order + " " + si.getScore());
+		//      }
+//        coxInfo.dump();
+	}
+
+	/**
+	 * The arrays of a fit. They are overwritten by each fit, so that the fits
+	 * of the same number of variables in a thread do not allocate them again.
+	 */
+	static class Workspace {
+
+		final int nvar;
+		final double[][] imat, cmat, cmat2;
+		final double[] a, newbeta, a2, scale, means, sd, u;
+		final double[] loglik = new double[2];
+		double[][] covar = new double[0][0];
+		double sctest;
+		int flag;
+		int iter;
+
+		Workspace(int nvar) {
+			this.nvar = nvar;
+			imat = new double[nvar][nvar];
+			cmat = new double[nvar][nvar];
+			cmat2 = new double[nvar][nvar];
+			a = new double[nvar];
+			newbeta = new double[nvar];
+			a2 = new double[nvar];
+			scale = new double[nvar];
+			means = new double[nvar];
+			sd = new double[nvar];
+			u = new double[nvar];
+		}
+
+		/**
+		 * @return a nvar x nused matrix for the covariates, reused if large enough
+		 */
+		double[][] getCovar(int nused) {
+			if (covar.length != nvar || (nvar > 0 && covar[0].length < nused)) {
+				covar = new double[nvar][nused];
+			}
+			return covar;
+		}
+	}
+
+	/**
+	 * Fits the model on arrays sorted by ascending time within strata. The
+	 * covariates are centered and scaled in place, the last element of
+	 * <code>strata</code> must be 1. The results are stored in the workspace
+	 * and in <code>beta</code>.
+	 */
+	void fit(Workspace workspace, int nused, double[] time, int[] status, double[] offset, double[] weights, int[] strata, double[][] covar, int maxiter, CoxMethod method, double eps, double toler, double[] beta, int doscale) {
+
+		int i, j, k, person;
+		boolean gotofinish = false;
+		double wtave;
+		double denom = 0, zbeta, risk;
+		double temp, temp2;
+		int ndead;  /* actually, the sum of their weights */
+		double newlk = 0;
+		double dtime, d2;
+		double deadwt;  /*sum of case weights for the deaths*/
+		double efronwt; /* sum of weighted risk scores for the deaths*/
+		int halving;    /*are we doing step halving at the moment? */
+		@SuppressWarnings("unused")
+		int nrisk = 0;   /* number of subjects in the current risk set */
+		double sctest;
+		int flag;
+		int iter = 0;
+
+		int nvar = workspace.nvar;
+		double[][] imat = workspace.imat;
+		double[][] cmat = workspace.cmat;
+		double[][] cmat2 = workspace.cmat2;
+		double[] a = workspace.a;
+		double[] newbeta = workspace.newbeta;
+		double[] a2 = workspace.a2;
+		double[] scale = workspace.scale;
+		double[] means = workspace.means;
+		double[] sd = workspace.sd;
+		double[] u = workspace.u;
+		double[] loglik = workspace.loglik;
+
 		double tempsd;
 		i = 0;
 		for (i = 0; i < nvar; i++) {
@@ -356,7 +601,6 @@ public class CoxR {
 		/*
 		 ** do the initial iteration step
 		 */
-		strata[nused - 1] = 1;
 		loglik[1] = 0;
 		for (i = 0; i < nvar; i++) {
 			u[i] = 0;  //u = s1
@@ -694,89 +938,9 @@ public class CoxR {
 			flag = 1000;
 		}
 
-//finish:
-		/*
-		 for (j = 0; j < numCovariates; j++) {
-		 b[j] = b[j] / SD[j];
-		 * ix = j * (numCovariates + 1) + j
-		 SE[j] = Math.sqrt(a[ix(j, j, numCovariates + 1)]) / SD[j];
-		 //            o = o + ("   " + variables.get(j) + "    " + Fmt(b[j]) + Fmt(SE[j]) + Fmt(Math.exp(b[j])) + Fmt(Norm(Math.abs(b[j] / SE[j]))) + Fmt(Math.exp(b[j] - 1.95 * SE[j])) + Fmt(Math.exp(b[j] + 1.95 * SE[j])) + NL);
-		 CoxCoefficient coe = coxInfo.getCoefficient(variables.get(j));
-		 coe.coeff = b[j];
-		 coe.stdError = SE[j];
-		 coe.hazardRatio = Math.exp(b[j]);
-		 coe.pvalue = Norm(Math.abs(b[j] / SE[j]));
-		 coe.hazardRatioLoCI = Math.exp(b[j] - 1.95 * SE[j]);
-		 coe.hazardRatioHiCI = Math.exp(b[j] + 1.95 * SE[j]);
-		 }
-
-		 */
-
-		coxInfo.setScoreLogrankTest(sctest);
-		coxInfo.setDegreeFreedom(beta.length);
-		coxInfo.setScoreLogrankTestpvalue(ChiSq.chiSq(coxInfo.getScoreLogrankTest(), beta.length));
-		coxInfo.setVariance(imat);
-		coxInfo.u = u;
-
-		//     for (int n = 0; n < beta.length; n++) {
-		//         se[n] = Math.sqrt(imat[n][n]); // / sd[n];
-		//     }
-
-
-		//       System.out.println("coef,se, means,u");
-		for (int n = 0; n < beta.length; n++) {
-			CoxCoefficient coe = new CoxCoefficient();
-			coe.name = variables.get(n);
-			coe.mean = means[n];
-			coe.standardDeviation = sd[n];
-			coe.coeff = beta[n];
-			coe.stdError = Math.sqrt(imat[n][n]);
-			coe.hazardRatio = Math.exp(coe.getCoeff());
-			coe.z = coe.getCoeff() / coe.getStdError();
-			coe.pvalue = ChiSq.norm(Math.abs(coe.getCoeff() / coe.getStdError()));
-			double z = 1.959964;
-			coe.hazardRatioLoCI = Math.exp(coe.getCoeff() - z * coe.getStdError());
-			coe.hazardRatioHiCI = Math.exp(coe.getCoeff() + z * coe.getStdError());
-
-			coxInfo.setCoefficient(coe.getName(), coe);
-			// System.out.println(beta[n] + "," + se[n] + "," + means[n] + "," + sd[n] + "," + u[n]); //+ "," + imat[n] "," + loglik[n] + "," + sctest[n] + "," + iterations[n] + "," + flag[n]
-
-		}
-
-		coxInfo.maxIterations = maxiter;
-		coxInfo.eps = eps;
-		coxInfo.toler = toler;
-
-		coxInfo.iterations = iter;
-		coxInfo.flag = flag;
-		coxInfo.loglikInit = loglik[0];
-		coxInfo.loglikFinal = loglik[1];
-		coxInfo.method = method;
-
-		//    System.out.println("loglik[0]=" + loglik[0]);
-		//    System.out.println("loglik[1]=" + loglik[1]);
-
-		//    System.out.println("chisq? sctest[0]=" + sctest[0]);
-		//    System.out.println("?overall model p-value=" + chiSq(sctest[0], beta.length));
-
-
-		//      System.out.println();
-		//       for (int n = 0; n < covar[0].length; n++) {
-		//           System.out.print(n);
-		//           for (int variable = 0; variable < covar.length; variable++) {
-		//               System.out.print("\t" + covar[variable][n]);
-
-		//           }
-		//           System.out.println();
-		//       }
-		//      for (SurvivalInfo si : data) {
-		//          System.out.println(si.order + " " + si.getScore());
-		//      }
-//        coxInfo.dump();
-
-
-		coxphfitSCleanup(coxInfo, useWeighted, robust,clusterList);
-		return coxInfo;
+		workspace.sctest = sctest;
+		workspace.flag = flag;
+		workspace.iter = iter;
 	}
 
 	/**
@@ -794,20 +958,9 @@ public class CoxR {
 		//           [a2 b2]
 		double[][] du = new double[1][ci.u.length];
 		du[0] = ci.u;
-		double[] infs = Matrix.abs(Matrix.multiply(ci.u, ci.getVariance()));
-//        StdArrayIO.print(infs);
-
+		checkConvergence(ci);
 		ArrayList<CoxCoefficient> coxCoefficients = new ArrayList<>(ci.getCoefficientsList().values());
 
-		for (int i = 0; i < infs.length; i++) {
-			double inf = infs[i];
-			double coe = coxCoefficients.get(i).getCoeff();
-			if (inf > ci.eps && inf > (ci.toler * Math.abs(coe))) {
-				ci.message = "Loglik converged before variable ";
-				break;
-			}
-		}
-
 		//sum(coef*coxfit$means)
 		double sumcoefmeans = 0;
 		for (CoxCoefficient cc : coxCoefficients) {
@@ -927,6 +1080,22 @@ public class CoxR {
 
 
 
+	}
+
+	private static void checkConvergence(CoxInfo ci) {
+		double[] infs = Matrix.abs(Matrix.multiply(ci.u, ci.getVariance()));
+//        StdArrayIO.print(infs);
+
+		ArrayList<CoxCoefficient> coxCoefficients = new ArrayList<>(ci.getCoefficientsList().values());
+
+		for (int i = 0; i < infs.length; i++) {
+			double inf = infs[i];
+			double coe = coxCoefficients.get(i).getCoeff();
+			if (inf > ci.eps && inf > (ci.toler * Math.abs(coe))) {
+				ci.message = "Loglik converged before variable ";
+				break;
+			}
+		}
 	}
 
 	static public void calculateWaldTestInfo(CoxInfo ci){
@@ -0,0 +1,175 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.survival.cox;
+
+import org.biojava.nbio.survival.cox.stats.ChiSq;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Fits a univariate Cox model for each of many variables, for example to
+ * screen gene expression values against survival.
+ * <p>
+ * The samples are sorted and the time, status, weight and strata arrays are
+ * built once and shared by all the fits. The variables are fitted in parallel
+ * and each thread reuses the matrices of the fit, including the ones the
+ * Cholesky decomposition works on. Only the summary of each model is kept:
+ * the coefficient, the variance, the score, likelihood ratio and Wald tests.
+ * The linear predictors and residuals of the samples are not computed.
+ *
+ * @since 5.3.1
+ */
+public class CoxScreening {
+
+	//from coxph.control.S
+	private static final int MAXITER = 20;
+	private static final double EPS = 1e-9;
+	private static final double TOLER = Math.pow(EPS, .75);
+
+	private final CoxR coxr = new CoxR();
+	private final int nused;
+	private final double[] time;
+	private final int[] status;
+	private final double[] offset;
+	private final double[] weights;
+	private final int[] strata;
+	private final ArrayList<SurvivalInfo> data;
+
+	private final ThreadLocal<CoxR.Workspace> workspaces = ThreadLocal.withInitial(() -> new CoxR.Workspace(1));
+
+	/**
+	 * Sorts the samples and prepares the arrays shared by the fits.
+	 *
+	 * @param data the samples, categorical values are converted to numbers as in {@link CoxR}
+	 * @param useStrata
+	 * @param useWeighted
+	 */
+	public CoxScreening(ArrayList<SurvivalInfo> data, boolean useStrata, boolean useWeighted) {
+		SurvivalInfoHelper.categorizeData(data);
+		this.data = new ArrayList<>(data);
+		Collections.sort(this.data);
+
+		nused = this.data.size();
+		time = new double[nused];
+		status = new int[nused];
+		offset = new double[nused];
+		weights = new double[nused];
+		strata = new int[nused];
+		for (int person = 0; person < nused; person++) {
+			SurvivalInfo si = this.data.get(person);
+			time[person] = si.getTime();
+			status[person] = si.getStatus();
+			offset[person] = si.getOffset();
+			weights[person] = useWeighted ? si.getWeight() : 1.0;
+			strata[person] = useStrata ? si.getStrata() : 0;
+		}
+		if (nused > 0) {
+			strata[nused - 1] = 1;
+		}
+	}
+
+	/**
+	 * Fits one model per variable in parallel.
+	 *
+	 * @param variables the variables, <code>a:b</code> tests the interaction of two variables
+	 * @return the models by variable, ordered by increasing likelihood ratio
+	 * test p-value
+	 */
+	public LinkedHashMap<String, CoxInfo> process(List<String> variables) {
+		for (String variable : variables) {
+			if (variable.contains(":")) {
+				String[] d = variable.split(":");
+				SurvivalInfoHelper.addInteraction(d[0], d[1], data);
+			}
+		}
+
+		List<CoxInfo> models = variables.parallelStream().map(this::fit).collect(Collectors.toList());
+
+		List<Integer> order = new ArrayList<>(variables.size());
+		for (int i = 0; i < variables.size(); i++) {
+			order.add(i);
+		}
+		order.sort(Comparator.comparingDouble(i -> models.get(i).getLikelihoodRatioTestpvalue()));
+
+		LinkedHashMap<String, CoxInfo> result = new LinkedHashMap<>();
+		for (int i : order) {
+			result.put(variables.get(i), models.get(i));
+		}
+		return result;
+	}
+
+	/**
+	 * Fits the model of a single variable with the workspace of this thread.
+	 *
+	 * @param variable
+	 * @return the summary of the model
+	 */
+	public CoxInfo fit(String variable) {
+		CoxR.Workspace workspace = workspaces.get();
+		double[][] covar = workspace.getCovar(nused);
+		for (int person = 0; person < nused; person++) {
+			covar[0][person] = data.get(person).getVariable(variable);
+		}
+
+		double[] beta = new double[1];
+		coxr.fit(workspace, nused, time, status, offset, weights, strata, covar, MAXITER, CoxMethod.Efron, EPS, TOLER, beta, 1);
+
+		CoxInfo coxInfo = new CoxInfo();
+		coxInfo.numSamples = nused;
+		for (int s : status) {
+			if (s == 1) {
+				coxInfo.numEvents++;
+			}
+		}
+
+		CoxCoefficient coe = new CoxCoefficient();
+		coe.name = variable;
+		coe.mean = workspace.means[0];
+		coe.standardDeviation = workspace.sd[0];
+		coe.coeff = beta[0];
+		coe.hazardRatio = Math.exp(beta[0]);
+		coxInfo.setCoefficient(variable, coe);
+
+		coxInfo.maxIterations = MAXITER;
+		coxInfo.eps = EPS;
+		coxInfo.toler = TOLER;
+		coxInfo.iterations = workspace.iter;
+		coxInfo.flag = workspace.flag;
+		coxInfo.loglikInit = workspace.loglik[0];
+		coxInfo.loglikFinal = workspace.loglik[1];
+		coxInfo.method = CoxMethod.Efron;
+		coxInfo.u = workspace.u.clone();
+
+		coxInfo.setScoreLogrankTest(workspace.sctest);
+		coxInfo.setDegreeFreedom(1);
+		coxInfo.setScoreLogrankTestpvalue(ChiSq.chiSq(workspace.sctest, 1));
+		// the variance computes the standard error, z, p-value and the
+		// likelihood ratio test from the values above
+		coxInfo.setVariance(workspace.imat);
+		CoxR.calculateWaldTestInfo(coxInfo);
+		return coxInfo;
+	}
+}
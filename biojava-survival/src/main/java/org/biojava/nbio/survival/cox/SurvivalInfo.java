@@ -163,6 +163,20 @@ public class SurvivalInfo implements Comparable<SurvivalInfo> {
 		data.put(variable, value);
 	}
 
+	/**
+	 * Add a variable which has already been converted to a number, keeping
+	 * the original value as meta data.
+	 *
+	 * @param variable
+	 * @param originalValue
+	 * @param value
+	 * @since 5.3.1
+	 */
+	public void addContinuousVariable(String variable, String originalValue, Double value) {
+		originalMetaData.put(variable, originalValue);
+		data.put(variable, value);
+	}
+
 	/**
 	 *
 	 * @param variable
@@ -0,0 +1,665 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.survival.data;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * A read only table of typed columns, as an alternative to {@link WorkSheet}
+ * for survival data. Each column is stored once as a primitive array: numeric
+ * columns as <code>double[]</code> or <code>int[]</code> and the other columns
+ * as dictionary codes, so the values are parsed once when the table is loaded
+ * and not on every access.
+ *
+ * <p>As in {@link WorkSheet}, the first column of the file is the unique
+ * index of the rows. Empty cells are missing values, <code>NaN</code> in the
+ * numeric columns, which stay numeric. The cells of a numeric column are
+ * parsed as they are read and are not dictionary encoded. Their text is only
+ * kept where it differs from the default formatting of the number, e.g.
+ * <code>1.50</code>, so that {@link #getString(int, String)} returns the
+ * text of the file.</p>
+ *
+ * <p>{@link #subset(int[])} returns a view of some of the rows which shares
+ * the columns of this table.</p>
+ *
+ * @since 5.3.1
+ */
+public class ColumnTable {
+
+	private final String indexColumnName;
+	private final String[] rowNames;
+	private final LinkedHashMap<String, Column> columns;
+	/** the rows of the view in the columns, or null for all the rows */
+	private final int[] rows;
+	private Map<String, Integer> rowLookup;
+
+	private ColumnTable(String indexColumnName, String[] rowNames, LinkedHashMap<String, Column> columns, int[] rows) {
+		this.indexColumnName = indexColumnName;
+		this.rowNames = rowNames;
+		this.columns = columns;
+		this.rows = rows;
+	}
+
+	/**
+	 * Read a CSV/Tab delimited file where you pass in the delimiter
+	 *
+	 * @param fileName
+	 * @param delimiter
+	 * @return
+	 * @throws Exception
+	 */
+	static public ColumnTable readCSV(String fileName, char delimiter) throws Exception {
+		return readCSV(new File(fileName), delimiter);
+	}
+
+	static public ColumnTable readCSV(File f, char delimiter) throws Exception {
+		try (InputStream is = new FileInputStream(f)) {
+			return readCSV(is, delimiter);
+		}
+	}
+
+	/**
+	 * Read a CSV/Tab delimited stream where you pass in the delimiter. The
+	 * lines are split and encoded one at a time, only the column codes are
+	 * kept in memory.
+	 *
+	 * @param is
+	 * @param delimiter
+	 * @return
+	 * @throws Exception
+	 */
+	static public ColumnTable readCSV(InputStream is, char delimiter) throws Exception {
+		BufferedReader br = new BufferedReader(new InputStreamReader(is));
+		String line = br.readLine();
+		if (line == null) {
+			throw new Exception("Empty file");
+		}
+		String[] header = splitHeader(line, delimiter);
+		String[] cells = new String[header.length];
+		ColumnBuilder[] builders = new ColumnBuilder[header.length - 1];
+		for (int j = 0; j < builders.length; j++) {
+			builders[j] = new ColumnBuilder();
+		}
+		ArrayList<String> rowNames = new ArrayList<>();
+
+		while ((line = br.readLine()) != null) {
+			split(line, delimiter, cells);
+			rowNames.add(cells[0]);
+			for (int j = 0; j < builders.length; j++) {
+				builders[j].add(cells[j + 1]);
+			}
+		}
+
+		LinkedHashMap<String, Column> columns = new LinkedHashMap<>();
+		for (int j = 0; j < builders.length; j++) {
+			columns.put(header[j + 1], builders[j].build());
+		}
+		return new ColumnTable(header[0], rowNames.toArray(new String[rowNames.size()]), columns, null);
+	}
+
+	/**
+	 * Convert the visible rows and columns of a worksheet.
+	 *
+	 * @param worksheet
+	 * @return
+	 * @throws Exception
+	 */
+	static public ColumnTable fromWorkSheet(WorkSheet worksheet) throws Exception {
+		ArrayList<String> rowNames = worksheet.getRows();
+		LinkedHashMap<String, Column> columns = new LinkedHashMap<>();
+		for (String column : worksheet.getColumns()) {
+			ColumnBuilder builder = new ColumnBuilder();
+			for (String row : rowNames) {
+				builder.add(worksheet.getCell(row, column));
+			}
+			columns.put(column, builder.build());
+		}
+		return new ColumnTable(worksheet.getIndexColumnName(), rowNames.toArray(new String[rowNames.size()]), columns, null);
+	}
+
+	/**
+	 * Splits a line in the given cells, the missing cells are empty and the
+	 * extra ones ignored. Quotes around a cell are removed.
+	 */
+	private static void split(String line, char delimiter, String[] cells) {
+		int start = 0;
+		for (int j = 0; j < cells.length; j++) {
+			if (start > line.length()) {
+				cells[j] = "";
+				continue;
+			}
+			int end = line.indexOf(delimiter, start);
+			if (end < 0) {
+				end = line.length();
+			}
+			cells[j] = unquote(line.substring(start, end));
+			start = end + 1;
+		}
+	}
+
+	/**
+	 * Splits the header line, without the trailing empty cells like
+	 * {@link String#split(String)}.
+	 */
+	private static String[] splitHeader(String line, char delimiter) {
+		ArrayList<String> cells = new ArrayList<>();
+		int start = 0;
+		while (start <= line.length()) {
+			int end = line.indexOf(delimiter, start);
+			if (end < 0) {
+				end = line.length();
+			}
+			cells.add(unquote(line.substring(start, end)));
+			start = end + 1;
+		}
+		while (cells.size() > 1 && line.length() > 0 && cells.get(cells.size() - 1).isEmpty()) {
+			cells.remove(cells.size() - 1);
+		}
+		return cells.toArray(new String[cells.size()]);
+	}
+
+	private static String unquote(String cell) {
+		if (cell.length() > 1 && cell.charAt(0) == '"') {
+			return cell.length() > 2 ? cell.substring(1, cell.length() - 1) : "";
+		}
+		return cell;
+	}
+
+	/**
+	 * A view of some rows of this table. No values are copied.
+	 *
+	 * @param subset the indices of the rows in this table
+	 * @return
+	 */
+	public ColumnTable subset(int[] subset) {
+		int[] mapped = new int[subset.length];
+		for (int i = 0; i < subset.length; i++) {
+			mapped[i] = physicalRow(subset[i]);
+		}
+		return new ColumnTable(indexColumnName, rowNames, columns, mapped);
+	}
+
+	/**
+	 * A view of some rows of this table. No values are copied.
+	 *
+	 * @param subset the names of the rows
+	 * @return
+	 * @throws Exception if a row is not part of this table
+	 */
+	public ColumnTable subset(Collection<String> subset) throws Exception {
+		int[] indices = new int[subset.size()];
+		int i = 0;
+		for (String row : subset) {
+			indices[i++] = getRowIndex(row);
+		}
+		return subset(indices);
+	}
+
+	private int physicalRow(int row) {
+		return rows == null ? row : rows[row];
+	}
+
+	/**
+	 *
+	 * @return the name of the first column of the file
+	 */
+	public String getIndexColumnName() {
+		return indexColumnName;
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	public int getRowCount() {
+		return rows == null ? rowNames.length : rows.length;
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	public int getColumnCount() {
+		return columns.size();
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	public ArrayList<String> getColumns() {
+		return new ArrayList<>(columns.keySet());
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	public ArrayList<String> getRows() {
+		ArrayList<String> names = new ArrayList<>(getRowCount());
+		for (int i = 0; i < getRowCount(); i++) {
+			names.add(getRowName(i));
+		}
+		return names;
+	}
+
+	/**
+	 *
+	 * @param row
+	 * @return
+	 */
+	public String getRowName(int row) {
+		return rowNames[physicalRow(row)];
+	}
+
+	/**
+	 *
+	 * @param row
+	 * @return the index of the row in this table
+	 * @throws Exception
+	 */
+	public int getRowIndex(String row) throws Exception {
+		if (rowLookup == null) {
+			Map<String, Integer> lookup = new HashMap<>();
+			for (int i = getRowCount() - 1; i >= 0; i--) {
+				lookup.put(getRowName(i), i);
+			}
+			rowLookup = lookup;
+		}
+		Integer index = rowLookup.get(row);
+		if (index == null) {
+			throw new Exception("Row " + row + " not found in table");
+		}
+		return index;
+	}
+
+	/**
+	 *
+	 * @param column
+	 * @return
+	 */
+	public boolean isValidColumn(String column) {
+		return columns.containsKey(column);
+	}
+
+	/**
+	 *
+	 * @param column
+	 * @return
+	 * @throws Exception
+	 */
+	public Column getColumn(String column) throws Exception {
+		Column c = columns.get(column);
+		if (c == null) {
+			throw new Exception("Column " + column + " not found in table");
+		}
+		return c;
+	}
+
+	/**
+	 *
+	 * @param row
+	 * @param column
+	 * @return the value, NaN if it is missing or not numeric
+	 * @throws Exception
+	 */
+	public double getDouble(int row, String column) throws Exception {
+		return getColumn(column).getDouble(physicalRow(row));
+	}
+
+	/**
+	 *
+	 * @param row
+	 * @param column
+	 * @return the value, empty if it is missing
+	 * @throws Exception
+	 */
+	public String getString(int row, String column) throws Exception {
+		if (column.equals(indexColumnName)) {
+			return getRowName(row);
+		}
+		return getColumn(column).getString(physicalRow(row));
+	}
+
+	/**
+	 *
+	 * @param row
+	 * @param column
+	 * @return
+	 * @throws Exception
+	 */
+	public boolean isMissing(int row, String column) throws Exception {
+		return getColumn(column).isMissing(physicalRow(row));
+	}
+
+	/**
+	 *
+	 * @param column
+	 * @return the values of the rows of this table, NaN if they are missing
+	 *         or not numeric
+	 * @throws Exception
+	 */
+	public double[] getDoubles(String column) throws Exception {
+		Column c = getColumn(column);
+		double[] values = new double[getRowCount()];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = c.getDouble(physicalRow(i));
+		}
+		return values;
+	}
+
+	/**
+	 * A column of the table, indexed by the rows of the file.
+	 */
+	public static abstract class Column {
+
+		/**
+		 *
+		 * @return
+		 */
+		public abstract int size();
+
+		/**
+		 *
+		 * @param row
+		 * @return the value, NaN if it is missing or not numeric
+		 */
+		public abstract double getDouble(int row);
+
+		/**
+		 *
+		 * @param row
+		 * @return the value, empty if it is missing
+		 */
+		public abstract String getString(int row);
+
+		/**
+		 *
+		 * @param row
+		 * @return
+		 */
+		public abstract boolean isMissing(int row);
+
+		/**
+		 *
+		 * @return true for the numeric columns
+		 */
+		public abstract boolean isNumeric();
+	}
+
+	/**
+	 * A numeric column stored as <code>double[]</code>.
+	 */
+	public static class DoubleColumn extends Column {
+
+		private final double[] values;
+		private final Map<Integer, String> text;
+
+		DoubleColumn(double[] values, Map<Integer, String> text) {
+			this.values = values;
+			this.text = text;
+		}
+
+		@Override
+		public int size() {
+			return values.length;
+		}
+
+		@Override
+		public double getDouble(int row) {
+			return values[row];
+		}
+
+		@Override
+		public String getString(int row) {
+			String s = text.get(row);
+			return s != null ? s : format(values[row]);
+		}
+
+		@Override
+		public boolean isMissing(int row) {
+			return Double.isNaN(values[row]);
+		}
+
+		@Override
+		public boolean isNumeric() {
+			return true;
+		}
+	}
+
+	/**
+	 * A numeric column of integers stored as <code>int[]</code>.
+	 */
+	public static class IntegerColumn extends Column {
+
+		/** the missing values */
+		static final int MISSING = Integer.MIN_VALUE;
+
+		private final int[] values;
+		private final Map<Integer, String> text;
+
+		IntegerColumn(int[] values, Map<Integer, String> text) {
+			this.values = values;
+			this.text = text;
+		}
+
+		@Override
+		public int size() {
+			return values.length;
+		}
+
+		/**
+		 *
+		 * @param row
+		 * @return the value, {@link Integer#MIN_VALUE} if it is missing
+		 */
+		public int getInt(int row) {
+			return values[row];
+		}
+
+		@Override
+		public double getDouble(int row) {
+			return values[row] == MISSING ? Double.NaN : values[row];
+		}
+
+		@Override
+		public String getString(int row) {
+			String s = text.get(row);
+			if (s != null) {
+				return s;
+			}
+			return values[row] == MISSING ? "" : String.valueOf(values[row]);
+		}
+
+		@Override
+		public boolean isMissing(int row) {
+			return values[row] == MISSING;
+		}
+
+		@Override
+		public boolean isNumeric() {
+			return true;
+		}
+	}
+
+	/**
+	 * A categorical column stored as codes in a dictionary of the distinct
+	 * values.
+	 */
+	public static class CategoricalColumn extends Column {
+
+		private final int[] codes;
+		private final String[] levels;
+
+		CategoricalColumn(int[] codes, String[] levels) {
+			this.codes = codes;
+			this.levels = levels;
+		}
+
+		@Override
+		public int size() {
+			return codes.length;
+		}
+
+		/**
+		 *
+		 * @param row
+		 * @return the index of the value in {@link #getLevels()}
+		 */
+		public int getCode(int row) {
+			return codes[row];
+		}
+
+		/**
+		 *
+		 * @return the distinct values, in the order of their first occurrence
+		 */
+		public List<String> getLevels() {
+			return Collections.unmodifiableList(Arrays.asList(levels));
+		}
+
+		@Override
+		public double getDouble(int row) {
+			return Double.NaN;
+		}
+
+		@Override
+		public String getString(int row) {
+			return levels[codes[row]];
+		}
+
+		@Override
+		public boolean isMissing(int row) {
+			return levels[codes[row]].isEmpty();
+		}
+
+		@Override
+		public boolean isNumeric() {
+			return false;
+		}
+	}
+
+	/**
+	 * The default text of a numeric value: empty for NaN, without a decimal
+	 * point for the integers.
+	 */
+	private static String format(double value) {
+		if (Double.isNaN(value)) {
+			return "";
+		}
+		if (value == Math.rint(value) && value > IntegerColumn.MISSING && value <= Integer.MAX_VALUE) {
+			return String.valueOf((int) value);
+		}
+		return String.valueOf(value);
+	}
+
+	/**
+	 * Parses the values of a column while they are read. The column is
+	 * numeric until a value is not a number, then the values read so far and
+	 * the following ones are dictionary encoded instead.
+	 */
+	private static class ColumnBuilder {
+
+		private double[] values = new double[64];
+		/** the text of the cells that differs from the formatting of their value */
+		private HashMap<Integer, String> text = new HashMap<>();
+		private boolean integers = true;
+		private int size = 0;
+
+		private HashMap<String, Integer> dictionary;
+		private ArrayList<String> levels;
+		private int[] codes;
+
+		void add(String value) {
+			if (value == null) {
+				value = "";
+			}
+			if (dictionary != null) {
+				addLevel(value);
+				return;
+			}
+			double v = Double.NaN;
+			if (!value.isEmpty()) {
+				try {
+					v = Double.parseDouble(value);
+				} catch (NumberFormatException e) {
+					toCategorical();
+					addLevel(value);
+					return;
+				}
+			}
+			if (size == values.length) {
+				values = Arrays.copyOf(values, 2 * size);
+			}
+			values[size] = v;
+			if (!Double.isNaN(v) && (v != Math.rint(v) || v <= IntegerColumn.MISSING || v > Integer.MAX_VALUE)) {
+				integers = false;
+			}
+			if (!value.equals(format(v))) {
+				text.put(size, value);
+			}
+			size++;
+		}
+
+		private void toCategorical() {
+			dictionary = new HashMap<>();
+			levels = new ArrayList<>();
+			codes = new int[values.length];
+			int n = size;
+			size = 0;
+			for (int i = 0; i < n; i++) {
+				String s = text.get(i);
+				addLevel(s != null ? s : format(values[i]));
+			}
+			values = null;
+			text = null;
+		}
+
+		private void addLevel(String value) {
+			Integer code = dictionary.get(value);
+			if (code == null) {
+				code = levels.size();
+				dictionary.put(value, code);
+				levels.add(value);
+			}
+			if (size == codes.length) {
+				codes = Arrays.copyOf(codes, 2 * size);
+			}
+			codes[size++] = code;
+		}
+
+		Column build() {
+			if (dictionary != null) {
+				return new CategoricalColumn(Arrays.copyOf(codes, size), levels.toArray(new String[levels.size()]));
+			}
+			Map<Integer, String> cells = text.isEmpty() ? Collections.emptyMap() : text;
+			if (integers) {
+				int[] ints = new int[size];
+				for (int i = 0; i < size; i++) {
+					ints[i] = Double.isNaN(values[i]) ? IntegerColumn.MISSING : (int) values[i];
+				}
+				return new IntegerColumn(ints, cells);
+			}
+			return new DoubleColumn(Arrays.copyOf(values, size), cells);
+		}
+	}
+}
@@ -0,0 +1,683 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.survival.kaplanmeier.figure;
+
+import org.apache.commons.math.MathException;
+import org.apache.commons.math.distribution.NormalDistributionImpl;
+import org.biojava.nbio.survival.cox.SurvivalInfo;
+import org.biojava.nbio.survival.cox.WaldTest;
+import org.biojava.nbio.survival.cox.WaldTestInfo;
+import org.biojava.nbio.survival.cox.stats.ChiSq;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Kaplan-Meier curves and log-rank tests on primitive arrays, for the many
+ * refits needed by permutation and bootstrap resampling.
+ * <p>
+ * The samples are sorted by time once. A grouping is an <code>int</code> per
+ * sample in the order given to the constructor, with values from 0 to the
+ * number of groups - 1, a negative value excludes the sample. The resamples
+ * run in parallel, each one with a random generator seeded from the seed and
+ * the index of the resample, so that the results do not depend on the
+ * number of threads.
+ *
+ * @since 5.3.1
+ */
+public class KaplanMeierResampler {
+
+	private static final double TOLER_CHOL = 1.818989e-12;
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+	private final int n;
+	/** the sample at each sorted position */
+	private final int[] order;
+	/** the index in times of each sorted position */
+	private final int[] timeIndex;
+	private final boolean[] event;
+	private final double[] weight;
+	private final double[] times;
+
+	/**
+	 * @param time the survival or censoring time of each sample
+	 * @param status 1 for an event, 0 for censored
+	 * @param weight the weight of each sample, null for 1.0
+	 */
+	public KaplanMeierResampler(double[] time, int[] status, double[] weight) {
+		n = time.length;
+		if (status.length != n || (weight != null && weight.length != n)) {
+			throw new IllegalArgumentException("time, status and weight must have the same length");
+		}
+		order = IntStream.range(0, n).boxed()
+				.sorted((a, b) -> Double.compare(time[a], time[b]))
+				.mapToInt(Integer::intValue).toArray();
+
+		timeIndex = new int[n];
+		event = new boolean[n];
+		this.weight = new double[n];
+		double[] distinct = new double[n];
+		int ntimes = 0;
+		for (int p = 0; p < n; p++) {
+			int i = order[p];
+			if (ntimes == 0 || time[i] != distinct[ntimes - 1]) {
+				distinct[ntimes++] = time[i];
+			}
+			timeIndex[p] = ntimes - 1;
+			event[p] = status[i] == 1;
+			this.weight[p] = weight == null ? 1.0 : weight[i];
+		}
+		times = Arrays.copyOf(distinct, ntimes);
+	}
+
+	/**
+	 *
+	 * @param data
+	 * @param useWeighted
+	 * @return a resampler of the samples in the order of the list
+	 */
+	public static KaplanMeierResampler fromSurvivalInfo(List<SurvivalInfo> data, boolean useWeighted) {
+		double[] time = new double[data.size()];
+		int[] status = new int[data.size()];
+		double[] weight = useWeighted ? new double[data.size()] : null;
+		for (int i = 0; i < time.length; i++) {
+			SurvivalInfo si = data.get(i);
+			time[i] = si.getTime();
+			status[i] = si.getStatus();
+			if (useWeighted) {
+				weight[i] = si.getWeight();
+			}
+		}
+		return new KaplanMeierResampler(time, status, weight);
+	}
+
+	/**
+	 * @return the distinct times in ascending order
+	 */
+	public double[] getTimes() {
+		return times.clone();
+	}
+
+	/**
+	 * Kaplan-Meier curves with Greenwood standard errors and log confidence
+	 * intervals, as {@link SurvFitKM} with {@link SurvFitKM.ConfType#log}.
+	 *
+	 * @param group the group of each sample
+	 * @param confInt the level of the confidence intervals, e.g. 0.95
+	 * @return one curve per group
+	 */
+	public SurvivalCurve[] fit(int[] group, double confInt) {
+		int[] g = sortGroups(group);
+		int k = countGroups(g);
+		Workspace w = new Workspace(times.length, k);
+		w.count(g, null);
+		double z = normalQuantile(1 - (1 - confInt) / 2);
+
+		SurvivalCurve[] curves = new SurvivalCurve[k];
+		for (int j = 0; j < k; j++) {
+			int[] steps = w.steps(j);
+			SurvivalCurve curve = new SurvivalCurve(steps.length);
+			double nrisk = w.total(j);
+			double surv = 1.0;
+			double varlog = 0.0;
+			int s = 0;
+			for (int t = 0; t < times.length && s < steps.length; t++) {
+				double d = w.events[t * k + j];
+				if (d > 0) {
+					surv *= (nrisk - d) / nrisk;
+					// once all the samples at risk had an event the survival
+					// is 0 and the variance of its log is undefined
+					varlog = d < nrisk ? varlog + d / (nrisk * (nrisk - d)) : Double.NaN;
+				}
+				if (t == steps[s]) {
+					double se = Math.sqrt(varlog);
+					curve.time[s] = times[t];
+					curve.nrisk[s] = nrisk;
+					curve.survival[s] = surv;
+					curve.stdErr[s] = se;
+					// no log confidence interval for a survival of 0, as in SurvFitKM
+					curve.lower[s] = surv > 0 ? Math.exp(Math.log(surv) - z * se) : Double.NaN;
+					curve.upper[s] = surv > 0 ? Math.min(1.0, Math.exp(Math.log(surv) + z * se)) : Double.NaN;
+					s++;
+				}
+				nrisk -= w.removed[t * k + j];
+			}
+			curves[j] = curve;
+		}
+		return curves;
+	}
+
+	/**
+	 * Kaplan-Meier curves with percentile bootstrap confidence bands. The
+	 * samples are drawn with replacement within each group, and the standard
+	 * error is the standard deviation of the bootstrap survival.
+	 *
+	 * @param group the group of each sample
+	 * @param confInt the level of the confidence bands, e.g. 0.95
+	 * @param replicates the number of bootstrap samples
+	 * @param seed
+	 * @return one curve per group
+	 */
+	public SurvivalCurve[] bootstrap(int[] group, double confInt, int replicates, long seed) {
+		if (replicates < 1) {
+			throw new IllegalArgumentException("At least one replicate is needed");
+		}
+		int[] g = sortGroups(group);
+		int k = countGroups(g);
+		SurvivalCurve[] curves = fit(group, confInt);
+
+		// the sorted positions of each group
+		int[][] members = new int[k][];
+		int[] size = new int[k];
+		for (int p = 0; p < n; p++) {
+			if (g[p] >= 0) {
+				size[g[p]]++;
+			}
+		}
+		for (int j = 0; j < k; j++) {
+			members[j] = new int[size[j]];
+			size[j] = 0;
+		}
+		for (int p = 0; p < n; p++) {
+			if (g[p] >= 0) {
+				members[g[p]][size[g[p]]++] = p;
+			}
+		}
+
+		// survival[group][time of the curve][replicate]
+		double[][][] survival = new double[k][][];
+		for (int j = 0; j < k; j++) {
+			survival[j] = new double[curves[j].size()][replicates];
+		}
+		ThreadLocal<Workspace> workspaces = ThreadLocal.withInitial(() -> new Workspace(times.length, k));
+		IntStream.range(0, replicates).parallel().forEach(b -> {
+			Workspace w = workspaces.get();
+			SplittableRandom random = random(seed, b);
+			Arrays.fill(w.multiplier, 0.0);
+			for (int[] m : members) {
+				for (int i = 0; i < m.length; i++) {
+					w.multiplier[m[random.nextInt(m.length)]]++;
+				}
+			}
+			w.count(g, w.multiplier);
+			for (int j = 0; j < k; j++) {
+				double nrisk = w.total(j);
+				double surv = 1.0;
+				int s = 0;
+				double[][] values = survival[j];
+				for (int t = 0; t < times.length && s < values.length; t++) {
+					double d = w.events[t * k + j];
+					if (d > 0) {
+						surv *= (nrisk - d) / nrisk;
+					}
+					if (times[t] == curves[j].time[s]) {
+						values[s++][b] = surv;
+					}
+					nrisk -= w.removed[t * k + j];
+				}
+			}
+		});
+
+		double alpha = (1 - confInt) / 2;
+		for (int j = 0; j < k; j++) {
+			SurvivalCurve curve = curves[j];
+			for (int s = 0; s < curve.size(); s++) {
+				double[] values = survival[j][s];
+				Arrays.sort(values);
+				double sum = 0;
+				double sum2 = 0;
+				for (double v : values) {
+					sum += v;
+					sum2 += v * v;
+				}
+				double mean = sum / replicates;
+				curve.stdErr[s] = Math.sqrt(Math.max(0.0, sum2 / replicates - mean * mean));
+				curve.lower[s] = values[(int) Math.floor(alpha * (replicates - 1))];
+				curve.upper[s] = values[(int) Math.ceil((1 - alpha) * (replicates - 1))];
+			}
+		}
+		return curves;
+	}
+
+	/**
+	 *
+	 * @param group the group of each sample
+	 * @return the log-rank chi-square statistic
+	 */
+	public double logRank(int[] group) {
+		int[] g = sortGroups(group);
+		int k = countGroups(g);
+		Workspace w = new Workspace(times.length, k);
+		w.count(g, null);
+		return w.logRank();
+	}
+
+	/**
+	 * The log-rank test with a p-value calibrated by permuting the groups
+	 * of the samples.
+	 *
+	 * @param group the group of each sample
+	 * @param permutations
+	 * @param seed
+	 * @return
+	 */
+	public LogRankTest logRankTest(int[] group, int permutations, long seed) {
+		int[] g = sortGroups(group);
+		int k = countGroups(g);
+		Workspace observed = new Workspace(times.length, k);
+		observed.count(g, null);
+		double statistic = observed.logRank();
+
+		int[] positions = included(g);
+		int[] labels = new int[positions.length];
+		for (int i = 0; i < positions.length; i++) {
+			labels[i] = g[positions[i]];
+		}
+
+		ThreadLocal<Workspace> workspaces = ThreadLocal.withInitial(() -> new Workspace(times.length, k));
+		long count = IntStream.range(0, permutations).parallel().filter(b -> {
+			Workspace w = workspaces.get();
+			int[] shuffled = w.shuffle(labels, random(seed, b));
+			Arrays.fill(w.group, -1);
+			for (int i = 0; i < positions.length; i++) {
+				w.group[positions[i]] = shuffled[i];
+			}
+			w.count(w.group, null);
+			return w.logRank() >= statistic;
+		}).count();
+
+		return new LogRankTest(statistic, observed.df, Double.NaN, permutations, count);
+	}
+
+	/**
+	 * Searches the cutpoint of a continuous value that best separates the
+	 * survival of the samples into a low (value &lt; cutpoint) and a high
+	 * group, as the {@link org.biojava.nbio.survival.kaplanmeier.metadata.MeanQuantizer}
+	 * does with the mean. The permutation p-value compares the maximum
+	 * statistic over all cutpoints to the maximum of the permuted values,
+	 * which corrects for the search.
+	 *
+	 * @param values the value of each sample, NaN excludes the sample
+	 * @param cutpoints the candidate cutpoints
+	 * @param permutations
+	 * @param seed
+	 * @return the test of the best cutpoint
+	 */
+	public LogRankTest cutpointTest(double[] values, double[] cutpoints, int permutations, long seed) {
+		if (values.length != n) {
+			throw new IllegalArgumentException("Expected " + n + " values, got " + values.length);
+		}
+		int[] positions = new int[n];
+		int m = 0;
+		for (int p = 0; p < n; p++) {
+			if (!Double.isNaN(values[order[p]])) {
+				positions[m++] = p;
+			}
+		}
+		positions = Arrays.copyOf(positions, m);
+		double[] sorted = new double[m];
+		for (int i = 0; i < m; i++) {
+			sorted[i] = values[order[positions[i]]];
+		}
+
+		Workspace observed = new Workspace(times.length, 2);
+		int best = observed.bestCutpoint(positions, sorted, cutpoints);
+		double statistic = observed.best;
+		int[] finalPositions = positions;
+
+		ThreadLocal<Workspace> workspaces = ThreadLocal.withInitial(() -> new Workspace(times.length, 2));
+		long count = IntStream.range(0, permutations).parallel().filter(b -> {
+			Workspace w = workspaces.get();
+			double[] shuffled = w.shuffle(sorted, random(seed, b));
+			w.bestCutpoint(finalPositions, shuffled, cutpoints);
+			return w.best >= statistic;
+		}).count();
+
+		double cutpoint = best < 0 ? Double.NaN : cutpoints[best];
+		return new LogRankTest(statistic, 1, cutpoint, permutations, count);
+	}
+
+	/**
+	 * @return the groups in sorted order
+	 */
+	private int[] sortGroups(int[] group) {
+		if (group.length != n) {
+			throw new IllegalArgumentException("Expected " + n + " groups, got " + group.length);
+		}
+		int[] g = new int[n];
+		for (int p = 0; p < n; p++) {
+			g[p] = group[order[p]];
+		}
+		return g;
+	}
+
+	private static int countGroups(int[] g) {
+		int k = 0;
+		for (int j : g) {
+			k = Math.max(k, j + 1);
+		}
+		return k;
+	}
+
+	private static int[] included(int[] g) {
+		return IntStream.range(0, g.length).filter(p -> g[p] >= 0).toArray();
+	}
+
+	private static SplittableRandom random(long seed, int replicate) {
+		// a mix of the seed and the replicate, so that the streams of
+		// consecutive replicates do not overlap
+		long z = seed + (replicate + 1) * GOLDEN_GAMMA;
+		z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+		z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		return new SplittableRandom(z ^ (z >>> 33));
+	}
+
+	private static double normalQuantile(double p) {
+		try {
+			return new NormalDistributionImpl().inverseCumulativeProbability(p);
+		} catch (MathException e) {
+			throw new IllegalArgumentException("Invalid confidence level", e);
+		}
+	}
+
+	/**
+	 * The arrays of one fit, reused by the resamples of a thread.
+	 */
+	private class Workspace {
+
+		final int k;
+		/** weighted events and samples leaving the risk set, by time and group */
+		final double[] events, removed;
+		final double[] multiplier = new double[n];
+		final int[] group = new int[n];
+		final double[] atRisk, u;
+		final double[][] var;
+		int[] ibuffer = new int[0];
+		double[] dbuffer = new double[0];
+		int df;
+		double best;
+
+		Workspace(int ntimes, int k) {
+			this.k = k;
+			events = new double[ntimes * k];
+			removed = new double[ntimes * k];
+			atRisk = new double[k];
+			u = new double[Math.max(k - 1, 0)];
+			var = new double[u.length][u.length];
+		}
+
+		void count(int[] g, double[] mult) {
+			Arrays.fill(events, 0.0);
+			Arrays.fill(removed, 0.0);
+			for (int p = 0; p < n; p++) {
+				int j = g[p];
+				if (j < 0) {
+					continue;
+				}
+				double w = mult == null ? weight[p] : weight[p] * mult[p];
+				int index = timeIndex[p] * k + j;
+				removed[index] += w;
+				if (event[p]) {
+					events[index] += w;
+				}
+			}
+		}
+
+		double total(int j) {
+			double total = 0;
+			for (int t = j; t < removed.length; t += k) {
+				total += removed[t];
+			}
+			return total;
+		}
+
+		/**
+		 * @return the times of group j with samples
+		 */
+		int[] steps(int j) {
+			return IntStream.range(0, times.length).filter(t -> removed[t * k + j] > 0).toArray();
+		}
+
+		/**
+		 * The k - 1 observed minus expected events and their variance, summed
+		 * from the last time so that the risk sets grow as they go.
+		 */
+		double logRank() {
+			int m = u.length;
+			Arrays.fill(atRisk, 0.0);
+			Arrays.fill(u, 0.0);
+			for (double[] row : var) {
+				Arrays.fill(row, 0.0);
+			}
+			for (int t = times.length - 1; t >= 0; t--) {
+				double d = 0;
+				double nrisk = 0;
+				for (int j = 0; j < k; j++) {
+					atRisk[j] += removed[t * k + j];
+					d += events[t * k + j];
+					nrisk += atRisk[j];
+				}
+				if (d == 0) {
+					continue;
+				}
+				double factor = nrisk > 1 ? d * (nrisk - d) / (nrisk - 1) : 0.0;
+				for (int j = 0; j < m; j++) {
+					double fj = atRisk[j] / nrisk;
+					u[j] += events[t * k + j] - d * fj;
+					for (int l = 0; l <= j; l++) {
+						double v = factor * fj * ((j == l ? 1.0 : 0.0) - atRisk[l] / nrisk);
+						var[j][l] += v;
+						if (l != j) {
+							var[l][j] += v;
+						}
+					}
+				}
+			}
+			if (m == 0) {
+				df = 0;
+				return 0.0;
+			}
+			if (m == 1) {
+				df = 1;
+				return var[0][0] > 0 ? u[0] * u[0] / var[0][0] : 0.0;
+			}
+			double[][] copy = new double[m][];
+			for (int j = 0; j < m; j++) {
+				copy[j] = var[j].clone();
+			}
+			WaldTestInfo wti = WaldTest.process(copy, u, TOLER_CHOL);
+			df = wti.getDf();
+			return wti.getTest();
+		}
+
+		/**
+		 * Sets {@link #best} to the maximum statistic over the cutpoints.
+		 *
+		 * @return the index of the best cutpoint, -1 if none has two groups
+		 */
+		int bestCutpoint(int[] positions, double[] values, double[] cutpoints) {
+			best = 0.0;
+			int index = -1;
+			for (int c = 0; c < cutpoints.length; c++) {
+				Arrays.fill(group, -1);
+				int low = 0;
+				for (int i = 0; i < positions.length; i++) {
+					boolean isLow = values[i] < cutpoints[c];
+					group[positions[i]] = isLow ? 0 : 1;
+					if (isLow) {
+						low++;
+					}
+				}
+				if (low == 0 || low == positions.length) {
+					continue;
+				}
+				count(group, null);
+				double statistic = logRank();
+				if (index < 0 || statistic > best) {
+					best = statistic;
+					index = c;
+				}
+			}
+			return index;
+		}
+
+		int[] shuffle(int[] values, SplittableRandom random) {
+			if (ibuffer.length != values.length) {
+				ibuffer = new int[values.length];
+			}
+			System.arraycopy(values, 0, ibuffer, 0, values.length);
+			for (int i = ibuffer.length - 1; i > 0; i--) {
+				int j = random.nextInt(i + 1);
+				int tmp = ibuffer[i];
+				ibuffer[i] = ibuffer[j];
+				ibuffer[j] = tmp;
+			}
+			return ibuffer;
+		}
+
+		double[] shuffle(double[] values, SplittableRandom random) {
+			if (dbuffer.length != values.length) {
+				dbuffer = new double[values.length];
+			}
+			System.arraycopy(values, 0, dbuffer, 0, values.length);
+			for (int i = dbuffer.length - 1; i > 0; i--) {
+				int j = random.nextInt(i + 1);
+				double tmp = dbuffer[i];
+				dbuffer[i] = dbuffer[j];
+				dbuffer[j] = tmp;
+			}
+			return dbuffer;
+		}
+	}
+
+	/**
+	 * A survival curve at the times of a group with samples.
+	 */
+	public static class SurvivalCurve {
+
+		private final double[] time, nrisk, survival, stdErr, lower, upper;
+
+		SurvivalCurve(int size) {
+			time = new double[size];
+			nrisk = new double[size];
+			survival = new double[size];
+			stdErr = new double[size];
+			lower = new double[size];
+			upper = new double[size];
+		}
+
+		public int size() {
+			return time.length;
+		}
+
+		public double[] getTime() {
+			return time;
+		}
+
+		public double[] getNrisk() {
+			return nrisk;
+		}
+
+		public double[] getSurvival() {
+			return survival;
+		}
+
+		/**
+		 * @return the Greenwood standard error of the log survival, NaN once
+		 * the survival is 0, or the bootstrap standard error of the survival
+		 */
+		public double[] getStdErr() {
+			return stdErr;
+		}
+
+		public double[] getLower() {
+			return lower;
+		}
+
+		public double[] getUpper() {
+			return upper;
+		}
+	}
+
+	/**
+	 * The log-rank statistic with its chi-square and permutation p-values.
+	 */
+	public static class LogRankTest {
+
+		private final double statistic;
+		private final int df;
+		private final double cutpoint;
+		private final int permutations;
+		private final long exceeding;
+
+		LogRankTest(double statistic, int df, double cutpoint, int permutations, long exceeding) {
+			this.statistic = statistic;
+			this.df = df;
+			this.cutpoint = cutpoint;
+			this.permutations = permutations;
+			this.exceeding = exceeding;
+		}
+
+		public double getStatistic() {
+			return statistic;
+		}
+
+		public int getDf() {
+			return df;
+		}
+
+		/**
+		 * @return the p-value of the chi-square distribution, which ignores
+		 * the search for a cutpoint
+		 */
+		public double getPvalue() {
+			return df > 0 ? ChiSq.chiSq(statistic, df) : 1.0;
+		}
+
+		/**
+		 * @return the fraction of permutations, counting the observed one,
+		 * with a statistic at least as large as the observed one
+		 */
+		public double getPermutationPvalue() {
+			return (exceeding + 1.0) / (permutations + 1.0);
+		}
+
+		public int getPermutations() {
+			return permutations;
+		}
+
+		/**
+		 * @return the best cutpoint, NaN if the groups were given
+		 */
+		public double getCutpoint() {
+			return cutpoint;
+		}
+
+		@Override
+		public String toString() {
+			return "chisq=" + statistic + " df=" + df + " p-value=" + getPvalue()
+					+ " permutation p-value=" + getPermutationPvalue() + " (" + permutations + ")"
+					+ (Double.isNaN(cutpoint) ? "" : " cutpoint=" + cutpoint);
+		}
+	}
+}
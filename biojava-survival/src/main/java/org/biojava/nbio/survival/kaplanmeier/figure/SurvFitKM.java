@@ -23,6 +23,7 @@ package org.biojava.nbio.survival.kaplanmeier.figure;
 import org.biojava.nbio.survival.cox.StrataInfo;
 import org.biojava.nbio.survival.cox.SurvFitInfo;
 import org.biojava.nbio.survival.cox.SurvivalInfo;
+import org.biojava.nbio.survival.data.ColumnTable;
 import org.biojava.nbio.survival.data.WorkSheet;
 
 import javax.swing.*;
@@ -199,6 +200,61 @@ public class SurvFitKM {
 		return process(variableColumn, survivalInfoList, useWeights);
 	}
 
+	/**
+	 * The curves of the groups of a variable, read straight from the typed
+	 * columns of a table. Samples with a weight &lt;= 0 or a missing time or
+	 * status are left out.
+	 *
+	 * @param table the typed survival data, see {@link ColumnTable#readCSV(String, char)}
+	 * @param timeColumn
+	 * @param statusColumn
+	 * @param weightColumn
+	 * @param variableColumn
+	 * @param useWeights
+	 * @return
+	 * @throws Exception
+	 * @since 5.3.1
+	 */
+	public SurvFitInfo process(ColumnTable table, String timeColumn, String statusColumn, String weightColumn, String variableColumn, boolean useWeights) throws Exception {
+		double[] time = table.getDoubles(timeColumn);
+		double[] status = table.getDoubles(statusColumn);
+		double[] weight = null;
+		if (weightColumn != null && weightColumn.length() > 0) {
+			weight = table.getDoubles(weightColumn);
+		}
+
+		ArrayList<Integer> rows = new ArrayList<>(table.getRowCount());
+		for (int row = 0; row < table.getRowCount(); row++) {
+			if (!Double.isNaN(time[row]) && !Double.isNaN(status[row]) && (weight == null || weight[row] > 0)) {
+				rows.add(row);
+			}
+		}
+		// a stable sort like the one of the SurvivalInfo: by time, events first
+		rows.sort((a, b) -> {
+			int c = Double.compare(time[a], time[b]);
+			return c != 0 ? c : Integer.compare((int) status[b] == 1 ? 1 : 0, (int) status[a] == 1 ? 1 : 0);
+		});
+
+		int n = rows.size();
+		String[] sortedValue = new String[n];
+		double[] sortedTime = new double[n];
+		int[] sortedStatus = new int[n];
+		double[] sortedWeight = new double[n];
+		for (int i = 0; i < n; i++) {
+			int row = rows.get(i);
+			sortedValue[i] = table.getString(row, variableColumn);
+			sortedTime[i] = time[row];
+			sortedStatus[i] = (int) status[row];
+			sortedWeight[i] = weight == null ? 1.0 : weight[row];
+		}
+
+		SurvFitInfo si = new SurvFitInfo();
+		si.setStrataInfoHashMap(processStrataInfo(sortedValue, sortedTime, sortedStatus, sortedWeight, Method.kaplanMeier, Error.greenwood, true, .95, ConfType.log, ConfLower.usual, useWeights));
+		si.setUnweightedStrataInfoHashMap(processStrataInfo(sortedValue, sortedTime, sortedStatus, sortedWeight, Method.kaplanMeier, Error.greenwood, true, .95, ConfType.log, ConfLower.usual, false));
+		si.setWeighted(useWeights);
+		return si;
+	}
+
 	/**
 	 *
 	 * @param variable
@@ -223,21 +279,32 @@ public class SurvFitKM {
 		}
 		int n = dataT.size();
 
+		String[] value = new String[n];
+		double[] time = new double[n];
+		int[] status = new int[n];
+		double[] weight = new double[n];
+		for (int i = 0; i < n; i++) {
+			SurvivalInfo si = dataT.get(i);
+			value[i] = si.getUnknownDataTypeVariable(variable);
+			time[i] = si.getTime();
+			status[i] = si.getStatus();
+			weight[i] = si.getWeight();
+		}
+		return processStrataInfo(value, time, status, weight, method, error, seFit, confInt, confType, confLower, useWeighted);
+	}
 
-		LinkedHashMap<String, Integer> levels = new LinkedHashMap<>();
-		LinkedHashMap<String, ArrayList<SurvivalInfo>> strataHashMap = new LinkedHashMap<>();
+	/**
+	 * The curves of the samples sorted as {@link SurvivalInfo#compareTo(SurvivalInfo)},
+	 * by time with the events first.
+	 */
+	private LinkedHashMap<String, StrataInfo> processStrataInfo(String[] value, double[] time, int[] status, double[] weight, SurvFitKM.Method method, SurvFitKM.Error error, boolean seFit, double confInt, ConfType confType, ConfLower confLower, boolean useWeighted) throws Exception {
+		int n = time.length;
+
+		LinkedHashMap<String, ArrayList<Integer>> strataHashMap = new LinkedHashMap<>();
 
 		for (int i = 0; i < n; i++) {
-			SurvivalInfo si = dataT.get(i);
-			String value = si.getUnknownDataTypeVariable(variable);
-			Integer count = levels.get(value);
-			if (count == null) {
-				count = 0;
-			}
-			count++;
-			levels.put(value, count);
-			ArrayList<SurvivalInfo> strataList = strataHashMap.computeIfAbsent(value, k -> new ArrayList<>());
-			strataList.add(si);
+			ArrayList<Integer> strataList = strataHashMap.computeIfAbsent(value[i], k -> new ArrayList<>());
+			strataList.add(i);
 
 		}
 
@@ -245,23 +312,23 @@ public class SurvFitKM {
 
 		LinkedHashMap<String, StrataInfo> strataInfoHashMap = new LinkedHashMap<>();
 
-		for (Map.Entry<String, ArrayList<SurvivalInfo>> entry : strataHashMap.entrySet()) {
+		for (Map.Entry<String, ArrayList<Integer>> entry : strataHashMap.entrySet()) {
 
-			ArrayList<SurvivalInfo> strataList = entry.getValue();
+			ArrayList<Integer> strataList = entry.getValue();
 			StrataInfo strataInfo = new StrataInfo();
 			strataInfoHashMap.put(entry.getKey(), strataInfo);
 
 
 			Double previousTime = null;
-			for (SurvivalInfo si : strataList) {
+			for (int sample : strataList) {
 				double w = 1.0;
 				if (useWeighted) {
-					w = si.getWeight();
+					w = weight[sample];
 				}
 
-				if (previousTime == null || si.getTime() != previousTime) {
-					strataInfo.getTime().add(si.getTime());
-					if (si.getStatus() == 0) {
+				if (previousTime == null || time[sample] != previousTime) {
+					strataInfo.getTime().add(time[sample]);
+					if (status[sample] == 0) {
 						strataInfo.getStatus().add(0);
 						strataInfo.getNcens().add(w);
 						strataInfo.getNevent().add(0.0);
@@ -276,7 +343,7 @@ public class SurvFitKM {
 				} else {
 					//we have the same time so add to previous entry
 					int index = strataInfo.getTime().size() - 1;
-					if (si.getStatus() == 0) {
+					if (status[sample] == 0) {
 						double nw = strataInfo.getNcens().get(index) + w;
 						strataInfo.getNcens().remove(index);
 						strataInfo.getNcens().add(nw);
@@ -292,19 +359,19 @@ public class SurvFitKM {
 					strataInfo.getWeight().remove(index);
 					strataInfo.getWeight().add(nw);
 				}
-				previousTime = si.getTime();
+				previousTime = time[sample];
 				//  strataInfo.status.add(si.status);
 
 
 
-				Integer ndead = strataInfo.getNdead().get(si.getTime());
+				Integer ndead = strataInfo.getNdead().get(time[sample]);
 				if (ndead == null) {
 					ndead = 0;
 				}
-				if (si.getStatus() == 1) {
+				if (status[sample] == 1) {
 					ndead++;
 				}
-				strataInfo.getNdead().put(si.getTime(), ndead);
+				strataInfo.getNdead().put(time[sample], ndead);
 
 			}
 
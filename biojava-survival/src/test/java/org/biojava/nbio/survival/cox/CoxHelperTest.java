@@ -0,0 +1,112 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.survival.cox;
+
+import org.biojava.nbio.survival.data.ColumnTable;
+import org.biojava.nbio.survival.data.WorkSheet;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares the cox regression of a {@link ColumnTable} with the one of a
+ * {@link WorkSheet}.
+ */
+public class CoxHelperTest {
+
+	private static final double DELTA = 1e-9;
+
+	private static InputStream getUis() {
+		return CoxHelperTest.class.getClassLoader().getResourceAsStream("uis-complete.txt");
+	}
+
+	static void assertSameModel(CoxInfo expected, CoxInfo actual) {
+		assertEquals(expected.getCoefficientsList().keySet(), actual.getCoefficientsList().keySet());
+		for (String name : expected.getCoefficientsList().keySet()) {
+			CoxCoefficient e = expected.getCoefficient(name);
+			CoxCoefficient a = actual.getCoefficient(name);
+			assertFalse(name, Double.isNaN(a.getStdError()));
+			assertEquals(name, e.getCoeff(), a.getCoeff(), DELTA);
+			assertEquals(name, e.getStdError(), a.getStdError(), DELTA);
+		}
+		assertEquals(expected.getLikelihoodRatioTest(), actual.getLikelihoodRatioTest(), DELTA);
+		assertEquals(expected.getLikelihoodRatioTestpvalue(), actual.getLikelihoodRatioTestpvalue(), DELTA);
+		assertEquals(expected.getScoreLogrankTest(), actual.getScoreLogrankTest(), DELTA);
+	}
+
+	@Test
+	public void testSameAsWorkSheet() throws Exception {
+		WorkSheet worksheet = WorkSheet.readCSV(getUis(), '\t');
+		ColumnTable table = ColumnTable.readCSV(getUis(), '\t');
+
+		// HERCOC is categorical, with "." for the unknown values
+		ArrayList<String> variables = new ArrayList<>(Arrays.asList("AGE", "TREAT", "HERCOC", "AGE:TREAT"));
+		CoxInfo expected = CoxHelper.process(worksheet, "TIME", "CENSOR", null, null, null, new ArrayList<>(variables), false, false);
+		CoxInfo actual = CoxHelper.process(table, "TIME", "CENSOR", null, null, null, new ArrayList<>(variables), false, false);
+		assertSameModel(expected, actual);
+		assertEquals(expected.numSamples, actual.numSamples);
+		assertEquals(expected.numEvents, actual.numEvents);
+
+		variables = new ArrayList<>(Arrays.asList("AGE", "TREAT"));
+		expected = CoxHelper.process(worksheet, "TIME", "CENSOR", null, "SITE", null, new ArrayList<>(variables), true, false);
+		actual = CoxHelper.process(table, "TIME", "CENSOR", null, "SITE", null, new ArrayList<>(variables), true, false);
+		assertSameModel(expected, actual);
+
+		// the robust variance uses the samples of the table
+		expected = CoxHelper.process(worksheet, "TIME", "CENSOR", null, null, "SITE", new ArrayList<>(variables), false, false);
+		actual = CoxHelper.process(table, "TIME", "CENSOR", null, null, "SITE", new ArrayList<>(variables), false, false);
+		assertSameModel(expected, actual);
+		assertEquals(expected.getCoefficient("AGE").getRobustStdError(), actual.getCoefficient("AGE").getRobustStdError(), DELTA);
+	}
+
+	@Test
+	public void testMissingValues() throws Exception {
+		String csv = "ID\tTIME\tSTATUS\tX\n"
+				+ "1\t5\t1\t1.5\n"
+				+ "2\t8\t0\t\n"
+				+ "3\t3\t1\t10\n"
+				+ "4\t9\t1\t2.5\n"
+				+ "5\t12\t0\t0.5\n"
+				+ "6\t2\t1\t9\n"
+				+ "7\t7\t1\t3\n";
+		ColumnTable table = ColumnTable.readCSV(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), '\t');
+		ArrayList<String> variables = new ArrayList<>(Arrays.asList("X"));
+		CoxInfo withMissing = CoxHelper.process(table, "TIME", "STATUS", null, null, null, variables, false, false);
+
+		// the sample with a missing value is left out and X stays numeric
+		ColumnTable complete = table.subset(new int[] {0, 2, 3, 4, 5, 6});
+		CoxInfo expected = CoxHelper.process(complete, "TIME", "STATUS", null, null, null, variables, false, false);
+		assertSameModel(expected, withMissing);
+		assertEquals(6, withMissing.numSamples);
+	}
+
+	@Test(expected = Exception.class)
+	public void testUnknownColumn() throws Exception {
+		ColumnTable table = ColumnTable.readCSV(getUis(), '\t');
+		CoxHelper.process(table, "TIME", "CENSOR", null, null, null, new ArrayList<>(Arrays.asList("UNKNOWN")), false, false);
+	}
+}
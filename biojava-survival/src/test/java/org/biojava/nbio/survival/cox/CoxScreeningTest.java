@@ -0,0 +1,93 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.survival.cox;
+
+import org.biojava.nbio.survival.data.WorkSheet;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares the univariate models of {@link CoxScreening} with the ones of
+ * {@link CoxR#process(ArrayList, ArrayList, boolean, boolean, boolean, boolean)}.
+ */
+public class CoxScreeningTest {
+
+	private static final double DELTA = 1e-9;
+
+	private static ArrayList<SurvivalInfo> getSamples(WorkSheet worksheet, List<String> variables) throws Exception {
+		ArrayList<SurvivalInfo> samples = new ArrayList<>();
+		int i = 1;
+		for (String row : worksheet.getRows()) {
+			SurvivalInfo si = new SurvivalInfo(worksheet.getCellDouble(row, "TIME"), worksheet.getCellDouble(row, "CENSOR").intValue());
+			si.setOrder(i++);
+			si.setStrata(worksheet.getCellDouble(row, "SITE").intValue());
+			for (String variable : variables) {
+				if (!variable.contains(":")) {
+					si.addUnknownDataTypeVariable(variable, worksheet.getCell(row, variable));
+				}
+			}
+			samples.add(si);
+		}
+		return samples;
+	}
+
+	@Test
+	public void testSameAsCoxR() throws Exception {
+		WorkSheet worksheet = WorkSheet.readCSV(getClass().getClassLoader().getResourceAsStream("uis-complete.txt"), '\t');
+		List<String> variables = Arrays.asList("AGE", "TREAT", "NDRUGTX", "LOS", "HERCOC", "AGE:TREAT");
+
+		for (boolean useStrata : new boolean[] {false, true}) {
+			CoxScreening screening = new CoxScreening(getSamples(worksheet, variables), useStrata, false);
+			LinkedHashMap<String, CoxInfo> models = screening.process(variables);
+			assertEquals(variables.size(), models.size());
+
+			double previous = 0.0;
+			for (CoxInfo model : models.values()) {
+				assertTrue(model.getLikelihoodRatioTestpvalue() >= previous);
+				previous = model.getLikelihoodRatioTestpvalue();
+			}
+
+			for (String variable : variables) {
+				CoxInfo expected = new CoxR().process(new ArrayList<>(Arrays.asList(variable)), getSamples(worksheet, variables), useStrata, false, false, false);
+				CoxInfo actual = models.get(variable);
+				CoxCoefficient e = expected.getCoefficient(variable);
+				CoxCoefficient a = actual.getCoefficient(variable);
+				assertFalse(variable, Double.isNaN(a.getStdError()));
+				assertEquals(variable, e.getCoeff(), a.getCoeff(), DELTA);
+				assertEquals(variable, e.getStdError(), a.getStdError(), DELTA);
+				assertTrue(variable, expected.getLikelihoodRatioTest() > 0);
+				assertEquals(variable, expected.getLikelihoodRatioTestpvalue(), actual.getLikelihoodRatioTestpvalue(), DELTA);
+				assertEquals(variable, expected.getScoreLogrankTest(), actual.getScoreLogrankTest(), DELTA);
+				assertEquals(variable, expected.getWaldTestInfo().getTest(), actual.getWaldTestInfo().getTest(), DELTA);
+			}
+
+			// a single fit with the workspace of this thread
+			CoxInfo again = screening.fit("AGE");
+			assertEquals(models.get("AGE").getCoefficient("AGE").getCoeff(), again.getCoefficient("AGE").getCoeff(), 0.0);
+		}
+	}
+}
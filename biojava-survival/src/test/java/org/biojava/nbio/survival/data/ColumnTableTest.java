@@ -0,0 +1,118 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.survival.data;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link ColumnTable}.
+ */
+public class ColumnTableTest {
+
+	private static InputStream getUis() {
+		return ColumnTableTest.class.getClassLoader().getResourceAsStream("uis-complete.txt");
+	}
+
+	@Test
+	public void testSameAsWorkSheet() throws Exception {
+		WorkSheet worksheet = WorkSheet.readCSV(getUis(), '\t');
+		ColumnTable table = ColumnTable.readCSV(getUis(), '\t');
+
+		assertEquals(worksheet.getIndexColumnName(), table.getIndexColumnName());
+		assertEquals(worksheet.getRows(), table.getRows());
+		assertEquals(worksheet.getColumns(), table.getColumns());
+
+		for (String column : table.getColumns()) {
+			boolean numeric = table.getColumn(column).isNumeric();
+			for (int row = 0; row < table.getRowCount(); row++) {
+				String name = table.getRowName(row);
+				assertEquals(worksheet.getCell(name, column), table.getString(row, column));
+				Double value = worksheet.getCellDouble(name, column);
+				if (numeric) {
+					assertEquals(value, table.getDouble(row, column), 0.0);
+				} else {
+					assertTrue(Double.isNaN(table.getDouble(row, column)));
+				}
+			}
+		}
+		// the columns with "." are not numeric
+		assertTrue(table.getColumn("AGE").isNumeric());
+		assertFalse(table.getColumn("HERCOC").isNumeric());
+	}
+
+	@Test
+	public void testMissingValues() throws Exception {
+		String csv = "ID\tTIME\tSTATUS\tGROUP\n"
+				+ "a\t1.50\t1\tx\n"
+				+ "b\t\t0\t\n"
+				+ "c\t10\t\ty\n"
+				+ "d\t2.25\t1\tx\n";
+		ColumnTable table = ColumnTable.readCSV(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), '\t');
+
+		// a missing value does not turn a numeric column into a categorical one
+		assertTrue(table.getColumn("TIME").isNumeric());
+		assertTrue(table.getColumn("TIME") instanceof ColumnTable.DoubleColumn);
+		assertTrue(table.getColumn("STATUS") instanceof ColumnTable.IntegerColumn);
+		assertTrue(table.isMissing(1, "TIME"));
+		assertTrue(Double.isNaN(table.getDouble(1, "TIME")));
+		assertTrue(table.isMissing(2, "STATUS"));
+		assertTrue(Double.isNaN(table.getDouble(2, "STATUS")));
+		assertEquals(1.5, table.getDouble(0, "TIME"), 0.0);
+
+		// the original text is kept
+		assertEquals("1.50", table.getString(0, "TIME"));
+		assertEquals("", table.getString(1, "TIME"));
+		assertEquals("10", table.getString(2, "TIME"));
+		assertEquals("2.25", table.getString(3, "TIME"));
+
+		ColumnTable.CategoricalColumn group = (ColumnTable.CategoricalColumn) table.getColumn("GROUP");
+		assertEquals(3, group.getLevels().size());
+		assertTrue(table.isMissing(1, "GROUP"));
+
+		ColumnTable subset = table.subset(new int[] {3, 0});
+		assertEquals("d", subset.getRowName(0));
+		assertEquals("1.50", subset.getString(1, "TIME"));
+		assertArrayEquals(new double[] {2.25, 1.5}, subset.getDoubles("TIME"), 0.0);
+	}
+
+	@Test
+	public void testNumbersBeforeText() throws Exception {
+		// the numbers read before the first text keep their text
+		String csv = "ID\tVALUE\n"
+				+ "a\t1.0\n"
+				+ "b\t2\n"
+				+ "c\tlow\n"
+				+ "d\t1.0\n";
+		ColumnTable table = ColumnTable.readCSV(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), '\t');
+		ColumnTable.CategoricalColumn column = (ColumnTable.CategoricalColumn) table.getColumn("VALUE");
+		assertEquals(3, column.getLevels().size());
+		assertEquals("1.0", table.getString(0, "VALUE"));
+		assertEquals("2", table.getString(1, "VALUE"));
+		assertEquals("low", table.getString(2, "VALUE"));
+		assertEquals(column.getCode(0), column.getCode(3));
+	}
+}
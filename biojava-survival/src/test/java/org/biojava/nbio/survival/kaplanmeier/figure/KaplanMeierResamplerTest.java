@@ -0,0 +1,151 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.survival.kaplanmeier.figure;
+
+import org.biojava.nbio.survival.cox.CoxInfo;
+import org.biojava.nbio.survival.cox.CoxR;
+import org.biojava.nbio.survival.cox.StrataInfo;
+import org.biojava.nbio.survival.cox.SurvFitInfo;
+import org.biojava.nbio.survival.cox.SurvivalInfo;
+import org.biojava.nbio.survival.data.WorkSheet;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares {@link KaplanMeierResampler} with {@link SurvFitKM} and with the
+ * score test of {@link CoxR}, which is the log-rank test for two groups
+ * without tied times.
+ */
+public class KaplanMeierResamplerTest {
+
+	private static final double DELTA = 1e-9;
+
+	/**
+	 * Compares the curve of a group with the one of SurvFitKM.
+	 */
+	private static void assertSameCurve(StrataInfo expected, KaplanMeierResampler.SurvivalCurve actual) {
+		assertEquals(expected.getTime().size(), actual.size());
+		for (int s = 0; s < actual.size(); s++) {
+			assertEquals(expected.getTime().get(s), actual.getTime()[s], 0.0);
+			assertEquals(expected.getNrisk().get(s), actual.getNrisk()[s], DELTA);
+			assertEquals(expected.getSurv().get(s), actual.getSurvival()[s], DELTA);
+			double stdErr = expected.getStderr().get(s);
+			if (Double.isInfinite(stdErr)) {
+				// all the samples at risk had an event
+				assertTrue(Double.isNaN(actual.getStdErr()[s]));
+			} else {
+				assertEquals(stdErr, actual.getStdErr()[s], DELTA);
+			}
+			if (expected.getSurv().get(s) > 0 && !Double.isInfinite(stdErr)) {
+				assertEquals(expected.getLower().get(s), actual.getLower()[s], 1e-6);
+				assertEquals(Math.min(1.0, expected.getUpper().get(s)), actual.getUpper()[s], 1e-6);
+			} else {
+				assertTrue(Double.isNaN(actual.getLower()[s]));
+				assertTrue(Double.isNaN(actual.getUpper()[s]));
+			}
+		}
+	}
+
+	@Test
+	public void testCurvesSameAsSurvFitKM() throws Exception {
+		WorkSheet worksheet = WorkSheet.readCSV(getClass().getClassLoader().getResourceAsStream("uis-complete.txt"), '\t');
+		ArrayList<SurvivalInfo> samples = new ArrayList<>();
+		int[] group = new int[worksheet.getRows().size()];
+		int i = 0;
+		for (String row : worksheet.getRows()) {
+			SurvivalInfo si = new SurvivalInfo(worksheet.getCellDouble(row, "TIME"), worksheet.getCellDouble(row, "CENSOR").intValue());
+			si.setOrder(i + 1);
+			String treat = worksheet.getCell(row, "TREAT");
+			si.addUnknownDataTypeVariable("TREAT", treat);
+			group[i++] = Integer.parseInt(treat);
+			samples.add(si);
+		}
+		KaplanMeierResampler resampler = KaplanMeierResampler.fromSurvivalInfo(samples, false);
+		KaplanMeierResampler.SurvivalCurve[] curves = resampler.fit(group, 0.95);
+
+		SurvFitInfo expected = new SurvFitKM().process("TREAT", new ArrayList<>(samples), false);
+		assertEquals(2, curves.length);
+		assertSameCurve(expected.getStrataInfoHashMap().get("0"), curves[0]);
+		assertSameCurve(expected.getStrataInfoHashMap().get("1"), curves[1]);
+	}
+
+	@Test
+	public void testLastEvent() throws Exception {
+		// the last sample of the group has an event, so the survival drops to 0
+		double[] time = {1, 2, 2, 3, 4, 5};
+		int[] status = {1, 0, 1, 1, 0, 1};
+		int[] group = new int[time.length];
+		ArrayList<SurvivalInfo> samples = new ArrayList<>();
+		for (int i = 0; i < time.length; i++) {
+			SurvivalInfo si = new SurvivalInfo(time[i], status[i]);
+			si.setOrder(i + 1);
+			si.addUnknownDataTypeVariable("G", "0");
+			samples.add(si);
+		}
+		KaplanMeierResampler.SurvivalCurve curve = new KaplanMeierResampler(time, status, null).fit(group, 0.95)[0];
+		int last = curve.size() - 1;
+		assertEquals(0.0, curve.getSurvival()[last], 0.0);
+		assertTrue(Double.isNaN(curve.getStdErr()[last]));
+		assertFalse(Double.isNaN(curve.getStdErr()[last - 1]));
+
+		SurvFitInfo expected = new SurvFitKM().process("G", samples, false);
+		assertSameCurve(expected.getStrataInfoHashMap().get("0"), curve);
+	}
+
+	@Test
+	public void testLogRankSameAsCoxScore() throws Exception {
+		Random random = new Random(42);
+		int n = 200;
+		double[] time = new double[n];
+		int[] status = new int[n];
+		int[] group = new int[n];
+		ArrayList<SurvivalInfo> samples = new ArrayList<>();
+		for (int i = 0; i < n; i++) {
+			group[i] = i % 2;
+			// continuous times, so that there are no ties
+			time[i] = -Math.log(random.nextDouble()) / (group[i] == 0 ? 1.0 : 1.5);
+			status[i] = random.nextDouble() < 0.8 ? 1 : 0;
+			SurvivalInfo si = new SurvivalInfo(time[i], status[i]);
+			si.setOrder(i + 1);
+			si.addContinuousVariable("G", (double) group[i]);
+			samples.add(si);
+		}
+		assertEquals(n, Arrays.stream(time).distinct().count());
+
+		KaplanMeierResampler resampler = new KaplanMeierResampler(time, status, null);
+		CoxInfo cox = new CoxR().process(new ArrayList<>(Arrays.asList("G")), samples, false, false, false, false);
+
+		KaplanMeierResampler.LogRankTest test = resampler.logRankTest(group, 200, 7);
+		assertEquals(cox.getScoreLogrankTest(), test.getStatistic(), 1e-6);
+		assertEquals(cox.getScoreLogrankTestpvalue(), test.getPvalue(), 1e-6);
+		assertEquals(1, test.getDf());
+		assertEquals(test.getStatistic(), resampler.logRank(group), 0.0);
+
+		// the permutations only depend on the seed
+		assertEquals(test.getPermutationPvalue(), resampler.logRankTest(group, 200, 7).getPermutationPvalue(), 0.0);
+		assertTrue(test.getPermutationPvalue() > 0 && test.getPermutationPvalue() <= 1);
+	}
+}
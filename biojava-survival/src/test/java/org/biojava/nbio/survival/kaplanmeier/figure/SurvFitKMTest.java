@@ -0,0 +1,83 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.survival.kaplanmeier.figure;
+
+import org.biojava.nbio.survival.cox.StrataInfo;
+import org.biojava.nbio.survival.cox.SurvFitInfo;
+import org.biojava.nbio.survival.data.ColumnTable;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares the Kaplan-Meier curves of a {@link ColumnTable} with the ones of
+ * a file read as a {@link org.biojava.nbio.survival.data.WorkSheet}.
+ */
+public class SurvFitKMTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	static InputStream getUis() {
+		return SurvFitKMTest.class.getClassLoader().getResourceAsStream("uis-complete.txt");
+	}
+
+	static void assertSameCurves(LinkedHashMap<String, StrataInfo> expected, LinkedHashMap<String, StrataInfo> actual) {
+		assertEquals(expected.keySet(), actual.keySet());
+		for (Map.Entry<String, StrataInfo> entry : expected.entrySet()) {
+			StrataInfo e = entry.getValue();
+			StrataInfo a = actual.get(entry.getKey());
+			assertEquals(e.getTime(), a.getTime());
+			assertEquals(e.getNrisk(), a.getNrisk());
+			assertEquals(e.getNevent(), a.getNevent());
+			assertEquals(e.getSurv(), a.getSurv());
+			assertEquals(e.getStderr(), a.getStderr());
+			assertEquals(e.getLower(), a.getLower());
+			assertEquals(e.getUpper(), a.getUpper());
+		}
+	}
+
+	@Test
+	public void testSameAsWorkSheet() throws Exception {
+		File file = tmp.newFile("uis-complete.txt");
+		try (InputStream is = getUis()) {
+			Files.copy(is, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		ColumnTable table = ColumnTable.readCSV(file, '\t');
+
+		SurvFitKM survFitKM = new SurvFitKM();
+		for (String variable : new String[] {"TREAT", "HERCOC"}) {
+			SurvFitInfo expected = survFitKM.process(file.getAbsolutePath(), "TIME", "CENSOR", null, variable, false);
+			SurvFitInfo actual = survFitKM.process(table, "TIME", "CENSOR", null, variable, false);
+			assertSameCurves(expected.getStrataInfoHashMap(), actual.getStrataInfoHashMap());
+			assertSameCurves(expected.getUnweightedStrataInfoHashMap(), actual.getUnweightedStrataInfoHashMap());
+		}
+	}
+}